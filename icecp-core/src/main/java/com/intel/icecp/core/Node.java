@@ -19,6 +19,7 @@ import com.intel.icecp.core.management.Channels;
 import com.intel.icecp.core.metadata.Persistence;
 import com.intel.icecp.core.misc.ChannelLifetimeException;
 import com.intel.icecp.core.modules.Modules;
+import com.intel.icecp.core.pipeline.Operations;
 import com.intel.icecp.core.security.TrustModels;
 
 import java.net.URI;
@@ -116,6 +117,15 @@ public interface Node extends Describable {
      */
     public TrustModels getTrustModels();
 
+    /**
+     * @return the node's operation providers, configured from the node's "operations" configuration, from which
+     * channel pipelines are built; implementations that do not build pipelines may leave this unsupported
+     * @throws UnsupportedOperationException if the node does not provide operations
+     */
+    default Operations getOperations() {
+        throw new UnsupportedOperationException("This node does not provide pipeline operations");
+    }
+
     /**
      * @return the node's key manager
      */
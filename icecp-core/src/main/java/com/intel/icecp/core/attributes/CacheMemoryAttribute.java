@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.attributes;
+
+import com.intel.icecp.node.utils.MemoryGovernor;
+
+import java.io.Serializable;
+
+/**
+ * Report the memory held by the node's message caches, as accounted by a {@link MemoryGovernor}; all sizes are in
+ * bytes
+ *
+ */
+public class CacheMemoryAttribute extends BaseAttribute<CacheMemoryAttribute.CacheMemory> {
+
+    private final MemoryGovernor governor;
+
+    public CacheMemoryAttribute(MemoryGovernor governor) {
+        super("cache-memory", CacheMemory.class);
+        this.governor = governor;
+    }
+
+    @Override
+    public CacheMemory value() {
+        return new CacheMemory(governor.getUsage(), governor.getBudget(), governor.getEntryCount(), governor.getEvictions());
+    }
+
+    /**
+     * Expose the memory metrics of the caches; the {@link #usagePercentage} is added for ease of use
+     */
+    public static class CacheMemory implements Serializable {
+        private static final long serialVersionUID = 3021848937154392867L;
+        public final long usedBytes;
+        public final long budgetBytes;
+        public final int entries;
+        public final long evictions;
+        public final float usagePercentage;
+
+        /**
+         * Constructor necessary for Jackson serialization
+         */
+        public CacheMemory() {
+            this(0, 1, 0, 0);
+        }
+
+        public CacheMemory(long usedBytes, long budgetBytes, int entries, long evictions) {
+            this.usedBytes = usedBytes;
+            this.budgetBytes = budgetBytes;
+            this.entries = entries;
+            this.evictions = evictions;
+            this.usagePercentage = usedBytes * 100 / (float) budgetBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "CacheMemory{" + "usedBytes=" + usedBytes + ", budgetBytes=" + budgetBytes + ", entries=" + entries +
+                    ", evictions=" + evictions + ", usagePercentage=" + usagePercentage + '}';
+        }
+    }
+}
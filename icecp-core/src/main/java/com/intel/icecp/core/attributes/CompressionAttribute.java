@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.attributes;
+
+import java.io.Serializable;
+
+/**
+ * Specifies the compression of the encoded messages of a channel: the name of the preset dictionary trained for the
+ * channel type (e.g. attribute or event channels), the compression level and the size below which messages are sent
+ * uncompressed.
+ *
+ */
+public class CompressionAttribute extends BaseAttribute<CompressionAttribute.CompressionSpecs> {
+
+    public static final String ATTRIBUTE_NAME = "compression";
+
+    /** Compression specs */
+    private final CompressionSpecs compressionSpecs;
+
+    /**
+     * Serializable compression specifications
+     *
+     */
+    public static class CompressionSpecs implements Serializable {
+
+        /**
+         * Compression specification comprising:
+         * <ul>
+         * <li> Name of the preset dictionary (null for none) </li>
+         * <li> Compression level (0-9, or -1 for the default level) </li>
+         * <li> Size (in bytes) below which messages are not compressed </li>
+         * </ul>
+         */
+        public final String dictionary;
+        public final int level;
+        public final int threshold;
+
+        public CompressionSpecs(String dictionary, int level, int threshold) {
+            this.dictionary = dictionary;
+            this.level = level;
+            this.threshold = threshold;
+        }
+    }
+
+    public CompressionAttribute(CompressionSpecs compressionSpecs) {
+        super(ATTRIBUTE_NAME, CompressionSpecs.class);
+        this.compressionSpecs = compressionSpecs;
+    }
+
+    public CompressionAttribute(String dictionary, int level, int threshold) {
+        this(new CompressionSpecs(dictionary, level, threshold));
+    }
+
+    /**
+     * Simply return the value of {@link #compressionSpecs}
+     *
+     * {@inheritDoc }
+     */
+    @Override
+    public CompressionSpecs value() {
+        return compressionSpecs;
+    }
+
+}
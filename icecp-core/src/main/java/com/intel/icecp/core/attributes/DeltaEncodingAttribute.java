@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.attributes;
+
+/**
+ * Specifies the delta encoding of the messages of a slowly-changing channel (e.g. attribute or status channels): the
+ * number of messages between two keyframes, i.e. full messages that subsequent messages are encoded against.
+ *
+ */
+public class DeltaEncodingAttribute extends BaseAttribute<Integer> {
+
+    public static final String ATTRIBUTE_NAME = "delta-encoding";
+
+    /** Number of messages between two keyframes */
+    private final int keyframeInterval;
+
+    public DeltaEncodingAttribute(int keyframeInterval) {
+        super(ATTRIBUTE_NAME, Integer.class);
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Simply return the value of {@link #keyframeInterval}
+     *
+     * {@inheritDoc }
+     */
+    @Override
+    public Integer value() {
+        return keyframeInterval;
+    }
+
+}
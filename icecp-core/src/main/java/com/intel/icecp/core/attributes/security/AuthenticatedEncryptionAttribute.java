@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.attributes.security;
+
+import com.intel.icecp.core.attributes.BaseAttribute;
+import com.intel.icecp.core.attributes.security.SymmetricEncryptionAttribute.EncryptionSpecs;
+import java.net.URI;
+
+/**
+ * Specifies authenticated encryption attributes (e.g., AES-GCM), i.e. the
+ * algorithm to use and key characteristics. A channel using this attribute
+ * obtains confidentiality and integrity in a single operation, without the
+ * need of a separate {@link SignAttribute}.
+ *
+ */
+public class AuthenticatedEncryptionAttribute extends BaseAttribute<EncryptionSpecs> {
+
+    public static final String ATTRIBUTE_NAME = "authenticated-encryption";
+
+    /** Algorithm specs */
+    private final EncryptionSpecs encryptionSpecs;
+
+    public AuthenticatedEncryptionAttribute(EncryptionSpecs encryptionSpecs) {
+        super(ATTRIBUTE_NAME, EncryptionSpecs.class);
+        this.encryptionSpecs = encryptionSpecs;
+    }
+
+    public AuthenticatedEncryptionAttribute(String encryptionAlgorithm, URI keyId, String keyAlgorithm, int keySize) {
+        this(new EncryptionSpecs(encryptionAlgorithm, keyId, keyAlgorithm, keySize));
+    }
+
+    /**
+     * Simply return the value of {@link #encryptionSpecs}
+     *
+     * {@inheritDoc }
+     */
+    @Override
+    public EncryptionSpecs value() {
+        return encryptionSpecs;
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.attributes.security;
+
+import com.intel.icecp.core.attributes.BaseAttribute;
+import java.io.Serializable;
+import java.net.URI;
+
+/**
+ * Contains all the required info to build a batched signing operation: messages signed concurrently share a single
+ * signature over a Merkle tree of their hashes; see {@link SignAttribute} for the signing details
+ *
+ */
+public class BatchedSignAttribute extends BaseAttribute<BatchedSignAttribute.BatchedSigningDetails> {
+
+    public static final String ATTRIBUTE_NAME = "batched-sign";
+
+    /** Attribute value wrapped in a {@link BatchedSigningDetails} class */
+    private final BatchedSigningDetails batchedSigningDetails;
+
+    /**
+     * Wrapper class for the signature details and the batch bounds
+     *
+     */
+    public static class BatchedSigningDetails implements Serializable {
+        private static final long serialVersionUID = 1L;
+        public final SignAttribute.SigningDetails signingDetails;
+        /** Maximum number of messages covered by a single signature */
+        public final int maxBatchSize;
+        /** Maximum time (in ms) the first message of a batch waits for concurrently signed messages */
+        public final long batchWindowMs;
+
+        public BatchedSigningDetails(SignAttribute.SigningDetails signingDetails, int maxBatchSize, long batchWindowMs) {
+            this.signingDetails = signingDetails;
+            this.maxBatchSize = maxBatchSize;
+            this.batchWindowMs = batchWindowMs;
+        }
+    }
+
+    public BatchedSignAttribute(BatchedSigningDetails batchedSigningDetails) {
+        super(ATTRIBUTE_NAME, BatchedSigningDetails.class);
+        this.batchedSigningDetails = batchedSigningDetails;
+    }
+
+    public BatchedSignAttribute(String algorithmId, URI signingKeyId, URI verificationKey, String trustModelId, int maxBatchSize, long batchWindowMs) {
+        this(new BatchedSigningDetails(new SignAttribute.SigningDetails(algorithmId, signingKeyId, verificationKey, trustModelId), maxBatchSize, batchWindowMs));
+    }
+
+    /**
+     * {@inheritDoc }
+     *
+     */
+    @Override
+    public BatchedSigningDetails value() {
+        return batchedSigningDetails;
+    }
+
+}
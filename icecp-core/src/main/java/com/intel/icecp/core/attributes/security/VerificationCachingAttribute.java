@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.attributes.security;
+
+import com.intel.icecp.core.attributes.BaseAttribute;
+
+/**
+ * Enable or disable the caching of successful signature verifications on a channel; caching is enabled by default.
+ * Replay-sensitive channels, which must re-verify every received message, should add this attribute with a false
+ * value.
+ *
+ */
+public class VerificationCachingAttribute extends BaseAttribute<Boolean> {
+
+    public static final String ATTRIBUTE_NAME = "verification-caching";
+
+    private final boolean enabled;
+
+    public VerificationCachingAttribute(boolean enabled) {
+        super(ATTRIBUTE_NAME, Boolean.class);
+        this.enabled = enabled;
+    }
+
+    /**
+     * {@inheritDoc }
+     *
+     */
+    @Override
+    public Boolean value() {
+        return enabled;
+    }
+
+}
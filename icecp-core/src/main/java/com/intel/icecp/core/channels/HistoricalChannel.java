@@ -18,7 +18,12 @@ package com.intel.icecp.core.channels;
 import com.intel.icecp.core.Channel;
 import com.intel.icecp.core.Message;
 import com.intel.icecp.core.misc.ChannelIOException;
+import com.intel.icecp.node.utils.PipelinedRetrieval;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  *
@@ -51,4 +56,67 @@ public interface HistoricalChannel<T extends Message> extends Channel<T> {
      * {@link Message}s
      */
     CompletableFuture<T> get(long id) throws ChannelIOException;
+
+    /**
+     * Retrieve all messages published under an ID; this is a single message
+     * unless the channel publishes messages in batches.
+     *
+     * @param id the {@link Message} ID
+     * @return the messages published under the ID, in publication order; the
+     * future completes exceptionally if they cannot be retrieved
+     */
+    default CompletableFuture<List<T>> getAll(long id) {
+        try {
+            return get(id).thenApply(Collections::singletonList);
+        } catch (ChannelIOException e) {
+            CompletableFuture<List<T>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * Find the first message published at or after a given time. Channels
+     * that do not record publication times keep this default, which fails.
+     *
+     * @param timestamp the publication time, in ms since the epoch
+     * @return the ID of the first message published at or after the given
+     * time or, if there is none, the ID following the latest message; the
+     * future completes exceptionally if the channel cannot look it up
+     * @throws ChannelIOException when the channel cannot look up its history
+     */
+    default CompletableFuture<Long> findId(long timestamp) throws ChannelIOException {
+        CompletableFuture<Long> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new UnsupportedOperationException("Channel does not record publication times: " + getName()));
+        return failed;
+    }
+
+    /**
+     * Retrieve the messages published under a range of IDs. The stream is
+     * lazy: messages are requested as the stream is consumed, with a window of
+     * requests in flight (see {@link PipelinedRetrieval}). IDs that cannot be
+     * retrieved are skipped.
+     *
+     * @param fromId the first {@link Message} ID
+     * @param toId the last {@link Message} ID, inclusive
+     * @return the messages of the range, in ID order
+     */
+    default Stream<T> range(long fromId, long toId) {
+        return PipelinedRetrieval.stream(fromId, toId, PipelinedRetrieval.DEFAULT_WINDOW, this::getAll);
+    }
+
+    /**
+     * Retrieve the messages published during a time range; see
+     * {@link #range(long, long)}.
+     *
+     * @param from the earliest publication time
+     * @param to the latest publication time, inclusive
+     * @return the messages of the range, in ID order
+     * @throws ChannelIOException when the channel cannot look up its history
+     */
+    default Stream<T> range(Instant from, Instant to) throws ChannelIOException {
+        CompletableFuture<Long> fromId = findId(from.toEpochMilli());
+        CompletableFuture<Long> toId = findId(to.toEpochMilli() + 1).thenApply(id -> id - 1);
+        return PipelinedRetrieval.stream(fromId, toId, PipelinedRetrieval.DEFAULT_WINDOW, this::getAll);
+    }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata;
+
+import com.intel.icecp.core.Metadata;
+import com.intel.icecp.node.utils.SegmentedLog;
+
+/**
+ * Keep every message published on a channel in an append-only log instead of replacing the previous message; for
+ * channels backed by files, the log is a directory of memory-mapped segment files (see
+ * {@link SegmentedLog}) and messages can be retrieved by ID.
+ *
+ */
+public class AppendOnlyLog implements Metadata {
+
+    public static final int DEFAULT_SEGMENT_SIZE = SegmentedLog.DEFAULT_SEGMENT_SIZE;
+    public static final int DEFAULT_INDEX_INTERVAL = SegmentedLog.DEFAULT_INDEX_INTERVAL;
+
+    /**
+     * The size of each segment file, in bytes
+     */
+    public final int segmentSize;
+
+    /**
+     * The number of bytes between two entries of the sparse ID index
+     */
+    public final int indexInterval;
+
+    /**
+     * Build a log configuration with {@link #DEFAULT_SEGMENT_SIZE} and {@link #DEFAULT_INDEX_INTERVAL}
+     */
+    public AppendOnlyLog() {
+        this(DEFAULT_SEGMENT_SIZE, DEFAULT_INDEX_INTERVAL);
+    }
+
+    /**
+     * @param segmentSize see {@link #segmentSize}
+     * @param indexInterval see {@link #indexInterval}
+     */
+    public AppendOnlyLog(int segmentSize, int indexInterval) {
+        if (segmentSize < 1 || indexInterval < 1) {
+            throw new IllegalArgumentException("Segment size and index interval must be positive");
+        }
+        this.segmentSize = segmentSize;
+        this.indexInterval = indexInterval;
+    }
+}
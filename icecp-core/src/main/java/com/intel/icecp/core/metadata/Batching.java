@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata;
+
+import com.intel.icecp.core.Metadata;
+
+/**
+ * Enable publisher-side batching on a channel: published messages are collected until {@link #maxMessages} are pending
+ * or the first pending message has waited {@link #lingerMs}, and are then published together as a single container
+ * under one message ID. Subscribers split batches transparently and are notified once per message of the batch.
+ * <p>
+ * Batching trades latency (at most {@link #lingerMs}) for throughput; it is most useful for high-rate publishers of
+ * small messages, where per-message network overhead dominates.
+ *
+ */
+public class Batching implements Metadata {
+
+    public static final int DEFAULT_MAX_MESSAGES = 64;
+    public static final long DEFAULT_LINGER_MS = 5;
+
+    /**
+     * The maximum number of messages published in a single batch
+     */
+    public final int maxMessages;
+
+    /**
+     * The maximum number of milliseconds a message waits for its batch to fill up before the batch is published
+     */
+    public final long lingerMs;
+
+    /**
+     * Build a batching configuration with {@link #DEFAULT_MAX_MESSAGES} and {@link #DEFAULT_LINGER_MS}
+     */
+    public Batching() {
+        this(DEFAULT_MAX_MESSAGES, DEFAULT_LINGER_MS);
+    }
+
+    /**
+     * @param maxMessages see {@link #maxMessages}
+     * @param lingerMs see {@link #lingerMs}
+     */
+    public Batching(int maxMessages, long lingerMs) {
+        if (maxMessages < 1 || lingerMs < 0) {
+            throw new IllegalArgumentException("Batches must hold at least one message and linger for a non-negative time");
+        }
+        this.maxMessages = maxMessages;
+        this.lingerMs = lingerMs;
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata;
+
+import com.intel.icecp.core.Metadata;
+
+/**
+ * Enable conflating ("latest-only") subscriptions on a channel: when a newer message is announced while an older one
+ * is still being retrieved or processed, the intermediate messages are skipped and subscribers only receive the
+ * newest one. This bounds the backlog of slow consumers that only care about the current state, e.g. dashboards and
+ * control loops; it must not be used on channels where every message matters.
+ *
+ */
+public class Conflation implements Metadata {
+
+    public static final Conflation LATEST_ONLY = new Conflation();
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata;
+
+import com.intel.icecp.core.Metadata;
+
+/**
+ * Enable content-addressed deduplication of a channel's cached messages: publishers encode each message once, and
+ * messages whose encoded bytes are identical (e.g. periodic heartbeats or unchanged state) share a single cached copy
+ * while keeping their own ID and expiration. Memory used by the publisher's cache then grows with the number of
+ * distinct payloads rather than with the number of published messages.
+ * <p>
+ * Deduplication costs a hash of every published message; it does not help channels whose pipeline produces different
+ * bytes for identical messages (e.g. encryption with random IVs).
+ *
+ */
+public class Deduplication implements Metadata {
+
+    public static final Deduplication CONTENT_HASH = new Deduplication();
+}
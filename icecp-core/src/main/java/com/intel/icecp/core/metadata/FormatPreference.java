@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata;
+
+import com.intel.icecp.core.Metadata;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lists the formats (by MIME type) that a channel user supports, most preferred first. When opening a channel without
+ * an explicit {@link Format}, received messages are accepted in any format of the list, while messages are published
+ * in JSON (or in the first format of the list if JSON is not supported) so that peers unaware of the negotiation can
+ * still read them; they are only sent in another format of the list, e.g. a binary one, to subscribers that request it
+ * (see {@link com.intel.icecp.core.metadata.formats.NegotiatedFormat}). E.g. external tools may list {@link #JSON}
+ * only, while nodes prefer binary formats for their internal channels.
+ *
+ */
+public class FormatPreference implements Metadata {
+
+    public static final String JSON = "application/json";
+    public static final String CBOR = "application/cbor";
+    public static final String TLV = "application/x-icecp-tlv";
+
+    /**
+     * The MIME types of the supported formats, most preferred first
+     */
+    public final List<String> mimeTypes;
+
+    /**
+     * @param mimeTypes the MIME types of the supported formats, most preferred first
+     */
+    public FormatPreference(String... mimeTypes) {
+        if (mimeTypes.length == 0) {
+            throw new IllegalArgumentException("At least one format must be supported");
+        }
+        this.mimeTypes = Collections.unmodifiableList(Arrays.asList(mimeTypes.clone()));
+    }
+}
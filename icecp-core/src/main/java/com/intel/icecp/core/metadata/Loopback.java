@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata;
+
+import com.intel.icecp.core.Metadata;
+
+/**
+ * Enable in-process delivery between the publishers and subscribers of a channel on the same node: published messages
+ * are handed to local subscriptions directly instead of being encoded, announced and fetched back through the
+ * network. Both sides must opt in, and only subscriptions with the publisher's message type and pipeline are
+ * short-circuited; other local subscriptions, and remote ones, retrieve messages from the network as usual.
+ * <p>
+ * Local subscribers receive the published message instance itself, not a decoded copy; they must not modify it.
+ *
+ */
+public class Loopback implements Metadata {
+
+    public static final Loopback IN_PROCESS = new Loopback();
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata;
+
+import com.intel.icecp.core.Metadata;
+
+/**
+ * Enable ordered subscriptions on a channel: messages retrieved out of order are held in a reorder buffer and released
+ * to subscribers in message ID order. A missing message is waited for at most {@link #maxHoldMs} (or until
+ * {@link #maxBuffered} later messages are held), after which it is skipped; messages arriving after they have been
+ * skipped are dropped.
+ *
+ */
+public class Ordering implements Metadata {
+
+    public static final long DEFAULT_MAX_HOLD_MS = 500;
+    public static final int DEFAULT_MAX_BUFFERED = 256;
+
+    /**
+     * The maximum number of milliseconds to wait for a missing message before skipping it
+     */
+    public final long maxHoldMs;
+
+    /**
+     * The maximum number of messages held while waiting for a missing message
+     */
+    public final int maxBuffered;
+
+    /**
+     * Build an ordering configuration with {@link #DEFAULT_MAX_HOLD_MS} and {@link #DEFAULT_MAX_BUFFERED}
+     */
+    public Ordering() {
+        this(DEFAULT_MAX_HOLD_MS, DEFAULT_MAX_BUFFERED);
+    }
+
+    /**
+     * @param maxHoldMs see {@link #maxHoldMs}
+     * @param maxBuffered see {@link #maxBuffered}
+     */
+    public Ordering(long maxHoldMs, int maxBuffered) {
+        if (maxHoldMs < 0 || maxBuffered < 1) {
+            throw new IllegalArgumentException("Hold time must be non-negative and at least one message must be buffered");
+        }
+        this.maxHoldMs = maxHoldMs;
+        this.maxBuffered = maxBuffered;
+    }
+}
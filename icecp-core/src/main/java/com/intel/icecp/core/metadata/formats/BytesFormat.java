@@ -50,4 +50,23 @@ public class BytesFormat implements Format<BytesMessage> {
     public BytesMessage decode(InputStream stream) throws IOException {
         return new BytesMessage(StreamUtils.readAll(stream));
     }
+
+    /**
+     * Equality check; all bytes formats are the same.
+     *
+     * @param obj the object to compare
+     * @return true if equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj != null && obj.getClass() == getClass();
+    }
+
+    /**
+     * @return a hash code based on the class
+     */
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
 }
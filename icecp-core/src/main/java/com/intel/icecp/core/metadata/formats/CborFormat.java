@@ -16,22 +16,29 @@
 package com.intel.icecp.core.metadata.formats;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.intel.icecp.core.Message;
 import com.intel.icecp.core.channels.Token;
 import com.intel.icecp.core.metadata.Format;
-import net.named_data.jndn.Name;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Objects;
 
+/**
+ * A Jackson-based CBOR serializer/deserializer; all instances share the mapper and readers of {@link
+ * JacksonMapperRegistry#cbor()}.
+ *
+ * @param <T> the message type
+ */
 public class CborFormat<T extends Message> implements Format<T> {
 
-    private final ObjectMapper jacksonObjectMapper;
+    public final String mimeType = "application/cbor";
     private final Token<T> type;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
 
     public CborFormat(Class<T> type) {
         this(Token.of(type));
@@ -44,16 +51,17 @@ public class CborFormat<T extends Message> implements Format<T> {
      * @param type the type of message to encode/decode
      */
     public CborFormat(Token<T> type) {
-        CBORFactory factory = new CBORFactory();
-        this.jacksonObjectMapper = new ObjectMapper(factory);
+        JacksonMapperRegistry registry = JacksonMapperRegistry.cbor();
         this.type = type;
-        init();
-    }
-
-    private void init() {
-        SimpleModule module = new SimpleModule();
-        module.addSerializer(Name.class, new NdnNameSerializer());
-        jacksonObjectMapper.registerModule(module);
+        this.writer = registry.writer();
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        try {
+            // resolve the type now, with the class loader of the token (e.g. of a module), rather than in a network event handler that does not understand the types of the module
+            Thread.currentThread().setContextClassLoader(type.getClass().getClassLoader());
+            this.reader = registry.reader(type);
+        } finally {
+            Thread.currentThread().setContextClassLoader(cl);
+        }
     }
 
     /**
@@ -65,7 +73,7 @@ public class CborFormat<T extends Message> implements Format<T> {
     @Override
     public InputStream encode(T object) throws FormatEncodingException {
         try {
-            byte[] bytes = jacksonObjectMapper.writeValueAsBytes(object);
+            byte[] bytes = writer.writeValueAsBytes(object);
             return new ByteArrayInputStream(bytes);
         } catch (JsonProcessingException e) {
             throw new FormatEncodingException("Failed to encode to CBOR stream", e);
@@ -80,16 +88,39 @@ public class CborFormat<T extends Message> implements Format<T> {
      */
     @Override
     public T decode(InputStream stream) throws FormatEncodingException {
-        ClassLoader cl = Thread.currentThread().getContextClassLoader();
         try {
-            // this is necessary because serialization may happen in a network event handler that does not understand the types of the module
-            Thread.currentThread().setContextClassLoader(type.getClass().getClassLoader());
-            TypeReferenceAdapter<T> tra = new TypeReferenceAdapter<>(type.type());
-            return jacksonObjectMapper.readValue(stream, tra);
+            return reader.readValue(stream);
         } catch (IOException e) {
             throw new FormatEncodingException("Unable to parse CBOR stream.", e);
-        } finally {
-            Thread.currentThread().setContextClassLoader(cl);
         }
     }
+
+    /**
+     * Equality check, based on the message type; all instances share the mapper of
+     * {@link JacksonMapperRegistry#cbor()}.
+     *
+     * @param obj the object to compare
+     * @return true if equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        CborFormat<?> other = (CborFormat<?>) obj;
+        return type.type().getTypeName().equals(other.type.type().getTypeName());
+    }
+
+    /**
+     * @return a hash code based on the message type
+     */
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 97 * hash + Objects.hashCode(type.type().getTypeName());
+        return hash;
+    }
 }
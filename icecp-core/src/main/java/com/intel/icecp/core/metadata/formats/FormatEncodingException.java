@@ -21,6 +21,15 @@ package com.intel.icecp.core.metadata.formats;
  */
 public class FormatEncodingException extends Exception {
 
+    /**
+     * Constructor
+     *
+     * @param message the error message
+     */
+    public FormatEncodingException(String message) {
+        super(message);
+    }
+
     /**
      * Constructor
      *
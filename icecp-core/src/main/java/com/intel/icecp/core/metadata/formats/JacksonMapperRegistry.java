@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.intel.icecp.core.channels.Token;
+import net.named_data.jndn.Name;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares a configured Jackson {@link ObjectMapper} across {@link JsonFormat}/{@link CborFormat} instances and caches a
+ * pre-resolved {@link ObjectReader} per {@link Token} type, so that building a format (e.g. one per channel or event
+ * type) is cheap and decoding does not resolve the target type on every message. Readers and writers are immutable
+ * and thread-safe, see http://wiki.fasterxml.com/JacksonFAQThreadSafety.
+ * <p>
+ * The shared mappers returned by {@link #json()} and {@link #cbor()} must not be reconfigured; formats needing a
+ * different configuration should build their own registry from their own mapper.
+ *
+ */
+public class JacksonMapperRegistry {
+
+    private static final JacksonMapperRegistry JSON = new JacksonMapperRegistry(new ObjectMapper());
+    private static final JacksonMapperRegistry CBOR = new JacksonMapperRegistry(new ObjectMapper(new CBORFactory()));
+
+    private final ObjectMapper mapper;
+    private final ObjectWriter writer;
+    private final Map<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    /**
+     * @param mapper the mapper to share; it is configured with the serializers needed by ICECP messages and must not
+     * be modified once formats use it
+     */
+    public JacksonMapperRegistry(ObjectMapper mapper) {
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(Name.class, new NdnNameSerializer());
+        this.mapper = mapper.registerModule(module);
+        // not bound to a type so that messages are serialized using their runtime type, as ObjectMapper does
+        this.writer = mapper.writer();
+    }
+
+    /**
+     * @return the registry shared by all default {@link JsonFormat} instances
+     */
+    public static JacksonMapperRegistry json() {
+        return JSON;
+    }
+
+    /**
+     * @return the registry shared by all default {@link CborFormat} instances
+     */
+    public static JacksonMapperRegistry cbor() {
+        return CBOR;
+    }
+
+    /**
+     * @return the shared mapper
+     */
+    public ObjectMapper mapper() {
+        return mapper;
+    }
+
+    /**
+     * @return the shared writer
+     */
+    public ObjectWriter writer() {
+        return writer;
+    }
+
+    /**
+     * Retrieve the reader for the given type, building it on first use; equivalent tokens (e.g. two {@code new
+     * Token<List<String>>(){}} instances) share the same reader. The root deserializer is resolved when the reader is
+     * built, using the calling thread's context class loader.
+     *
+     * @param type the type to decode
+     * @return a reader bound to the given type
+     */
+    public ObjectReader reader(Token<?> type) {
+        JavaType javaType = mapper.getTypeFactory().constructType(type.type());
+        return readers.computeIfAbsent(javaType, mapper::readerFor);
+    }
+
+    /**
+     * @return the number of cached readers
+     */
+    public int size() {
+        return readers.size();
+    }
+}
@@ -15,24 +15,76 @@
  */
 package com.intel.icecp.core.metadata.formats;
 
-import com.intel.icecp.core.messages.BytesMessage;
+import com.fasterxml.jackson.module.jsonSchema.JsonSchema;
+import com.intel.icecp.core.Message;
 import com.intel.icecp.core.metadata.Format;
+import com.intel.icecp.core.metadata.formats.jbs.JbsCodec;
+import com.intel.icecp.core.metadata.formats.jbs.JbsSchemaCompiler;
+import com.intel.icecp.core.metadata.formats.jbs.SchemaErrorException;
+import com.intel.icecp.node.utils.StreamUtils;
+
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 
 /**
+ * JSON binary schema (JBS) serializer/deserializer: messages are encoded as a single fixed-size record whose layout is
+ * described by a {@link JsonSchema} (see {@link JbsSchemaCompiler}). The schema is compiled once, when the format is
+ * built; encoding and decoding then go straight between the message fields and a {@link ByteBuffer}. Thread-safe.
  *
+ * @param <T> the message type
  */
-public class JbsFormat implements Format<BytesMessage> {
+public class JbsFormat<T extends Message> implements Format<T> {
 
-    @Override
-    public InputStream encode(BytesMessage message) throws FormatEncodingException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+    public final String mimeType = "application/x-icecp-jbs";
+    private final JbsCodec<T> codec;
+
+    /**
+     * @param type the type of message to encode/decode; must have a no-argument constructor and fields named after
+     * the schema properties
+     * @param schema the object schema describing the binary layout of the messages
+     * @throws SchemaErrorException if the schema does not describe fixed-size records or does not fit the type
+     */
+    public JbsFormat(Class<T> type, JsonSchema schema) throws SchemaErrorException {
+        this.codec = JbsSchemaCompiler.compile(schema, type);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @param message a {@link Message}
+     * @return a stream of {@link JbsCodec#recordSize()} encoded bytes
+     */
     @Override
-    public BytesMessage decode(InputStream stream) throws FormatEncodingException, IOException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+    public InputStream encode(T message) throws FormatEncodingException {
+        if (message == null) {
+            throw new FormatEncodingException("Unable to encode a null message");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(codec.recordSize());
+        try {
+            codec.write(message, buffer);
+        } catch (SchemaErrorException e) {
+            throw new FormatEncodingException(e);
+        }
+        return new ByteArrayInputStream(buffer.array());
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @param stream a stream of encoded bytes
+     * @return a {@link Message} read from the first record of the stream
+     */
+    @Override
+    public T decode(InputStream stream) throws FormatEncodingException, IOException {
+        try {
+            return codec.read(ByteBuffer.wrap(StreamUtils.readAll(stream)));
+        } catch (SchemaErrorException e) {
+            throw new FormatEncodingException(e);
+        } catch (BufferUnderflowException e) {
+            throw new FormatEncodingException("Truncated record, expected " + codec.recordSize() + " bytes", e);
+        }
+    }
 }
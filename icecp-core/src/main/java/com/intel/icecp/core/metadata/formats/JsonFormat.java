@@ -16,30 +16,32 @@
 package com.intel.icecp.core.metadata.formats;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.intel.icecp.core.Message;
 import com.intel.icecp.core.channels.Token;
 import com.intel.icecp.core.metadata.Format;
-import net.named_data.jndn.Name;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Objects;
 
 
 /**
  * A Jackson-based serializer/deserializer that may optionally use a JsonSchema
  * (TODO). Should be thread-safe according to
- * http://wiki.fasterxml.com/JacksonFAQThreadSafety
+ * http://wiki.fasterxml.com/JacksonFAQThreadSafety. By default, all instances
+ * share the mapper and readers of {@link JacksonMapperRegistry#json()}.
  *
  * @param <T> the message type
  */
 public class JsonFormat<T extends Message> implements Format<T> {
 
     public final String mimeType = "application/json";
-    protected final ObjectMapper mapper = new ObjectMapper(); // allow subtypes to configure the mapper
     private final Token<T> type;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
 
     /**
      * Build a {@link Format} instance that parses JSON into the specified
@@ -58,14 +60,29 @@ public class JsonFormat<T extends Message> implements Format<T> {
      * @param type the type of message to encode/decode
      */
     public JsonFormat(Token<T> type) {
-        this.type = type;
-        init();
+        this(type, JacksonMapperRegistry.json());
     }
 
-    private void init() {
-        SimpleModule module = new SimpleModule();
-        module.addSerializer(Name.class, new NdnNameSerializer());
-        mapper.registerModule(module);
+    /**
+     * Build a {@link Format} instance using a specific mapper configuration;
+     * subtypes needing a differently configured mapper must keep their own
+     * registry (shared by all their instances) rather than configure the
+     * mapper of {@link JacksonMapperRegistry#json()}, which is shared JVM-wide.
+     *
+     * @param type the type of message to encode/decode
+     * @param registry the registry providing the mapper, reader and writer
+     */
+    protected JsonFormat(Token<T> type, JacksonMapperRegistry registry) {
+        this.type = type;
+        this.writer = registry.writer();
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        try {
+            // resolve the type now, with the class loader of the token (e.g. of a module), rather than in a network event handler that does not understand the types of the module
+            Thread.currentThread().setContextClassLoader(type.getClass().getClassLoader());
+            this.reader = registry.reader(type);
+        } finally {
+            Thread.currentThread().setContextClassLoader(cl);
+        }
     }
 
     /**
@@ -77,7 +94,7 @@ public class JsonFormat<T extends Message> implements Format<T> {
     @Override
     public InputStream encode(T object) throws FormatEncodingException {
         try {
-            byte[] bytes = mapper.writeValueAsBytes(object);
+            byte[] bytes = writer.writeValueAsBytes(object);
             return new ByteArrayInputStream(bytes);
         } catch (JsonProcessingException e) {
             throw new FormatEncodingException("Failed to encode to JSON", e);
@@ -92,16 +109,40 @@ public class JsonFormat<T extends Message> implements Format<T> {
      */
     @Override
     public T decode(InputStream stream) throws FormatEncodingException {
-        ClassLoader cl = Thread.currentThread().getContextClassLoader();
         try {
-            // this is necessary because serialization may happen in a network event handler that does not understand the types of the module
-            Thread.currentThread().setContextClassLoader(type.getClass().getClassLoader());
-            TypeReferenceAdapter<T> tra = new TypeReferenceAdapter<>(type.type());
-            return mapper.readValue(stream, tra);
+            return reader.readValue(stream);
         } catch (IOException e) {
             throw new FormatEncodingException("Unable to parse JSON stream.", e);
-        } finally {
-            Thread.currentThread().setContextClassLoader(cl);
         }
     }
+
+    /**
+     * Equality check, based on the message type: all instances share the
+     * mapper of {@link JacksonMapperRegistry#json()}, so formats of the same
+     * type encode and decode messages identically.
+     *
+     * @param obj the object to compare
+     * @return true if equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        JsonFormat<?> other = (JsonFormat<?>) obj;
+        return type.type().getTypeName().equals(other.type.type().getTypeName());
+    }
+
+    /**
+     * @return a hash code based on the message type
+     */
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 97 * hash + Objects.hashCode(type.type().getTypeName());
+        return hash;
+    }
 }
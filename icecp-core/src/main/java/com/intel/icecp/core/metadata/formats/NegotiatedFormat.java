@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats;
+
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.channels.Token;
+import com.intel.icecp.core.metadata.Format;
+import com.intel.icecp.core.metadata.FormatPreference;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Format negotiated from a {@link FormatPreference}: messages are decoded from any of the supported formats and, by
+ * default, encoded in JSON (or in the most preferred format if JSON is not supported) so that peers unaware of the
+ * negotiation can still read them. Publishers advertise {@link #getMimeTypes()} and subscribers request the format
+ * they prefer among the advertised ones (see {@link #negotiate(List)}); the publisher then answers these requests with
+ * a copy of the format encoding in the requested format (see {@link #encodingAs(String)}). Every payload identifies
+ * its own format:
+ * <ul>
+ * <li>CBOR payloads start with the CBOR self-describe tag (0xD9D9F7), so they remain valid CBOR for external tools;
+ * untagged CBOR (e.g. from a {@link CborFormat} channel) is recognized by its first byte</li>
+ * <li>TLV payloads start with 0xFF, which can start neither a JSON text nor a CBOR item</li>
+ * <li>JSON payloads are left untouched, so that JSON-only tools can still read and write them</li>
+ * </ul>
+ *
+ * @param <T> the message type
+ */
+public class NegotiatedFormat<T extends Message> implements Format<T> {
+
+    private static final byte[] CBOR_MAGIC = {(byte) 0xD9, (byte) 0xD9, (byte) 0xF7};
+    private static final byte[] TLV_MAGIC = {(byte) 0xFF};
+    private static final int UTF8_BOM_START = 0xEF;
+
+    /** The format in which {@link #encode(Message)} encodes messages */
+    public final String mimeType;
+    private final Token<T> type;
+    private final Map<String, Format<T>> formats;
+
+    /**
+     * @param type the type of message to encode/decode
+     * @param preference the formats to negotiate from; unknown MIME types are ignored
+     * @throws IllegalArgumentException if none of the preferred formats is known
+     */
+    public NegotiatedFormat(Token<T> type, FormatPreference preference) {
+        this.type = type;
+        this.formats = new LinkedHashMap<>();
+        for (String candidate : preference.mimeTypes) {
+            Format<T> format = buildFormat(type, candidate);
+            if (format != null) {
+                formats.putIfAbsent(candidate, format);
+            }
+        }
+        if (formats.isEmpty()) {
+            throw new IllegalArgumentException("None of the preferred formats is supported: " + preference.mimeTypes);
+        }
+        this.mimeType = formats.containsKey(FormatPreference.JSON) ? FormatPreference.JSON : formats.keySet().iterator().next();
+    }
+
+    private NegotiatedFormat(NegotiatedFormat<T> negotiated, String mimeType) {
+        this.type = negotiated.type;
+        this.formats = negotiated.formats;
+        this.mimeType = mimeType;
+    }
+
+    /**
+     * @param type the type of message to encode/decode
+     * @param preference the formats to negotiate from
+     */
+    public NegotiatedFormat(Class<T> type, FormatPreference preference) {
+        this(Token.of(type), preference);
+    }
+
+    /**
+     * @return the type of message encoded/decoded
+     */
+    public Token<T> getType() {
+        return type;
+    }
+
+    /**
+     * @return the MIME types of the supported formats, most preferred first; this is what publishers advertise
+     */
+    public List<String> getMimeTypes() {
+        return Collections.unmodifiableList(new ArrayList<>(formats.keySet()));
+    }
+
+    /**
+     * @param offered the MIME types of the formats a peer advertises
+     * @return the most preferred supported format among the offered ones, or null if there is none
+     */
+    public String negotiate(List<String> offered) {
+        for (String candidate : formats.keySet()) {
+            if (offered.contains(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param requested the MIME type of a supported format, e.g. as requested by a subscriber
+     * @return a format decoding the same formats as this one but encoding in the requested format
+     * @throws IllegalArgumentException if the requested format is not supported
+     */
+    public NegotiatedFormat<T> encodingAs(String requested) {
+        if (!formats.containsKey(requested)) {
+            throw new IllegalArgumentException("Format " + requested + " is not supported, supported formats are " + formats.keySet());
+        }
+        return requested.equals(mimeType) ? this : new NegotiatedFormat<>(this, requested);
+    }
+
+    private static <T extends Message> Format<T> buildFormat(Token<T> type, String mimeType) {
+        switch (mimeType) {
+            case FormatPreference.JSON:
+                return new JsonFormat<>(type);
+            case FormatPreference.CBOR:
+                return new CborFormat<>(type);
+            case FormatPreference.TLV:
+                return new TlvFormat<>(type);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param message a {@link Message}
+     * @return a stream of bytes encoded in the {@link #mimeType} format
+     */
+    @Override
+    public InputStream encode(T message) throws FormatEncodingException {
+        InputStream encoded = formats.get(mimeType).encode(message);
+        switch (mimeType) {
+            case FormatPreference.CBOR:
+                return new SequenceInputStream(new ByteArrayInputStream(CBOR_MAGIC), encoded);
+            case FormatPreference.TLV:
+                return new SequenceInputStream(new ByteArrayInputStream(TLV_MAGIC), encoded);
+            default:
+                return encoded;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param stream a stream of bytes encoded in any of the supported formats
+     * @return a {@link Message}
+     * @throws FormatEncodingException if the payload format is not supported
+     */
+    @Override
+    public T decode(InputStream stream) throws FormatEncodingException, IOException {
+        PushbackInputStream input = new PushbackInputStream(stream, CBOR_MAGIC.length);
+        String detected = detect(input);
+        Format<T> format = formats.get(detected);
+        if (format == null) {
+            throw new FormatEncodingException("Received a " + detected + " message, supported formats are " + formats.keySet());
+        }
+        return format.decode(input);
+    }
+
+    /**
+     * Detect the format of the payload, consuming its magic bytes (if any)
+     */
+    private static String detect(PushbackInputStream input) throws IOException, FormatEncodingException {
+        int first = input.read();
+        if (first < 0) {
+            throw new FormatEncodingException("Unable to decode an empty stream");
+        } else if (first == (TLV_MAGIC[0] & 0xFF)) {
+            return FormatPreference.TLV;
+        } else if (first == (CBOR_MAGIC[0] & 0xFF)) {
+            byte[] rest = new byte[CBOR_MAGIC.length - 1];
+            int read = readFully(input, rest);
+            if (read == rest.length && rest[0] == CBOR_MAGIC[1] && rest[1] == CBOR_MAGIC[2]) {
+                return FormatPreference.CBOR;
+            }
+            input.unread(rest, 0, read);
+        }
+        input.unread(first);
+        // JSON texts start with ASCII characters (or a UTF-8 byte order mark), CBOR messages (maps, arrays, tags) do not
+        return first >= 0x80 && first != UTF8_BOM_START ? FormatPreference.CBOR : FormatPreference.JSON;
+    }
+
+    private static int readFully(InputStream input, byte[] buffer) throws IOException {
+        int read = 0;
+        while (read < buffer.length) {
+            int count = input.read(buffer, read, buffer.length - read);
+            if (count < 0) {
+                break;
+            }
+            read += count;
+        }
+        return read;
+    }
+
+    /**
+     * Equality check, based on the message type, the supported MIME types (in order of preference) and the encoding
+     * MIME type; e.g. a format returned by {@link #encodingAs(String)} only equals the original if it encodes the same.
+     *
+     * @param obj the object to compare
+     * @return true if equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        NegotiatedFormat<?> other = (NegotiatedFormat<?>) obj;
+        return type.type().getTypeName().equals(other.type.type().getTypeName())
+                && mimeType.equals(other.mimeType) && getMimeTypes().equals(other.getMimeTypes());
+    }
+
+    /**
+     * @return a hash code based on the message type and the encoding MIME type
+     */
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 97 * hash + Objects.hashCode(type.type().getTypeName());
+        hash = 97 * hash + Objects.hashCode(mimeType);
+        return hash;
+    }
+}
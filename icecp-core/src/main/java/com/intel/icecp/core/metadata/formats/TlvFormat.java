@@ -15,10 +15,127 @@
  */
 package com.intel.icecp.core.metadata.formats;
 
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.channels.Token;
+import com.intel.icecp.core.metadata.Format;
+import com.intel.icecp.core.metadata.formats.tlv.TlvCodec;
+import com.intel.icecp.core.metadata.formats.tlv.TlvCodecs;
+import com.intel.icecp.core.metadata.formats.tlv.TlvReader;
+import com.intel.icecp.core.metadata.formats.tlv.TlvWriter;
+import com.intel.icecp.node.utils.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
 /**
- * A jndn-based serializer/deserializer using TLVs.
+ * A compact, NDN-TLV style binary serializer/deserializer. Messages are encoded as a sequence of TLV elements, one per
+ * field, without field names; numbers are encoded as varints. The codec of each message class is built on first use
+ * and cached (see {@link TlvCodecs} for the supported field types); encoding writes directly to a byte array,
+ * without intermediate trees. Field numbers are stable across versions of a message class (see {@link
+ * com.intel.icecp.core.metadata.formats.tlv.TlvField}), so peers may add or remove fields. Thread-safe.
  *
+ * @param <T> the message type
  */
-public class TlvFormat {
+public class TlvFormat<T extends Message> implements Format<T> {
+
+    public final String mimeType = "application/x-icecp-tlv";
+    private final Token<T> type;
+    private final TlvCodecs codecs;
+    private volatile TlvCodec<T> codec;
+
+    /**
+     * Build a {@link Format} instance for the specified class. Use this constructor for non-generic types.
+     *
+     * @param type the type of message to encode/decode
+     */
+    public TlvFormat(Class<T> type) {
+        this(Token.of(type));
+    }
+
+    /**
+     * Build a {@link Format} instance for the specified type. Use this constructor for generic types (e.g.
+     * {@literal AttributeMessage<String>}).
+     *
+     * @param type the type of message to encode/decode
+     */
+    public TlvFormat(Token<T> type) {
+        this(type, TlvCodecs.getDefault());
+    }
+
+    /**
+     * @param type the type of message to encode/decode
+     * @param codecs the codec registry to use, e.g. with custom codecs
+     */
+    public TlvFormat(Token<T> type, TlvCodecs codecs) {
+        this.type = type;
+        this.codecs = codecs;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param object a {@link Message}
+     * @return a stream of encoded bytes
+     */
+    @Override
+    public InputStream encode(T object) throws FormatEncodingException {
+        if (object == null) {
+            throw new FormatEncodingException("Unable to encode a null message");
+        }
+        TlvWriter writer = new TlvWriter();
+        codec().write(writer, object);
+        return new ByteArrayInputStream(writer.buffer(), 0, writer.size());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param stream a stream of encoded bytes
+     * @return a {@link Message}; ensure that the passed {@link #type} has a no-argument constructor
+     */
+    @Override
+    public T decode(InputStream stream) throws FormatEncodingException, IOException {
+        byte[] bytes = StreamUtils.readAll(stream);
+        return codec().read(new TlvReader(bytes), bytes.length);
+    }
+
+    private TlvCodec<T> codec() throws FormatEncodingException {
+        TlvCodec<T> resolved = codec;
+        if (resolved == null) {
+            resolved = codecs.codecFor(type.type());
+            codec = resolved;
+        }
+        return resolved;
+    }
+
+    /**
+     * Equality check, based on the message type and the codec registry (custom registries are compared by instance).
+     *
+     * @param obj the object to compare
+     * @return true if equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        TlvFormat<?> other = (TlvFormat<?>) obj;
+        return type.type().getTypeName().equals(other.type.type().getTypeName()) && codecs == other.codecs;
+    }
 
+    /**
+     * @return a hash code based on the message type and the codec registry
+     */
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 97 * hash + Objects.hashCode(type.type().getTypeName());
+        hash = 97 * hash + System.identityHashCode(codecs);
+        return hash;
+    }
 }
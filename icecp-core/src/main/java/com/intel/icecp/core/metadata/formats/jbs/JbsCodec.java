@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats.jbs;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reads and writes fixed-size JBS records of a single schema, as compiled by {@link JbsSchemaCompiler}. A record is a
+ * flat sequence of little-endian values; reading or writing one executes the compiled operations in order, with
+ * absolute accesses at precomputed offsets and no per-field schema lookups. Thread-safe.
+ *
+ * @param <T> the type of the objects read and written, either {@link GenericObject} or a class mirroring the schema
+ */
+public final class JbsCodec<T> {
+
+    private final Class<T> type;
+    private final JbsOp[] ops;
+    private final int recordSize;
+    private final int frames;
+
+    JbsCodec(Class<T> type, JbsOp[] ops, int recordSize, int frames) {
+        this.type = type;
+        this.ops = ops;
+        this.recordSize = recordSize;
+        this.frames = frames;
+    }
+
+    /**
+     * @return the type of the objects read and written
+     */
+    public Class<T> type() {
+        return type;
+    }
+
+    /**
+     * @return the size of a record, in bytes
+     */
+    public int recordSize() {
+        return recordSize;
+    }
+
+    /**
+     * @param buffer the buffer to check
+     * @return true if the buffer has at least one more complete record after its position
+     */
+    public boolean hasNext(ByteBuffer buffer) {
+        return buffer.remaining() >= recordSize;
+    }
+
+    /**
+     * Read a record at the position of the buffer and advance the position past it. Sets the byte order of the buffer
+     * to little-endian.
+     *
+     * @param buffer the buffer to read from
+     * @return the object read
+     * @throws BufferUnderflowException if the buffer has less than {@link #recordSize()} bytes remaining
+     * @throws SchemaErrorException if the record cannot be stored in a new object
+     */
+    public T read(ByteBuffer buffer) throws SchemaErrorException {
+        if (!hasNext(buffer)) {
+            throw new BufferUnderflowException();
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        int base = buffer.position();
+        Object[] objects = new Object[frames];
+        try {
+            for (JbsOp op : ops) {
+                op.read(buffer, base, objects);
+            }
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new SchemaErrorException("Unable to read record of type " + type.getName(), t);
+        }
+        buffer.position(base + recordSize);
+        return type.cast(objects[0]);
+    }
+
+    /**
+     * Write a record at the position of the buffer and advance the position past it. Sets the byte order of the
+     * buffer to little-endian. Missing (null) values are written as zeros.
+     *
+     * @param object the object to write
+     * @param buffer the buffer to write to
+     * @throws BufferOverflowException if the buffer has less than {@link #recordSize()} bytes remaining
+     * @throws SchemaErrorException if a value of the object does not match its schema type
+     */
+    public void write(T object, ByteBuffer buffer) throws SchemaErrorException {
+        if (!hasNext(buffer)) {
+            throw new BufferOverflowException();
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        int base = buffer.position();
+        Object[] objects = new Object[frames];
+        objects[0] = object;
+        try {
+            for (JbsOp op : ops) {
+                op.write(buffer, base, objects);
+            }
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new SchemaErrorException("Unable to write record of type " + type.getName(), t);
+        }
+        buffer.position(base + recordSize);
+    }
+}
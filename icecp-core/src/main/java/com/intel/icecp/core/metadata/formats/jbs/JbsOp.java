@@ -0,0 +1,490 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats.jbs;
+
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+
+/**
+ * Primitive operation of a compiled JBS record layout (see {@link JbsSchemaCompiler}): reads or writes one value at a
+ * fixed offset of the record, using absolute (little-endian) {@link ByteBuffer} accesses, and stores it in (or loads
+ * it from) the object at a fixed depth of the record. Values are stored and loaded through method handles built at
+ * compile time; a null setter means the value has no destination and is skipped.
+ *
+ */
+abstract class JbsOp {
+
+    /** Offset of the value in the record, in bytes */
+    final int offset;
+    /** Size of the value in the record, in bytes */
+    final int size;
+    /** Index of the object holding the value in the frames of a record */
+    final int depth;
+
+    JbsOp(int offset, int size, int depth) {
+        this.offset = offset;
+        this.size = size;
+        this.depth = depth;
+    }
+
+    /**
+     * Read the value from the record starting at base and store it in {@code frames[depth]}
+     */
+    abstract void read(ByteBuffer buffer, int base, Object[] frames) throws Throwable;
+
+    /**
+     * Load the value from {@code frames[depth]} and write it in the record starting at base
+     */
+    abstract void write(ByteBuffer buffer, int base, Object[] frames) throws Throwable;
+
+    /**
+     * Write zeros in place of the value, e.g. when the object holding it is null
+     */
+    final void zero(ByteBuffer buffer, int base) {
+        for (int i = 0; i < size; i++) {
+            buffer.put(base + offset + i, (byte) 0);
+        }
+    }
+
+    /**
+     * Start of a (possibly nested) object: creates it when reading, loads it from its parent when writing
+     */
+    static final class Open extends JbsOp {
+
+        /** ()Object, or null if the object is skipped */
+        private final MethodHandle constructor;
+        /** (Object)Object, or null for the root object or if the object is skipped */
+        private final MethodHandle getter;
+
+        Open(int depth, MethodHandle constructor, MethodHandle getter) {
+            super(0, 0, depth);
+            this.constructor = constructor;
+            this.getter = getter;
+        }
+
+        @Override
+        void read(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            frames[depth] = constructor == null ? null : (Object) constructor.invokeExact();
+        }
+
+        @Override
+        void write(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            if (depth > 0) {
+                Object parent = frames[depth - 1];
+                frames[depth] = parent == null || getter == null ? null : (Object) getter.invokeExact(parent);
+            }
+        }
+    }
+
+    /**
+     * End of a nested object: stores it in its parent when reading
+     */
+    static final class Close extends JbsOp {
+
+        /** (Object, Object)void, or null if the object is skipped */
+        private final MethodHandle setter;
+
+        Close(int depth, MethodHandle setter) {
+            super(0, 0, depth);
+            this.setter = setter;
+        }
+
+        @Override
+        void read(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object parent = frames[depth - 1];
+            if (parent != null && setter != null) {
+                setter.invokeExact(parent, frames[depth]);
+            }
+        }
+
+        @Override
+        void write(ByteBuffer buffer, int base, Object[] frames) {
+            // nothing to do
+        }
+    }
+
+    static final class Int32 extends JbsOp {
+
+        private final MethodHandle setter;
+        private final MethodHandle getter;
+
+        Int32(int offset, int depth, MethodHandle setter, MethodHandle getter) {
+            super(offset, Integer.BYTES, depth);
+            this.setter = setter;
+            this.getter = getter;
+        }
+
+        @Override
+        void read(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object target = frames[depth];
+            if (target != null && setter != null) {
+                setter.invokeExact(target, buffer.getInt(base + offset));
+            }
+        }
+
+        @Override
+        void write(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object source = frames[depth];
+            buffer.putInt(base + offset, source == null || getter == null ? 0 : (int) getter.invokeExact(source));
+        }
+    }
+
+    static final class Int64 extends JbsOp {
+
+        private final MethodHandle setter;
+        private final MethodHandle getter;
+
+        Int64(int offset, int depth, MethodHandle setter, MethodHandle getter) {
+            super(offset, Long.BYTES, depth);
+            this.setter = setter;
+            this.getter = getter;
+        }
+
+        @Override
+        void read(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object target = frames[depth];
+            if (target != null && setter != null) {
+                setter.invokeExact(target, buffer.getLong(base + offset));
+            }
+        }
+
+        @Override
+        void write(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object source = frames[depth];
+            buffer.putLong(base + offset, source == null || getter == null ? 0 : (long) getter.invokeExact(source));
+        }
+    }
+
+    static final class Float32 extends JbsOp {
+
+        private final MethodHandle setter;
+        private final MethodHandle getter;
+
+        Float32(int offset, int depth, MethodHandle setter, MethodHandle getter) {
+            super(offset, Float.BYTES, depth);
+            this.setter = setter;
+            this.getter = getter;
+        }
+
+        @Override
+        void read(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object target = frames[depth];
+            if (target != null && setter != null) {
+                setter.invokeExact(target, buffer.getFloat(base + offset));
+            }
+        }
+
+        @Override
+        void write(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object source = frames[depth];
+            buffer.putFloat(base + offset, source == null || getter == null ? 0 : (float) getter.invokeExact(source));
+        }
+    }
+
+    static final class Float64 extends JbsOp {
+
+        private final MethodHandle setter;
+        private final MethodHandle getter;
+
+        Float64(int offset, int depth, MethodHandle setter, MethodHandle getter) {
+            super(offset, Double.BYTES, depth);
+            this.setter = setter;
+            this.getter = getter;
+        }
+
+        @Override
+        void read(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object target = frames[depth];
+            if (target != null && setter != null) {
+                setter.invokeExact(target, buffer.getDouble(base + offset));
+            }
+        }
+
+        @Override
+        void write(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object source = frames[depth];
+            buffer.putDouble(base + offset, source == null || getter == null ? 0 : (double) getter.invokeExact(source));
+        }
+    }
+
+    static final class Bool extends JbsOp {
+
+        private final MethodHandle setter;
+        private final MethodHandle getter;
+
+        Bool(int offset, int depth, MethodHandle setter, MethodHandle getter) {
+            super(offset, 1, depth);
+            this.setter = setter;
+            this.getter = getter;
+        }
+
+        @Override
+        void read(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object target = frames[depth];
+            if (target != null && setter != null) {
+                setter.invokeExact(target, buffer.get(base + offset) != 0);
+            }
+        }
+
+        @Override
+        void write(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object source = frames[depth];
+            boolean value = source != null && getter != null && (boolean) getter.invokeExact(source);
+            buffer.put(base + offset, (byte) (value ? 1 : 0));
+        }
+    }
+
+    /**
+     * UTC milliseconds, stored as a {@link Timestamp}
+     */
+    static final class Time extends JbsOp {
+
+        private final MethodHandle setter;
+        private final MethodHandle getter;
+
+        Time(int offset, int depth, MethodHandle setter, MethodHandle getter) {
+            super(offset, Long.BYTES, depth);
+            this.setter = setter;
+            this.getter = getter;
+        }
+
+        @Override
+        void read(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object target = frames[depth];
+            if (target != null && setter != null) {
+                setter.invokeExact(target, new Timestamp(buffer.getLong(base + offset)));
+            }
+        }
+
+        @Override
+        void write(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object source = frames[depth];
+            Timestamp value = source == null || getter == null ? null : (Timestamp) getter.invokeExact(source);
+            buffer.putLong(base + offset, value == null ? 0 : value.getTime());
+        }
+    }
+
+    static final class Int32Array extends JbsOp {
+
+        private final int count;
+        private final MethodHandle setter;
+        private final MethodHandle getter;
+
+        Int32Array(int offset, int count, int depth, MethodHandle setter, MethodHandle getter) {
+            super(offset, count * Integer.BYTES, depth);
+            this.count = count;
+            this.setter = setter;
+            this.getter = getter;
+        }
+
+        @Override
+        void read(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object target = frames[depth];
+            if (target != null && setter != null) {
+                int[] values = new int[count];
+                for (int i = 0, position = base + offset; i < count; i++, position += Integer.BYTES) {
+                    values[i] = buffer.getInt(position);
+                }
+                setter.invokeExact(target, values);
+            }
+        }
+
+        @Override
+        void write(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object source = frames[depth];
+            int[] values = source == null || getter == null ? null : (int[]) getter.invokeExact(source);
+            for (int i = 0, position = base + offset; i < count; i++, position += Integer.BYTES) {
+                buffer.putInt(position, values == null || i >= values.length ? 0 : values[i]);
+            }
+        }
+    }
+
+    static final class Int64Array extends JbsOp {
+
+        private final int count;
+        private final MethodHandle setter;
+        private final MethodHandle getter;
+
+        Int64Array(int offset, int count, int depth, MethodHandle setter, MethodHandle getter) {
+            super(offset, count * Long.BYTES, depth);
+            this.count = count;
+            this.setter = setter;
+            this.getter = getter;
+        }
+
+        @Override
+        void read(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object target = frames[depth];
+            if (target != null && setter != null) {
+                long[] values = new long[count];
+                for (int i = 0, position = base + offset; i < count; i++, position += Long.BYTES) {
+                    values[i] = buffer.getLong(position);
+                }
+                setter.invokeExact(target, values);
+            }
+        }
+
+        @Override
+        void write(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object source = frames[depth];
+            long[] values = source == null || getter == null ? null : (long[]) getter.invokeExact(source);
+            for (int i = 0, position = base + offset; i < count; i++, position += Long.BYTES) {
+                buffer.putLong(position, values == null || i >= values.length ? 0 : values[i]);
+            }
+        }
+    }
+
+    static final class Float32Array extends JbsOp {
+
+        private final int count;
+        private final MethodHandle setter;
+        private final MethodHandle getter;
+
+        Float32Array(int offset, int count, int depth, MethodHandle setter, MethodHandle getter) {
+            super(offset, count * Float.BYTES, depth);
+            this.count = count;
+            this.setter = setter;
+            this.getter = getter;
+        }
+
+        @Override
+        void read(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object target = frames[depth];
+            if (target != null && setter != null) {
+                float[] values = new float[count];
+                for (int i = 0, position = base + offset; i < count; i++, position += Float.BYTES) {
+                    values[i] = buffer.getFloat(position);
+                }
+                setter.invokeExact(target, values);
+            }
+        }
+
+        @Override
+        void write(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object source = frames[depth];
+            float[] values = source == null || getter == null ? null : (float[]) getter.invokeExact(source);
+            for (int i = 0, position = base + offset; i < count; i++, position += Float.BYTES) {
+                buffer.putFloat(position, values == null || i >= values.length ? 0 : values[i]);
+            }
+        }
+    }
+
+    static final class Float64Array extends JbsOp {
+
+        private final int count;
+        private final MethodHandle setter;
+        private final MethodHandle getter;
+
+        Float64Array(int offset, int count, int depth, MethodHandle setter, MethodHandle getter) {
+            super(offset, count * Double.BYTES, depth);
+            this.count = count;
+            this.setter = setter;
+            this.getter = getter;
+        }
+
+        @Override
+        void read(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object target = frames[depth];
+            if (target != null && setter != null) {
+                double[] values = new double[count];
+                for (int i = 0, position = base + offset; i < count; i++, position += Double.BYTES) {
+                    values[i] = buffer.getDouble(position);
+                }
+                setter.invokeExact(target, values);
+            }
+        }
+
+        @Override
+        void write(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object source = frames[depth];
+            double[] values = source == null || getter == null ? null : (double[]) getter.invokeExact(source);
+            for (int i = 0, position = base + offset; i < count; i++, position += Double.BYTES) {
+                buffer.putDouble(position, values == null || i >= values.length ? 0 : values[i]);
+            }
+        }
+    }
+
+    static final class BoolArray extends JbsOp {
+
+        private final int count;
+        private final MethodHandle setter;
+        private final MethodHandle getter;
+
+        BoolArray(int offset, int count, int depth, MethodHandle setter, MethodHandle getter) {
+            super(offset, count, depth);
+            this.count = count;
+            this.setter = setter;
+            this.getter = getter;
+        }
+
+        @Override
+        void read(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object target = frames[depth];
+            if (target != null && setter != null) {
+                boolean[] values = new boolean[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = buffer.get(base + offset + i) != 0;
+                }
+                setter.invokeExact(target, values);
+            }
+        }
+
+        @Override
+        void write(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object source = frames[depth];
+            boolean[] values = source == null || getter == null ? null : (boolean[]) getter.invokeExact(source);
+            for (int i = 0; i < count; i++) {
+                buffer.put(base + offset + i, (byte) (values != null && i < values.length && values[i] ? 1 : 0));
+            }
+        }
+    }
+
+    static final class TimeArray extends JbsOp {
+
+        private final int count;
+        private final MethodHandle setter;
+        private final MethodHandle getter;
+
+        TimeArray(int offset, int count, int depth, MethodHandle setter, MethodHandle getter) {
+            super(offset, count * Long.BYTES, depth);
+            this.count = count;
+            this.setter = setter;
+            this.getter = getter;
+        }
+
+        @Override
+        void read(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object target = frames[depth];
+            if (target != null && setter != null) {
+                Timestamp[] values = new Timestamp[count];
+                for (int i = 0, position = base + offset; i < count; i++, position += Long.BYTES) {
+                    values[i] = new Timestamp(buffer.getLong(position));
+                }
+                setter.invokeExact(target, values);
+            }
+        }
+
+        @Override
+        void write(ByteBuffer buffer, int base, Object[] frames) throws Throwable {
+            Object source = frames[depth];
+            Timestamp[] values = source == null || getter == null ? null : (Timestamp[]) getter.invokeExact(source);
+            for (int i = 0, position = base + offset; i < count; i++, position += Long.BYTES) {
+                buffer.putLong(position, values == null || i >= values.length || values[i] == null ? 0 : values[i].getTime());
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats.jbs;
+
+import com.fasterxml.jackson.module.jsonSchema.JsonSchema;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Random-access reader of JBS record files, i.e. files of consecutive fixed-size records of a single schema (the
+ * format read sequentially by {@link JsonBinaryObjectReader}). The file is memory-mapped read-only, in segments of
+ * whole records so that files larger than 2GB can be mapped; the record stride is computed from the schema (see
+ * {@link JbsSchemaCompiler}), so that record N is read directly at offset N * stride. A trailing partial record is
+ * ignored.
+ * <p>
+ * Reads are thread-safe: each read works on its own view of the mapped segment, and {@link #stream()} may be
+ * parallel, in which case the record range is split across threads.
+ *
+ * @param <T> the type of the records, either {@link GenericObject} or a class mirroring the schema
+ */
+public class JbsRecordFile<T> implements Iterable<T>, AutoCloseable {
+
+    /** Maximum number of bytes in a single mapped segment */
+    private static final int MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    private final JbsCodec<T> codec;
+    private final long size;
+    private final int recordsPerSegment;
+    private volatile MappedByteBuffer[] segments;
+
+    /**
+     * Open a file of {@link GenericObject} records
+     *
+     * @param file the file to map
+     * @param schema the object schema of the records
+     * @return the opened file
+     * @throws IOException if the file cannot be mapped
+     * @throws SchemaErrorException if the schema does not describe fixed-size records
+     */
+    public static JbsRecordFile<GenericObject> open(File file, JsonSchema schema) throws IOException, SchemaErrorException {
+        return new JbsRecordFile<>(file, JbsSchemaCompiler.compile(schema));
+    }
+
+    /**
+     * @param file the file to map
+     * @param schema the object schema of the records
+     * @param type the class mirroring the schema
+     * @throws IOException if the file cannot be mapped
+     * @throws SchemaErrorException if the schema does not describe fixed-size records or does not fit the type
+     */
+    public JbsRecordFile(File file, JsonSchema schema, Class<T> type) throws IOException, SchemaErrorException {
+        this(file, JbsSchemaCompiler.compile(schema, type));
+    }
+
+    /**
+     * @param file the file to map
+     * @param codec the compiled schema of the records
+     * @throws IOException if the file cannot be mapped
+     */
+    public JbsRecordFile(File file, JbsCodec<T> codec) throws IOException {
+        this(file, codec, MAX_SEGMENT_SIZE / Math.max(1, codec.recordSize()));
+    }
+
+    JbsRecordFile(File file, JbsCodec<T> codec, int recordsPerSegment) throws IOException {
+        if (codec.recordSize() == 0) {
+            throw new IllegalArgumentException("Cannot index records of size 0");
+        }
+        this.codec = codec;
+        this.recordsPerSegment = recordsPerSegment;
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            long stride = codec.recordSize();
+            this.size = channel.size() / stride;
+
+            long segmentSize = recordsPerSegment * stride;
+            MappedByteBuffer[] mapped = new MappedByteBuffer[(int) ((size + recordsPerSegment - 1) / recordsPerSegment)];
+            for (int i = 0; i < mapped.length; i++) {
+                long start = i * segmentSize;
+                // mappings stay valid once the channel is closed
+                mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, size * stride - start));
+            }
+            this.segments = mapped;
+        }
+    }
+
+    /**
+     * @return the size of a record, in bytes
+     */
+    public int stride() {
+        return codec.recordSize();
+    }
+
+    /**
+     * @return the number of complete records in the file
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @param index the index of the record, starting at 0
+     * @return the record
+     * @throws IndexOutOfBoundsException if there is no such record
+     * @throws SchemaErrorException if the record cannot be stored in a new object
+     */
+    public T read(long index) throws SchemaErrorException {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("No record " + index + " in a file of " + size + " records");
+        }
+        MappedByteBuffer[] mapped = segments;
+        if (mapped == null) {
+            throw new IllegalStateException("Record file is closed");
+        }
+        ByteBuffer view = mapped[(int) (index / recordsPerSegment)].duplicate();
+        view.position((int) (index % recordsPerSegment) * codec.recordSize());
+        return codec.read(view);
+    }
+
+    /**
+     * @return an iterator over all records of the file
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return iterator(0, size);
+    }
+
+    /**
+     * @param from the index of the first record, inclusive
+     * @param to the index of the last record, exclusive
+     * @return an iterator over the records in the range; read failures are thrown as {@link IllegalStateException}s
+     */
+    public Iterator<T> iterator(long from, long to) {
+        return Spliterators.iterator(spliterator(from, to));
+    }
+
+    /**
+     * @return a spliterator over all records of the file
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return spliterator(0, size);
+    }
+
+    /**
+     * @param from the index of the first record, inclusive
+     * @param to the index of the last record, exclusive
+     * @return a spliterator over the records in the range, splitting the range in halves; read failures are thrown as
+     * {@link IllegalStateException}s
+     */
+    public Spliterator<T> spliterator(long from, long to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Invalid range [" + from + ", " + to + ") in a file of " + size + " records");
+        }
+        return new RecordSpliterator(from, to);
+    }
+
+    /**
+     * @return a sequential stream of all records of the file; call {@link Stream#parallel()} to scan the file in
+     * parallel
+     */
+    public Stream<T> stream() {
+        return stream(0, size);
+    }
+
+    /**
+     * @param from the index of the first record, inclusive
+     * @param to the index of the last record, exclusive
+     * @return a sequential stream of the records in the range
+     */
+    public Stream<T> stream(long from, long to) {
+        return StreamSupport.stream(spliterator(from, to), false);
+    }
+
+    /**
+     * Release the mapped segments; the memory is unmapped once they are garbage-collected
+     */
+    @Override
+    public void close() {
+        segments = null;
+    }
+
+    /**
+     * Spliterator over a range of record indexes
+     */
+    private class RecordSpliterator implements Spliterator<T> {
+
+        private long index;
+        private final long end;
+
+        RecordSpliterator(long from, long to) {
+            this.index = from;
+            this.end = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (index >= end) {
+                return false;
+            }
+            action.accept(readUnchecked(index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            while (index < end) {
+                action.accept(readUnchecked(index++));
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            long middle = index + (end - index) / 2;
+            if (middle == index) {
+                return null;
+            }
+            Spliterator<T> prefix = new RecordSpliterator(index, middle);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+
+        private T readUnchecked(long i) {
+            try {
+                return read(i);
+            } catch (SchemaErrorException e) {
+                throw new IllegalStateException("Unable to read record " + i, e);
+            }
+        }
+    }
+}
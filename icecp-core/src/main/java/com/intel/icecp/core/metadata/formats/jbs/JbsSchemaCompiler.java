@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats.jbs;
+
+import com.fasterxml.jackson.databind.jsonFormatVisitors.JsonFormatTypes;
+import com.fasterxml.jackson.databind.jsonFormatVisitors.JsonValueFormat;
+import com.fasterxml.jackson.module.jsonSchema.JsonSchema;
+import com.fasterxml.jackson.module.jsonSchema.types.ArraySchema;
+import com.fasterxml.jackson.module.jsonSchema.types.ArraySchema.Items;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Compiles a {@link JsonSchema} into a {@link JbsCodec}: the schema is walked once, each property is assigned a fixed
+ * offset in the record and bound to a method handle on its destination (a {@link GenericObject} entry or a field of
+ * the target class), so that reading and writing records is a flat loop over primitive operations.
+ * <p>
+ * The layout is the one of {@link AbstractJsonBinaryReader}: little-endian values, in schema order; integers are
+ * 32-bit, or 64-bit with {@code $ref: "long"}, or {@link Timestamp}s with the {@code utc-millisec} format; numbers are
+ * 32-bit floats, or 64-bit with {@code $ref: "double"}; booleans are one byte; objects are inlined; arrays must have
+ * {@code minItems == maxItems} and a single scalar items schema (which inherits the {@code $ref} of the array).
+ * <p>
+ * Arrays are read as primitive arrays ({@code int[]}, {@code double[]}, ...) or {@code Timestamp[]}. Fields of a target
+ * class may use any primitive numeric type (values are cast) or a matching wrapper type; properties without a matching
+ * field are skipped when reading and written as zeros.
+ *
+ */
+public final class JbsSchemaCompiler {
+
+    private static final String REF_LONG = AbstractJsonBinaryReader.REF$_LONG;
+    private static final String REF_DOUBLE = AbstractJsonBinaryReader.REF$_DOUBLE;
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodHandle MAP_GET;
+    private static final MethodHandle MAP_PUT;
+
+    static {
+        try {
+            MAP_GET = LOOKUP.findVirtual(Map.class, "get", MethodType.methodType(Object.class, Object.class));
+            MAP_PUT = LOOKUP.findVirtual(Map.class, "put", MethodType.methodType(Object.class, Object.class, Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final List<JbsOp> ops = new ArrayList<>();
+    private int offset;
+    private int maxDepth;
+
+    private JbsSchemaCompiler() {
+        // use the static compile methods
+    }
+
+    /**
+     * @param schema the object schema of the records
+     * @return a codec reading records into {@link GenericObject}s
+     * @throws SchemaErrorException if the schema does not describe fixed-size records
+     */
+    public static JbsCodec<GenericObject> compile(JsonSchema schema) throws SchemaErrorException {
+        return compile(schema, GenericObject.class);
+    }
+
+    /**
+     * @param schema the object schema of the records
+     * @param type the class mirroring the schema (or {@link GenericObject}); nested object properties must map to
+     * fields of a class with a no-argument constructor
+     * @param <T> the type of the objects read and written
+     * @return a codec reading records into instances of the type
+     * @throws SchemaErrorException if the schema does not describe fixed-size records or does not fit the type
+     */
+    public static <T> JbsCodec<T> compile(JsonSchema schema, Class<T> type) throws SchemaErrorException {
+        if (schema == null || schema.getType() != JsonFormatTypes.OBJECT) {
+            throw new SchemaErrorException("JbsSchemaCompiler.compile: records must be described by an object schema");
+        }
+        JbsSchemaCompiler compiler = new JbsSchemaCompiler();
+        compiler.ops.add(new JbsOp.Open(0, constructor(type), null));
+        compiler.compileProperties(schema, type, 0);
+        return new JbsCodec<>(type, compiler.ops.toArray(new JbsOp[compiler.ops.size()]), compiler.offset, compiler.maxDepth + 1);
+    }
+
+    private void compileProperties(JsonSchema schema, Class<?> container, int depth) throws SchemaErrorException {
+        for (Entry<String, JsonSchema> property : schema.asObjectSchema().getProperties().entrySet()) {
+            compileProperty(property.getKey(), property.getValue(), container, depth);
+        }
+    }
+
+    private void compileProperty(String key, JsonSchema schema, Class<?> container, int depth) throws SchemaErrorException {
+        JsonFormatTypes type = schema.getType();
+        if (type == JsonFormatTypes.OBJECT) {
+            compileObject(key, schema, container, depth);
+        } else if (type == JsonFormatTypes.ARRAY) {
+            compileArray(key, schema.asArraySchema(), container, depth);
+        } else {
+            Kind kind = kind(key, schema, null);
+            MethodHandle setter = setter(container, key, kind.type);
+            MethodHandle getter = getter(container, key, kind.type);
+            ops.add(kind.scalar(offset, depth, setter, getter));
+            offset += kind.size;
+        }
+    }
+
+    private void compileObject(String key, JsonSchema schema, Class<?> container, int depth) throws SchemaErrorException {
+        Class<?> child = childClass(container, key);
+        int childDepth = depth + 1;
+        maxDepth = Math.max(maxDepth, childDepth);
+        Class<?> valueType = child == null ? Object.class : child;
+        MethodHandle getter = getter(container, key, valueType);
+        MethodHandle setter = setter(container, key, valueType);
+        ops.add(new JbsOp.Open(childDepth, child == null ? null : constructor(child),
+                getter == null ? null : getter.asType(MethodType.methodType(Object.class, Object.class))));
+        compileProperties(schema, child, childDepth);
+        ops.add(new JbsOp.Close(childDepth, setter == null ? null : setter.asType(MethodType.methodType(void.class, Object.class, Object.class))));
+    }
+
+    private void compileArray(String key, ArraySchema schema, Class<?> container, int depth) throws SchemaErrorException {
+        Integer count = schema.getMaxItems();
+        if (schema.getMinItems() == null || !schema.getMinItems().equals(count) || count < 0) {
+            throw new SchemaErrorException("JbsSchemaCompiler.compile: array schema improper element min/max size for " + key);
+        }
+        Items items = schema.getItems();
+        if (items == null || !items.isSingleItems()) {
+            throw new SchemaErrorException("JbsSchemaCompiler.compile: array not SingleItem type for " + key);
+        }
+        JsonSchema itemSchema = items.asSingleItems().getSchema();
+        JsonFormatTypes itemType = itemSchema.getType();
+        if (itemType == JsonFormatTypes.OBJECT || itemType == JsonFormatTypes.ARRAY) {
+            throw new SchemaErrorException("JbsSchemaCompiler.compile: arrays of " + itemType + " are not supported for " + key);
+        }
+        Kind kind = kind(key, itemSchema, schema.get$ref());
+        MethodHandle setter = setter(container, key, kind.arrayType);
+        MethodHandle getter = getter(container, key, kind.arrayType);
+        ops.add(kind.array(offset, count, depth, setter, getter));
+        offset += kind.size * count;
+    }
+
+    private static Kind kind(String key, JsonSchema schema, String inheritedRef) throws SchemaErrorException {
+        String ref = schema.get$ref() != null ? schema.get$ref() : inheritedRef;
+        JsonFormatTypes type = schema.getType();
+        if (type == JsonFormatTypes.INTEGER) {
+            JsonValueFormat format = schema.asIntegerSchema().getFormat();
+            if (format == JsonValueFormat.UTC_MILLISEC) {
+                return Kind.TIMESTAMP;
+            } else if (format != null) {
+                throw new SchemaErrorException("Unknown / unhandled schema type " + format + " for " + key);
+            }
+            return REF_LONG.equalsIgnoreCase(ref) ? Kind.INT64 : Kind.INT32;
+        } else if (type == JsonFormatTypes.NUMBER) {
+            return REF_DOUBLE.equalsIgnoreCase(ref) ? Kind.FLOAT64 : Kind.FLOAT32;
+        } else if (type == JsonFormatTypes.BOOLEAN) {
+            return Kind.BOOLEAN;
+        }
+        throw new SchemaErrorException(String.format("JbsSchemaCompiler.compile: cannot map type %s %s", type, key));
+    }
+
+    /**
+     * @return the class of a nested object stored under the key, or null if the nested object is skipped
+     */
+    private static Class<?> childClass(Class<?> container, String key) throws SchemaErrorException {
+        if (container == null) {
+            return null;
+        } else if (Map.class.isAssignableFrom(container)) {
+            return GenericObject.class;
+        }
+        Field field = field(container, key);
+        if (field != null && (field.getType().isPrimitive() || field.getType().isArray())) {
+            throw new SchemaErrorException("JbsSchemaCompiler.compile: field " + key + " of " + container.getName() + " cannot hold an object");
+        }
+        return field == null ? null : field.getType();
+    }
+
+    private static Field field(Class<?> container, String key) {
+        for (Class<?> c = container; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                Field field = c.getDeclaredField(key);
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    return field;
+                }
+            } catch (NoSuchFieldException e) {
+                // look in the superclass
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return a ()Object handle creating instances of the type
+     */
+    private static MethodHandle constructor(Class<?> type) throws SchemaErrorException {
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return LOOKUP.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+            throw new SchemaErrorException("JbsSchemaCompiler.compile: " + type.getName() + " has no accessible no-argument constructor", e);
+        }
+    }
+
+    /**
+     * @return an (Object, valueType)void handle storing a value under the key, or null if the value is skipped
+     */
+    private static MethodHandle setter(Class<?> container, String key, Class<?> valueType) throws SchemaErrorException {
+        MethodType type = MethodType.methodType(void.class, Object.class, valueType);
+        if (container == null) {
+            return null;
+        } else if (Map.class.isAssignableFrom(container)) {
+            return MethodHandles.insertArguments(MAP_PUT, 1, key).asType(type);
+        }
+        Field field = field(container, key);
+        if (field == null) {
+            return null;
+        }
+        checkCompatible(field, valueType);
+        try {
+            MethodHandle handle = LOOKUP.unreflectSetter(field);
+            return valueType.isPrimitive() && field.getType().isPrimitive() ? MethodHandles.explicitCastArguments(handle, type) : handle.asType(type);
+        } catch (IllegalAccessException | WrongMethodTypeException e) {
+            throw new SchemaErrorException("JbsSchemaCompiler.compile: cannot set field " + key + " of " + container.getName(), e);
+        }
+    }
+
+    /**
+     * @return an (Object)valueType handle loading the value stored under the key (null values load as zero), or null
+     * if the value is skipped
+     */
+    private static MethodHandle getter(Class<?> container, String key, Class<?> valueType) throws SchemaErrorException {
+        MethodType type = MethodType.methodType(valueType, Object.class);
+        if (container == null) {
+            return null;
+        } else if (Map.class.isAssignableFrom(container)) {
+            return unboxed(MethodHandles.insertArguments(MAP_GET, 1, key), valueType);
+        }
+        Field field = field(container, key);
+        if (field == null) {
+            return null;
+        }
+        checkCompatible(field, valueType);
+        try {
+            MethodHandle handle = LOOKUP.unreflectGetter(field);
+            if (field.getType().isPrimitive()) {
+                return MethodHandles.explicitCastArguments(handle, type);
+            }
+            return unboxed(handle, valueType);
+        } catch (IllegalAccessException | WrongMethodTypeException e) {
+            throw new SchemaErrorException("JbsSchemaCompiler.compile: cannot get field " + key + " of " + container.getName(), e);
+        }
+    }
+
+    /**
+     * @return the handle returning a reference converted to the value type, null-safe for primitive value types
+     */
+    private static MethodHandle unboxed(MethodHandle handle, Class<?> valueType) {
+        MethodHandle generic = handle.asType(MethodType.methodType(Object.class, Object.class));
+        if (!valueType.isPrimitive()) {
+            return generic.asType(MethodType.methodType(valueType, Object.class));
+        }
+        try {
+            MethodHandle unbox = LOOKUP.findStatic(JbsSchemaCompiler.class, valueType.getName() + "Value", MethodType.methodType(valueType, Object.class));
+            return MethodHandles.filterReturnValue(generic, unbox);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void checkCompatible(Field field, Class<?> valueType) throws SchemaErrorException {
+        Class<?> fieldType = field.getType();
+        boolean compatible;
+        if (fieldType.isPrimitive() && valueType.isPrimitive()) {
+            compatible = (fieldType == boolean.class) == (valueType == boolean.class);
+        } else if (fieldType.isPrimitive()) {
+            compatible = false;
+        } else {
+            compatible = fieldType.isAssignableFrom(MethodType.methodType(valueType).wrap().returnType());
+        }
+        if (!compatible) {
+            throw new SchemaErrorException(String.format("JbsSchemaCompiler.compile: field %s of %s has type %s, expected %s",
+                    field.getName(), field.getDeclaringClass().getName(), fieldType.getName(), valueType.getName()));
+        }
+    }
+
+    private static int intValue(Object value) {
+        return value == null ? 0 : ((Number) value).intValue();
+    }
+
+    private static long longValue(Object value) {
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    private static float floatValue(Object value) {
+        return value == null ? 0 : ((Number) value).floatValue();
+    }
+
+    private static double doubleValue(Object value) {
+        return value == null ? 0 : ((Number) value).doubleValue();
+    }
+
+    private static boolean booleanValue(Object value) {
+        return value != null && (Boolean) value;
+    }
+
+    /**
+     * Scalar value types of the records
+     */
+    private enum Kind {
+        INT32(Integer.BYTES, int.class, int[].class),
+        INT64(Long.BYTES, long.class, long[].class),
+        FLOAT32(Float.BYTES, float.class, float[].class),
+        FLOAT64(Double.BYTES, double.class, double[].class),
+        BOOLEAN(1, boolean.class, boolean[].class),
+        TIMESTAMP(Long.BYTES, Timestamp.class, Timestamp[].class);
+
+        final int size;
+        final Class<?> type;
+        final Class<?> arrayType;
+
+        Kind(int size, Class<?> type, Class<?> arrayType) {
+            this.size = size;
+            this.type = type;
+            this.arrayType = arrayType;
+        }
+
+        JbsOp scalar(int offset, int depth, MethodHandle setter, MethodHandle getter) {
+            switch (this) {
+                case INT32:
+                    return new JbsOp.Int32(offset, depth, setter, getter);
+                case INT64:
+                    return new JbsOp.Int64(offset, depth, setter, getter);
+                case FLOAT32:
+                    return new JbsOp.Float32(offset, depth, setter, getter);
+                case FLOAT64:
+                    return new JbsOp.Float64(offset, depth, setter, getter);
+                case BOOLEAN:
+                    return new JbsOp.Bool(offset, depth, setter, getter);
+                default:
+                    return new JbsOp.Time(offset, depth, setter, getter);
+            }
+        }
+
+        JbsOp array(int offset, int count, int depth, MethodHandle setter, MethodHandle getter) {
+            switch (this) {
+                case INT32:
+                    return new JbsOp.Int32Array(offset, count, depth, setter, getter);
+                case INT64:
+                    return new JbsOp.Int64Array(offset, count, depth, setter, getter);
+                case FLOAT32:
+                    return new JbsOp.Float32Array(offset, count, depth, setter, getter);
+                case FLOAT64:
+                    return new JbsOp.Float64Array(offset, count, depth, setter, getter);
+                case BOOLEAN:
+                    return new JbsOp.BoolArray(offset, count, depth, setter, getter);
+                default:
+                    return new JbsOp.TimeArray(offset, count, depth, setter, getter);
+            }
+        }
+    }
+}
@@ -28,4 +28,8 @@ public class SchemaErrorException extends Exception {
         super(name);
 
     }
+
+    public SchemaErrorException(String name, Throwable cause) {
+        super(name, cause);
+    }
 }
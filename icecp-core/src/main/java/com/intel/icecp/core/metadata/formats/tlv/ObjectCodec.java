@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats.tlv;
+
+import com.intel.icecp.core.metadata.formats.FormatEncodingException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codec for classes with a no-argument constructor; fields are accessed through {@link MethodHandle}s built once per
+ * class, and primitive fields are read and written without boxing. Static, transient and synthetic fields are
+ * ignored. Null fields are not encoded; when decoding, fields that are not present keep the value assigned by the
+ * constructor.
+ * <p>
+ * The TLV type of a field is given by its {@link TlvField} annotation; fields without one are numbered from a hash of
+ * their name, in [{@value #FIRST_HASHED_NUMBER}, {@value #LAST_HASHED_NUMBER}] (three bytes on the wire). Either way,
+ * the number of a field does not depend on the other fields, so adding or removing fields keeps the encoding
+ * compatible with other versions of the class; unknown fields are skipped when decoding.
+ *
+ * @param <T> the class
+ */
+final class ObjectCodec<T> implements TlvCodec<T> {
+
+    static final int FIRST_HASHED_NUMBER = 253;
+    static final int LAST_HASHED_NUMBER = 65535;
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Class<?> type;
+    private final MethodHandle constructor;
+    /** Field codecs, sorted by TLV type */
+    private final FieldCodec[] fields;
+    /** TLV types of the {@link #fields}, for lookups when decoding */
+    private final int[] numbers;
+
+    ObjectCodec(Type type, TlvCodecs codecs) throws FormatEncodingException {
+        this.type = Types.rawClass(type);
+        this.constructor = constructor(this.type);
+
+        // collect the fields of the class hierarchy, resolving the type variables of each superclass
+        List<Field> declared = new ArrayList<>();
+        Map<Field, Map<TypeVariable<?>, Type>> scopes = new HashMap<>();
+        Type current = type;
+        while (current != null && Types.rawClass(current) != Object.class) {
+            Class<?> raw = Types.rawClass(current);
+            Map<TypeVariable<?>, Type> bindings = Types.bindings(current);
+            for (Field field : raw.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                    declared.add(field);
+                    scopes.put(field, bindings);
+                }
+            }
+            Type superclass = raw.getGenericSuperclass();
+            current = superclass instanceof ParameterizedType ? Types.resolvePartially(superclass, bindings) : superclass;
+        }
+        declared.sort(Comparator.comparingInt(ObjectCodec::number));
+
+        this.fields = new FieldCodec[declared.size()];
+        this.numbers = new int[declared.size()];
+        for (int i = 0; i < fields.length; i++) {
+            Field field = declared.get(i);
+            numbers[i] = number(field);
+            if (numbers[i] < 1) {
+                throw new FormatEncodingException("TLV field numbers must be positive: " + field);
+            }
+            if (i > 0 && numbers[i] == numbers[i - 1]) {
+                throw new FormatEncodingException("Fields " + declared.get(i - 1) + " and " + field + " share TLV type " + numbers[i] + "; assign explicit numbers with @TlvField");
+            }
+            fields[i] = FieldCodec.of(numbers[i], field, new TlvCodecs.CodecRef(field.getGenericType(), scopes.get(field), codecs));
+        }
+    }
+
+    /**
+     * @param field a serialized field
+     * @return the TLV type of the field: its {@link TlvField} number, or a number derived from its name (using the
+     * {@link String#hashCode()} algorithm, which is specified and thus identical on all JVMs)
+     */
+    static int number(Field field) {
+        TlvField annotation = field.getAnnotation(TlvField.class);
+        if (annotation != null) {
+            return annotation.value();
+        }
+        int range = LAST_HASHED_NUMBER - FIRST_HASHED_NUMBER + 1;
+        return FIRST_HASHED_NUMBER + Math.floorMod(field.getName().hashCode(), range);
+    }
+
+    /**
+     * @param type a class
+     * @return a handle invoking the no-argument constructor of the class, of type {@code ()Object}
+     * @throws FormatEncodingException if the class has no accessible no-argument constructor
+     */
+    static MethodHandle constructor(Class<?> type) throws FormatEncodingException {
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return LOOKUP.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException ex) {
+            throw new FormatEncodingException("TLV encoding requires an accessible no-argument constructor for " + type.getName(), ex);
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void write(TlvWriter out, T value) throws FormatEncodingException {
+        try {
+            for (FieldCodec field : fields) {
+                field.write(out, value);
+            }
+        } catch (FormatEncodingException | RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new FormatEncodingException("Unable to encode " + type.getName(), ex);
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T read(TlvReader in, int end) throws FormatEncodingException {
+        try {
+            Object instance = (Object) constructor.invokeExact();
+            while (in.position() < end) {
+                int fieldType = in.readType(end);
+                int valueEnd = in.readLength(end);
+                // unknown fields are skipped
+                int index = Arrays.binarySearch(numbers, fieldType);
+                if (index >= 0) {
+                    fields[index].read(in, valueEnd, instance);
+                }
+                in.seek(valueEnd);
+            }
+            return (T) instance;
+        } catch (FormatEncodingException | RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new FormatEncodingException("Unable to decode " + type.getName(), ex);
+        }
+    }
+
+    /**
+     * Reads and writes one field as a TLV element
+     */
+    private abstract static class FieldCodec {
+
+        final int number;
+
+        FieldCodec(int number) {
+            this.number = number;
+        }
+
+        static FieldCodec of(int number, Field field, TlvCodecs.CodecRef codec) throws FormatEncodingException {
+            MethodHandle getter;
+            MethodHandle setter;
+            try {
+                field.setAccessible(true);
+                getter = LOOKUP.unreflectGetter(field);
+                setter = LOOKUP.unreflectSetter(field);
+            } catch (IllegalAccessException | RuntimeException ex) {
+                throw new FormatEncodingException("Unable to access field " + field, ex);
+            }
+
+            Class<?> fieldType = field.getType();
+            if (fieldType == boolean.class) {
+                return new BooleanField(number, getter, setter);
+            } else if (fieldType == float.class) {
+                return new FloatField(number, getter, setter);
+            } else if (fieldType == double.class) {
+                return new DoubleField(number, getter, setter);
+            } else if (fieldType.isPrimitive()) {
+                return new IntegralField(number, getter, setter);
+            }
+            return new ReferenceField(number, getter, setter, codec);
+        }
+
+        abstract void write(TlvWriter out, Object instance) throws Throwable;
+
+        abstract void read(TlvReader in, int end, Object instance) throws Throwable;
+    }
+
+    /**
+     * byte, short, char, int and long fields, widened to long and encoded as zig-zag varints
+     */
+    private static class IntegralField extends FieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        IntegralField(int number, MethodHandle getter, MethodHandle setter) {
+            super(number);
+            this.getter = MethodHandles.explicitCastArguments(getter, MethodType.methodType(long.class, Object.class));
+            this.setter = MethodHandles.explicitCastArguments(setter, MethodType.methodType(void.class, Object.class, long.class));
+        }
+
+        @Override
+        void write(TlvWriter out, Object instance) throws Throwable {
+            long value = (long) getter.invokeExact(instance);
+            int mark = out.beginTlv(number);
+            out.writeVarInt(value);
+            out.endTlv(mark);
+        }
+
+        @Override
+        void read(TlvReader in, int end, Object instance) throws Throwable {
+            setter.invokeExact(instance, in.readVarInt(end));
+        }
+    }
+
+    private static class BooleanField extends FieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        BooleanField(int number, MethodHandle getter, MethodHandle setter) {
+            super(number);
+            this.getter = getter.asType(MethodType.methodType(boolean.class, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, boolean.class));
+        }
+
+        @Override
+        void write(TlvWriter out, Object instance) throws Throwable {
+            boolean value = (boolean) getter.invokeExact(instance);
+            int mark = out.beginTlv(number);
+            out.writeByte(value ? 1 : 0);
+            out.endTlv(mark);
+        }
+
+        @Override
+        void read(TlvReader in, int end, Object instance) throws Throwable {
+            setter.invokeExact(instance, in.readByte(end) != 0);
+        }
+    }
+
+    private static class FloatField extends FieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        FloatField(int number, MethodHandle getter, MethodHandle setter) {
+            super(number);
+            this.getter = getter.asType(MethodType.methodType(float.class, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, float.class));
+        }
+
+        @Override
+        void write(TlvWriter out, Object instance) throws Throwable {
+            float value = (float) getter.invokeExact(instance);
+            int mark = out.beginTlv(number);
+            out.writeFixed(Float.floatToIntBits(value), 4);
+            out.endTlv(mark);
+        }
+
+        @Override
+        void read(TlvReader in, int end, Object instance) throws Throwable {
+            setter.invokeExact(instance, Float.intBitsToFloat((int) in.readFixed(4, end)));
+        }
+    }
+
+    private static class DoubleField extends FieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        DoubleField(int number, MethodHandle getter, MethodHandle setter) {
+            super(number);
+            this.getter = getter.asType(MethodType.methodType(double.class, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, double.class));
+        }
+
+        @Override
+        void write(TlvWriter out, Object instance) throws Throwable {
+            double value = (double) getter.invokeExact(instance);
+            int mark = out.beginTlv(number);
+            out.writeFixed(Double.doubleToLongBits(value), 8);
+            out.endTlv(mark);
+        }
+
+        @Override
+        void read(TlvReader in, int end, Object instance) throws Throwable {
+            setter.invokeExact(instance, Double.longBitsToDouble(in.readFixed(8, end)));
+        }
+    }
+
+    /**
+     * Fields of reference types, encoded with the codec of their (resolved) declared type; null values are skipped
+     */
+    private static class ReferenceField extends FieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final TlvCodecs.CodecRef codec;
+
+        ReferenceField(int number, MethodHandle getter, MethodHandle setter, TlvCodecs.CodecRef codec) {
+            super(number);
+            this.getter = getter.asType(MethodType.methodType(Object.class, Object.class));
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+            this.codec = codec;
+        }
+
+        @Override
+        void write(TlvWriter out, Object instance) throws Throwable {
+            Object value = (Object) getter.invokeExact(instance);
+            if (value != null) {
+                int mark = out.beginTlv(number);
+                codec.get().write(out, value);
+                out.endTlv(mark);
+            }
+        }
+
+        @Override
+        void read(TlvReader in, int end, Object instance) throws Throwable {
+            setter.invokeExact(instance, codec.get().read(in, end));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats.tlv;
+
+import com.intel.icecp.core.metadata.formats.FormatEncodingException;
+
+/**
+ * Encodes and decodes the value part of a TLV element for a given Java type; see {@link TlvCodecs} for the supported
+ * types. Implementations are stateless and thread-safe.
+ *
+ * @param <T> the Java type
+ */
+public interface TlvCodec<T> {
+
+    /**
+     * Write the value (without type and length) of the given non-null instance
+     *
+     * @param out the writer
+     * @param value the instance to encode
+     * @throws FormatEncodingException if the instance cannot be encoded
+     */
+    void write(TlvWriter out, T value) throws FormatEncodingException;
+
+    /**
+     * Read a value written by {@link #write(TlvWriter, Object)}
+     *
+     * @param in the reader, positioned at the start of the value
+     * @param end the end of the value
+     * @return the decoded instance
+     * @throws FormatEncodingException if the value is malformed
+     */
+    T read(TlvReader in, int end) throws FormatEncodingException;
+}
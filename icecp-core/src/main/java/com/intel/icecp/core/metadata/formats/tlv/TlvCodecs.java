@@ -0,0 +1,521 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats.tlv;
+
+import com.intel.icecp.core.metadata.formats.FormatEncodingException;
+import net.named_data.jndn.Name;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of {@link TlvCodec}s, built on first use for each type and cached. Supported types are: primitives and their
+ * wrappers (integral numbers as zig-zag varints), strings (UTF-8), {@code byte[]}, {@link URI}, {@link Name}, enums
+ * (by ordinal), arrays, {@link Collection}s and {@link Map}s of supported types, and classes with a no-argument
+ * constructor whose fields are of supported types. Objects are encoded as a sequence of TLV elements, one per
+ * non-null field, whose type is the position of the field in the name-ordered list of fields; both ends must
+ * therefore use the same version of a class. Collection elements (and map keys and values) are encoded as TLV
+ * elements of type {@value #ELEMENT}, or {@value #NULL_ELEMENT} for null elements.
+ *
+ */
+public class TlvCodecs {
+
+    /** TLV type of a null collection element, map key or map value */
+    static final int NULL_ELEMENT = 0;
+
+    /** TLV type of a collection element, map key or map value */
+    static final int ELEMENT = 1;
+
+    private static final TlvCodecs DEFAULT = new TlvCodecs();
+
+    private final Map<String, TlvCodec<?>> codecs = new ConcurrentHashMap<>();
+
+    public TlvCodecs() {
+        registerScalars();
+    }
+
+    /**
+     * @return the registry shared by default {@link com.intel.icecp.core.metadata.formats.TlvFormat} instances
+     */
+    public static TlvCodecs getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Register a custom codec, replacing the one built by default for the given type
+     *
+     * @param <T> the type
+     * @param type the class to encode with the codec
+     * @param codec the codec
+     */
+    public <T> void register(Class<T> type, TlvCodec<T> codec) {
+        codecs.put(Types.key(type), codec);
+    }
+
+    /**
+     * Retrieve the codec for the given type, building it on first use
+     *
+     * @param <T> the type
+     * @param type the (fully resolved) type
+     * @return the codec
+     * @throws FormatEncodingException if the type is not supported
+     */
+    @SuppressWarnings("unchecked")
+    public <T> TlvCodec<T> codecFor(Type type) throws FormatEncodingException {
+        String key = Types.key(type);
+        TlvCodec<?> codec = codecs.get(key);
+        if (codec == null) {
+            codec = build(type);
+            TlvCodec<?> previous = codecs.putIfAbsent(key, codec);
+            if (previous != null) {
+                codec = previous;
+            }
+        }
+        return (TlvCodec<T>) codec;
+    }
+
+    private TlvCodec<?> build(Type type) throws FormatEncodingException {
+        Class<?> raw = Types.rawClass(type);
+        if (raw.isEnum()) {
+            return new EnumCodec(raw);
+        } else if (raw.isArray()) {
+            Type component = type instanceof Class ? raw.getComponentType() : ((GenericArrayType) type).getGenericComponentType();
+            return new ArrayCodec(raw.getComponentType(), new CodecRef(component, Collections.emptyMap(), this));
+        } else if (Collection.class.isAssignableFrom(raw)) {
+            return new CollectionCodec(instantiator(raw), new CodecRef(typeArgument(type, Collection.class, 0), Collections.emptyMap(), this));
+        } else if (Map.class.isAssignableFrom(raw)) {
+            return new MapCodec(instantiator(raw), new CodecRef(typeArgument(type, Map.class, 0), Collections.emptyMap(), this),
+                    new CodecRef(typeArgument(type, Map.class, 1), Collections.emptyMap(), this));
+        } else if (raw.isInterface() || raw.isPrimitive() || Modifier.isAbstract(raw.getModifiers()) || raw.getName().startsWith("java.")) {
+            throw new FormatEncodingException("Unsupported type for TLV encoding: " + type.getTypeName());
+        }
+        return new ObjectCodec<>(type, this);
+    }
+
+    private static Type typeArgument(Type type, Class<?> supertype, int index) throws FormatEncodingException {
+        Type parameterized = Types.supertype(type, supertype);
+        if (!(parameterized instanceof ParameterizedType)) {
+            throw new FormatEncodingException("Unknown element type for " + type.getTypeName() + "; use a parameterized type");
+        }
+        return ((ParameterizedType) parameterized).getActualTypeArguments()[index];
+    }
+
+    /**
+     * Builds a function creating empty instances of a collection or map type; interfaces are mapped to a default
+     * implementation (e.g. {@link ArrayList} for {@link List})
+     */
+    private static Instantiator instantiator(Class<?> raw) throws FormatEncodingException {
+        if (raw.isInterface() || Modifier.isAbstract(raw.getModifiers())) {
+            if (raw.isAssignableFrom(ArrayList.class)) {
+                return ArrayList::new;
+            } else if (raw.isAssignableFrom(LinkedHashSet.class)) {
+                return LinkedHashSet::new;
+            } else if (raw == SortedSet.class || raw == NavigableSet.class) {
+                return TreeSet::new;
+            } else if (Queue.class.isAssignableFrom(raw) && raw.isAssignableFrom(ArrayDeque.class)) {
+                return ArrayDeque::new;
+            } else if (raw.isAssignableFrom(LinkedHashMap.class)) {
+                return LinkedHashMap::new;
+            } else if (raw == SortedMap.class || raw == NavigableMap.class) {
+                return TreeMap::new;
+            } else if (raw == ConcurrentMap.class) {
+                return ConcurrentHashMap::new;
+            }
+            throw new FormatEncodingException("No default implementation for " + raw.getName());
+        }
+        MethodHandle constructor = ObjectCodec.constructor(raw);
+        return () -> {
+            try {
+                return (Object) constructor.invokeExact();
+            } catch (Throwable ex) {
+                throw new FormatEncodingException("Unable to instantiate " + raw.getName(), ex);
+            }
+        };
+    }
+
+    private void registerScalars() {
+        TlvCodec<Boolean> booleanCodec = new TlvCodec<Boolean>() {
+            @Override
+            public void write(TlvWriter out, Boolean value) {
+                out.writeByte(value ? 1 : 0);
+            }
+
+            @Override
+            public Boolean read(TlvReader in, int end) throws FormatEncodingException {
+                return in.readByte(end) != 0;
+            }
+        };
+        TlvCodec<Byte> byteCodec = new TlvCodec<Byte>() {
+            @Override
+            public void write(TlvWriter out, Byte value) {
+                out.writeVarInt(value);
+            }
+
+            @Override
+            public Byte read(TlvReader in, int end) throws FormatEncodingException {
+                return (byte) in.readVarInt(end);
+            }
+        };
+        TlvCodec<Short> shortCodec = new TlvCodec<Short>() {
+            @Override
+            public void write(TlvWriter out, Short value) {
+                out.writeVarInt(value);
+            }
+
+            @Override
+            public Short read(TlvReader in, int end) throws FormatEncodingException {
+                return (short) in.readVarInt(end);
+            }
+        };
+        TlvCodec<Character> charCodec = new TlvCodec<Character>() {
+            @Override
+            public void write(TlvWriter out, Character value) {
+                out.writeVarInt(value);
+            }
+
+            @Override
+            public Character read(TlvReader in, int end) throws FormatEncodingException {
+                return (char) in.readVarInt(end);
+            }
+        };
+        TlvCodec<Integer> intCodec = new TlvCodec<Integer>() {
+            @Override
+            public void write(TlvWriter out, Integer value) {
+                out.writeVarInt(value);
+            }
+
+            @Override
+            public Integer read(TlvReader in, int end) throws FormatEncodingException {
+                return (int) in.readVarInt(end);
+            }
+        };
+        TlvCodec<Long> longCodec = new TlvCodec<Long>() {
+            @Override
+            public void write(TlvWriter out, Long value) {
+                out.writeVarInt(value);
+            }
+
+            @Override
+            public Long read(TlvReader in, int end) throws FormatEncodingException {
+                return in.readVarInt(end);
+            }
+        };
+        TlvCodec<Float> floatCodec = new TlvCodec<Float>() {
+            @Override
+            public void write(TlvWriter out, Float value) {
+                out.writeFixed(Float.floatToIntBits(value), 4);
+            }
+
+            @Override
+            public Float read(TlvReader in, int end) throws FormatEncodingException {
+                return Float.intBitsToFloat((int) in.readFixed(4, end));
+            }
+        };
+        TlvCodec<Double> doubleCodec = new TlvCodec<Double>() {
+            @Override
+            public void write(TlvWriter out, Double value) {
+                out.writeFixed(Double.doubleToLongBits(value), 8);
+            }
+
+            @Override
+            public Double read(TlvReader in, int end) throws FormatEncodingException {
+                return Double.longBitsToDouble(in.readFixed(8, end));
+            }
+        };
+
+        registerBoth(boolean.class, Boolean.class, booleanCodec);
+        registerBoth(byte.class, Byte.class, byteCodec);
+        registerBoth(short.class, Short.class, shortCodec);
+        registerBoth(char.class, Character.class, charCodec);
+        registerBoth(int.class, Integer.class, intCodec);
+        registerBoth(long.class, Long.class, longCodec);
+        registerBoth(float.class, Float.class, floatCodec);
+        registerBoth(double.class, Double.class, doubleCodec);
+
+        register(String.class, new TlvCodec<String>() {
+            @Override
+            public void write(TlvWriter out, String value) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeBytes(bytes, 0, bytes.length);
+            }
+
+            @Override
+            public String read(TlvReader in, int end) {
+                return in.readString(end);
+            }
+        });
+        register(byte[].class, new TlvCodec<byte[]>() {
+            @Override
+            public void write(TlvWriter out, byte[] value) {
+                out.writeBytes(value, 0, value.length);
+            }
+
+            @Override
+            public byte[] read(TlvReader in, int end) {
+                return in.readBytes(end);
+            }
+        });
+        register(URI.class, new TlvCodec<URI>() {
+            @Override
+            public void write(TlvWriter out, URI value) {
+                byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+                out.writeBytes(bytes, 0, bytes.length);
+            }
+
+            @Override
+            public URI read(TlvReader in, int end) throws FormatEncodingException {
+                try {
+                    return new URI(in.readString(end));
+                } catch (URISyntaxException ex) {
+                    throw new FormatEncodingException("Invalid URI", ex);
+                }
+            }
+        });
+        register(Name.class, new TlvCodec<Name>() {
+            @Override
+            public void write(TlvWriter out, Name value) {
+                byte[] bytes = value.toUri().getBytes(StandardCharsets.UTF_8);
+                out.writeBytes(bytes, 0, bytes.length);
+            }
+
+            @Override
+            public Name read(TlvReader in, int end) {
+                return new Name(in.readString(end));
+            }
+        });
+    }
+
+    private <T> void registerBoth(Class<?> primitive, Class<T> wrapper, TlvCodec<T> codec) {
+        codecs.put(primitive.getName(), codec);
+        register(wrapper, codec);
+    }
+
+    /**
+     * Creates empty collections or maps
+     */
+    @FunctionalInterface
+    private interface Instantiator {
+
+        Object create() throws FormatEncodingException;
+    }
+
+    /**
+     * Reference to the codec of a nested type, resolved on first use; this allows recursive types (e.g. a tree node
+     * with a list of child nodes) and generic fields whose type is only known for some parameterizations
+     */
+    static final class CodecRef {
+
+        private final Type type;
+        private final Map<TypeVariable<?>, Type> bindings;
+        private final TlvCodecs codecs;
+        private volatile TlvCodec<Object> codec;
+
+        CodecRef(Type type, Map<TypeVariable<?>, Type> bindings, TlvCodecs codecs) {
+            this.type = type;
+            this.bindings = bindings;
+            this.codecs = codecs;
+        }
+
+        TlvCodec<Object> get() throws FormatEncodingException {
+            TlvCodec<Object> resolved = codec;
+            if (resolved == null) {
+                resolved = codecs.codecFor(Types.resolve(type, bindings));
+                codec = resolved;
+            }
+            return resolved;
+        }
+
+        /**
+         * Write an element, possibly null
+         */
+        void writeElement(TlvWriter out, Object value) throws FormatEncodingException {
+            if (value == null) {
+                out.writeVarNumber(NULL_ELEMENT);
+                out.writeVarNumber(0);
+            } else {
+                int mark = out.beginTlv(ELEMENT);
+                get().write(out, value);
+                out.endTlv(mark);
+            }
+        }
+
+        /**
+         * Read an element written by {@link #writeElement(TlvWriter, Object)}
+         */
+        Object readElement(TlvReader in, int end) throws FormatEncodingException {
+            int elementType = in.readType(end);
+            int valueEnd = in.readLength(end);
+            Object value = elementType == NULL_ELEMENT ? null : get().read(in, valueEnd);
+            in.seek(valueEnd);
+            return value;
+        }
+    }
+
+    /**
+     * Enums, encoded by ordinal
+     */
+    private static class EnumCodec implements TlvCodec<Object> {
+
+        private final Object[] constants;
+
+        EnumCodec(Class<?> type) {
+            this.constants = type.getEnumConstants();
+        }
+
+        @Override
+        public void write(TlvWriter out, Object value) {
+            out.writeVarInt(((Enum<?>) value).ordinal());
+        }
+
+        @Override
+        public Object read(TlvReader in, int end) throws FormatEncodingException {
+            long ordinal = in.readVarInt(end);
+            if (ordinal < 0 || ordinal >= constants.length) {
+                throw new FormatEncodingException("Invalid enum ordinal " + ordinal);
+            }
+            return constants[(int) ordinal];
+        }
+    }
+
+    /**
+     * Arrays (other than {@code byte[]}); primitive elements are boxed
+     */
+    private static class ArrayCodec implements TlvCodec<Object> {
+
+        private final Class<?> componentType;
+        private final CodecRef component;
+
+        ArrayCodec(Class<?> componentType, CodecRef component) {
+            this.componentType = componentType;
+            this.component = component;
+        }
+
+        @Override
+        public void write(TlvWriter out, Object value) throws FormatEncodingException {
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                component.writeElement(out, Array.get(value, i));
+            }
+        }
+
+        @Override
+        public Object read(TlvReader in, int end) throws FormatEncodingException {
+            List<Object> elements = new ArrayList<>();
+            while (in.position() < end) {
+                elements.add(component.readElement(in, end));
+            }
+            Object array = Array.newInstance(componentType, elements.size());
+            for (int i = 0; i < elements.size(); i++) {
+                if (elements.get(i) != null || !componentType.isPrimitive()) {
+                    Array.set(array, i, elements.get(i));
+                }
+            }
+            return array;
+        }
+    }
+
+    /**
+     * Collections
+     */
+    private static class CollectionCodec implements TlvCodec<Object> {
+
+        private final Instantiator instantiator;
+        private final CodecRef element;
+
+        CollectionCodec(Instantiator instantiator, CodecRef element) {
+            this.instantiator = instantiator;
+            this.element = element;
+        }
+
+        @Override
+        public void write(TlvWriter out, Object value) throws FormatEncodingException {
+            for (Object e : (Collection<?>) value) {
+                element.writeElement(out, e);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object read(TlvReader in, int end) throws FormatEncodingException {
+            Collection<Object> collection = (Collection<Object>) instantiator.create();
+            while (in.position() < end) {
+                collection.add(element.readElement(in, end));
+            }
+            return collection;
+        }
+    }
+
+    /**
+     * Maps, encoded as a sequence of alternated keys and values
+     */
+    private static class MapCodec implements TlvCodec<Object> {
+
+        private final Instantiator instantiator;
+        private final CodecRef key;
+        private final CodecRef value;
+
+        MapCodec(Instantiator instantiator, CodecRef key, CodecRef value) {
+            this.instantiator = instantiator;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public void write(TlvWriter out, Object map) throws FormatEncodingException {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) map).entrySet()) {
+                key.writeElement(out, entry.getKey());
+                value.writeElement(out, entry.getValue());
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object read(TlvReader in, int end) throws FormatEncodingException {
+            Map<Object, Object> map = (Map<Object, Object>) instantiator.create();
+            while (in.position() < end) {
+                Object k = key.readElement(in, end);
+                map.put(k, value.readElement(in, end));
+            }
+            return map;
+        }
+    }
+}
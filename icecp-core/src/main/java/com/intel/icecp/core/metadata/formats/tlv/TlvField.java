@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats.tlv;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Assign an explicit TLV type to a message field, e.g. {@code @TlvField(1) public String label;}. Numbers must be
+ * unique within the class hierarchy and should never be reused once published: fields can then be added, removed or
+ * renamed without breaking peers using another version of the class. Numbers below 253 are encoded in a single byte.
+ * Fields without this annotation are numbered from a hash of their name (see {@link ObjectCodec}).
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface TlvField {
+
+    /**
+     * @return the TLV type of the field, a positive number
+     */
+    int value();
+}
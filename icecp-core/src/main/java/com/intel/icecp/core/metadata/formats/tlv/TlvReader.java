@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats.tlv;
+
+import com.intel.icecp.core.metadata.formats.FormatEncodingException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads TLV elements written by {@link TlvWriter} directly from a byte array; every read is bounded by the end of the
+ * enclosing element so that malformed input fails with a {@link FormatEncodingException} rather than reading past
+ * it. Not thread-safe.
+ *
+ */
+public class TlvReader {
+
+    private final byte[] buffer;
+    private int position;
+
+    /**
+     * @param buffer the bytes to read; not copied
+     */
+    public TlvReader(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    public int position() {
+        return position;
+    }
+
+    public void seek(int position) {
+        this.position = position;
+    }
+
+    /**
+     * Read a TLV type
+     *
+     * @param end the end of the enclosing element
+     * @return the type
+     * @throws FormatEncodingException if the input is truncated or the type too large
+     */
+    public int readType(int end) throws FormatEncodingException {
+        long type = readVarNumber(end);
+        if (type > Integer.MAX_VALUE) {
+            throw new FormatEncodingException("TLV type too large: " + type);
+        }
+        return (int) type;
+    }
+
+    /**
+     * Read a TLV length
+     *
+     * @param end the end of the enclosing element
+     * @return the end position of the value that follows
+     * @throws FormatEncodingException if the value does not fit in the enclosing element
+     */
+    public int readLength(int end) throws FormatEncodingException {
+        long length = readVarNumber(end);
+        if (length > end - position) {
+            throw new FormatEncodingException("TLV length " + length + " exceeds the enclosing element");
+        }
+        return position + (int) length;
+    }
+
+    /**
+     * Read a NDN-TLV VAR-NUMBER
+     *
+     * @param end the end of the enclosing element
+     * @return the number
+     * @throws FormatEncodingException if the input is truncated
+     */
+    public long readVarNumber(int end) throws FormatEncodingException {
+        int first = readByte(end) & 0xFF;
+        if (first < 253) {
+            return first;
+        } else if (first == 253) {
+            return readFixed(2, end);
+        } else if (first == 254) {
+            return readFixed(4, end);
+        }
+        return readFixed(8, end);
+    }
+
+    /**
+     * Read a zig-zag LEB128 varint
+     *
+     * @param end the end of the enclosing element
+     * @return the signed number
+     * @throws FormatEncodingException if the input is truncated or malformed
+     */
+    public long readVarInt(int end) throws FormatEncodingException {
+        long raw = readUnsignedVarInt(end);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    /**
+     * Read an unsigned LEB128 varint
+     *
+     * @param end the end of the enclosing element
+     * @return the number
+     * @throws FormatEncodingException if the input is truncated or malformed
+     */
+    public long readUnsignedVarInt(int end) throws FormatEncodingException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte(end);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new FormatEncodingException("Malformed varint");
+    }
+
+    /**
+     * Read a big-endian number on a fixed number of bytes
+     *
+     * @param bytes the number of bytes
+     * @param end the end of the enclosing element
+     * @return the number
+     * @throws FormatEncodingException if the input is truncated
+     */
+    public long readFixed(int bytes, int end) throws FormatEncodingException {
+        checkAvailable(bytes, end);
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value = (value << 8) | (buffer[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    public byte readByte(int end) throws FormatEncodingException {
+        checkAvailable(1, end);
+        return buffer[position++];
+    }
+
+    /**
+     * @param end the end of the value
+     * @return a copy of the bytes up to the end of the value
+     */
+    public byte[] readBytes(int end) {
+        byte[] bytes = Arrays.copyOfRange(buffer, position, end);
+        position = end;
+        return bytes;
+    }
+
+    /**
+     * @param end the end of the value
+     * @return the UTF-8 string up to the end of the value
+     */
+    public String readString(int end) {
+        String string = new String(buffer, position, end - position, StandardCharsets.UTF_8);
+        position = end;
+        return string;
+    }
+
+    private void checkAvailable(int bytes, int end) throws FormatEncodingException {
+        if (end - position < bytes) {
+            throw new FormatEncodingException("Truncated TLV input");
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats.tlv;
+
+import java.util.Arrays;
+
+/**
+ * Writes NDN-TLV style type-length-value elements into a growable byte array. Types and lengths are encoded as NDN
+ * VAR-NUMBERs (1, 3, 5 or 9 bytes); numeric values as (zig-zag) LEB128 varints.
+ * <p>
+ * Since the length of a nested value is not known before it is written, {@link #beginTlv(int)} reserves a single
+ * length byte and {@link #endTlv(int)} shifts the value only when its length does not fit in it (i.e. for values
+ * longer than 252 bytes). Not thread-safe.
+ *
+ */
+public class TlvWriter {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private byte[] buffer;
+    private int position;
+
+    public TlvWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the initial size of the buffer, in bytes
+     */
+    public TlvWriter(int capacity) {
+        this.buffer = new byte[Math.max(capacity, 16)];
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    public int size() {
+        return position;
+    }
+
+    /**
+     * @return the underlying buffer; only the first {@link #size()} bytes are valid
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * @return a copy of the written bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * Start a TLV element; the value must be written next and the element closed with {@link #endTlv(int)}
+     *
+     * @param type the TLV type
+     * @return the mark to pass to {@link #endTlv(int)}
+     */
+    public int beginTlv(int type) {
+        writeVarNumber(type);
+        ensureCapacity(1);
+        position++;
+        return position;
+    }
+
+    /**
+     * Close a TLV element, writing its length
+     *
+     * @param mark the value returned by the corresponding {@link #beginTlv(int)}
+     */
+    public void endTlv(int mark) {
+        int length = position - mark;
+        if (length < 253) {
+            buffer[mark - 1] = (byte) length;
+            return;
+        }
+
+        // the reserved length byte is not enough: make room for the full VAR-NUMBER
+        int extra = varNumberSize(length) - 1;
+        ensureCapacity(extra);
+        System.arraycopy(buffer, mark, buffer, mark + extra, length);
+        position = mark - 1;
+        writeVarNumber(length);
+        position = mark + extra + length;
+    }
+
+    /**
+     * Write a complete TLV element
+     *
+     * @param type the TLV type
+     * @param value the value bytes
+     */
+    public void writeTlv(int type, byte[] value) {
+        writeVarNumber(type);
+        writeVarNumber(value.length);
+        writeBytes(value, 0, value.length);
+    }
+
+    /**
+     * Write a NDN-TLV VAR-NUMBER
+     *
+     * @param value a non-negative number
+     */
+    public void writeVarNumber(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("VAR-NUMBER must be non-negative: " + value);
+        }
+        ensureCapacity(9);
+        if (value < 253) {
+            buffer[position++] = (byte) value;
+        } else if (value <= 0xFFFF) {
+            buffer[position++] = (byte) 253;
+            writeFixed(value, 2);
+        } else if (value <= 0xFFFFFFFFL) {
+            buffer[position++] = (byte) 254;
+            writeFixed(value, 4);
+        } else {
+            buffer[position++] = (byte) 255;
+            writeFixed(value, 8);
+        }
+    }
+
+    /**
+     * Write a signed number as a zig-zag LEB128 varint; small absolute values use few bytes
+     *
+     * @param value the number to write
+     */
+    public void writeVarInt(long value) {
+        writeUnsignedVarInt((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Write an unsigned LEB128 varint
+     *
+     * @param value the number to write, interpreted as unsigned
+     */
+    public void writeUnsignedVarInt(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * Write a big-endian number on a fixed number of bytes
+     *
+     * @param value the number to write
+     * @param bytes the number of bytes to use
+     */
+    public void writeFixed(long value, int bytes) {
+        ensureCapacity(bytes);
+        for (int i = bytes - 1; i >= 0; i--) {
+            buffer[position++] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeBytes(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+
+    /**
+     * @param value a non-negative number
+     * @return the number of bytes of its VAR-NUMBER encoding
+     */
+    static int varNumberSize(long value) {
+        if (value < 253) {
+            return 1;
+        } else if (value <= 0xFFFF) {
+            return 3;
+        } else if (value <= 0xFFFFFFFFL) {
+            return 5;
+        }
+        return 9;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (position + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + additional));
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats.tlv;
+
+import com.intel.icecp.core.metadata.formats.FormatEncodingException;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helpers to resolve generic types, so that e.g. the field {@code T d} of an {@code AttributeMessage<String>} is
+ * encoded as a string.
+ *
+ */
+final class Types {
+
+    private Types() {
+        // do not instantiate
+    }
+
+    /**
+     * @param type a type
+     * @return the class erasing the type
+     */
+    static Class<?> rawClass(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return rawClass(((ParameterizedType) type).getRawType());
+        } else if (type instanceof GenericArrayType) {
+            return Array.newInstance(rawClass(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        } else if (type instanceof WildcardType) {
+            return rawClass(((WildcardType) type).getUpperBounds()[0]);
+        } else if (type instanceof TypeVariable) {
+            return rawClass(((TypeVariable<?>) type).getBounds()[0]);
+        }
+        return Object.class;
+    }
+
+    /**
+     * @param type a (possibly parameterized) type
+     * @return the values of the type variables of its raw class; empty if not parameterized
+     */
+    static Map<TypeVariable<?>, Type> bindings(Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return Collections.emptyMap();
+        }
+        TypeVariable<?>[] variables = rawClass(type).getTypeParameters();
+        Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+        Map<TypeVariable<?>, Type> bindings = new HashMap<>();
+        for (int i = 0; i < variables.length && i < arguments.length; i++) {
+            bindings.put(variables[i], arguments[i]);
+        }
+        return bindings;
+    }
+
+    /**
+     * Replace the type variables in the given type with their values
+     *
+     * @param type the type to resolve
+     * @param bindings the values of the type variables in scope
+     * @return a type without type variables
+     * @throws FormatEncodingException if a type variable has no value (e.g. a raw generic class is encoded)
+     */
+    static Type resolve(Type type, Map<TypeVariable<?>, Type> bindings) throws FormatEncodingException {
+        if (type instanceof Class) {
+            return type;
+        } else if (type instanceof TypeVariable) {
+            Type value = bindings.get(type);
+            if (value == null || value instanceof TypeVariable) {
+                throw new FormatEncodingException("Unable to resolve type variable " + ((TypeVariable<?>) type).getName() + "; use a Token to specify generic types");
+            }
+            return resolve(value, bindings);
+        } else if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            Type[] arguments = parameterized.getActualTypeArguments().clone();
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = resolve(arguments[i], bindings);
+            }
+            return new ResolvedParameterizedType(rawClass(parameterized), arguments);
+        } else if (type instanceof GenericArrayType) {
+            Type component = resolve(((GenericArrayType) type).getGenericComponentType(), bindings);
+            return component instanceof Class ? Array.newInstance((Class<?>) component, 0).getClass() : new ResolvedGenericArrayType(component);
+        } else if (type instanceof WildcardType) {
+            WildcardType wildcard = (WildcardType) type;
+            return resolve(wildcard.getLowerBounds().length > 0 ? wildcard.getLowerBounds()[0] : wildcard.getUpperBounds()[0], bindings);
+        }
+        throw new FormatEncodingException("Unsupported type " + type);
+    }
+
+    /**
+     * Resolve the type variables of the given type that have a value, leaving the others unresolved
+     *
+     * @param type the type to resolve
+     * @param bindings the values of the type variables in scope
+     * @return the (partially) resolved type
+     */
+    static Type resolvePartially(Type type, Map<TypeVariable<?>, Type> bindings) {
+        try {
+            return resolve(type, bindings);
+        } catch (FormatEncodingException ex) {
+            return type;
+        }
+    }
+
+    /**
+     * Find how the given type parameterizes one of its supertypes, e.g. {@code Collection<String>} for a field of type
+     * {@code ArrayList<String>}
+     *
+     * @param type the type
+     * @param target a supertype of the raw class of the type
+     * @return the parameterization of the supertype
+     */
+    static Type supertype(Type type, Class<?> target) {
+        Class<?> raw = rawClass(type);
+        if (raw == target) {
+            return type;
+        }
+        Map<TypeVariable<?>, Type> bindings = bindings(type);
+        List<Type> supertypes = new ArrayList<>(Arrays.asList(raw.getGenericInterfaces()));
+        supertypes.add(raw.getGenericSuperclass());
+        for (Type supertype : supertypes) {
+            if (supertype != null && target.isAssignableFrom(rawClass(supertype))) {
+                return supertype(resolvePartially(supertype, bindings), target);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * @param type a type
+     * @return a string identifying the type, equal for equivalent types
+     */
+    static String key(Type type) {
+        if (type instanceof Class) {
+            return ((Class<?>) type).getName();
+        } else if (type instanceof ParameterizedType) {
+            StringBuilder key = new StringBuilder(key(((ParameterizedType) type).getRawType())).append('<');
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            for (int i = 0; i < arguments.length; i++) {
+                key.append(i > 0 ? "," : "").append(key(arguments[i]));
+            }
+            return key.append('>').toString();
+        } else if (type instanceof GenericArrayType) {
+            return key(((GenericArrayType) type).getGenericComponentType()) + "[]";
+        }
+        return type.getTypeName();
+    }
+
+    /**
+     * Parameterized type whose arguments have been resolved
+     */
+    private static class ResolvedParameterizedType implements ParameterizedType {
+
+        private final Class<?> raw;
+        private final Type[] arguments;
+
+        ResolvedParameterizedType(Class<?> raw, Type[] arguments) {
+            this.raw = raw;
+            this.arguments = arguments;
+        }
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return arguments.clone();
+        }
+
+        @Override
+        public Type getRawType() {
+            return raw;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return raw.getDeclaringClass();
+        }
+
+        @Override
+        public String toString() {
+            return key(this);
+        }
+    }
+
+    /**
+     * Array of a resolved parameterized type
+     */
+    private static class ResolvedGenericArrayType implements GenericArrayType {
+
+        private final Type component;
+
+        ResolvedGenericArrayType(Type component) {
+            this.component = component;
+        }
+
+        @Override
+        public Type getGenericComponentType() {
+            return component;
+        }
+
+        @Override
+        public String toString() {
+            return key(this);
+        }
+    }
+}
@@ -19,7 +19,9 @@ package com.intel.icecp.node.utils;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 /**
  * Linked hash map exposing the earliest and latest entries added; it is bounded to a configurable size to save memory.
@@ -46,11 +48,24 @@ public class BoundedLinkedMap<K, V> implements Map<K, V> {
      * @param maxSize the maximum allowed number of records to store
      */
     public BoundedLinkedMap(int maxSize) {
+        this(maxSize, null);
+    }
+
+    /**
+     * @param maxSize the maximum allowed number of records to store
+     * @param onEviction called (while holding this map's lock) with each record replaced to stay within the maximum
+     * size; may be null
+     */
+    public BoundedLinkedMap(int maxSize, BiConsumer<K, V> onEviction) {
         this.maxSize = maxSize;
         this.map = new LinkedHashMap<K, V>(this.maxSize) {
             @Override
             public boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-                return size() > maxSize;
+                boolean isFull = size() > maxSize;
+                if (isFull && onEviction != null) {
+                    onEviction.accept(eldest.getKey(), eldest.getValue());
+                }
+                return isFull;
             }
         };
     }
@@ -107,7 +122,7 @@ public class BoundedLinkedMap<K, V> implements Map<K, V> {
     @Override
     public synchronized V remove(Object key) {
         V value = map.remove(key);
-        if (key == latest) latest = findLatest(map);
+        if (Objects.equals(key, latest)) latest = findLatest(map);
         return value;
     }
 
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node-wide thread pool for subscription callbacks, kept apart from the event loops handling network IO so that a slow
+ * callback delays its own subscription only. Each subscription gets its own {@link Subscription} executor (see
+ * {@link #newExecutor(String)}): callbacks of a subscription run one at a time in arrival order and callbacks running
+ * longer than {@link #getSlowCallbackMs()} are logged.
+ * <p>
+ * Subscriptions are lossless: their callbacks queue up without bound. Only conflating subscriptions (see
+ * {@link #newConflatingExecutor(String)}), which may skip messages anyway, bound their queue to
+ * {@link #getMaxQueued()} callbacks; beyond that, the oldest are dropped, logged and counted per channel (see
+ * {@link #getDropped(String)}).
+ * <p>
+ * Callbacks may block (e.g. on IO or on another channel), so the pool is sized like the node's event loop, with
+ * {@link #THREADS_PER_CPU} threads per processor; threads are only started when needed and stop once idle.
+ *
+ */
+public class CallbackPool {
+
+    public static final int THREADS_PER_CPU = 16;
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors() * THREADS_PER_CPU;
+    public static final int DEFAULT_MAX_QUEUED = 1024;
+    public static final long DEFAULT_SLOW_CALLBACK_MS = 1000;
+    private static final long IDLE_THREAD_TIMEOUT_MS = 60000;
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final CallbackPool DEFAULT = new CallbackPool(DEFAULT_THREADS, DEFAULT_MAX_QUEUED, DEFAULT_SLOW_CALLBACK_MS);
+
+    private final ThreadPoolExecutor pool;
+    private final AtomicLong slowCallbacks = new AtomicLong();
+    private final Map<String, AtomicLong> droppedCallbacks = new ConcurrentHashMap<>();
+    private volatile int maxQueued;
+    private volatile long slowCallbackMs;
+
+    /**
+     * @param threads the number of threads running callbacks
+     * @param maxQueued the max number of callbacks waiting per conflating subscription
+     * @param slowCallbackMs the running time (in ms) above which a callback is logged as slow
+     */
+    public CallbackPool(int threads, int maxQueued, long slowCallbackMs) {
+        this.pool = new ThreadPoolExecutor(threads, threads, IDLE_THREAD_TIMEOUT_MS, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), new CallbackThreadFactory());
+        this.pool.allowCoreThreadTimeOut(true);
+        configure(threads, maxQueued, slowCallbackMs);
+    }
+
+    /**
+     * @return the node-wide callback pool
+     */
+    public static CallbackPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Change the pool's settings, e.g. from the node configuration; executors already created keep their queue bound
+     *
+     * @param threads the number of threads running callbacks
+     * @param maxQueued the max number of callbacks waiting per conflating subscription
+     * @param slowCallbackMs the running time (in ms) above which a callback is logged as slow
+     */
+    public synchronized void configure(int threads, int maxQueued, long slowCallbackMs) {
+        if (threads < 1 || maxQueued < 1 || slowCallbackMs < 0) {
+            throw new IllegalArgumentException("Threads and queue bound must be positive, slow callback threshold non-negative");
+        }
+        // order matters: the core size may not exceed the max size
+        if (threads > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(threads);
+            pool.setCorePoolSize(threads);
+        } else {
+            pool.setCorePoolSize(threads);
+            pool.setMaximumPoolSize(threads);
+        }
+        this.maxQueued = maxQueued;
+        this.slowCallbackMs = slowCallbackMs;
+    }
+
+    /**
+     * @param name the name of the subscription for logging, e.g. the channel name
+     * @return a new executor running the callbacks of a single subscription on this pool; no callback is dropped
+     */
+    public Subscription newExecutor(String name) {
+        return new Subscription(name, pool, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param name the name of the subscription for logging and counting drops, e.g. the channel name
+     * @return a new executor running the callbacks of a single conflating subscription on this pool; the oldest
+     * callbacks are dropped once {@link #getMaxQueued()} are waiting
+     */
+    public Subscription newConflatingExecutor(String name) {
+        return new Subscription(name, pool, maxQueued);
+    }
+
+    /**
+     * @return the number of threads running callbacks
+     */
+    public int getThreads() {
+        return pool.getMaximumPoolSize();
+    }
+
+    /**
+     * @return the max number of callbacks waiting per conflating subscription
+     */
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    /**
+     * @return the running time (in ms) above which a callback is logged as slow
+     */
+    public long getSlowCallbackMs() {
+        return slowCallbackMs;
+    }
+
+    /**
+     * @return the number of callbacks that ran longer than {@link #getSlowCallbackMs()}
+     */
+    public long getSlowCallbacks() {
+        return slowCallbacks.get();
+    }
+
+    /**
+     * @param name the name of the subscriptions, e.g. the channel name
+     * @return the number of callbacks dropped by the subscriptions with this name because too many were waiting
+     */
+    public long getDropped(String name) {
+        AtomicLong dropped = droppedCallbacks.get(name);
+        return dropped == null ? 0 : dropped.get();
+    }
+
+    /**
+     * Executor for the callbacks of a single subscription
+     */
+    public class Subscription extends SerialExecutor {
+
+        private final String name;
+
+        private Subscription(String name, Executor delegate, int maxQueued) {
+            super(delegate, maxQueued);
+            this.name = name;
+        }
+
+        /**
+         * Log the dropped callback with the subscription name and count it for the channel
+         * <p>
+         * {@inheritDoc}
+         */
+        @Override
+        protected void onDropped(long dropped) {
+            droppedCallbacks.computeIfAbsent(name, n -> new AtomicLong()).incrementAndGet();
+            LOGGER.warn("Dropped the oldest of {} waiting callbacks on {} ({} dropped so far)", getMaxQueued(), name, dropped);
+        }
+
+        /**
+         * Run the callback and log it if it was slow
+         * <p>
+         * {@inheritDoc}
+         */
+        @Override
+        protected void run(Runnable task) {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                if (elapsedMs > slowCallbackMs) {
+                    slowCallbacks.incrementAndGet();
+                    LOGGER.warn("Slow callback on {} took {} ms ({} callbacks waiting, {} dropped)", name, elapsedMs, getQueued(), getDropped());
+                }
+            }
+        }
+    }
+
+    /**
+     * Name the callback threads and let the JVM exit while they are idle
+     */
+    private static class CallbackThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "icecp-callback-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+
+/**
+ * Node-wide byte budget for message caches. Each cache registers with the governor and reports the (estimated) size
+ * of every entry it adds; once the total exceeds the budget, the governor evicts entries across all caches, either
+ * oldest-first or least-recently-used first (see {@link Order}), until the total fits again. Count-bounded caches
+ * alone do not bound the heap: a cache of large messages holds far more bytes than a cache of small ones.
+ * <p>
+ * Evictions are handed to the owning cache after the governor's lock is released, so caches may call the governor
+ * while holding their own locks; the eviction callback must not call back into its {@link Registration}.
+ *
+ */
+public class MemoryGovernor {
+
+    public static final long DEFAULT_BUDGET = Runtime.getRuntime().maxMemory() / 4;
+    public static final long DEFAULT_ESTIMATE = 1024;
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final MemoryGovernor DEFAULT = new MemoryGovernor(DEFAULT_BUDGET, Order.OLDEST_FIRST);
+
+    /** Entry sizes across all registrations, in eviction order; guarded by this */
+    private LinkedHashMap<Key, Long> entries;
+    private Order order;
+    private long budget;
+    private long usage = 0;
+    private long evictions = 0;
+
+    /**
+     * @param budget the max number of bytes held by all registered caches
+     * @param order the order in which entries are evicted once the budget is exceeded
+     */
+    public MemoryGovernor(long budget, Order order) {
+        if (budget < 1) {
+            throw new IllegalArgumentException("The memory budget must be positive: " + budget);
+        }
+        this.budget = budget;
+        this.order = order;
+        this.entries = new LinkedHashMap<>(16, 0.75f, order == Order.LEAST_RECENTLY_USED);
+    }
+
+    /**
+     * @return the node-wide governor
+     */
+    public static MemoryGovernor getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param name a name for the cache, e.g. the channel name
+     * @param evictor called with the ID of each entry the cache must drop
+     * @return the registration through which the cache reports its entries
+     */
+    public Registration register(String name, LongConsumer evictor) {
+        return new Registration(name, evictor);
+    }
+
+    /**
+     * @return the number of bytes held by all registered caches
+     */
+    public synchronized long getUsage() {
+        return usage;
+    }
+
+    /**
+     * @return the max number of bytes held by all registered caches
+     */
+    public synchronized long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return the number of entries evicted to enforce the budget since the governor was created
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of entries held by all registered caches
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return the eviction order
+     */
+    public synchronized Order getOrder() {
+        return order;
+    }
+
+    /**
+     * Change the budget and the eviction order, e.g. from the node configuration; entries over the new budget are
+     * evicted immediately
+     *
+     * @param budget the max number of bytes held by all registered caches
+     * @param order the order in which entries are evicted once the budget is exceeded
+     */
+    public void configure(long budget, Order order) {
+        if (budget < 1) {
+            throw new IllegalArgumentException("The memory budget must be positive: " + budget);
+        }
+        List<Key> evicted;
+        synchronized (this) {
+            this.budget = budget;
+            if (order != this.order) {
+                LinkedHashMap<Key, Long> reordered = new LinkedHashMap<>(Math.max(16, entries.size()), 0.75f, order == Order.LEAST_RECENTLY_USED);
+                reordered.putAll(entries);
+                this.entries = reordered;
+                this.order = order;
+            }
+            evicted = enforce(null);
+        }
+        evict(evicted);
+    }
+
+    /**
+     * Remove the eldest entries until the usage fits the budget; must be called while holding the lock
+     *
+     * @param protect the entry just added, which is never evicted so that a single entry over the budget is still
+     * cached; may be null
+     * @return the evicted entries
+     */
+    private List<Key> enforce(Key protect) {
+        List<Key> evicted = new ArrayList<>();
+        Iterator<Map.Entry<Key, Long>> iterator = entries.entrySet().iterator();
+        while (usage > budget && iterator.hasNext()) {
+            Map.Entry<Key, Long> eldest = iterator.next();
+            if (eldest.getKey().equals(protect)) {
+                continue;
+            }
+            iterator.remove();
+            usage -= eldest.getValue();
+            eldest.getKey().registration.usage -= eldest.getValue();
+            evictions++;
+            evicted.add(eldest.getKey());
+        }
+        return evicted;
+    }
+
+    /**
+     * Hand evicted entries to their caches; must be called without holding the lock
+     *
+     * @param evicted the evicted entries
+     */
+    private void evict(List<Key> evicted) {
+        for (Key key : evicted) {
+            LOGGER.trace("Evicting entry {} of {} to fit the memory budget", key.id, key.registration.name);
+            try {
+                key.registration.evictor.accept(key.id);
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to evict entry {} of {}", key.id, key.registration.name, e);
+            }
+        }
+    }
+
+    /**
+     * The order in which entries are evicted once the budget is exceeded
+     */
+    public enum Order {
+        OLDEST_FIRST, LEAST_RECENTLY_USED;
+
+        /**
+         * @param name the order name, e.g. "least-recently-used" or "LEAST_RECENTLY_USED"
+         * @return the matching order
+         * @throws IllegalArgumentException if no order matches
+         */
+        public static Order fromName(String name) {
+            return valueOf(name.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    /**
+     * A cache registered with the governor
+     */
+    public class Registration implements AutoCloseable {
+
+        private final String name;
+        private final LongConsumer evictor;
+        /** Bytes held by this cache; guarded by the governor */
+        private long usage = 0;
+        /** Sum and count of the sizes reported with {@link #resize(long, long)}; guarded by the governor */
+        private long reportedBytes = 0;
+        private long reportedCount = 0;
+
+        private Registration(String name, LongConsumer evictor) {
+            this.name = name;
+            this.evictor = evictor;
+        }
+
+        /**
+         * Account for a new entry of the cache, evicting entries of any cache if the budget is exceeded
+         *
+         * @param id the entry ID
+         * @param bytes the entry size, or {@link #estimate()} if unknown yet
+         */
+        public void add(long id, long bytes) {
+            List<Key> evicted;
+            synchronized (MemoryGovernor.this) {
+                Key key = new Key(this, id);
+                Long previous = entries.put(key, bytes);
+                long delta = previous == null ? bytes : bytes - previous;
+                usage += delta;
+                MemoryGovernor.this.usage += delta;
+                evicted = enforce(key);
+            }
+            evict(evicted);
+        }
+
+        /**
+         * Update the size of an entry once it is known, e.g. when the message is encoded; the size also refines
+         * {@link #estimate()}. Nothing happens if the entry was already removed.
+         *
+         * @param id the entry ID
+         * @param bytes the entry size
+         */
+        public void resize(long id, long bytes) {
+            List<Key> evicted;
+            synchronized (MemoryGovernor.this) {
+                reportedBytes += bytes;
+                reportedCount++;
+                Key key = new Key(this, id);
+                Long previous = entries.get(key);
+                if (previous == null) {
+                    return;
+                }
+                entries.put(key, bytes);
+                usage += bytes - previous;
+                MemoryGovernor.this.usage += bytes - previous;
+                evicted = enforce(key);
+            }
+            evict(evicted);
+        }
+
+        /**
+         * Mark an entry as used; this only affects the {@link Order#LEAST_RECENTLY_USED} order
+         *
+         * @param id the entry ID
+         */
+        public void touch(long id) {
+            synchronized (MemoryGovernor.this) {
+                if (order == Order.LEAST_RECENTLY_USED) {
+                    entries.get(new Key(this, id));
+                }
+            }
+        }
+
+        /**
+         * Stop accounting for an entry removed by the cache itself
+         *
+         * @param id the entry ID
+         */
+        public void remove(long id) {
+            synchronized (MemoryGovernor.this) {
+                Long removed = entries.remove(new Key(this, id));
+                if (removed != null) {
+                    usage -= removed;
+                    MemoryGovernor.this.usage -= removed;
+                }
+            }
+        }
+
+        /**
+         * @return the average size of the entries reported so far, or {@link #DEFAULT_ESTIMATE}
+         */
+        public long estimate() {
+            synchronized (MemoryGovernor.this) {
+                return reportedCount == 0 ? DEFAULT_ESTIMATE : reportedBytes / reportedCount;
+            }
+        }
+
+        /**
+         * @return the number of bytes held by this cache
+         */
+        public long getUsage() {
+            synchronized (MemoryGovernor.this) {
+                return usage;
+            }
+        }
+
+        /**
+         * Stop accounting for all entries of the cache, e.g. when its channel closes
+         */
+        @Override
+        public void close() {
+            synchronized (MemoryGovernor.this) {
+                Iterator<Map.Entry<Key, Long>> iterator = entries.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<Key, Long> entry = iterator.next();
+                    if (entry.getKey().registration == this) {
+                        iterator.remove();
+                        MemoryGovernor.this.usage -= entry.getValue();
+                    }
+                }
+                usage = 0;
+            }
+        }
+    }
+
+    /**
+     * Identify an entry across registrations
+     */
+    private static class Key {
+
+        final Registration registration;
+        final long id;
+
+        Key(Registration registration, long id) {
+            this.registration = registration;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return id == key.id && registration == key.registration;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(registration), id);
+        }
+    }
+}
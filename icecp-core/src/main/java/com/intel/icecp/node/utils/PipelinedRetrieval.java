@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.utils;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily retrieve a range of messages by ID, keeping a window of requests in flight; e.g. to catch up on the history
+ * of a channel at transport speed instead of paying one round trip per message. Requests are only issued as the
+ * stream is consumed, so a short-circuited stream (e.g. with {@link Stream#limit(long)}) stops requesting.
+ * <p>
+ * IDs that cannot be retrieved (e.g. expired messages, gaps in the ID sequence) are skipped; closing the stream cancels
+ * the requests still in flight.
+ *
+ */
+public class PipelinedRetrieval {
+
+    public static final int DEFAULT_WINDOW = 16;
+
+    private PipelinedRetrieval() {
+        // do not allow instances of this class
+    }
+
+    /**
+     * @param fromId the first ID of the range
+     * @param toId the last ID of the range, inclusive
+     * @param window the max number of requests in flight
+     * @param fetch retrieve the messages published under an ID; more than one in the case of batches
+     * @param <T> the message type
+     * @return a stream of the messages of the range, in ID order
+     */
+    public static <T> Stream<T> stream(long fromId, long toId, int window, LongFunction<CompletableFuture<List<T>>> fetch) {
+        return stream(CompletableFuture.completedFuture(fromId), CompletableFuture.completedFuture(toId), window, fetch);
+    }
+
+    /**
+     * @param fromId the first ID of the range, once resolved (e.g. from a timestamp)
+     * @param toId the last ID of the range, inclusive, once resolved
+     * @param window the max number of requests in flight
+     * @param fetch retrieve the messages published under an ID; more than one in the case of batches
+     * @param <T> the message type
+     * @return a stream of the messages of the range, in ID order; consuming it throws a {@link CompletionException}
+     * if the range cannot be resolved
+     */
+    public static <T> Stream<T> stream(CompletableFuture<Long> fromId, CompletableFuture<Long> toId, int window, LongFunction<CompletableFuture<List<T>>> fetch) {
+        if (window < 1) {
+            throw new IllegalArgumentException("The retrieval window must be positive: " + window);
+        }
+        RangeSpliterator<T> spliterator = new RangeSpliterator<>(fromId, toId, window, fetch);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::cancel);
+    }
+
+    /**
+     * Issue requests ahead of consumption, up to the window size, and hand out the results in ID order
+     */
+    private static class RangeSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+        private final CompletableFuture<Long> fromId;
+        private final CompletableFuture<Long> toId;
+        private final int window;
+        private final LongFunction<CompletableFuture<List<T>>> fetch;
+        private final Queue<CompletableFuture<List<T>>> inFlight = new ArrayDeque<>();
+        private boolean isResolved = false;
+        private boolean isExhausted = false;
+        private long next;
+        private long last;
+        private Iterator<T> current;
+
+        RangeSpliterator(CompletableFuture<Long> fromId, CompletableFuture<Long> toId, int window, LongFunction<CompletableFuture<List<T>>> fetch) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.fromId = fromId;
+            this.toId = toId;
+            this.window = window;
+            this.fetch = fetch;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (!isResolved) {
+                next = fromId.join();
+                last = toId.join();
+                isExhausted = next > last;
+                isResolved = true;
+            }
+
+            while (current == null || !current.hasNext()) {
+                request();
+                CompletableFuture<List<T>> head = inFlight.poll();
+                if (head == null) {
+                    return false;
+                }
+                try {
+                    current = head.join().iterator();
+                } catch (CompletionException | CancellationException e) {
+                    // unavailable ID; skip it
+                    current = null;
+                }
+            }
+
+            action.accept(current.next());
+            return true;
+        }
+
+        /**
+         * Fill the window with requests for the following IDs of the range
+         */
+        private void request() {
+            while (inFlight.size() < window && !isExhausted) {
+                inFlight.add(fetch.apply(next));
+                isExhausted = next == last;
+                next++;
+            }
+        }
+
+        /**
+         * Cancel the requests still in flight
+         */
+        void cancel() {
+            for (CompletableFuture<List<T>> request : inFlight) {
+                request.cancel(false);
+            }
+            inFlight.clear();
+            isResolved = true;
+            isExhausted = true;
+        }
+    }
+}
@@ -0,0 +1,497 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Append-only log of byte records with increasing IDs (consecutive unless given explicitly), stored in a directory of fixed-size segment files named after
+ * the ID of their first record. Records are laid out as [record size int][ID long][timestamp long][payload] and a
+ * segment ends at the first zero record size (segment files are pre-allocated, sparse, and zero-filled).
+ * <p>
+ * Reads go through read-only memory mappings of the segments; each segment keeps a sparse in-memory index (one entry
+ * every {@link #getIndexInterval()} bytes) so that a record is found by a floor lookup and a short scan, and the latest
+ * record is read directly from the tail of the last segment. Appends are written through the file channel, record
+ * first and size last, so that readers of other processes (see {@link #refresh()}) never see partial records and file
+ * watchers are notified of the change.
+ * <p>
+ * A log has a single writer; reads are thread-safe and may run concurrently with appends.
+ *
+ */
+public class SegmentedLog implements AutoCloseable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    public static final int DEFAULT_INDEX_INTERVAL = 4096;
+    public static final int RECORD_HEADER_SIZE = Integer.BYTES + 2 * Long.BYTES;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final long NO_ID = -1;
+    private final Path directory;
+    private final int segmentSize;
+    private final int indexInterval;
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    /**
+     * Open the log of a directory, creating the directory if needed
+     *
+     * @param directory the directory of the segment files
+     * @param segmentSize the size of new segment files, in bytes; a record larger than this gets a segment of its own
+     * @param indexInterval the number of bytes between two entries of the sparse index
+     * @throws IOException if the segments cannot be opened
+     */
+    public SegmentedLog(Path directory, int segmentSize, int indexInterval) throws IOException {
+        if (segmentSize <= RECORD_HEADER_SIZE || indexInterval < 1) {
+            throw new IllegalArgumentException("Segments must be larger than a record header and the index interval positive");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.indexInterval = indexInterval;
+        Files.createDirectories(directory);
+        refresh();
+    }
+
+    /**
+     * @param directory the directory of the segment files
+     * @throws IOException if the segments cannot be opened
+     */
+    public SegmentedLog(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_INDEX_INTERVAL);
+    }
+
+    /**
+     * @return the directory of the segment files
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the number of bytes between two entries of the sparse index
+     */
+    public int getIndexInterval() {
+        return indexInterval;
+    }
+
+    /**
+     * Append a record
+     *
+     * @param payload the record payload
+     * @param timestamp the record timestamp, e.g. the publication time
+     * @return the ID of the record
+     * @throws IOException if the record cannot be written
+     */
+    public synchronized long append(byte[] payload, long timestamp) throws IOException {
+        Map.Entry<Long, Segment> last = segments.lastEntry();
+        long id = last == null ? 0 : last.getValue().nextId;
+        append(id, payload, timestamp);
+        return id;
+    }
+
+    /**
+     * Append a record with an explicit ID
+     *
+     * @param id the record ID; must be greater than the ID of the latest record
+     * @param payload the record payload
+     * @param timestamp the record timestamp, e.g. the publication time
+     * @throws IOException if the record cannot be written
+     */
+    public synchronized void append(long id, byte[] payload, long timestamp) throws IOException {
+        int size = RECORD_HEADER_SIZE + payload.length;
+        Map.Entry<Long, Segment> last = segments.lastEntry();
+        if (last != null && id < last.getValue().nextId) {
+            throw new IllegalArgumentException(String.format("The record ID must be greater than the latest ID of the log: %d < %d", id, last.getValue().nextId));
+        }
+        Segment segment = last == null ? null : last.getValue();
+        if (segment == null || segment.capacity - segment.end < size) {
+            segment = Segment.create(directory.resolve(segmentName(id)), id, Math.max(segmentSize, size), indexInterval);
+            segments.put(id, segment);
+        }
+        segment.append(id, timestamp, payload);
+    }
+
+    /**
+     * @param id the record ID
+     * @return the record, or null if the log holds no record with this ID
+     */
+    public Record read(long id) {
+        Map.Entry<Long, Segment> entry = segments.floorEntry(id);
+        return entry == null ? null : entry.getValue().read(id);
+    }
+
+    /**
+     * @param id the record ID
+     * @return true if the log holds a record with this ID; unlike {@link #read(long)}, the payload is not copied
+     */
+    public boolean contains(long id) {
+        Map.Entry<Long, Segment> entry = segments.floorEntry(id);
+        return entry != null && entry.getValue().find(id) != -1;
+    }
+
+    /**
+     * Find the first record appended at or after a given time; record timestamps are expected to increase with IDs,
+     * e.g. publication times
+     *
+     * @param timestamp the record timestamp to look for
+     * @return the ID of the first record with a timestamp at or after the given one or, if there is none, the ID
+     * following the latest record
+     */
+    public long findId(long timestamp) {
+        for (Segment segment : segments.values()) {
+            long id = segment.findId(timestamp);
+            if (id != NO_ID) {
+                return id;
+            }
+        }
+        return getLatestId() + 1;
+    }
+
+    /**
+     * @return the ID of the earliest record, or -1 if the log is empty
+     */
+    public long getEarliestId() {
+        for (Segment segment : segments.values()) {
+            if (segment.nextId > segment.baseId) {
+                return segment.baseId;
+            }
+        }
+        return NO_ID;
+    }
+
+    /**
+     * @return the ID of the latest record, or -1 if the log is empty
+     */
+    public long getLatestId() {
+        Map.Entry<Long, Segment> last = segments.lastEntry();
+        return last == null || last.getValue().nextId == last.getKey() ? NO_ID : last.getValue().nextId - 1;
+    }
+
+    /**
+     * @return the latest record, read from the tail of the last segment, or null if the log is empty
+     */
+    public Record latest() {
+        Map.Entry<Long, Segment> last = segments.lastEntry();
+        return last == null ? null : last.getValue().latest();
+    }
+
+    /**
+     * @return the earliest record, or null if the log is empty
+     */
+    public Record earliest() {
+        long id = getEarliestId();
+        return id == NO_ID ? null : read(id);
+    }
+
+    /**
+     * Pick up the records and segments appended by the writer of another process (or another log instance) since the
+     * log was opened or last refreshed
+     *
+     * @throws IOException if a new segment cannot be opened
+     */
+    public synchronized void refresh() throws IOException {
+        Map.Entry<Long, Segment> last = segments.lastEntry();
+        if (last != null) {
+            last.getValue().scan();
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long baseId;
+                try {
+                    baseId = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (!segments.containsKey(baseId)) {
+                    segments.put(baseId, Segment.open(file, baseId, indexInterval));
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete the oldest segments whose records all have IDs lower than the given ID; the segment holding the ID and
+     * the last segment are kept whole, i.e. retention is segment-granular
+     *
+     * @param id the ID of the earliest record to keep
+     * @return the number of deleted segments
+     * @throws IOException if a segment file cannot be deleted
+     */
+    public synchronized int deleteBefore(long id) throws IOException {
+        int deleted = 0;
+        Map.Entry<Long, Segment> first = segments.firstEntry();
+        while (first != null && first.getValue().nextId <= id && !first.getKey().equals(segments.lastKey())) {
+            segments.remove(first.getKey());
+            first.getValue().close();
+            Files.deleteIfExists(first.getValue().path);
+            deleted++;
+            first = segments.firstEntry();
+        }
+        return deleted;
+    }
+
+    /**
+     * @return the ID following the records of the oldest segment, i.e. the ID to pass to {@link #deleteBefore(long)}
+     * to delete that segment, or -1 if the log is empty
+     */
+    public long getOldestSegmentEnd() {
+        Map.Entry<Long, Segment> first = segments.firstEntry();
+        return first == null ? NO_ID : first.getValue().nextId;
+    }
+
+    /**
+     * @return the number of segment files
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * @return the number of bytes used by records in all segments
+     */
+    public long getSize() {
+        long size = 0;
+        for (Segment segment : segments.values()) {
+            size += segment.end;
+        }
+        return size;
+    }
+
+    /**
+     * Close the segment files; mappings are released once garbage-collected
+     *
+     * @throws IOException if a segment file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+        segments.clear();
+    }
+
+    /**
+     * @param baseId the ID of the first record of the segment
+     * @return the segment file name; zero-padded so that files sort by ID
+     */
+    private static String segmentName(long baseId) {
+        return String.format("%020d%s", baseId, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * A record read from the log
+     */
+    public static class Record {
+
+        public final long id;
+        public final long timestamp;
+        public final byte[] payload;
+
+        public Record(long id, long timestamp, byte[] payload) {
+            this.id = id;
+            this.timestamp = timestamp;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * A segment file and its sparse index
+     */
+    private static class Segment {
+
+        final Path path;
+        final long baseId;
+        final int capacity;
+        final int indexInterval;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        /** Sparse index of record offsets by ID */
+        final NavigableMap<Long, Integer> index = new ConcurrentSkipListMap<>();
+        /** Offset of the end of the last record, its offset and the ID following it; written by a single thread */
+        volatile int end;
+        volatile int lastOffset = -1;
+        volatile long nextId;
+        int lastIndexedOffset = -1;
+
+        private Segment(Path path, long baseId, FileChannel channel, int indexInterval) throws IOException {
+            this.path = path;
+            this.baseId = baseId;
+            this.channel = channel;
+            this.capacity = (int) channel.size();
+            this.indexInterval = indexInterval;
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, capacity);
+            this.nextId = baseId;
+        }
+
+        static Segment create(Path path, long baseId, int capacity, int indexInterval) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                // pre-allocate the (sparse) segment so that it can be mapped whole
+                channel.write(ByteBuffer.allocate(1), capacity - 1);
+                return new Segment(path, baseId, channel, indexInterval);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        static Segment open(Path path, long baseId, int indexInterval) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                Segment segment = new Segment(path, baseId, channel, indexInterval);
+                segment.scan();
+                return segment;
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Index the records written after the known end of the segment
+         */
+        void scan() {
+            int offset = end;
+            long next = nextId;
+            while (offset + RECORD_HEADER_SIZE <= capacity) {
+                int size = buffer.getInt(offset);
+                if (size < RECORD_HEADER_SIZE || offset + size > capacity) {
+                    break;
+                }
+                long id = buffer.getLong(offset + Integer.BYTES);
+                indexRecord(id, offset);
+                lastOffset = offset;
+                offset += size;
+                next = id + 1;
+            }
+            end = offset;
+            nextId = next;
+        }
+
+        void append(long id, long timestamp, byte[] payload) throws IOException {
+            int offset = end;
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+            record.putInt(0).putLong(id).putLong(timestamp).put(payload).flip();
+            // the record size is written last: it commits the record for readers
+            record.position(Integer.BYTES);
+            writeFully(record, offset + Integer.BYTES);
+            writeFully((ByteBuffer) ByteBuffer.allocate(Integer.BYTES).putInt(RECORD_HEADER_SIZE + payload.length).flip(), offset);
+            indexRecord(id, offset);
+            lastOffset = offset;
+            end = offset + RECORD_HEADER_SIZE + payload.length;
+            nextId = id + 1;
+        }
+
+        private void writeFully(ByteBuffer bytes, long position) throws IOException {
+            while (bytes.hasRemaining()) {
+                position += channel.write(bytes, position);
+            }
+        }
+
+        private void indexRecord(long id, int offset) {
+            if (lastIndexedOffset == -1 || offset - lastIndexedOffset >= indexInterval) {
+                index.put(id, offset);
+                lastIndexedOffset = offset;
+            }
+        }
+
+        Record read(long id) {
+            int offset = find(id);
+            return offset == -1 ? null : readAt(offset);
+        }
+
+        /**
+         * @param id the record ID
+         * @return the offset of the record, or -1 if the segment holds no record with this ID
+         */
+        int find(long id) {
+            long next = nextId;
+            int limit = end;
+            if (id < baseId || id >= next) {
+                return -1;
+            }
+            // scan forward from the closest indexed record; IDs may have gaps
+            for (int offset = index.floorEntry(id).getValue(); offset < limit; offset += buffer.getInt(offset)) {
+                long current = buffer.getLong(offset + Integer.BYTES);
+                if (current == id) {
+                    return offset;
+                } else if (current > id) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @param timestamp the record timestamp to look for
+         * @return the ID of the first record with a timestamp at or after the given one, or -1 if the segment holds
+         * no such record
+         */
+        long findId(long timestamp) {
+            int last = lastOffset;
+            if (last == -1 || timestampAt(last) < timestamp) {
+                return NO_ID;
+            }
+            // scan forward from the last indexed record before the timestamp
+            int offset = 0;
+            for (int indexed : index.values()) {
+                if (indexed > last || timestampAt(indexed) >= timestamp) {
+                    break;
+                }
+                offset = indexed;
+            }
+            for (; offset <= last; offset += buffer.getInt(offset)) {
+                if (timestampAt(offset) >= timestamp) {
+                    return buffer.getLong(offset + Integer.BYTES);
+                }
+            }
+            return NO_ID;
+        }
+
+        private long timestampAt(int offset) {
+            return buffer.getLong(offset + Integer.BYTES + Long.BYTES);
+        }
+
+        Record latest() {
+            int offset = lastOffset;
+            return offset == -1 ? null : readAt(offset);
+        }
+
+        private Record readAt(int offset) {
+            ByteBuffer view = buffer.duplicate();
+            int size = view.getInt(offset);
+            long id = view.getLong(offset + Integer.BYTES);
+            long timestamp = view.getLong(offset + Integer.BYTES + Long.BYTES);
+            byte[] payload = new byte[size - RECORD_HEADER_SIZE];
+            view.position(offset + RECORD_HEADER_SIZE);
+            view.get(payload);
+            return new Record(id, timestamp, payload);
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+}
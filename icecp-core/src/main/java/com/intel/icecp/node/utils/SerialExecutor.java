@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Executor running its tasks one at a time, in submission order, on a shared delegate executor; e.g. to run the
+ * callbacks of a subscription in order without dedicating a thread to each subscription.
+ * <p>
+ * The queue of waiting tasks may be bounded; once it is full, the oldest waiting task is dropped to make room for the
+ * new one (see {@link #getDropped()}), so that a slow consumer loses stale work instead of holding an unbounded
+ * backlog.
+ *
+ */
+public class SerialExecutor implements Executor {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private final Executor delegate;
+    private final int maxQueued;
+    /** Tasks waiting to run, guarded by itself */
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    /** True while a task of this executor is submitted to or running on the delegate, guarded by tasks */
+    private boolean isRunning = false;
+    /** Number of tasks dropped because the queue was full, guarded by tasks */
+    private long dropped = 0;
+
+    /**
+     * @param delegate the executor running the tasks
+     */
+    public SerialExecutor(Executor delegate) {
+        this(delegate, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param delegate the executor running the tasks
+     * @param maxQueued the max number of tasks waiting to run
+     */
+    public SerialExecutor(Executor delegate, int maxQueued) {
+        if (maxQueued < 1) {
+            throw new IllegalArgumentException("At least one task must be allowed to wait: " + maxQueued);
+        }
+        this.delegate = delegate;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute(Runnable task) {
+        synchronized (tasks) {
+            if (tasks.size() >= maxQueued) {
+                tasks.poll();
+                dropped++;
+                onDropped(dropped);
+            }
+            tasks.add(task);
+            if (isRunning) {
+                return;
+            }
+            isRunning = true;
+        }
+        delegate.execute(this::runNext);
+    }
+
+    /**
+     * @return the number of tasks waiting to run
+     */
+    public int getQueued() {
+        synchronized (tasks) {
+            return tasks.size();
+        }
+    }
+
+    /**
+     * @return the number of tasks dropped because the queue was full
+     */
+    public long getDropped() {
+        synchronized (tasks) {
+            return dropped;
+        }
+    }
+
+    /**
+     * Report a task dropped because the queue was full; subclasses may override this to identify the executor or count
+     * drops elsewhere. Called while the queue is locked, so it must not block.
+     *
+     * @param dropped the number of tasks dropped so far, including this one
+     */
+    protected void onDropped(long dropped) {
+        LOGGER.warn("Queue of {} tasks is full, dropped the oldest task ({} dropped so far)", maxQueued, dropped);
+    }
+
+    /**
+     * @return the max number of tasks waiting to run
+     */
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    /**
+     * Run a single task on the delegate's thread; subclasses may override this to instrument tasks
+     *
+     * @param task the task to run
+     */
+    protected void run(Runnable task) {
+        task.run();
+    }
+
+    /**
+     * Run the next queued task, then resubmit to the delegate if more tasks are queued; resubmitting (rather than
+     * looping) lets other work of the delegate interleave with a long queue
+     */
+    private void runNext() {
+        Runnable task;
+        synchronized (tasks) {
+            task = tasks.poll();
+        }
+        try {
+            run(task);
+        } finally {
+            boolean hasNext;
+            synchronized (tasks) {
+                hasNext = isRunning = !tasks.isEmpty();
+            }
+            if (hasNext) {
+                delegate.execute(this::runNext);
+            }
+        }
+    }
+}
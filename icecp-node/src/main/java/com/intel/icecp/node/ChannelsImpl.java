@@ -21,13 +21,16 @@ import com.intel.icecp.core.Message;
 import com.intel.icecp.core.Metadata;
 import com.intel.icecp.core.channels.ChannelProvider;
 import com.intel.icecp.core.channels.Token;
+import com.intel.icecp.core.event.Event;
 import com.intel.icecp.core.management.Channels;
 import com.intel.icecp.core.management.ConfigurationManager;
 import com.intel.icecp.core.messages.BytesMessage;
 import com.intel.icecp.core.metadata.Format;
+import com.intel.icecp.core.metadata.FormatPreference;
 import com.intel.icecp.core.metadata.Persistence;
 import com.intel.icecp.core.metadata.formats.BytesFormat;
 import com.intel.icecp.core.metadata.formats.JsonFormat;
+import com.intel.icecp.core.metadata.formats.NegotiatedFormat;
 import com.intel.icecp.core.misc.ChannelIOException;
 import com.intel.icecp.core.misc.ChannelLifetimeException;
 import com.intel.icecp.core.misc.Configuration;
@@ -39,6 +42,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.net.URI;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -58,6 +62,13 @@ class ChannelsImpl implements Channels {
     private static final Logger LOGGER = LogManager.getLogger();
     private static final String FALLBACK_SCHEME = "*";
     private static final int DEFAULT_OPEN_TIMEOUT = 10;
+    /**
+     * Formats of node-internal channels: advertised and requested binary first; messages are still sent in JSON to
+     * peers (e.g. external tools or older nodes) that do not request a binary format
+     */
+    static final FormatPreference INTERNAL_FORMATS = new FormatPreference(FormatPreference.CBOR, FormatPreference.TLV, FormatPreference.JSON);
+    /** Packages of the node-internal message types (events, attributes, RPC, node status...) */
+    private static final String[] INTERNAL_PACKAGES = {"com.intel.icecp.core.", "com.intel.icecp.node.", "com.intel.icecp.rpc."};
     private final Map<URI, Channel> channels = new ConcurrentHashMap<>();
     private final Map<String, ChannelProvider> registered = new ConcurrentHashMap<>();
     private final ScheduledExecutorService pool;
@@ -175,7 +186,7 @@ class ChannelsImpl implements Channels {
         LOGGER.debug("Using format {} for channel: {}", messageFormat.getClass().getSimpleName(), uri);
 
         // @Moreno: Create a simple MessageFormattingPipeline with the chosen format
-        Channel<T> channel = provider.build(uri, MessageFormattingPipeline.create(messageType, messageFormat), persistence, metadata);
+        Channel<T> channel = provider.build(uri, MessageFormattingPipeline.create(messageType, messageFormat), persistence, withFormat(metadata, messageFormat));
         try {
             channel.open().get(DEFAULT_OPEN_TIMEOUT, TimeUnit.SECONDS);
             channels.put(uri, channel);
@@ -187,7 +198,7 @@ class ChannelsImpl implements Channels {
 
     /**
      * Determine the format to use from (in order): <ol> <li>a specified format</li> <li>a bytes-related message</li>
-     * <li>the default</li> </ol>
+     * <li>a specified {@link FormatPreference}</li> <li>the default</li> </ol>
      *
      * @param <T> a message type
      * @param messageType the type of message, necessary for some serializers
@@ -196,26 +207,67 @@ class ChannelsImpl implements Channels {
      */
     <T extends Message> Format chooseFormat(Token<T> messageType, Metadata[] metadata) {
         Format specified = MetadataUtils.find(Format.class, metadata);
+        FormatPreference preference = MetadataUtils.find(FormatPreference.class, metadata);
         if (specified != null) {
             return specified;
         } else if (messageType.isAssignableFrom(BytesMessage.class)) {
             return new BytesFormat();
+        } else if (preference != null) {
+            return new NegotiatedFormat<>(messageType, preference);
         } else {
             return buildDefaultFormat(messageType);
         }
     }
 
     /**
-     * Build the default format to use; TODO use CBOR?
+     * Pass a negotiated format to the provider so that the channel can advertise its formats and answer requests for
+     * another format than the default one (see {@link NegotiatedFormat})
+     *
+     * @param metadata the metadata passed when opening the channel
+     * @param format the format of the channel pipeline
+     * @return the metadata, including the format if it is negotiated
+     */
+    static Metadata[] withFormat(Metadata[] metadata, Format format) {
+        if (!(format instanceof NegotiatedFormat) || MetadataUtils.find(Format.class, metadata) != null) {
+            return metadata;
+        }
+        Metadata[] extended = Arrays.copyOf(metadata, metadata.length + 1);
+        extended[metadata.length] = format;
+        return extended;
+    }
+
+    /**
+     * Build the default format to use: node-internal message types negotiate {@link #INTERNAL_FORMATS} (i.e. JSON
+     * unless peers request CBOR), other types use JSON
      *
      * @param <T> the {@link Message} type
      * @param messageType a {@link Class} instance of the {@link Message} type
      * @return a {@link Format}
      */
     private <T extends Message> Format<T> buildDefaultFormat(Token<T> messageType) {
+        if (isInternal(messageType)) {
+            return new NegotiatedFormat<>(messageType, INTERNAL_FORMATS);
+        }
         return (Format<T>) new JsonFormat(messageType);
     }
 
+    /**
+     * @param messageType the type of message
+     * @return true if the type is an event or one of the node's own message types
+     */
+    static boolean isInternal(Token<?> messageType) {
+        Class<?> type = messageType.toClass();
+        if (Event.class.isAssignableFrom(type)) {
+            return true;
+        }
+        for (String internalPackage : INTERNAL_PACKAGES) {
+            if (type.getName().startsWith(internalPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      *
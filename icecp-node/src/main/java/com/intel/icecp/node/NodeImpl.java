@@ -23,6 +23,7 @@ import com.intel.icecp.core.Module;
 import com.intel.icecp.core.Node;
 import com.intel.icecp.core.attributes.ArchitectureAttribute;
 import com.intel.icecp.core.attributes.AttributeRegistrationException;
+import com.intel.icecp.core.attributes.CacheMemoryAttribute;
 import com.intel.icecp.core.attributes.Attributes;
 import com.intel.icecp.core.attributes.NodeUptimeAttribute;
 import com.intel.icecp.core.attributes.OperatingSystemAttribute;
@@ -34,14 +35,21 @@ import com.intel.icecp.core.event.types.NodeEvent;
 import com.intel.icecp.core.management.Channels;
 import com.intel.icecp.core.management.ConfigurationManager;
 import com.intel.icecp.core.management.PermissionsManager;
+import com.intel.icecp.core.metadata.Deduplication;
 import com.intel.icecp.core.metadata.Persistence;
 import com.intel.icecp.core.misc.ChannelIOException;
 import com.intel.icecp.core.misc.ChannelLifetimeException;
+import com.intel.icecp.core.misc.Configuration;
 import com.intel.icecp.core.modules.Modules;
 import com.intel.icecp.core.permissions.NodePermission;
+import com.intel.icecp.core.pipeline.Operations;
 import com.intel.icecp.core.security.TrustModels;
 import com.intel.icecp.node.management.ModulesImpl;
 import com.intel.icecp.node.messages.NodeInfoMessage;
+import com.intel.icecp.node.pipeline.operations.OperationsImpl;
+import com.intel.icecp.node.security.crypto.signature.VerificationCache;
+import com.intel.icecp.node.security.crypto.signature.VerificationCacheAttribute;
+import com.intel.icecp.node.utils.MemoryGovernor;
 import com.intel.icecp.node.utils.SecurityUtils;
 import com.intel.icecp.rpc.Rpc;
 import com.intel.icecp.rpc.RpcServer;
@@ -78,6 +86,7 @@ class NodeImpl implements Node {
     
     // Trust models available to the node
     private final TrustModels trustModels;
+    private final Operations operations;
 
     /**
      * Build a {@link Node} using NDN channels.
@@ -94,6 +103,7 @@ class NodeImpl implements Node {
         this.channels = channels;
         this.modules = new ModulesImpl(this, permissionsManager, configurationManager);
         this.trustModels = trustModels;
+        this.operations = new OperationsImpl(this, loadConfiguration(configurationManager, "operations"));
         this.eventLoop = eventLoop;
         this.events = events;
         this.attributes = new AttributesImpl(channels, getDefaultUri());
@@ -101,6 +111,20 @@ class NodeImpl implements Node {
         createServer(channels, name);
     }
 
+    /**
+     * Load a node configuration; a missing configuration file results in an empty configuration so that defaults
+     * apply
+     */
+    private static Configuration loadConfiguration(ConfigurationManager configurationManager, String name) {
+        Configuration configuration = configurationManager.get(name);
+        try {
+            configuration.load();
+        } catch (ChannelIOException ex) {
+            LOGGER.warn("Unable to read the {} configuration, using defaults", name, ex);
+        }
+        return configuration;
+    }
+
     RpcServer getRpcServer() {
         return rpcServer;
     }
@@ -295,7 +319,8 @@ class NodeImpl implements Node {
         try {
             URI uri = new URI("ndn", getName(), null);
             LOGGER.debug("Opening device status channel: " + uri);
-            this.statusChannel = openChannel(uri, Node.State.class, persistence);
+            // the status rarely changes between publications, so identical messages share their cached payload
+            this.statusChannel = openChannel(uri, Node.State.class, persistence, Deduplication.CONTENT_HASH);
         } catch (URISyntaxException | ChannelLifetimeException e) {
             throw new Error("Unable to create device status channel.", e);
         }
@@ -318,6 +343,8 @@ class NodeImpl implements Node {
                 attributes.add(new ArchitectureAttribute());
                 attributes.add(new ProcessorLoadAttribute());
                 attributes.add(new StorageUsageAttribute());
+                attributes.add(new CacheMemoryAttribute(MemoryGovernor.getDefault()));
+                attributes.add(new VerificationCacheAttribute(VerificationCache.getDefault()));
             } catch (AttributeRegistrationException e) {
                 throw new IllegalStateException("Node attributes could not be added.", e);
             }
@@ -352,6 +379,15 @@ class NodeImpl implements Node {
     public TrustModels getTrustModels() {
         return trustModels;
     }
+
+    /**
+     * {@inheritDoc }
+     *
+     */
+    @Override
+    public Operations getOperations() {
+        return operations;
+    }
     
     
     /**
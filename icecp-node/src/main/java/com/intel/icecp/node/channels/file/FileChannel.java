@@ -17,6 +17,8 @@ package com.intel.icecp.node.channels.file;
 
 import com.intel.icecp.core.Message;
 import com.intel.icecp.core.channels.ChannelBase;
+import com.intel.icecp.core.channels.HistoricalChannel;
+import com.intel.icecp.core.metadata.AppendOnlyLog;
 import com.intel.icecp.core.misc.ChannelIOException;
 import com.intel.icecp.core.misc.ChannelLifetimeException;
 import com.intel.icecp.core.misc.OnPublish;
@@ -24,9 +26,12 @@ import com.intel.icecp.core.permissions.ChannelPermission;
 import com.intel.icecp.core.pipeline.Pipeline;
 import com.intel.icecp.core.pipeline.exception.PipelineException;
 import com.intel.icecp.node.utils.SecurityUtils;
+import com.intel.icecp.node.utils.SegmentedLog;
+import com.intel.icecp.node.utils.StreamUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -39,35 +44,43 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.nio.file.WatchEvent;
-import java.nio.file.WatchKey;
-import java.nio.file.WatchService;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
-import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
 
 /**
  * A channel for retrieving file data and subscribing to file changes. Uses Java
  * NIO to watch the file; each file modification will bump the channel version.
- * TODO perhaps implement versioning of some sort, e.g. file.0, file.1...
+ * <p>
+ * In log mode (built with {@link AppendOnlyLog} metadata), the channel URI names
+ * a directory holding a {@link SegmentedLog}: each published message is appended
+ * as a new record instead of overwriting the file, messages can be retrieved by
+ * ID or publication time (see {@link #get(long)}, {@link #findId(long)} and
+ * {@link #earliest()}), {@link #latest()} reads the tail of the log and
+ * subscribers receive every appended message.
  *
  */
-public class FileChannel extends ChannelBase {
+public class FileChannel extends ChannelBase implements HistoricalChannel {
 
     public static final int MODIFICATION_WINDOW_MS = 1000;
     private static final Logger LOGGER = LogManager.getLogger();
     private final ScheduledExecutorService eventLoop;
-    private boolean hasPublished = false;
-    private boolean hasSubscribed = false;
-    private long latestVersion = 0;
+    private final AppendOnlyLog logMode;
+    private final FileWatchService watchService;
+    private final List<FileWatchService.Registration> registrations = new CopyOnWriteArrayList<>();
+    private SegmentedLog log;
+    private volatile boolean hasPublished = false;
+    private final AtomicLong latestVersion = new AtomicLong();
     private Path path = null;
     private FileSystem zipfs = null;
     private boolean isChannelOpen = false;
@@ -80,8 +93,40 @@ public class FileChannel extends ChannelBase {
      * @param eventLoop
      */
     protected FileChannel(URI file, Pipeline pipeline, ScheduledExecutorService eventLoop) {
+        this(file, pipeline, eventLoop, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param file the file to watch for notifications, or the log directory in
+     * log mode
+     * @param pipeline the pipeline for serializing/deserializing messages
+     * @param eventLoop the event loop for asynchronous file access
+     * @param logMode the log configuration, or null to overwrite the file on
+     * each publication
+     */
+    protected FileChannel(URI file, Pipeline pipeline, ScheduledExecutorService eventLoop, AppendOnlyLog logMode) {
+        this(file, pipeline, eventLoop, logMode, FileWatchService.getDefault());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param file the file to watch for notifications, or the log directory in
+     * log mode
+     * @param pipeline the pipeline for serializing/deserializing messages
+     * @param eventLoop the event loop for asynchronous file access and
+     * subscription callbacks
+     * @param logMode the log configuration, or null to overwrite the file on
+     * each publication
+     * @param watchService the service watching the file for subscriptions
+     */
+    protected FileChannel(URI file, Pipeline pipeline, ScheduledExecutorService eventLoop, AppendOnlyLog logMode, FileWatchService watchService) {
         super(file, pipeline);
         this.eventLoop = eventLoop;
+        this.logMode = logMode;
+        this.watchService = watchService;
     }
 
     /**
@@ -112,6 +157,13 @@ public class FileChannel extends ChannelBase {
         if (path == null) {
             path = createFileSyStem();
         }
+        if (logMode != null && log == null) {
+            try {
+                log = new SegmentedLog(path, logMode.segmentSize, logMode.indexInterval);
+            } catch (IOException e) {
+                throw new ChannelLifetimeException("Could not open log of channel " + getName(), e);
+            }
+        }
         isChannelOpen = true;
 
         return CompletableFuture.completedFuture(null);
@@ -124,8 +176,19 @@ public class FileChannel extends ChannelBase {
     public void close() throws ChannelLifetimeException {
         SecurityUtils.checkPermission(new ChannelPermission(getName(), "close"));
         LOGGER.debug("Closing channel: " + getName());
-        hasSubscribed = false;
+        for (FileWatchService.Registration registration : registrations) {
+            registration.cancel();
+        }
+        registrations.clear();
         isChannelOpen = false;
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                throw new ChannelLifetimeException("Could not close log of channel " + getName(), e);
+            }
+            log = null;
+        }
     }
 
     /**
@@ -155,9 +218,10 @@ public class FileChannel extends ChannelBase {
     }
 
     /**
-     * Subscribe to changes to the underlying file; uses Java NIO WatchService
-     * in a separate thread to wait for changes. TODO use EventLoop instead of
-     * separate thread?
+     * Subscribe to changes to the underlying file (or, in log mode, to records
+     * appended to the log); the file is watched by the shared
+     * {@link FileWatchService} and callbacks run on the event loop, one at a
+     * time per subscription.
      *
      * @param callback a callback method to receive the changed file bytes.
      * @throws ChannelIOException
@@ -168,83 +232,81 @@ public class FileChannel extends ChannelBase {
         LOGGER.debug("Subscribing to channel: " + getName());
         checkOpenChannel();
 
-        final WatchService watcher;
         try {
-            watcher = FileSystems.getDefault().newWatchService();
-            path.getParent().register(watcher, ENTRY_MODIFY);
-        } catch (IOException e) {
-            throw new ChannelIOException("Failed to subscribe to: " + getName(), e);
-        }
-
-        Runnable handler = new Runnable() {
-            @Override
-            public void run() {
-                hasSubscribed = true;
-                long lastModified = 0;
-                while (hasSubscribed) {
-                    // retrieve key
-                    WatchKey key;
+            if (log != null) {
+                AtomicLong lastDelivered = new AtomicLong(log.getLatestId());
+                registrations.add(watchService.watchDirectory(path, eventLoop, () -> {
                     try {
-                        key = watcher.take();
-                    } catch (InterruptedException x) {
-                        LOGGER.error("File watching interrupted: " + getName());
-                        return;
+                        lastDelivered.set(deliverAppended(callback, lastDelivered.get()));
+                    } catch (IOException | PipelineException e) {
+                        LOGGER.error("File publish callback failed: " + getName(), e);
                     }
-
-                    // process events
-                    boolean changed = false;
-                    for (WatchEvent<?> event : key.pollEvents()) {
-                        Path changedFile = (Path) event.context();
-                        LOGGER.debug("Event on " + changedFile + ", kind " + event.kind());
-                        long currentModified = path.toFile().lastModified();
-                        // due to file systems throwing multiple events (see below),
-                        // we set a modification window to filter out duplicates
-                        if (path.endsWith(changedFile) && currentModified - lastModified > MODIFICATION_WINDOW_MS) {
-                            changed = true;
-                        }
-                        lastModified = currentModified;
-                    }
-
-                    // do callback; we do this after the event loop because some
-                    // file systems register multiple events (timestamp modified,
-                    // contents modified)
-                    if (changed) {
-                        try {
-                            latestVersion++;
-                            callback.onPublish(latest().get());
-                        } catch (ChannelIOException | InterruptedException | ExecutionException e) {
-                            LOGGER.error("File publish callback failed: " + getName());
-                            return;
-                        }
-                    }
-
-                    // reset the key
-                    boolean valid = key.reset();
-                    if (!valid) {
-                        LOGGER.error("Invalid key: " + getName());
-                        return;
+                }));
+            } else {
+                registrations.add(watchService.watchFile(path, MODIFICATION_WINDOW_MS, eventLoop, () -> {
+                    latestVersion.incrementAndGet();
+                    try {
+                        callback.onPublish(readFile());
+                    } catch (IOException | PipelineException e) {
+                        LOGGER.error("File publish callback failed: " + getName(), e);
                     }
-                }
+                }));
             }
-        };
-        Thread thread = new Thread(handler);
-        thread.setName(this.getClass().getName() + ": " + getName());
-        thread.start();
-
-        while (!hasSubscribed) {
-            try {
-                Thread.sleep(10);
-            } catch (InterruptedException ex) {
-                Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new ChannelIOException("Failed to subscribe to: " + getName(), e);
+        }
+        LOGGER.debug("Subscribed to channel: " + getName());
+    }
 
+    /**
+     * Deliver the log records appended since the last delivered one
+     *
+     * @param callback the subscriber callback
+     * @param lastDelivered the ID of the last delivered record, or -1
+     * @return the ID of the last delivered record
+     * @throws IOException if new segments cannot be opened
+     * @throws PipelineException if a record cannot be decoded
+     */
+    private long deliverAppended(OnPublish callback, long lastDelivered) throws IOException, PipelineException {
+        log.refresh();
+        long latest = log.getLatestId();
+        for (long id = Math.max(lastDelivered + 1, log.getEarliestId()); id <= latest; id++) {
+            SegmentedLog.Record record = log.read(id);
+            if (record != null) {
+                latestVersion.set(id);
+                callback.onPublish(decode(record));
             }
         }
-        LOGGER.debug("Subscribed to channel: " + getName());
+        return Math.max(lastDelivered, latest);
+    }
+
+    /**
+     * @return the message decoded from the file
+     * @throws IOException if the file cannot be read
+     * @throws PipelineException if the file cannot be decoded
+     */
+    private Message readFile() throws IOException, PipelineException {
+        try (InputStream stream = Files.newInputStream(path)) {
+            return (Message) pipeline.executeInverse(stream);
+        }
+    }
+
+    /**
+     * @param record a log record
+     * @return the decoded message
+     * @throws PipelineException if the record cannot be decoded
+     */
+    private Message decode(SegmentedLog.Record record) throws PipelineException {
+        return (Message) pipeline.executeInverse(new ByteArrayInputStream(record.payload));
     }
 
     /**
      * Retrieve a future file; file access will not occur until Future.get() is
      * called.
+     * <p>
+     * In log mode, the latest record of the log is read, including records
+     * appended by other processes since the last access, even if this channel
+     * also publishes.
      *
      * @return a {@link Future} to the latest available representation of the
      * file
@@ -256,11 +318,16 @@ public class FileChannel extends ChannelBase {
         LOGGER.debug("Retrieving latest message from channel: " + getName());
         checkOpenChannel();
 
+        if (log != null) {
+            refreshLog();
+            return readLog(log.latest(), "latest");
+        }
+
         return CompletableFuture.supplyAsync(new Supplier<Message>() {
             @Override
             public Message get() {
                 try {
-                    return (Message) pipeline.executeInverse(Files.newInputStream(path));
+                    return readFile();
                 } catch (PipelineException | IOException ex) {
                     throw new RuntimeException(ex);
                 }
@@ -268,10 +335,99 @@ public class FileChannel extends ChannelBase {
         }, eventLoop);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Outside of log mode, the file holds a single message, which is also the
+     * earliest.
+     */
+    @Override
+    public CompletableFuture<Message> earliest() throws ChannelIOException {
+        SecurityUtils.checkPermission(new ChannelPermission(getName(), "subscribe"));
+        checkOpenChannel();
+        if (log == null) {
+            return latest();
+        }
+
+        refreshLog();
+        return readLog(log.earliest(), "earliest");
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ChannelIOException if the channel is not in log mode
+     */
+    @Override
+    public CompletableFuture<Message> get(long id) throws ChannelIOException {
+        SecurityUtils.checkPermission(new ChannelPermission(getName(), "subscribe"));
+        checkOpenChannel();
+        if (log == null) {
+            throw new ChannelIOException("Messages can only be retrieved by ID in log mode: " + getName());
+        }
+
+        SegmentedLog.Record record = log.read(id);
+        if (record == null) {
+            refreshLog();
+            record = log.read(id);
+        }
+        return readLog(record, "message " + id);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ChannelIOException if the channel is not in log mode
+     */
+    @Override
+    public CompletableFuture<Long> findId(long timestamp) throws ChannelIOException {
+        SecurityUtils.checkPermission(new ChannelPermission(getName(), "subscribe"));
+        checkOpenChannel();
+        if (log == null) {
+            throw new ChannelIOException("Messages can only be retrieved by time in log mode: " + getName());
+        }
+
+        refreshLog();
+        return CompletableFuture.completedFuture(log.findId(timestamp));
+    }
+
+    /**
+     * Pick up records appended by another process
+     *
+     * @throws ChannelIOException if the log cannot be read
+     */
+    private void refreshLog() throws ChannelIOException {
+        try {
+            log.refresh();
+        } catch (IOException e) {
+            throw new ChannelIOException("Failed to read log of channel: " + getName(), e);
+        }
+    }
+
+    /**
+     * @param record the log record, or null if not found
+     * @param description the requested message, for error messages
+     * @return a future completed with the decoded record
+     */
+    private CompletableFuture<Message> readLog(SegmentedLog.Record record, String description) {
+        CompletableFuture<Message> future = new CompletableFuture<>();
+        if (record == null) {
+            future.completeExceptionally(new ChannelIOException("No " + description + " in log of channel: " + getName()));
+            return future;
+        }
+        try {
+            future.complete(decode(record));
+        } catch (PipelineException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     /**
      * {@inheritDoc}
      *
-     * Over-writes the file with the serialized message.
+     * Over-writes the file with the serialized message, or appends it to the
+     * log in log mode.
      */
     @Override
     public void publish(Message message) throws ChannelIOException {
@@ -281,8 +437,13 @@ public class FileChannel extends ChannelBase {
 
         try {
             InputStream stream = (InputStream) this.pipeline.execute(message);
+            if (log != null) {
+                latestVersion.set(log.append(StreamUtils.readAll(stream), System.currentTimeMillis()));
+                hasPublished = true;
+                return;
+            }
             Files.copy(stream, path, StandardCopyOption.REPLACE_EXISTING);
-            latestVersion++;
+            latestVersion.incrementAndGet();
             hasPublished = true;
         } catch (PipelineException | IOException e) {
             throw new ChannelIOException("Failed to publish to channel: " + getName(), e);
@@ -313,7 +474,7 @@ public class FileChannel extends ChannelBase {
      */
     @Override
     public boolean isSubscribing() {
-        return hasSubscribed;
+        return !registrations.isEmpty();
     }
 
     /**
@@ -19,10 +19,12 @@ import com.intel.icecp.core.Channel;
 import com.intel.icecp.core.Message;
 import com.intel.icecp.core.Metadata;
 import com.intel.icecp.core.channels.ChannelProvider;
+import com.intel.icecp.core.metadata.AppendOnlyLog;
 import com.intel.icecp.core.metadata.Persistence;
 import com.intel.icecp.core.misc.ChannelLifetimeException;
 import com.intel.icecp.core.misc.Configuration;
 import com.intel.icecp.core.pipeline.Pipeline;
+import com.intel.icecp.node.utils.MetadataUtils;
 import java.net.URI;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -50,7 +52,7 @@ public class FileChannelProvider implements ChannelProvider {
 
     @Override
     public <T extends Message> Channel<T> build(URI uri, Pipeline pipeline, Persistence persistence, Metadata... metadata) throws ChannelLifetimeException {
-        return new FileChannel(uri, pipeline, eventLoop);
+        return new FileChannel(uri, pipeline, eventLoop, MetadataUtils.find(AppendOnlyLog.class, metadata));
     }
 
     @Override
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.channels.file;
+
+import com.intel.icecp.node.utils.SerialExecutor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Watches files for {@link FileChannel} subscriptions: each watched directory is registered once, on a single
+ * {@link WatchService} served by a single thread, and changes are dispatched to the registered listeners on their own
+ * executors (e.g. the channel event loop). Listeners of a registration run one at a time and changes reported while a
+ * listener is pending are coalesced into that run. Single-file registrations are debounced: file systems may report
+ * several events for one write (timestamp modified, contents modified), so a change is ignored if the file was
+ * already modified less than the modification window before.
+ *
+ */
+public class FileWatchService {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final FileWatchService DEFAULT = new FileWatchService();
+    /** Watched directories, guarded by this */
+    private final Map<Path, WatchedDirectory> directories = new HashMap<>();
+    private WatchService watchService;
+
+    /**
+     * @return the service shared by the file channels of this process
+     */
+    public static FileWatchService getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Watch a single file
+     *
+     * @param file the file to watch
+     * @param modificationWindow the minimum time (in ms) between the modifications of two reported changes
+     * @param executor the executor running the listener
+     * @param listener called when the file changes
+     * @return the registration, to cancel when done
+     * @throws IOException if the directory of the file cannot be watched
+     */
+    public Registration watchFile(Path file, long modificationWindow, Executor executor, Runnable listener) throws IOException {
+        return register(file.toAbsolutePath().getParent(), file.getFileName(), modificationWindow, executor, listener);
+    }
+
+    /**
+     * Watch all files of a directory; changes are not debounced
+     *
+     * @param directory the directory to watch
+     * @param executor the executor running the listener
+     * @param listener called when a file of the directory is created or changes
+     * @return the registration, to cancel when done
+     * @throws IOException if the directory cannot be watched
+     */
+    public Registration watchDirectory(Path directory, Executor executor, Runnable listener) throws IOException {
+        return register(directory.toAbsolutePath(), null, 0, executor, listener);
+    }
+
+    /**
+     * @return the number of directories currently watched
+     */
+    public synchronized int getWatchedDirectories() {
+        return directories.size();
+    }
+
+    private synchronized Registration register(Path directory, Path fileName, long modificationWindow, Executor executor, Runnable listener) throws IOException {
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+            Thread thread = new Thread(this::watch);
+            thread.setName(getClass().getSimpleName());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        WatchedDirectory watched = directories.get(directory);
+        if (watched == null) {
+            // events occurring after this returns are queued, so no need to wait for the watching thread
+            watched = new WatchedDirectory(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY));
+            directories.put(directory, watched);
+            LOGGER.debug("Watching directory: {}", directory);
+        }
+
+        Registration registration = new Registration(directory, fileName, modificationWindow, executor, listener);
+        watched.registrations.add(registration);
+        return registration;
+    }
+
+    private synchronized void unregister(Registration registration) {
+        WatchedDirectory watched = directories.get(registration.directory);
+        if (watched != null && watched.registrations.remove(registration) && watched.registrations.isEmpty()) {
+            watched.key.cancel();
+            directories.remove(registration.directory);
+            LOGGER.debug("Stopped watching directory: {}", registration.directory);
+        }
+    }
+
+    /**
+     * Wait for events on all watched directories and dispatch them
+     */
+    private void watch() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException e) {
+                LOGGER.error("File watching interrupted");
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            Path directory = (Path) key.watchable();
+            List<Registration> registrations;
+            synchronized (this) {
+                WatchedDirectory watched = directories.get(directory);
+                registrations = watched == null ? null : watched.registrations;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (registrations == null || !(event.context() instanceof Path)) {
+                    continue;
+                }
+                Path changedFile = (Path) event.context();
+                LOGGER.trace("Event on {}, kind {}", changedFile, event.kind());
+                for (Registration registration : registrations) {
+                    registration.onEvent(changedFile);
+                }
+            }
+
+            if (!key.reset()) {
+                LOGGER.debug("Directory no longer watched: {}", directory);
+            }
+        }
+    }
+
+    /**
+     * A watched directory and the registrations watching it
+     */
+    private static class WatchedDirectory {
+
+        final WatchKey key;
+        final List<Registration> registrations = new CopyOnWriteArrayList<>();
+
+        WatchedDirectory(WatchKey key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * A listener watching a file (or a whole directory)
+     */
+    public class Registration {
+
+        private final Path directory;
+        private final Path fileName;
+        private final long modificationWindow;
+        private final Executor executor;
+        private final Runnable listener;
+        private final AtomicBoolean isPending = new AtomicBoolean();
+        private volatile boolean isCancelled = false;
+        /** Last modification time of the watched file, only used by the watching thread */
+        private long lastModified = 0;
+
+        private Registration(Path directory, Path fileName, long modificationWindow, Executor executor, Runnable listener) {
+            this.directory = directory;
+            this.fileName = fileName;
+            this.modificationWindow = modificationWindow;
+            this.executor = new SerialExecutor(executor);
+            this.listener = listener;
+        }
+
+        /**
+         * Stop calling the listener
+         */
+        public void cancel() {
+            isCancelled = true;
+            unregister(this);
+        }
+
+        private void onEvent(Path changedFile) {
+            if (fileName != null) {
+                if (!fileName.equals(changedFile)) {
+                    return;
+                }
+                long currentModified = directory.resolve(fileName).toFile().lastModified();
+                boolean isNewModification = currentModified - lastModified > modificationWindow;
+                lastModified = currentModified;
+                if (!isNewModification) {
+                    return;
+                }
+            }
+
+            if (isPending.compareAndSet(false, true)) {
+                executor.execute(this::dispatch);
+            }
+        }
+
+        private void dispatch() {
+            isPending.set(false);
+            if (isCancelled) {
+                return;
+            }
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                LOGGER.error("File change listener failed: {}", fileName == null ? directory : directory.resolve(fileName), e);
+            }
+        }
+    }
+}
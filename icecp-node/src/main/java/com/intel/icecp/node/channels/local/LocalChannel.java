@@ -17,64 +17,188 @@ package com.intel.icecp.node.channels.local;
 
 import com.intel.icecp.core.Message;
 import com.intel.icecp.core.channels.ChannelBase;
+import com.intel.icecp.core.channels.OnLatest;
+import com.intel.icecp.core.metadata.Persistence;
 import com.intel.icecp.core.misc.ChannelIOException;
 import com.intel.icecp.core.misc.ChannelLifetimeException;
 import com.intel.icecp.core.misc.OnPublish;
+import com.intel.icecp.core.permissions.ChannelPermission;
 import com.intel.icecp.core.pipeline.Pipeline;
+import com.intel.icecp.node.utils.SecurityUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import java.net.URI;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
+ * In-process channel for modules on the same node: all local channels with the same name share a {@link LocalTopic}
+ * through which published message objects are passed directly to subscribers, without serialization (the pipeline is
+ * not used). Subscribers receive messages in publication order, each on its own delivery task on the event loop.
+ * <p>
+ * The latest message is retained for the {@link Persistence} of the publishing channel; if no message is retained (and
+ * no {@link OnLatest} callback generates one), {@link #latest()} completes with the next published message or fails
+ * with a {@link TimeoutException} after the retrieval lifetime.
  *
  */
 public class LocalChannel extends ChannelBase {
 
-    private boolean opened = false;
+    private static final Logger LOGGER = LogManager.getLogger();
+    private final LocalTopic topic;
+    private final Persistence persistence;
+    private final ScheduledExecutorService eventLoop;
+    private final List<LocalTopic.Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean opened = false;
+    private volatile boolean publishing = false;
+    /** System time (in ms) until which messages published by this channel are retained */
+    private volatile long retainedUntil = 0;
+    private volatile long closeScheduledUntil = 0;
 
-    protected LocalChannel(URI name, Pipeline pipeline) {
+    /**
+     * @param name the channel name
+     * @param pipeline the channel pipeline; unused, since messages are not serialized
+     * @param topic the state shared by the local channels with this name
+     * @param persistence the time to retain messages
+     * @param eventLoop the event loop on which to run subscription callbacks
+     */
+    protected LocalChannel(URI name, Pipeline pipeline, LocalTopic topic, Persistence persistence, ScheduledExecutorService eventLoop) {
         super(name, pipeline);
+        this.topic = topic;
+        this.persistence = persistence;
+        this.eventLoop = eventLoop;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * As with other channels, a closed channel cannot be re-opened until the messages it published have expired.
+     */
     @Override
-    public CompletableFuture open() throws ChannelLifetimeException {
+    public CompletableFuture<Void> open() throws ChannelLifetimeException {
+        SecurityUtils.checkPermission(new ChannelPermission(getName(), "open"));
+        if (System.currentTimeMillis() < closeScheduledUntil) {
+            throw new ChannelLifetimeException("Failed to open channel, channel is scheduled to be closed: " + this);
+        }
+
         opened = true;
         return CompletableFuture.completedFuture(null);
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public boolean isOpen() {
         return opened;
     }
 
+    /**
+     * Remove the subscriptions of this channel; messages it published remain available to other local channels until
+     * they expire
+     */
     @Override
     public void close() throws ChannelLifetimeException {
+        SecurityUtils.checkPermission(new ChannelPermission(getName(), "close"));
+        LOGGER.debug("Closing channel: {}", this);
+
+        for (LocalTopic.Subscription subscription : subscriptions) {
+            topic.unsubscribe(subscription);
+        }
+        subscriptions.clear();
+
+        if (publishing && retainedUntil > System.currentTimeMillis()) {
+            closeScheduledUntil = retainedUntil;
+        }
         opened = false;
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public void publish(Message message) throws ChannelIOException {
+        SecurityUtils.checkPermission(new ChannelPermission(getName(), "publish"));
+        if (message == null) {
+            throw new ChannelIOException("Cannot publish a null message on channel: " + this);
+        }
 
+        publishing = true;
+        retainedUntil = topic.publish(message, persistence.persistFor);
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public boolean isPublishing() {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        return publishing;
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public void subscribe(OnPublish callback) throws ChannelIOException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        SecurityUtils.checkPermission(new ChannelPermission(getName(), "subscribe"));
+        LOGGER.debug("Subscribing to channel: {}", this);
+
+        subscriptions.add(topic.subscribe(callback, eventLoop));
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public boolean isSubscribing() {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Message> latest() throws ChannelIOException {
+        SecurityUtils.checkPermission(new ChannelPermission(getName(), "subscribe"));
+
+        Message latest = topic.latest();
+        if (latest != null) {
+            return CompletableFuture.completedFuture(latest);
+        }
+
+        CompletableFuture<Message> request = new CompletableFuture<>();
+        topic.await(request);
+        if (persistence.hasRetrievalLifetime()) {
+            eventLoop.schedule(() -> {
+                topic.cancel(request);
+                request.completeExceptionally(new TimeoutException("No message published on channel " + this + " within " + persistence.retrieveUnder + "ms"));
+            }, persistence.retrieveUnder, TimeUnit.MILLISECONDS);
+        }
+        return request;
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
-    public CompletableFuture latest() throws ChannelIOException {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+    public void onLatest(OnLatest callback) {
+        SecurityUtils.checkPermission(new ChannelPermission(getName(), "publish"));
+        topic.onLatest(callback);
     }
 
+    /**
+     * @return the number of messages the subscriptions of this channel skipped because they could not keep up with
+     * publishers
+     */
+    public long getDroppedMessages() {
+        long dropped = 0;
+        for (LocalTopic.Subscription subscription : subscriptions) {
+            dropped += subscription.getDropped();
+        }
+        return dropped;
+    }
 }
@@ -19,20 +19,26 @@ import com.intel.icecp.core.Channel;
 import com.intel.icecp.core.Message;
 import com.intel.icecp.core.Metadata;
 import com.intel.icecp.core.channels.ChannelProvider;
-import com.intel.icecp.core.metadata.Format;
 import com.intel.icecp.core.metadata.Persistence;
 import com.intel.icecp.core.misc.ChannelLifetimeException;
 import com.intel.icecp.core.misc.Configuration;
 import com.intel.icecp.core.pipeline.Pipeline;
 import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
 /**
+ * Provides {@link LocalChannel}s; channels built by the same provider with the same name share a {@link LocalTopic},
+ * i.e. modules of a node communicate through its provider without leaving the JVM.
  *
  */
 public class LocalChannelProvider implements ChannelProvider {
 
     public static final String SCHEME = "local";
+    private final Map<URI, LocalTopic> topics = new ConcurrentHashMap<>();
+    private ScheduledExecutorService eventLoop;
 
     @Override
     public String scheme() {
@@ -40,17 +46,34 @@ public class LocalChannelProvider implements ChannelProvider {
     }
 
     @Override
-    public void start(ScheduledExecutorService pool, Configuration configuration) {
-
+    public synchronized void start(ScheduledExecutorService pool, Configuration configuration) {
+        this.eventLoop = pool;
     }
 
     @Override
     public void stop() {
+        // do nothing for now
     }
 
     @Override
     public <T extends Message> Channel<T> build(URI uri, Pipeline pipeline, Persistence persistence, Metadata... metadata) throws ChannelLifetimeException {
-        return new LocalChannel(uri, pipeline);
+        if (uri == null || !SCHEME.equals(uri.getScheme())) {
+            throw new ChannelLifetimeException("Local channels must have non-null URIs with the 'local:' scheme: " + uri);
+        }
+
+        LocalTopic topic = topics.computeIfAbsent(uri, name -> new LocalTopic(name, LocalTopic.DEFAULT_CAPACITY));
+        return new LocalChannel(uri, pipeline, topic, persistence == null ? new Persistence() : persistence, getEventLoop());
+    }
+
+    /**
+     * @return the event loop passed to {@link #start(ScheduledExecutorService, Configuration)}, or a default one if the
+     * provider was not started
+     */
+    private synchronized ScheduledExecutorService getEventLoop() {
+        if (eventLoop == null) {
+            eventLoop = Executors.newScheduledThreadPool(2);
+        }
+        return eventLoop;
     }
 
 }
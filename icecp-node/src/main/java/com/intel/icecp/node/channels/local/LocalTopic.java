@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.channels.local;
+
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.channels.OnLatest;
+import com.intel.icecp.core.misc.OnPublish;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The in-JVM state shared by all {@link LocalChannel}s with the same name: a ring buffer of published messages and
+ * the subscriptions reading from it. Publishing claims a sequence number, stores the message in its slot and signals
+ * each subscription; no locks are taken on the publishing or delivering paths. Each subscription reads the ring with
+ * its own cursor, so a slow subscriber never blocks publishers or other subscribers; a subscriber lapped by the
+ * publishers skips the overwritten messages (see {@link Subscription#getDropped()}).
+ * <p>
+ * Messages are passed by reference to every subscriber; they must not be modified once published.
+ *
+ */
+class LocalTopic {
+
+    static final int DEFAULT_CAPACITY = 1024;
+    private static final Logger LOGGER = LogManager.getLogger();
+    /** Maximum number of messages delivered by a subscription task before yielding the executor */
+    private static final int MAX_DELIVERIES_PER_TASK = 64;
+
+    private final URI name;
+    private final AtomicReferenceArray<Entry> ring;
+    private final int mask;
+    /** Next sequence number to claim */
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    /** Requests for the latest message waiting for the next publication */
+    private final Queue<CompletableFuture<Message>> waiting = new ConcurrentLinkedQueue<>();
+    private volatile OnLatest onLatest;
+
+    /**
+     * @param name the channel name
+     * @param capacity the number of messages in the ring buffer; rounded up to a power of two
+     */
+    LocalTopic(URI name, int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid ring buffer capacity: " + capacity);
+        }
+        this.name = name;
+        int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Publish a message to all subscriptions
+     *
+     * @param message the message
+     * @param persistFor the time (in ms) the message is retained as the latest message
+     * @return the system time (in ms) until which the message is retained
+     */
+    long publish(Message message, long persistFor) {
+        long now = System.currentTimeMillis();
+        long retainUntil = persistFor > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + persistFor;
+        long id = sequence.getAndIncrement();
+        ring.set((int) id & mask, new Entry(id, message, retainUntil));
+
+        for (Subscription subscription : subscriptions) {
+            subscription.signal();
+        }
+
+        CompletableFuture<Message> request;
+        while ((request = waiting.poll()) != null) {
+            request.complete(message);
+        }
+        return retainUntil;
+    }
+
+    /**
+     * @return the dynamically-generated latest message (see {@link OnLatest}) or the latest published message if it
+     * is still retained, null otherwise
+     */
+    Message latest() {
+        OnLatest callback = onLatest;
+        if (callback != null) {
+            OnLatest.Response response = callback.onLatest();
+            if (response != null) {
+                return response.message;
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        long last = sequence.get() - 1;
+        // skip publications whose sequence number is claimed but whose message is not stored yet
+        for (long id = last; id >= 0 && id > last - ring.length(); id--) {
+            Entry entry = ring.get((int) id & mask);
+            if (entry != null && entry.id == id) {
+                return entry.retainUntil > now ? entry.message : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param request a request completed with the next published message
+     */
+    void await(CompletableFuture<Message> request) {
+        waiting.add(request);
+    }
+
+    /**
+     * @param request a request that no longer needs the next published message
+     */
+    void cancel(CompletableFuture<Message> request) {
+        waiting.remove(request);
+    }
+
+    /**
+     * @param callback the callback generating latest messages, or null
+     */
+    void onLatest(OnLatest callback) {
+        this.onLatest = callback;
+    }
+
+    /**
+     * @param callback the subscription callback
+     * @param executor the executor on which to run the callback
+     * @return a subscription receiving the messages published from now on
+     */
+    Subscription subscribe(OnPublish callback, Executor executor) {
+        Subscription subscription = new Subscription(callback, executor, sequence.get());
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * @param subscription the subscription to remove
+     */
+    void unsubscribe(Subscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * A published message and its slot metadata
+     */
+    private static class Entry {
+
+        final long id;
+        final Message message;
+        final long retainUntil;
+
+        Entry(long id, Message message, long retainUntil) {
+            this.id = id;
+            this.message = message;
+            this.retainUntil = retainUntil;
+        }
+    }
+
+    /**
+     * A subscriber's cursor into the ring buffer; at most one delivery task per subscription is submitted to the
+     * executor at any time, so callbacks run one at a time and in publication order
+     */
+    class Subscription implements Runnable {
+
+        private final OnPublish callback;
+        private final Executor executor;
+        private final AtomicBoolean isScheduled = new AtomicBoolean();
+        private final AtomicLong dropped = new AtomicLong();
+        /** Next sequence number to deliver; only accessed by the delivery task */
+        private long cursor;
+
+        Subscription(OnPublish callback, Executor executor, long cursor) {
+            this.callback = callback;
+            this.executor = executor;
+            this.cursor = cursor;
+        }
+
+        /**
+         * @return the number of messages this subscription skipped because publishers overwrote them before they
+         * could be delivered
+         */
+        long getDropped() {
+            return dropped.get();
+        }
+
+        /**
+         * Schedule a delivery task unless one is already scheduled
+         */
+        void signal() {
+            if (isScheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        /**
+         * Deliver the available messages, then check again for messages published while clearing the scheduled flag
+         * (which would otherwise not be signaled)
+         */
+        @Override
+        public void run() {
+            if (deliver()) {
+                executor.execute(this);
+                return;
+            }
+
+            isScheduled.set(false);
+            Entry next = ring.get((int) cursor & mask);
+            if (next != null && next.id >= cursor) {
+                signal();
+            }
+        }
+
+        /**
+         * @return true if the delivery limit was reached while more messages may be available
+         */
+        private boolean deliver() {
+            Thread.currentThread().setContextClassLoader(callback.getClass().getClassLoader());
+            for (int delivered = 0; delivered < MAX_DELIVERIES_PER_TASK; delivered++) {
+                Entry entry = ring.get((int) cursor & mask);
+                if (entry == null || entry.id < cursor) {
+                    return false;
+                }
+
+                if (entry.id > cursor) {
+                    // lapped: skip to the oldest message that may still be in the ring
+                    long oldest = Math.max(cursor + 1, sequence.get() - ring.length());
+                    LOGGER.warn("Subscriber too slow on channel {}, skipping {} messages", name, oldest - cursor);
+                    dropped.addAndGet(oldest - cursor);
+                    cursor = oldest;
+                    continue;
+                }
+
+                cursor++;
+                try {
+                    callback.onPublish(entry.message);
+                } catch (Throwable t) {
+                    LOGGER.error("Callback failed on channel: {}", name, t);
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intel.icecp.node.channels.ndn;
+
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.pipeline.Pipeline;
+import com.intel.icecp.core.pipeline.exception.PipelineException;
+import com.intel.icecp.node.utils.MemoryGovernor;
+import com.intel.icecp.node.utils.SegmentedLog;
+import com.intel.icecp.node.utils.StreamUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Two-tier {@link MessageCache} for long-lived channels: every message is appended to a {@link SegmentedLog} on disk
+ * and only the most recent messages are kept decoded in memory. Messages older than the in-memory tier are read back
+ * (and decoded with the channel pipeline) on request, so the number of messages a publisher can serve is bounded by
+ * disk space instead of heap. Since the log is re-opened under the same directory, a restarted publisher serves the
+ * messages published before the restart and continues numbering after them.
+ * <p>
+ * Each log record holds the expiration time of the message, a flag set for {@link MessageBatch}es and the encoded
+ * bytes. The log is compacted during
+ * {@link #clean()}, one segment at a time, once the oldest segment holds only expired messages or the log exceeds its
+ * byte budget.
+ *
+ */
+public class DiskBackedMessageCache extends MessageCache {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final byte BATCH_FLAG = 1;
+    private static final int HEADER_SIZE = Long.BYTES + 1;
+    private final SegmentedLog log;
+    private final Pipeline<Message, InputStream> pipeline;
+    private final long maxBytes;
+    private final Set<Long> removed = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    /**
+     * @param log the log storing the encoded messages; the cache takes ownership of it
+     * @param pipeline the channel pipeline used to encode and decode messages
+     * @param retention the number of milliseconds to retain messages
+     * @param hotMessages the max number of decoded messages to keep in memory
+     * @param maxBytes the max number of bytes to keep on disk before discarding the oldest messages
+     */
+    public DiskBackedMessageCache(SegmentedLog log, Pipeline<Message, InputStream> pipeline, long retention, int hotMessages, long maxBytes) {
+        this(log, pipeline, retention, hotMessages, maxBytes, null, null);
+    }
+
+    /**
+     * @param log the log storing the encoded messages; the cache takes ownership of it
+     * @param pipeline the channel pipeline used to encode and decode messages
+     * @param retention the number of milliseconds to retain messages
+     * @param hotMessages the max number of decoded messages to keep in memory
+     * @param maxBytes the max number of bytes to keep on disk before discarding the oldest messages
+     * @param governor the node's memory governor for the in-memory tier, or null to only bound the number of messages
+     * @param name the name of the cache for the governor, e.g. the channel name
+     */
+    public DiskBackedMessageCache(SegmentedLog log, Pipeline<Message, InputStream> pipeline, long retention, int hotMessages, long maxBytes, MemoryGovernor governor, String name) {
+        this(log, pipeline, retention, hotMessages, maxBytes, governor, name, false);
+    }
+
+    /**
+     * @param log the log storing the encoded messages; the cache takes ownership of it
+     * @param pipeline the channel pipeline used to encode and decode messages
+     * @param retention the number of milliseconds to retain messages
+     * @param hotMessages the max number of decoded messages to keep in memory
+     * @param maxBytes the max number of bytes to keep on disk before discarding the oldest messages
+     * @param governor the node's memory governor for the in-memory tier, or null to only bound the number of messages
+     * @param name the name of the cache for the governor, e.g. the channel name
+     * @param deduplicate true to share the payloads of byte-identical messages in the in-memory tier
+     */
+    public DiskBackedMessageCache(SegmentedLog log, Pipeline<Message, InputStream> pipeline, long retention, int hotMessages, long maxBytes, MemoryGovernor governor, String name, boolean deduplicate) {
+        super(retention, hotMessages, governor, name, pipeline, deduplicate);
+        this.log = log;
+        this.pipeline = pipeline;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean has(long id) {
+        return super.has(id) || (!removed.contains(id) && log.contains(id));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long earliest() {
+        long earliest = log.getEarliestId();
+        return earliest == -1 ? super.earliest() : earliest;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long latest() {
+        return Math.max(log.getLatestId(), super.latest());
+    }
+
+    /**
+     * Look up the publication time in the log, which holds older messages than the in-memory tier
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public long findId(long timestamp) {
+        return log.getLatestId() == -1 ? super.findId(timestamp) : log.findId(timestamp);
+    }
+
+    /**
+     * Retrieve the message from memory or, if it is older than the in-memory tier, from disk; expired messages that
+     * have not yet been compacted away are not returned
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public Message get(long id) {
+        Message message = super.get(id);
+        if (message != null || removed.contains(id)) {
+            return message;
+        }
+
+        SegmentedLog.Record record = log.read(id);
+        if (record == null) {
+            return null;
+        }
+
+        ByteBuffer payload = ByteBuffer.wrap(record.payload);
+        long expiresOn = payload.getLong();
+        if (expiresOn < System.currentTimeMillis()) {
+            return null;
+        }
+
+        boolean isBatch = payload.get() == BATCH_FLAG;
+        byte[] bytes = Arrays.copyOfRange(record.payload, HEADER_SIZE, record.payload.length);
+        try {
+            return isBatch ? new MessageBatch(MessageBatch.decode(bytes, pipeline))
+                    : pipeline.executeInverse(new ByteArrayInputStream(bytes));
+        } catch (PipelineException ex) {
+            LOGGER.error("Failed to decode retained message {} from {}", id, log.getDirectory(), ex);
+            return null;
+        }
+    }
+
+    /**
+     * Retrieve the encoded bytes from memory or, if the message is older than the in-memory tier, from disk; the bytes
+     * retained on disk are served as they were encoded when the message was added
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] getEncoded(long id) {
+        byte[] encoded = super.getEncoded(id);
+        if (encoded != null || super.has(id) || removed.contains(id)) {
+            return encoded;
+        }
+
+        SegmentedLog.Record record = log.read(id);
+        if (record == null || ByteBuffer.wrap(record.payload).getLong() < System.currentTimeMillis()) {
+            return null;
+        }
+        return Arrays.copyOfRange(record.payload, HEADER_SIZE, record.payload.length);
+    }
+
+    /**
+     * Add the message to the in-memory tier and append it to the log; if the message cannot be encoded or written it
+     * is only retained in memory
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    protected void add(long id, Message message, long expiresOn) {
+        super.add(id, message, expiresOn);
+        try {
+            byte[] encoded = getEncoded(id);
+            if (encoded == null) {
+                InputStream stream = message instanceof MessageBatch ? ((MessageBatch) message).encode(pipeline) : pipeline.execute(message);
+                encoded = StreamUtils.readAll(stream);
+            }
+            byte flags = message instanceof MessageBatch ? BATCH_FLAG : 0;
+            byte[] payload = ByteBuffer.allocate(HEADER_SIZE + encoded.length).putLong(expiresOn).put(flags).put(encoded).array();
+            log.append(id, payload, System.currentTimeMillis());
+            reportSize(id, encoded.length);
+        } catch (PipelineException | IOException | IllegalArgumentException ex) {
+            LOGGER.error("Failed to retain message {} in {}; it will only be kept in memory", id, log.getDirectory(), ex);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Message remove(long id) {
+        Message message = get(id);
+        super.remove(id);
+        if (log.contains(id)) {
+            removed.add(id);
+        }
+        return message;
+    }
+
+    /**
+     * Remove expired messages from the in-memory tier and compact the log
+     *
+     * @return the expired messages that have been removed from the in-memory tier; messages only retained on disk are
+     * discarded without being decoded
+     */
+    @Override
+    public synchronized Map<Long, Message> clean() {
+        Map<Long, Message> expired = super.clean();
+        try {
+            compact();
+        } catch (IOException ex) {
+            LOGGER.error("Failed to compact retained messages in {}", log.getDirectory(), ex);
+        }
+        return expired;
+    }
+
+    /**
+     * Delete the oldest segments of the log while they hold only expired messages or while the log is over budget;
+     * messages expire in publication order so it is enough to check the last message of the oldest segment
+     *
+     * @throws IOException if a segment cannot be deleted
+     */
+    private void compact() throws IOException {
+        long now = System.currentTimeMillis();
+        while (log.getSegmentCount() > 1) {
+            long end = log.getOldestSegmentEnd();
+            SegmentedLog.Record last = log.read(end - 1);
+            boolean isExpired = last != null && ByteBuffer.wrap(last.payload).getLong() < now;
+            if (!isExpired && log.getSize() <= maxBytes) {
+                break;
+            }
+            LOGGER.debug("Discarding retained messages before {} in {}", end, log.getDirectory());
+            log.deleteBefore(end);
+        }
+        removed.removeIf(id -> id < log.getEarliestId());
+    }
+
+    /**
+     * Messages retained on disk outlive the channel, so the channel can close as soon as it is asked to
+     *
+     * @return the current time
+     */
+    @Override
+    public long getEarliestCloseTime() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Close the underlying log; the retained messages are available to the next cache opened on the same directory
+     */
+    @Override
+    public void close() {
+        super.close();
+        try {
+            log.close();
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to close retained messages in {}", log.getDirectory(), ex);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intel.icecp.node.channels.ndn;
+
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.metadata.Persistence;
+import com.intel.icecp.core.pipeline.Pipeline;
+import com.intel.icecp.node.utils.MemoryGovernor;
+import com.intel.icecp.node.utils.SegmentedLog;
+import net.named_data.jndn.Name;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decide which NDN channels retain their published messages on disk and build their caches. Channels persisting
+ * messages for at least the threshold (e.g. {@link Persistence#FOREVER}) get a {@link DiskBackedMessageCache} stored
+ * in a sub-directory named after the channel; other channels keep the in-memory {@link MessageCache}.
+ * <p>
+ * Retention is opt-in: there is no default directory, and nodes sharing a directory must each use their own
+ * sub-directory (see {@link #forNode(Path, String, long, long, int)}) so that their publishers do not write to the
+ * same logs.
+ *
+ */
+public class DiskRetention {
+
+    public static final long DEFAULT_THRESHOLD_MS = TimeUnit.MINUTES.toMillis(10);
+    public static final long DEFAULT_MAX_BYTES = 1024L * 1024 * 1024;
+    public static final int DEFAULT_HOT_MESSAGES = 1024;
+    private static final Logger LOGGER = LogManager.getLogger();
+    private final Path directory;
+    private final long thresholdMs;
+    private final long maxBytes;
+    private final int hotMessages;
+
+    /**
+     * @param directory the directory holding one log per retained channel
+     * @param thresholdMs the minimum {@link Persistence#persistFor} (in ms) of channels retained on disk
+     * @param maxBytes the max number of bytes retained on disk per channel
+     * @param hotMessages the max number of decoded messages kept in memory per channel
+     */
+    public DiskRetention(Path directory, long thresholdMs, long maxBytes, int hotMessages) {
+        if (thresholdMs < 0 || maxBytes < 1 || hotMessages < 1) {
+            throw new IllegalArgumentException("Threshold must be non-negative, byte budget and in-memory messages positive");
+        }
+        this.directory = directory;
+        this.thresholdMs = thresholdMs;
+        this.maxBytes = maxBytes;
+        this.hotMessages = hotMessages;
+    }
+
+    /**
+     * @param directory the directory holding one log per retained channel
+     */
+    public DiskRetention(Path directory) {
+        this(directory, DEFAULT_THRESHOLD_MS, DEFAULT_MAX_BYTES, DEFAULT_HOT_MESSAGES);
+    }
+
+    /**
+     * @param directory the retention directory shared by the nodes of a host
+     * @param nodeName the name of the node, e.g. /intel/node/1234
+     * @param thresholdMs the minimum {@link Persistence#persistFor} (in ms) of channels retained on disk
+     * @param maxBytes the max number of bytes retained on disk per channel
+     * @param hotMessages the max number of decoded messages kept in memory per channel
+     * @return a retention policy storing the logs of the node's channels in a sub-directory named after the node
+     */
+    public static DiskRetention forNode(Path directory, String nodeName, long thresholdMs, long maxBytes, int hotMessages) {
+        return new DiskRetention(directory.resolve(toDirectoryName(nodeName)), thresholdMs, maxBytes, hotMessages);
+    }
+
+    /**
+     * @return the directory holding one log per retained channel
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param persistence the channel persistence
+     * @return true if channels with this persistence retain their messages on disk
+     */
+    public boolean appliesTo(Persistence persistence) {
+        return persistence != null && persistence.persistFor >= thresholdMs;
+    }
+
+    /**
+     * Build the message cache for a publishing channel; if the channel's log cannot be opened, the channel falls back
+     * to the in-memory cache
+     *
+     * @param name the NDN name of the channel
+     * @param persistence the channel persistence
+     * @param pipeline the channel pipeline used to encode and decode retained messages
+     * @param maxCachedMessages the max number of messages retained by the in-memory cache
+     * @param governor the node's memory governor, or null to only bound the number of messages in memory
+     * @return a {@link DiskBackedMessageCache} if the channel is retained on disk, a {@link MessageCache} otherwise
+     */
+    public MessageCache createCache(Name name, Persistence persistence, Pipeline<Message, InputStream> pipeline, int maxCachedMessages, MemoryGovernor governor) {
+        return createCache(name, persistence, pipeline, maxCachedMessages, governor, false);
+    }
+
+    /**
+     * Build the message cache for a publishing channel; the cache encodes messages once, as they are added, and may
+     * share the payloads of byte-identical messages
+     *
+     * @param name the NDN name of the channel
+     * @param persistence the channel persistence
+     * @param pipeline the channel pipeline used to encode and decode retained messages
+     * @param maxCachedMessages the max number of messages retained by the in-memory cache
+     * @param governor the node's memory governor, or null to only bound the number of messages in memory
+     * @param deduplicate true to share the payloads of byte-identical messages in memory (see
+     * {@link com.intel.icecp.core.metadata.Deduplication})
+     * @return a {@link DiskBackedMessageCache} if the channel is retained on disk, a {@link MessageCache} otherwise
+     */
+    public MessageCache createCache(Name name, Persistence persistence, Pipeline<Message, InputStream> pipeline, int maxCachedMessages, MemoryGovernor governor, boolean deduplicate) {
+        if (!appliesTo(persistence)) {
+            return new MessageCache(persistence.persistFor, maxCachedMessages, governor, name.toUri(), pipeline, deduplicate);
+        }
+
+        Path channelDirectory = directory.resolve(toDirectoryName(name.toUri()));
+        try {
+            SegmentedLog log = new SegmentedLog(channelDirectory);
+            LOGGER.debug("Retaining messages of {} in {}", name, channelDirectory);
+            return new DiskBackedMessageCache(log, pipeline, persistence.persistFor, Math.min(hotMessages, maxCachedMessages), maxBytes, governor, name.toUri(), deduplicate);
+        } catch (IOException ex) {
+            LOGGER.error("Failed to open retained messages in {}; messages of {} will only be kept in memory", channelDirectory, name, ex);
+            return new MessageCache(persistence.persistFor, maxCachedMessages, governor, name.toUri(), pipeline, deduplicate);
+        }
+    }
+
+    /**
+     * @param name the name of a node or channel
+     * @return a single path component uniquely identifying the name
+     */
+    private static String toDirectoryName(String name) {
+        try {
+            return URLEncoder.encode(name, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException("UTF-8 must be supported", ex);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.channels.ndn;
+
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.InterestFilter;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.OnInterestCallback;
+import net.named_data.jndn.util.Blob;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Handler advertising the formats in which a publisher can encode its messages; this handler expects requests in the
+ * form /channel/name/formats and responds with the MIME types of the formats, most preferred first, separated by
+ * commas (e.g. "application/cbor,application/json"). Subscribers then request messages in one of these formats (see
+ * {@link MessageRequestHandler}).
+ *
+ */
+public class FormatsRequestHandler implements OnInterestCallback {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String SEPARATOR = ",";
+    private final byte[] formats;
+
+    /**
+     * @param mimeTypes the MIME types of the formats the publisher can encode messages in, most preferred first
+     */
+    public FormatsRequestHandler(List<String> mimeTypes) {
+        this.formats = String.join(SEPARATOR, mimeTypes).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param content the content of a response to a formats request
+     * @return the advertised MIME types, most preferred first
+     */
+    public static List<String> parse(byte[] content) {
+        return Arrays.asList(new String(content, StandardCharsets.UTF_8).split(SEPARATOR));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onInterest(Name prefix, Interest interest, Face face, long interestFilterId, InterestFilter filter) {
+        LOGGER.debug("Formats requested: {}", interest.toUri());
+
+        Data data = new Data(interest.getName());
+        data.setContent(new Blob(formats));
+        try {
+            face.putData(data);
+        } catch (IOException ex) {
+            LOGGER.error("Failed to send formats response for interest: {}", interest.toUri(), ex);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.channels.ndn;
+
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.InterestFilter;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.OnInterestCallback;
+import net.named_data.jndn.util.Blob;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Handler for looking up messages by publication time on a channel; this handler expects requests in the form
+ * /channel/name/index/[timestamp] and responds with the ID of the first message published at or after the timestamp
+ * (see {@link MessageCache#findId(long)}), as an 8-byte big-endian number. Responses are not given a freshness period
+ * so that forwarders do not answer later requests from their caches.
+ *
+ */
+public class IndexRequestHandler implements OnInterestCallback {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private final MessageCache cache;
+
+    /**
+     * @param cache the cache holding the channel's messages
+     */
+    public IndexRequestHandler(MessageCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onInterest(Name prefix, Interest interest, Face face, long interestFilterId, InterestFilter filter) {
+        Name name = interest.getName();
+        if (name.size() <= prefix.size()) {
+            LOGGER.warn("No timestamp in index request, ignoring interest: {}", interest.toUri());
+            return;
+        }
+
+        long timestamp = name.get(-1).toNumber();
+        long id = cache.findId(timestamp);
+        LOGGER.debug("Index requested for {}, found {} in {}", timestamp, id, interest.toUri());
+
+        Data data = new Data(name);
+        data.setContent(new Blob(ByteBuffer.allocate(Long.BYTES).putLong(id).array()));
+        try {
+            face.putData(data);
+        } catch (IOException ex) {
+            LOGGER.error("Failed to send index response for interest: {}", interest.toUri(), ex);
+        }
+    }
+}
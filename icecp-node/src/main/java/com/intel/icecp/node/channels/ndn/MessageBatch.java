@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.channels.ndn;
+
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.pipeline.Pipeline;
+import com.intel.icecp.core.pipeline.exception.PipelineException;
+import com.intel.icecp.node.pipeline.exception.PipelineExecutionError;
+import com.intel.icecp.node.utils.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Container for messages published together under a single message ID (see
+ * {@link com.intel.icecp.core.metadata.Batching}). Each message of the batch is run through the channel pipeline
+ * separately so that subscribers can split the container without knowing how the channel encodes messages; the
+ * container is laid out as:
+ * <pre>
+ * [count: int][length: int][encoded message]...[length: int][encoded message]
+ * </pre>
+ * Containers are marked outside of their bytes since any prefix could also start a single encoded message (e.g. the
+ * content of a {@link com.intel.icecp.core.messages.BytesMessage} or the output of a compressing operation): NDN
+ * responses holding a batch carry the {@link #CONTENT_TYPE} content type (see {@link MessageRequestHandler} and
+ * {@link MessageDeserializer}) and retained records a batch flag (see {@link DiskBackedMessageCache}).
+ *
+ */
+public class MessageBatch implements Message {
+
+    /** The application-specific NDN content type (MetaInfo OtherTypeCode) of responses holding a batch */
+    public static final int CONTENT_TYPE = 0x4D42;
+
+    private final List<Message> messages;
+
+    /**
+     * @param messages the messages of the batch, in publication order
+     */
+    public MessageBatch(List<Message> messages) {
+        if (messages.isEmpty()) {
+            throw new IllegalArgumentException("A batch must contain at least one message");
+        }
+        this.messages = Collections.unmodifiableList(new ArrayList<>(messages));
+    }
+
+    /**
+     * @return the messages of the batch, in publication order
+     */
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    /**
+     * @param pipeline the channel pipeline used to encode each message of the batch
+     * @return the encoded container
+     * @throws PipelineException if a message cannot be encoded
+     */
+    public InputStream encode(Pipeline<Message, InputStream> pipeline) throws PipelineException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeInt(out, messages.size());
+        for (Message message : messages) {
+            byte[] bytes;
+            try {
+                bytes = StreamUtils.readAll(pipeline.execute(message));
+            } catch (IOException ex) {
+                throw new PipelineExecutionError("Failed to encode batched message", ex);
+            }
+            writeInt(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    /**
+     * Decode a batch container into its messages
+     *
+     * @param bytes the encoded container
+     * @param pipeline the channel pipeline used to decode each message
+     * @param <T> the message type of the channel
+     * @return the messages of the content, in publication order
+     * @throws PipelineException if the container is malformed or a message cannot be decoded
+     */
+    public static <T extends Message> List<T> decode(byte[] bytes, Pipeline<T, InputStream> pipeline) throws PipelineException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            int count = buffer.getInt();
+            if (count < 1) {
+                throw new PipelineExecutionError("Invalid batch size: " + count);
+            }
+            List<T> decoded = new ArrayList<>(Math.min(count, bytes.length / Integer.BYTES));
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new PipelineExecutionError("Invalid length for batched message " + i + ": " + length);
+                }
+                decoded.add(pipeline.executeInverse(new ByteArrayInputStream(bytes, buffer.position(), length)));
+                buffer.position(buffer.position() + length);
+            }
+            return decoded;
+        } catch (BufferUnderflowException ex) {
+            throw new PipelineExecutionError("Truncated message batch", ex);
+        }
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
@@ -17,14 +17,25 @@
 package com.intel.icecp.node.channels.ndn;
 
 import com.intel.icecp.core.Message;
+import com.intel.icecp.core.pipeline.Pipeline;
+import com.intel.icecp.core.pipeline.exception.PipelineException;
 import com.intel.icecp.node.utils.BoundedLinkedMap;
+import com.intel.icecp.node.utils.MemoryGovernor;
+import com.intel.icecp.node.utils.StreamUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * Store a bounded number of messages and allow clearing of expired messages.
@@ -33,21 +44,89 @@ import java.util.OptionalLong;
  * affect the looping in {@link #clean()} causing a {@link java.util.ConcurrentModificationException}. To avoid this, we
  * synchronize any method that modifies the map. State-checking methods were left unsynchronized since the underlying
  * map is synchronized (see {@link BoundedLinkedMap}).
+ * <p>
+ * A cache built with a {@link MemoryGovernor} reports the size of its messages to the governor, which may evict them
+ * to keep all caches of the node within a byte budget. Messages are reported with an estimated size when added and
+ * with their encoded size once sent (see {@link #reportSize(long, long)}).
+ * <p>
+ * A cache built with an encoding pipeline encodes each message once, as it is added, so that every request for the
+ * message is answered with the same bytes (see {@link #getEncoded(long)}); this matters for stateful operations such as
+ * {@link com.intel.icecp.node.pipeline.operations.DeltaEncodingOperation}, which must run once per published message.
+ * <p>
+ * A cache built with deduplication also indexes the encoded bytes by their SHA-256 digest; messages with
+ * byte-identical encodings share a single reference-counted {@link Payload} (holding the
+ * first message instance and its encoded bytes) while keeping their own ID and expiration. The shared bytes are
+ * reported to the governor once, charged to the most recently added message holding them, so that the accounted size
+ * of a repetitive channel follows its distinct content.
  *
  */
 public class MessageCache {
 
     private static final Logger LOGGER = LogManager.getLogger();
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    /** Estimated size of a message sharing its payload with other messages: the entry, its ID and references */
+    static final long SHARED_ENTRY_SIZE = 64;
     private final BoundedLinkedMap<Long, MessageEntry> messages;
+    /** ID of the first message added during each millisecond, for looking up messages by publication time */
+    private final NavigableMap<Long, Long> timestampIndex = new ConcurrentSkipListMap<>();
     private final long retention;
+    private final MemoryGovernor.Registration registration;
+    private final Pipeline<Message, InputStream> encoder;
+    private final boolean deduplicate;
+    /** Payloads shared by deduplicated messages, keyed by the digest of their encoded bytes; guarded by itself */
+    private final Map<ByteBuffer, Payload> payloads = new HashMap<>();
 
     /**
      * @param retention the number of milliseconds to retain messages
      * @param maxSize the max number of messages to retain
      */
     public MessageCache(long retention, int maxSize) {
+        this(retention, maxSize, null, null);
+    }
+
+    /**
+     * @param retention the number of milliseconds to retain messages
+     * @param maxSize the max number of messages to retain
+     * @param governor the node's memory governor, or null to only bound the number of messages
+     * @param name the name of the cache for the governor, e.g. the channel name
+     */
+    public MessageCache(long retention, int maxSize, MemoryGovernor governor, String name) {
+        this(retention, maxSize, governor, name, null);
+    }
+
+    /**
+     * @param retention the number of milliseconds to retain messages
+     * @param maxSize the max number of messages to retain
+     * @param governor the node's memory governor, or null to only bound the number of messages
+     * @param name the name of the cache for the governor, e.g. the channel name
+     * @param encoder the channel pipeline used to encode messages so that byte-identical messages share their payload,
+     * or null to store each message separately
+     */
+    public MessageCache(long retention, int maxSize, MemoryGovernor governor, String name, Pipeline<Message, InputStream> encoder) {
+        this(retention, maxSize, governor, name, encoder, encoder != null);
+    }
+
+    /**
+     * @param retention the number of milliseconds to retain messages
+     * @param maxSize the max number of messages to retain
+     * @param governor the node's memory governor, or null to only bound the number of messages
+     * @param name the name of the cache for the governor, e.g. the channel name
+     * @param encoder the channel pipeline used to encode messages once as they are added, or null to leave encoding to
+     * the sender
+     * @param deduplicate true to share the payload of byte-identical messages; requires an encoder
+     */
+    public MessageCache(long retention, int maxSize, MemoryGovernor governor, String name, Pipeline<Message, InputStream> encoder, boolean deduplicate) {
+        MemoryGovernor.Registration registered = governor == null ? null : governor.register(name, this::evict);
         this.retention = retention;
-        this.messages = new BoundedLinkedMap<>(maxSize);
+        this.registration = registered;
+        this.encoder = encoder;
+        this.deduplicate = deduplicate && encoder != null;
+        this.messages = new BoundedLinkedMap<>(maxSize, (id, entry) -> {
+            release(id, entry);
+            if (registered != null) {
+                registered.remove(id);
+            }
+        });
     }
 
     /**
@@ -78,6 +157,9 @@ public class MessageCache {
      */
     public Message get(long id) {
         MessageEntry retrieved = messages.get(id); // the underlying map is synchronized
+        if (retrieved != null && registration != null) {
+            registration.touch(id);
+        }
         return retrieved != null ? retrieved.message : null;
     }
 
@@ -101,7 +183,172 @@ public class MessageCache {
      */
     protected void add(long id, Message message, long expiresOn) {
         LOGGER.trace("Caching message {} to expire on {}", id, new Date(expiresOn));
-        messages.put(id, new MessageEntry(message, expiresOn));
+        Payload payload = encoder != null && message != null ? encode(id, message) : null;
+        MessageEntry replaced = messages.put(id, new MessageEntry(payload != null ? payload.message : message, expiresOn, payload));
+        if (replaced != null) {
+            release(id, replaced);
+        }
+
+        if (registration != null && payload == null) {
+            registration.add(id, registration.estimate());
+        } else if (registration != null) {
+            charge(id, payload);
+        }
+        timestampIndex.putIfAbsent(System.currentTimeMillis(), id);
+        pruneIndex();
+    }
+
+    /**
+     * Report the size of a message once known, e.g. when it is encoded for sending; this refines the governor's
+     * accounting of the cache
+     *
+     * @param id the message ID
+     * @param bytes the encoded size of the message
+     */
+    public void reportSize(long id, long bytes) {
+        MessageEntry entry = messages.get(id);
+        if (registration != null && (entry == null || entry.payload == null)) {
+            registration.resize(id, bytes);
+        }
+    }
+
+    /**
+     * @param id the message ID
+     * @return the encoded bytes of the message if the cache encodes messages as they are added, null otherwise; the
+     * returned array must not be modified
+     */
+    public byte[] getEncoded(long id) {
+        MessageEntry entry = messages.get(id);
+        return entry != null && entry.payload != null ? entry.payload.encoded : null;
+    }
+
+    /**
+     * Encode the message and, if deduplicating, find (or create) the payload holding its bytes; the payload's reference
+     * count includes the new message
+     *
+     * @param id the message ID
+     * @param message the message instance
+     * @return the (possibly shared) payload or null if the message cannot be encoded (it is then encoded when sent)
+     */
+    private Payload encode(long id, Message message) {
+        byte[] encoded;
+        ByteBuffer digest = null;
+        try {
+            InputStream stream = message instanceof MessageBatch ? ((MessageBatch) message).encode(encoder) : encoder.execute(message);
+            encoded = StreamUtils.readAll(stream);
+            if (deduplicate) {
+                MessageDigest digester = MessageDigest.getInstance(DIGEST_ALGORITHM);
+                digester.update((byte) (message instanceof MessageBatch ? 1 : 0)); // a batch never shares a single message's payload
+                digest = ByteBuffer.wrap(digester.digest(encoded));
+            }
+        } catch (PipelineException | IOException | NoSuchAlgorithmException ex) {
+            LOGGER.warn("Failed to encode message {} as it was added; it will be encoded when sent", id, ex);
+            return null;
+        }
+
+        if (digest == null) {
+            Payload payload = new Payload(null, message, encoded);
+            payload.references++;
+            return payload;
+        }
+
+        synchronized (payloads) {
+            Payload payload = payloads.get(digest);
+            if (payload == null) {
+                payload = new Payload(digest, message, encoded);
+                payloads.put(digest, payload);
+            } else {
+                LOGGER.trace("Message {} shares its payload with {} other messages", id, payload.references);
+            }
+            payload.references++;
+            return payload;
+        }
+    }
+
+    /**
+     * Move the governor's accounting of the shared bytes to the newly added message; the previous holder of the charge
+     * is accounted as a shared entry only
+     *
+     * @param id the message ID
+     * @param payload the payload shared by the message
+     */
+    private void charge(long id, Payload payload) {
+        long previous;
+        synchronized (payloads) {
+            previous = payload.chargedTo;
+            payload.chargedTo = id;
+        }
+        if (previous != -1 && previous != id) {
+            registration.resize(previous, SHARED_ENTRY_SIZE); // a no-op if the previous holder was removed meanwhile
+        }
+        registration.add(id, SHARED_ENTRY_SIZE + payload.encoded.length);
+    }
+
+    /**
+     * Release the message's reference to its shared payload, if any; the payload is dropped once no message references
+     * it. Only the payloads' lock is taken, see {@link #evict(long)}.
+     *
+     * @param id the message ID
+     * @param entry the removed entry
+     */
+    private void release(long id, MessageEntry entry) {
+        if (entry.payload == null || entry.payload.digest == null) {
+            return;
+        }
+        synchronized (payloads) {
+            Payload payload = entry.payload;
+            if (--payload.references == 0) {
+                payloads.remove(payload.digest);
+            } else if (payload.chargedTo == id) {
+                // the shared bytes are no longer accounted until the next duplicate is added
+                payload.chargedTo = -1;
+            }
+        }
+    }
+
+    /**
+     * @return the number of distinct payloads shared by deduplicated messages
+     */
+    public int getPayloadCount() {
+        synchronized (payloads) {
+            return payloads.size();
+        }
+    }
+
+    /**
+     * Drop a message on behalf of the governor; the cache's lock is not taken since the governor may evict while
+     * another cache holds its own lock (the underlying map is synchronized)
+     *
+     * @param id the message ID
+     */
+    private void evict(long id) {
+        MessageEntry evicted = messages.remove(id);
+        if (evicted != null) {
+            release(id, evicted);
+        }
+    }
+
+    /**
+     * @param timestamp the publication time, in ms since the epoch
+     * @return the ID of the first message added at or after the given time or, if there is none, the ID following the
+     * latest message
+     */
+    public long findId(long timestamp) {
+        Map.Entry<Long, Long> entry = timestampIndex.ceilingEntry(timestamp);
+        return entry == null ? latest() + 1 : Math.max(entry.getValue(), earliest());
+    }
+
+    /**
+     * Remove the index entries of milliseconds whose messages have all left the cache
+     */
+    private void pruneIndex() {
+        long earliest = earliest();
+        Map.Entry<Long, Long> first = timestampIndex.firstEntry();
+        Map.Entry<Long, Long> second;
+        while (first != null && (second = timestampIndex.higherEntry(first.getKey())) != null && second.getValue() <= earliest) {
+            timestampIndex.remove(first.getKey());
+            first = second;
+        }
     }
 
     /**
@@ -111,6 +358,12 @@ public class MessageCache {
     public synchronized Message remove(long id) {
         LOGGER.trace("Removing message {}", id);
         MessageEntry removed = messages.remove(id); // the underlying map is synchronized
+        if (removed != null) {
+            release(id, removed);
+        }
+        if (registration != null) {
+            registration.remove(id);
+        }
         return removed != null ? removed.message : null;
     }
 
@@ -121,18 +374,27 @@ public class MessageCache {
         long currentTimestamp = System.currentTimeMillis();
         Map<Long, Message> removed = new HashMap<>();
 
-        // find expired entries
-        for (Map.Entry<Long, MessageEntry> entry : messages.entrySet()) {
-            if (entry.getValue().expiresOn < currentTimestamp) {
-                removed.put(entry.getKey(), entry.getValue().message);
+        // find expired entries; the governor may remove entries without holding the cache's lock
+        synchronized (messages) {
+            for (Map.Entry<Long, MessageEntry> entry : messages.entrySet()) {
+                if (entry.getValue().expiresOn < currentTimestamp) {
+                    removed.put(entry.getKey(), entry.getValue().message);
+                }
             }
         }
 
         // now remove to avoid ConcurrentModificationException
         for (long id : removed.keySet()) {
             LOGGER.trace("Cleaning up expired message {}", id);
-            messages.remove(id);
+            MessageEntry expired = messages.remove(id);
+            if (expired != null) {
+                release(id, expired);
+            }
+            if (registration != null) {
+                registration.remove(id);
+            }
         }
+        pruneIndex();
 
         return removed;
     }
@@ -141,10 +403,22 @@ public class MessageCache {
      * @return the earliest time this cache can be shut down without discarding cached messages
      */
     public long getEarliestCloseTime() {
-        OptionalLong maxExpiration = messages.values().stream().mapToLong((MessageEntry me) -> me.expiresOn).max();
+        OptionalLong maxExpiration;
+        synchronized (messages) {
+            maxExpiration = messages.values().stream().mapToLong((MessageEntry me) -> me.expiresOn).max();
+        }
         return maxExpiration.orElse(System.currentTimeMillis());
     }
 
+    /**
+     * Release any resources held by the cache; the in-memory cache only unregisters from its governor
+     */
+    public void close() {
+        if (registration != null) {
+            registration.close();
+        }
+    }
+
     /**
      * Track {@link Message} expiration times
      */
@@ -152,10 +426,30 @@ public class MessageCache {
 
         final long expiresOn; // ms timestamp
         final Message message;
+        final Payload payload; // null unless encoded as added
 
-        MessageEntry(Message message, long expiresOn) {
+        MessageEntry(Message message, long expiresOn, Payload payload) {
             this.expiresOn = expiresOn;
             this.message = message;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Encoded bytes (and the decoded message) shared by all cached messages with the same content
+     */
+    private static class Payload {
+
+        final ByteBuffer digest; // null if the payload is not shared
+        final Message message;
+        final byte[] encoded;
+        int references; // guarded by the payloads map
+        long chargedTo = -1; // ID of the message the bytes are accounted to; guarded by the payloads map
+
+        Payload(ByteBuffer digest, Message message, byte[] encoded) {
+            this.digest = digest;
+            this.message = message;
+            this.encoded = encoded;
         }
     }
 }
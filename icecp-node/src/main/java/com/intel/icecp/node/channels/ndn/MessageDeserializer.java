@@ -19,12 +19,16 @@ package com.intel.icecp.node.channels.ndn;
 import com.intel.icecp.core.Message;
 import com.intel.icecp.core.pipeline.Pipeline;
 import com.intel.icecp.core.pipeline.exception.PipelineException;
+import net.named_data.jndn.ContentType;
 import net.named_data.jndn.Data;
+import net.named_data.jndn.MetaInfo;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Function;
 
 /**
@@ -45,20 +49,43 @@ public class MessageDeserializer<T extends Message> implements Function<Data, T>
 
     /**
      * When a data packet is received, deserialize it with the given pipeline; note that the NDN client retrieving
-     * segments must concatenate them for this method to work
+     * segments must concatenate them for this method to work. If the packet holds a {@link MessageBatch}, the last (most
+     * recent) message of the batch is returned; see {@link #applyAll(Data)} to retrieve all of them.
      *
      * @param data a packet containing all of the message content
      * @return the message
      */
     @Override
     public T apply(Data data) {
+        List<T> messages = applyAll(data);
+        return messages.get(messages.size() - 1);
+    }
+
+    /**
+     * Deserialize all messages of a packet; this returns a single message unless the packet holds a
+     * {@link MessageBatch}, i.e. carries the {@link MessageBatch#CONTENT_TYPE} content type
+     *
+     * @param data a packet containing all of the message content
+     * @return the messages, in publication order
+     */
+    public List<T> applyAll(Data data) {
         LOGGER.debug("Deserializing message: {}", data.getName());
-        ByteArrayInputStream stream = new ByteArrayInputStream(data.getContent().getImmutableArray());
         try {
-            return pipeline.executeInverse(stream);
+            byte[] bytes = data.getContent().getImmutableArray();
+            return isBatch(data) ? MessageBatch.decode(bytes, pipeline)
+                    : Collections.singletonList(pipeline.executeInverse(new ByteArrayInputStream(bytes)));
         } catch (PipelineException e) {
             LOGGER.error("Failed to deserialize message: {}", data.getName(), e);
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * @param data a packet containing all of the message content
+     * @return true if the packet holds a {@link MessageBatch}
+     */
+    static boolean isBatch(Data data) {
+        MetaInfo metaInfo = data.getMetaInfo();
+        return metaInfo.getType() == ContentType.OTHER_CODE && metaInfo.getOtherTypeCode() == MessageBatch.CONTENT_TYPE;
+    }
 }
@@ -21,9 +21,12 @@ import com.intel.icecp.core.channels.OnLatest;
 import com.intel.icecp.core.event.EventObservable;
 import com.intel.icecp.core.event.types.MessageRequestedEvent;
 import com.intel.icecp.core.event.types.MessageSentEvent;
+import com.intel.icecp.core.metadata.formats.NegotiatedFormat;
 import com.intel.icecp.core.pipeline.Pipeline;
 import com.intel.icecp.core.pipeline.exception.PipelineException;
+import com.intel.icecp.node.pipeline.implementations.MessageFormattingPipeline;
 import com.intel.jndn.utils.impl.SegmentationHelper;
+import net.named_data.jndn.ContentType;
 import net.named_data.jndn.Data;
 import net.named_data.jndn.Face;
 import net.named_data.jndn.Interest;
@@ -34,15 +37,23 @@ import net.named_data.jndn.encoding.EncodingException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 
 /**
  * Handler for responding to requests for messages on a channel; this handler expects messages in the form: <ul>
  * <li>/channel/name/[marker][message id]</li> <li>/channel/name with rightmost selector</li> <li>/channel/name with
  * leftmost selector</li> </ul>
+ * <p>
+ * If the handler is given a {@link NegotiatedFormat}, a request may name one of its formats after the message ID, e.g.
+ * /channel/name/[marker][message id]/application%2Fcbor (see {@link FormatsRequestHandler}); the message is then
+ * encoded in the requested format instead of the default one, and the response is named after the request.
  *
  */
 public class MessageRequestHandler implements OnInterestCallback {
@@ -54,6 +65,8 @@ public class MessageRequestHandler implements OnInterestCallback {
     private final Pipeline<Message, InputStream> pipeline;
     private final ExecutorService pool;
     private final EventObservable observable;
+    private final NegotiatedFormat negotiated;
+    private final Map<String, Pipeline<Message, InputStream>> requestedPipelines = new ConcurrentHashMap<>();
     private OnLatest onLatest;
 
     /**
@@ -65,12 +78,26 @@ public class MessageRequestHandler implements OnInterestCallback {
      * @param observable API for notifying of message sent events
      */
     public MessageRequestHandler(Data template, MessageCache cache, int marker, Pipeline<Message, InputStream> pipeline, ExecutorService pool, EventObservable observable) {
+        this(template, cache, marker, pipeline, pool, observable, null);
+    }
+
+    /**
+     * @param template the base data to use for building segments
+     * @param cache the cache holding the channel's messages
+     * @param marker the NDN component marker to use
+     * @param pipeline the pipeline for encoding the message in the default format
+     * @param pool the thread pool for dispatching the sendMessage action
+     * @param observable API for notifying of message sent events
+     * @param negotiated the format of the pipeline if requests may name another format to encode in, or null
+     */
+    public MessageRequestHandler(Data template, MessageCache cache, int marker, Pipeline<Message, InputStream> pipeline, ExecutorService pool, EventObservable observable, NegotiatedFormat negotiated) {
         this.template = template;
         this.cache = cache;
         this.marker = marker;
         this.pipeline = pipeline;
         this.pool = pool;
         this.observable = observable;
+        this.negotiated = negotiated;
     }
 
     /**
@@ -111,10 +138,11 @@ public class MessageRequestHandler implements OnInterestCallback {
 
         observable.notifyApplicableObservers(new MessageRequestedEvent(id));
 
+        String requested = getRequestedFormat(interest, prefix);
         if (cache.has(id)) {
             pool.submit(() -> {
                 try {
-                    sendMessage(id, cache.get(id), face);
+                    sendMessage(id, cache.get(id), requested, face);
                 } catch (PipelineException | IOException ex) {
                     LOGGER.error("Failed to send message id {} for interest: {}", id, interest.toUri(), ex);
                 }
@@ -137,16 +165,34 @@ public class MessageRequestHandler implements OnInterestCallback {
      *
      * @param id the unique identifier for a {@link Message}
      * @param message the {@link Message} to publish
+     * @param requested the MIME type of the format requested by the subscriber, or null if it requested none
      * @param face the NDN {@link Face} to send the message to
      * @throws PipelineException if the message cannot be serialized
      * @throws IOException if the network transport fails
      */
-    private void sendMessage(long id, Message message, Face face) throws IOException, PipelineException {
+    private void sendMessage(long id, Message message, String requested, Face face) throws IOException, PipelineException {
         // build template
         Name.Component ndnId = Name.Component.fromNumberWithMarker(id, marker);
         Data templateCopy = new Data(template); // do not modify the base template
         templateCopy.getName().append(ndnId);
-        InputStream stream = pipeline.execute(message);
+        if (requested != null) {
+            // name the response after the request so that it satisfies the request's interest
+            templateCopy.getName().append(new Name.Component(requested));
+        }
+        if (message instanceof MessageBatch) {
+            // mark batches outside of their bytes, see MessageBatch
+            templateCopy.getMetaInfo().setType(ContentType.OTHER_CODE);
+            templateCopy.getMetaInfo().setOtherTypeCode(MessageBatch.CONTENT_TYPE);
+        }
+        InputStream stream;
+        if (requested != null && !requested.equals(negotiated.mimeType)) {
+            Pipeline<Message, InputStream> requestedPipeline = getPipeline(requested);
+            stream = message instanceof MessageBatch ? ((MessageBatch) message).encode(requestedPipeline) : requestedPipeline.execute(message);
+        } else {
+            byte[] encoded = cache.getEncoded(id); // already encoded if the cache shares payloads
+            stream = encoded != null ? new ByteArrayInputStream(encoded)
+                    : message instanceof MessageBatch ? ((MessageBatch) message).encode(pipeline) : pipeline.execute(message);
+        }
 
         // segment into packets
         List<Data> segments = SegmentationHelper.segment(templateCopy, stream);
@@ -157,9 +203,41 @@ public class MessageRequestHandler implements OnInterestCallback {
         }
 
         LOGGER.debug("Sending message: {}", templateCopy.getName());
+        cache.reportSize(id, messageSize);
         observable.notifyApplicableObservers(new MessageSentEvent(id, message, messageSize));
     }
 
+    /**
+     * @param mimeType the MIME type of a format of the negotiated format
+     * @return the pipeline encoding messages in the given format; pipelines are built once per format
+     */
+    @SuppressWarnings("unchecked")
+    private Pipeline<Message, InputStream> getPipeline(String mimeType) {
+        return requestedPipelines.computeIfAbsent(mimeType,
+                m -> MessageFormattingPipeline.create(negotiated.getType(), negotiated.encodingAs(m)));
+    }
+
+    /**
+     * @param interest the incoming interest
+     * @param prefix the registered prefix
+     * @return the MIME type of the supported format named by the request, or null if the request names none
+     */
+    private String getRequestedFormat(Interest interest, Name prefix) {
+        if (negotiated == null) {
+            return null;
+        }
+
+        Name suffix = interest.getName().getSubName(prefix.size());
+        List<String> supported = negotiated.getMimeTypes();
+        for (int i = 0, end = suffix.size(); i < end; i++) {
+            String component = new String(suffix.get(i).getValue().getImmutableArray(), StandardCharsets.UTF_8);
+            if (supported.contains(component)) {
+                return component;
+            }
+        }
+        return null;
+    }
+
     /**
      * @param interest the incoming interest
      * @param marker the name component marker to identify the message ID component
@@ -24,6 +24,8 @@ import com.intel.icecp.core.metadata.Persistence;
 import com.intel.icecp.core.misc.ChannelLifetimeException;
 import com.intel.icecp.core.misc.Configuration;
 import com.intel.icecp.core.pipeline.Pipeline;
+import com.intel.icecp.node.utils.CallbackPool;
+import com.intel.icecp.node.utils.MemoryGovernor;
 import com.intel.icecp.node.utils.NetworkUtils;
 import com.intel.jndn.utils.impl.KeyChainFactory;
 
@@ -39,6 +41,7 @@ import org.apache.logging.log4j.Logger;
 import java.io.IOException;
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.nio.file.Paths;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -46,7 +49,11 @@ import java.util.concurrent.ScheduledExecutorService;
  * Build an NDN channel; note that while we test different ways to send messages with NDN we will expose different
  * channel types. These are configurable in the ndn.json configuration file along with: <ul> <li>channel-type:
  * notification (default), chronosync (experimental)</li> <li>uri: localhost (default)--the location of the NFD to use
- * for routing</li> </ul>
+ * for routing</li> <li>retention: directory, threshold-ms, max-bytes and hot-messages--see {@link DiskRetention}; if a
+ * directory is configured, the messages of long-lived channels are retained on disk in its sub-directory named after
+ * the node identity, otherwise in memory only</li> <li>cache: budget-bytes and eviction-order (oldest-first or
+ * least-recently-used)--the node-wide {@link MemoryGovernor} budget of the message caches</li> <li>callbacks: threads,
+ * max-queued and slow-ms--the node-wide {@link CallbackPool} running subscription callbacks</li> </ul>
  *
  */
 public class NdnChannelProvider implements ChannelProvider {
@@ -56,6 +63,8 @@ public class NdnChannelProvider implements ChannelProvider {
     private static final String CHANNEL_TYPE_NOTIFICATION = "notification";
     private static final int ASYNC_IO_THREAD_POOL_SIZE = 8; // number of threads handling the async socket completion.
     private static final Logger logger = LogManager.getLogger();
+    private final NdnLoopback loopback = new NdnLoopback();
+    private DiskRetention retention;
     private Face prefixFace;
     private Face interestFace;
     private ScheduledExecutorService eventLoop;
@@ -116,7 +125,22 @@ public class NdnChannelProvider implements ChannelProvider {
     public void start(ScheduledExecutorService pool, Configuration configuration) {
         String hostName = configuration.getOrDefault("localhost", "uri");
         String channelType = configuration.getOrDefault("default", "channel-type");
-        start0(getIdentityFromHostName(), setupFace(hostName, pool), setupFace(hostName, pool), pool, channelType);
+        String identity = getIdentityFromHostName();
+        String retentionDirectory = configuration.getOrDefault(null, "retention.directory");
+        if (retentionDirectory != null && !retentionDirectory.isEmpty()) {
+            long retentionThreshold = ((Number) configuration.<Object>getOrDefault(DiskRetention.DEFAULT_THRESHOLD_MS, "retention.threshold-ms")).longValue();
+            long retentionMaxBytes = ((Number) configuration.<Object>getOrDefault(DiskRetention.DEFAULT_MAX_BYTES, "retention.max-bytes")).longValue();
+            int retentionHotMessages = ((Number) configuration.<Object>getOrDefault(DiskRetention.DEFAULT_HOT_MESSAGES, "retention.hot-messages")).intValue();
+            retention = DiskRetention.forNode(Paths.get(retentionDirectory), identity, retentionThreshold, retentionMaxBytes, retentionHotMessages);
+        }
+        long cacheBudget = ((Number) configuration.<Object>getOrDefault(MemoryGovernor.DEFAULT_BUDGET, "cache.budget-bytes")).longValue();
+        String cacheEviction = configuration.getOrDefault(MemoryGovernor.Order.OLDEST_FIRST.name(), "cache.eviction-order");
+        MemoryGovernor.getDefault().configure(cacheBudget, MemoryGovernor.Order.fromName(cacheEviction));
+        int callbackThreads = ((Number) configuration.<Object>getOrDefault(CallbackPool.DEFAULT_THREADS, "callbacks.threads")).intValue();
+        int callbackMaxQueued = ((Number) configuration.<Object>getOrDefault(CallbackPool.DEFAULT_MAX_QUEUED, "callbacks.max-queued")).intValue();
+        long callbackSlowMs = ((Number) configuration.<Object>getOrDefault(CallbackPool.DEFAULT_SLOW_CALLBACK_MS, "callbacks.slow-ms")).longValue();
+        CallbackPool.getDefault().configure(callbackThreads, callbackMaxQueued, callbackSlowMs);
+        start0(identity, setupFace(hostName, pool), setupFace(hostName, pool), pool, channelType);
     }
 
     /**
@@ -225,12 +249,12 @@ public class NdnChannelProvider implements ChannelProvider {
 
         switch (channelType) {
             case CHANNEL_TYPE_CHRONOSYNC:
-                return new NdnChronoSyncChannel(uri, pipeline, interestFace, eventLoop, persistence,
+                return new NdnChronoSyncChannel(uri, pipeline, interestFace, eventLoop, retention, persistence,
                         metadata);
             case CHANNEL_TYPE_NOTIFICATION:
             default:
-                return new NdnNotificationChannel(uri, pipeline, prefixFace, interestFace, eventLoop, persistence,
-                        metadata);
+                return new NdnNotificationChannel(uri, pipeline, prefixFace, interestFace, eventLoop, loopback,
+                        retention, persistence, metadata);
         }
     }
 
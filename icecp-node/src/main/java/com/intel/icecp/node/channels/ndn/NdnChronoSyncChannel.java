@@ -19,6 +19,8 @@ package com.intel.icecp.node.channels.ndn;
 import com.intel.icecp.core.Message;
 import com.intel.icecp.core.Metadata;
 import com.intel.icecp.core.channels.ChannelBase;
+import com.intel.icecp.core.metadata.Deduplication;
+import com.intel.icecp.core.metadata.Ordering;
 import com.intel.icecp.core.metadata.Persistence;
 import com.intel.icecp.core.misc.ChannelIOException;
 import com.intel.icecp.core.misc.ChannelLifetimeException;
@@ -27,7 +29,10 @@ import com.intel.icecp.core.permissions.ChannelPermission;
 import com.intel.icecp.core.pipeline.Pipeline;
 import com.intel.icecp.node.channels.ndn.chronosync.NdnChronoState;
 import com.intel.icecp.node.channels.ndn.chronosync.NdnChronoSynchronizerClient;
+import com.intel.icecp.node.utils.MemoryGovernor;
+import com.intel.icecp.node.utils.MetadataUtils;
 import com.intel.icecp.node.utils.SecurityUtils;
+import com.intel.icecp.node.utils.CallbackPool;
 import com.intel.jndn.utils.Client;
 import com.intel.jndn.utils.client.impl.AdvancedClient;
 import net.named_data.jndn.Data;
@@ -40,8 +45,11 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -51,6 +59,10 @@ import java.util.concurrent.TimeUnit;
  * <p>
  * Note: for this to work correctly, the NFDs involved must be configured with broadcast strategies on /bcast (name
  * shortened to save bytes).
+ * <p>
+ * If the channel is built with {@link Ordering} metadata, each subscription delivers the messages of each publishing
+ * client in message ID order, one at a time. If it is built with {@link Deduplication} metadata, the cache of published
+ * messages shares the encoded payload of byte-identical messages.
  *
  */
 class NdnChronoSyncChannel extends ChannelBase {
@@ -66,7 +78,9 @@ class NdnChronoSyncChannel extends ChannelBase {
     private final ScheduledExecutorService pool;
     private final Persistence persistence;
     private final Metadata[] metadata;
-    private final MessageCache cache;
+    private final Ordering ordering;
+    private final boolean isDeduplicating;
+    private final DiskRetention retention;
     private final NdnChronoSynchronizerClient synchronizerClient;
     private final Client retrievalClient = AdvancedClient.getDefault();
     private volatile boolean opened = false;
@@ -74,18 +88,21 @@ class NdnChronoSyncChannel extends ChannelBase {
     private boolean subscribing = false;
     private boolean publishing = false;
     private long localLatest = -1;
+    private MessageCache cache;
     private NdnChronoState latest;
     private long registeredPrefixId;
 
-    NdnChronoSyncChannel(URI uri, Pipeline pipeline, Face face, ScheduledExecutorService pool, Persistence persistence, Metadata[] metadata) {
+    NdnChronoSyncChannel(URI uri, Pipeline pipeline, Face face, ScheduledExecutorService pool, DiskRetention retention, Persistence persistence, Metadata[] metadata) {
         super(uri, pipeline);
         this.name = new Name(uri.getSchemeSpecificPart());
         this.face = face;
         this.pool = pool;
         this.persistence = persistence;
         this.metadata = metadata;
+        this.ordering = MetadataUtils.find(Ordering.class, metadata);
+        this.isDeduplicating = MetadataUtils.find(Deduplication.class, metadata) != null;
         this.synchronizerClient = new NdnChronoSynchronizerClient(this.face, BROADCAST_PREFIX);
-        this.cache = new MessageCache(persistence.persistFor, MAX_CACHED_MESSAGES);
+        this.retention = retention;
     }
 
     /**
@@ -160,6 +177,8 @@ class NdnChronoSyncChannel extends ChannelBase {
         synchronizerClient.stop();
         if (isPublishing()) {
             unregisterPrefix();
+            cache.close();
+            publishing = false;
         }
         channelCloseScheduled = false;
         LOGGER.debug("Closed channel: " + getName());
@@ -173,6 +192,11 @@ class NdnChronoSyncChannel extends ChannelBase {
         SecurityUtils.checkPermission(new ChannelPermission(getName(), "publish"));
 
         if (!publishing) {
+            // continue after any messages retained on disk by a previous publisher of this channel
+            MemoryGovernor governor = MemoryGovernor.getDefault();
+            cache = retention != null ? retention.createCache(name, persistence, pipeline, MAX_CACHED_MESSAGES, governor, isDeduplicating)
+                    : new MessageCache(persistence.persistFor, MAX_CACHED_MESSAGES, governor, name.toUri(), isDeduplicating ? pipeline : null);
+            localLatest = Math.max(localLatest, cache.latest());
             try {
                 registerPrefix();
             } catch (IOException | SecurityException | InterruptedException e) {
@@ -245,21 +269,62 @@ class NdnChronoSyncChannel extends ChannelBase {
         SecurityUtils.checkPermission(new ChannelPermission(getName(), "subscribe"));
 
         subscribing = true;
+        if (ordering != null) {
+            subscribeOrdered(callback);
+            return;
+        }
+
+        Executor executor = CallbackPool.getDefault().newExecutor(name.toUri());
         synchronizerClient.subscribe(changedStates -> {
             for (NdnChronoState s : changedStates) {
                 latest = s;
-                getMessage(s.message(), s.client()).thenAcceptAsync(message -> {
-                    Thread.currentThread().setContextClassLoader(callback.getClass().getClassLoader());
-                    try {
-                        callback.onPublish(message);
-                    } catch (Throwable t) {
-                        LOGGER.error("Callback failed while handling message {} from client {}", s.message(), s.client(), t);
+                getMessage(s.message(), s.client()).thenAcceptAsync(message -> deliver(callback, message, s.client()), executor);
+            }
+        });
+    }
+
+    /**
+     * Subscribe with one {@link ReorderBuffer} per publishing client, since message IDs are only ordered per client;
+     * the buffers share the subscription's callback executor so that callbacks of the subscription run one at a time
+     *
+     * @param callback the subscription callback
+     */
+    private void subscribeOrdered(OnPublish callback) {
+        Executor executor = CallbackPool.getDefault().newExecutor(name.toUri());
+        Map<Long, ReorderBuffer<Message>> buffers = new ConcurrentHashMap<>();
+        synchronizerClient.subscribe(changedStates -> {
+            for (NdnChronoState s : changedStates) {
+                latest = s;
+                ReorderBuffer<Message> buffer = buffers.computeIfAbsent(s.client(), client -> new ReorderBuffer<>(ordering.maxHoldMs,
+                        ordering.maxBuffered, pool, executor, message -> deliver(callback, message, client)));
+                getMessage(s.message(), s.client()).whenComplete((message, error) -> {
+                    if (error != null) {
+                        LOGGER.error("Failed to retrieve message {} from client {}", s.message(), s.client(), error);
+                        buffer.skip(s.message());
+                    } else {
+                        buffer.add(s.message(), message);
                     }
-                }, pool);
+                });
             }
         });
     }
 
+    /**
+     * Call the subscription callback, logging its failures
+     *
+     * @param callback the subscription callback
+     * @param message the retrieved message
+     * @param client the ID of the client that published the message
+     */
+    private static void deliver(OnPublish callback, Message message, long client) {
+        Thread.currentThread().setContextClassLoader(callback.getClass().getClassLoader());
+        try {
+            callback.onPublish(message);
+        } catch (Throwable t) {
+            LOGGER.error("Callback failed while handling message from client {}", client, t);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
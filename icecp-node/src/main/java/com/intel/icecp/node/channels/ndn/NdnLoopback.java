@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.channels.ndn;
+
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.pipeline.Pipeline;
+import com.intel.icecp.node.channels.ndn.notification.OnPublishNotification;
+import com.intel.icecp.node.pipeline.PipelineImpl;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Short-circuits NDN channels that publish and subscribe on the same node: messages published by a channel are handed
+ * directly to the subscriptions of the node's channels with the same URI, without encoding them, announcing them and
+ * fetching them back through the forwarder. Remote subscribers still receive update notifications as usual; these
+ * notifications name their publisher so that local subscriptions can ignore what they already received in-process.
+ * <p>
+ * Only channels built with {@link com.intel.icecp.core.metadata.Loopback} metadata register here, and messages are
+ * only short-circuited to subscriptions of the publishing channel itself or of channels that only format messages, in
+ * the same format (see {@link PipelineImpl#matches(PipelineImpl)}); other local subscriptions, e.g. of channels that
+ * decrypt or verify messages, retrieve the messages through the forwarder like remote ones.
+ * <p>
+ * Note that local subscribers receive the published {@link Message} instance itself, not a decoded copy; the pipeline
+ * is only run for remote subscribers.
+ *
+ */
+public class NdnLoopback {
+
+    private final Map<URI, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final Map<Long, Pipeline> publishers = new ConcurrentHashMap<>();
+
+    /**
+     * @param uri the channel URI
+     * @param pipeline the pipeline of the subscribing channel
+     * @param subscription the subscription to deliver locally published messages to
+     */
+    public void addSubscription(URI uri, Pipeline pipeline, OnPublishNotification subscription) {
+        subscriptions.computeIfAbsent(uri, u -> new CopyOnWriteArrayList<>()).add(new Subscription(pipeline, subscription));
+    }
+
+    /**
+     * @param uri the channel URI
+     * @param subscription the subscription to stop delivering to
+     */
+    public void removeSubscription(URI uri, OnPublishNotification subscription) {
+        subscriptions.computeIfPresent(uri, (u, list) -> {
+            list.removeIf(s -> s.notification == subscription);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    /**
+     * @param publisherId the ID a channel of this node publishes its update notifications under
+     * @param pipeline the pipeline of the publishing channel
+     */
+    public void addPublisher(long publisherId, Pipeline pipeline) {
+        publishers.put(publisherId, pipeline);
+    }
+
+    /**
+     * @param publisherId the ID of a channel that no longer publishes
+     */
+    public void removePublisher(long publisherId) {
+        publishers.remove(publisherId);
+    }
+
+    /**
+     * @param publisherId the publisher ID of an update notification
+     * @param pipeline the pipeline of the subscribing channel
+     * @return true if the publisher is a channel of this node whose messages are delivered in-process to subscriptions
+     * with this pipeline
+     */
+    public boolean isLocalPublisher(long publisherId, Pipeline pipeline) {
+        Pipeline published = publishers.get(publisherId);
+        return published != null && matches(published, pipeline);
+    }
+
+    /**
+     * @param uri the channel URI
+     * @return the number of local subscriptions on the channel
+     */
+    public int getSubscriptionCount(URI uri) {
+        return subscriptions.getOrDefault(uri, Collections.emptyList()).size();
+    }
+
+    /**
+     * Deliver published messages to the local subscriptions of a channel whose pipeline matches the publisher's
+     *
+     * @param uri the channel URI
+     * @param publisherId the ID of the publishing channel
+     * @param version the version the messages are published under
+     * @param messages the published messages
+     */
+    public void deliver(URI uri, long publisherId, long version, List<Message> messages) {
+        Pipeline published = publishers.get(publisherId);
+        if (published == null) {
+            return;
+        }
+        for (Subscription subscription : subscriptions.getOrDefault(uri, Collections.emptyList())) {
+            if (matches(published, subscription.pipeline)) {
+                subscription.notification.onLocalPublish(publisherId, version, messages);
+            }
+        }
+    }
+
+    /**
+     * @param published the pipeline of the publisher
+     * @param subscribed the pipeline of the subscriber
+     * @return true if the subscriber decodes messages like the publisher encodes them, so that it may receive the
+     * published instances
+     */
+    private static boolean matches(Pipeline published, Pipeline subscribed) {
+        if (published == subscribed) {
+            return true;
+        }
+        return published instanceof PipelineImpl && subscribed instanceof PipelineImpl
+                && ((PipelineImpl) published).matches((PipelineImpl) subscribed);
+    }
+
+    /**
+     * A local subscription and the pipeline of its channel
+     */
+    private static class Subscription {
+
+        final Pipeline pipeline;
+        final OnPublishNotification notification;
+
+        Subscription(Pipeline pipeline, OnPublishNotification notification) {
+            this.pipeline = pipeline;
+            this.notification = notification;
+        }
+    }
+}
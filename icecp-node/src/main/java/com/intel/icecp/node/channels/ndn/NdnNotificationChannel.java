@@ -19,8 +19,14 @@ import com.intel.icecp.core.Message;
 import com.intel.icecp.core.Metadata;
 import com.intel.icecp.core.channels.ChannelBase;
 import com.intel.icecp.core.channels.OnLatest;
+import com.intel.icecp.core.metadata.Batching;
+import com.intel.icecp.core.metadata.Conflation;
+import com.intel.icecp.core.metadata.Deduplication;
+import com.intel.icecp.core.metadata.Loopback;
+import com.intel.icecp.core.metadata.Ordering;
 import com.intel.icecp.core.metadata.Persistence;
 import com.intel.icecp.core.metadata.Window;
+import com.intel.icecp.core.metadata.formats.NegotiatedFormat;
 import com.intel.icecp.core.misc.ChannelIOException;
 import com.intel.icecp.core.misc.ChannelLifetimeException;
 import com.intel.icecp.core.misc.OnPublish;
@@ -30,6 +36,9 @@ import com.intel.icecp.node.channels.ndn.notification.Filterable;
 import com.intel.icecp.node.channels.ndn.notification.NdnChannelPublisher;
 import com.intel.icecp.node.channels.ndn.notification.NdnChannelSubscriber;
 import com.intel.icecp.node.channels.ndn.notification.OnPublishNotification;
+import com.intel.icecp.node.pipeline.PipelineImpl;
+import com.intel.icecp.node.utils.MetadataUtils;
+import com.intel.icecp.node.utils.PipelinedRetrieval;
 import com.intel.icecp.node.utils.SecurityUtils;
 import net.named_data.jndn.Face;
 import net.named_data.jndn.Interest;
@@ -44,23 +53,51 @@ import org.apache.logging.log4j.Logger;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 /**
  * The base NDN implementation of a notification channel; uses NDN version components to distinguish between published
  * messages. Note that two faces are used per channel so that a channel can subscribe to itself (one face is used for
  * interests and the other to register prefixes, i.e. receive interests); NDN does not allow a face to receive an
  * interest from itself.
+ * <p>
+ * If the channel is built with {@link Batching} metadata, published messages are collected and published together as
+ * a {@link MessageBatch} under a single message ID (and a single update notification); subscribers split the batch and
+ * call their {@link OnPublish} callback once per message. If the channel is built with {@link Conflation} metadata,
+ * subscriptions skip intermediate messages announced while an older one is retrieved or processed; see
+ * {@link #getSkippedVersions()}. If the channel is built with {@link Ordering} metadata, subscriptions deliver messages
+ * in version order, one at a time. If the channel is built with {@link Deduplication} metadata, the publisher's cache
+ * shares the encoded payload of byte-identical messages.
+ * <p>
+ * If the channel is built with {@link Loopback} metadata and an {@link NdnLoopback}, published messages are delivered
+ * in-process to the subscriptions of the node's channels with the same name, message type and pipeline (that opted in
+ * as well); update notifications (/channel/name/update/[publisher ID]/[version]) name their publisher so that these
+ * subscriptions ignore them. Other subscriptions retrieve the messages through the forwarder.
+ * <p>
+ * Publishers answer index requests (/channel/name/index/[timestamp], see {@link IndexRequestHandler}) so that
+ * subscribers can retrieve the messages of a time range; see {@link #range(Instant, Instant)}.
+ * <p>
+ * If the channel is built with a {@link NegotiatedFormat} metadata (the format of its pipeline), publishers advertise
+ * its formats (/channel/name/formats, see {@link FormatsRequestHandler}) and subscribers request messages in the
+ * format they prefer among the advertised ones; messages are otherwise sent in the format's default (JSON) encoding.
  *
  */
 public class NdnNotificationChannel extends ChannelBase implements Filterable {
 
     public static final String DATA_SUFFIX = "data";
+    public static final String INDEX_SUFFIX = "index";
+    public static final String FORMATS_SUFFIX = "formats";
     public static final long LATEST_REQUEST_LIFETIME = 1000;
     private static final int NDN_VERSION_MARKER = 0xFD;
     private static final String UPDATE_NOTIFICATION_SUFFIX = "update";
@@ -78,6 +115,17 @@ public class NdnNotificationChannel extends ChannelBase implements Filterable {
     private final List<Long> ndnPrefixes = new ArrayList<>();
     private final List<Long> ndnFilters = new ArrayList<>();
     private final Window windowState;
+    private final Batching batching;
+    private final boolean isConflating;
+    private final boolean isDeduplicating;
+    private final Ordering ordering;
+    private final NegotiatedFormat negotiatedFormat;
+    private final List<OnPublishNotification> subscriptions = new CopyOnWriteArrayList<>();
+    private final NdnLoopback loopback;
+    private final DiskRetention retention;
+    private final long publisherId = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+    private final List<Message> pendingBatch = new ArrayList<>();
+    private ScheduledFuture<?> lingerTask;
     private NdnChannelPublisher publisher;
     private NdnChannelSubscriber subscriber;
     private boolean isChannelOpen = false;
@@ -95,6 +143,24 @@ public class NdnNotificationChannel extends ChannelBase implements Filterable {
      * @param metadata a list of {@link com.intel.icecp.core.Metadata} objects
      */
     protected NdnNotificationChannel(URI name, Pipeline<Message, InputStream> pipeline, Face prefixFace, Face interestFace, ScheduledExecutorService eventLoop, Persistence persistence, Metadata... metadata) {
+        this(name, pipeline, prefixFace, interestFace, eventLoop, null, null, persistence, metadata);
+    }
+
+    /**
+     * Build a channel that understands NDN and delivers messages in-process to subscribers on the same node.
+     *
+     * @param name the channel name, uniquely identifying the channel
+     * @param pipeline the pipeline for serializing/deserializing messages for network transport
+     * @param prefixFace the NDN {@link net.named_data.jndn.Face} for receiving interests
+     * @param interestFace the NDN {@link net.named_data.jndn.Face} for sending interests
+     * @param eventLoop the event loop for scheduling IO
+     * @param loopback the node's local publishers and subscribers, used if the metadata includes {@link Loopback}; or
+     * null to always go through the forwarder
+     * @param retention the node's disk retention policy for long-lived messages, or null to retain them in memory
+     * @param persistence the time to retain messages
+     * @param metadata a list of {@link com.intel.icecp.core.Metadata} objects
+     */
+    protected NdnNotificationChannel(URI name, Pipeline<Message, InputStream> pipeline, Face prefixFace, Face interestFace, ScheduledExecutorService eventLoop, NdnLoopback loopback, DiskRetention retention, Persistence persistence, Metadata... metadata) {
         super(name, pipeline);
 
         if (name == null || !name.getScheme().equals("ndn")) {
@@ -107,6 +173,32 @@ public class NdnNotificationChannel extends ChannelBase implements Filterable {
         this.windowState = new Window();
         this.persistence = persistence;
         this.interestFace = interestFace;
+        this.batching = MetadataUtils.find(Batching.class, metadata);
+        this.isConflating = MetadataUtils.find(Conflation.class, metadata) != null;
+        this.isDeduplicating = MetadataUtils.find(Deduplication.class, metadata) != null;
+        this.ordering = MetadataUtils.find(Ordering.class, metadata);
+        this.negotiatedFormat = findNegotiatedFormat(name, pipeline, metadata);
+        this.loopback = MetadataUtils.find(Loopback.class, metadata) != null ? loopback : null;
+        this.retention = retention;
+    }
+
+    /**
+     * Subscribers may only request another format than the default one if the pipeline only formats messages: the
+     * pipelines answering these requests are built from the format alone (see {@link MessageRequestHandler}), and would
+     * drop any other operation of the pipeline, e.g. encryption or signing.
+     *
+     * @param name the channel name
+     * @param pipeline the pipeline for serializing/deserializing messages
+     * @param metadata the channel metadata
+     * @return the negotiated format of the channel, or null if its format is not negotiated
+     */
+    private static NegotiatedFormat findNegotiatedFormat(URI name, Pipeline<Message, InputStream> pipeline, Metadata... metadata) {
+        NegotiatedFormat negotiated = MetadataUtils.find(NegotiatedFormat.class, metadata);
+        if (negotiated != null && !(pipeline instanceof PipelineImpl && ((PipelineImpl) pipeline).isFormattingOnly())) {
+            logger.info("Not negotiating the format of channel {}, its pipeline does more than formatting messages", name);
+            return null;
+        }
+        return negotiated;
     }
 
     /**
@@ -184,6 +276,13 @@ public class NdnNotificationChannel extends ChannelBase implements Filterable {
         SecurityUtils.checkPermission(new ChannelPermission(getName(), PERMISSION_TAG_CLOSE));
         logger.debug("Closing channel (may not close immediately if messages are queued): {}", this);
 
+        // publish any partial batch so that it is retained like other messages
+        try {
+            flushBatch();
+        } catch (ChannelIOException ex) {
+            logger.error("Failed to publish pending batch on channel: {}", this, ex);
+        }
+
         // wait for retained messages; otherwise they aren't available for
         // requesting subscribers
         if (isPublishing()) {
@@ -213,6 +312,18 @@ public class NdnNotificationChannel extends ChannelBase implements Filterable {
             getFace().unsetInterestFilter(id);
         }
 
+        if (loopback != null) {
+            loopback.removePublisher(publisherId);
+            for (OnPublishNotification subscription : subscriptions) {
+                loopback.removeSubscription(getName(), subscription);
+            }
+        }
+
+        if (isPublishing()) {
+            publisher.close();
+            publisher = null;
+        }
+
         isChannelCloseScheduled = false;
 
         logger.debug("Closed channel: {}", this);
@@ -226,9 +337,74 @@ public class NdnNotificationChannel extends ChannelBase implements Filterable {
         SecurityUtils.checkPermission(new ChannelPermission(getName(), PERMISSION_TAG_PUBLISH));
         logger.debug("Publishing message on channel: {}", this);
 
+        if (batching == null) {
+            publishWithNextId(message);
+            return;
+        }
+
+        boolean isFull;
+        synchronized (pendingBatch) {
+            pendingBatch.add(message);
+            isFull = pendingBatch.size() >= batching.maxMessages;
+            if (!isFull && pendingBatch.size() == 1) {
+                lingerTask = eventLoop.schedule(this::flushBatchOnLinger, batching.lingerMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (isFull) {
+            flushBatch();
+        }
+    }
+
+    /**
+     * Publish all pending batched messages as a single {@link MessageBatch}; does nothing if batching is disabled or no
+     * messages are pending
+     *
+     * @throws ChannelIOException if the update notification fails
+     */
+    private void flushBatch() throws ChannelIOException {
+        // hold the lock while publishing so that batches are numbered in the order their messages were published
+        synchronized (pendingBatch) {
+            if (pendingBatch.isEmpty()) {
+                return;
+            }
+            if (lingerTask != null) {
+                lingerTask.cancel(false);
+                lingerTask = null;
+            }
+            MessageBatch batch = new MessageBatch(pendingBatch);
+            pendingBatch.clear();
+            logger.debug("Publishing batch of {} messages on channel: {}", batch.getMessages().size(), this);
+            publishWithNextId(batch);
+        }
+    }
+
+    /**
+     * Scheduled version of {@link #flushBatch()}, run once the first message of a batch has lingered for
+     * {@link Batching#lingerMs}
+     */
+    private void flushBatchOnLinger() {
+        try {
+            flushBatch();
+        } catch (ChannelIOException ex) {
+            logger.error("Failed to publish batch on channel: {}", this, ex);
+        }
+    }
+
+    /**
+     * Store the message under the next available message ID and notify subscribers
+     *
+     * @param message the {@link Message} (or {@link MessageBatch}) to publish
+     * @throws ChannelIOException if the update notification fails
+     */
+    private synchronized void publishWithNextId(Message message) throws ChannelIOException {
         if (!isPublishing()) {
-            getWindow().latest = 0;
-            getWindow().earliest = 0;
+            // continue after any messages retained on disk by a previous publisher of this channel
+            getWindow().latest = getPublisher().getLatestIdAvailable() + 1;
+            getWindow().earliest = getWindow().latest;
+            if (loopback != null) {
+                loopback.addPublisher(publisherId, pipeline);
+            }
         } else {
             getWindow().latest++;
         }
@@ -237,20 +413,26 @@ public class NdnNotificationChannel extends ChannelBase implements Filterable {
         getPublisher().cleanup();
         getWindow().earliest = getPublisher().getEarliestIdAvailable();
 
+        if (loopback != null) {
+            List<Message> messages = message instanceof MessageBatch ? ((MessageBatch) message).getMessages()
+                    : Collections.singletonList(message);
+            loopback.deliver(getName(), publisherId, getWindow().latest, messages);
+        }
+
         // send out alert, do not expect responses
         sendUpdateNotification(getWindow().latest);
     }
 
     /**
-     * Send the update notification {@link Interest}, e.g. /channel/name/.../update. This {@link Interest} will not not
-     * expect a response.
+     * Send the update notification {@link Interest}, e.g. /channel/name/.../update/[publisher ID]/[version]. This
+     * {@link Interest} will not not expect a response.
      *
      * @param version the version number of the update
      * @throws ChannelIOException if the request fails
      */
     private void sendUpdateNotification(long version) throws ChannelIOException {
         Name.Component versionComponent = asComponent(version);
-        Interest interest = new Interest(getNdnName().append(UPDATE_NOTIFICATION_SUFFIX).append(versionComponent));
+        Interest interest = new Interest(getNdnName().append(UPDATE_NOTIFICATION_SUFFIX).append(Name.Component.fromNumber(publisherId)).append(versionComponent));
         interest.setInterestLifetimeMilliseconds(UPDATE_NOTIFICATION_LIFETIME);
         interest.setMustBeFresh(true);
         try {
@@ -270,8 +452,25 @@ public class NdnNotificationChannel extends ChannelBase implements Filterable {
         logger.debug("Subscribing on channel: {}", this);
 
         // listen for update notifications
-        addFilter(new InterestFilter(getNdnName().append(UPDATE_NOTIFICATION_SUFFIX)),
-                new OnPublishNotification(this, callback, (Throwable t) -> logger.error("Callback failed on channel: {}", this, t)));
+        OnPublishNotification subscription = new OnPublishNotification(this, callback,
+                (Throwable t) -> logger.error("Callback failed on channel: {}", this, t), isConflating, ordering);
+        subscriptions.add(subscription);
+        if (loopback != null) {
+            loopback.addSubscription(getName(), pipeline, subscription);
+        }
+        addFilter(new InterestFilter(getNdnName().append(UPDATE_NOTIFICATION_SUFFIX)), subscription);
+    }
+
+    /**
+     * @return the number of announced message versions skipped by the subscriptions of a conflating (see
+     * {@link Conflation}) or ordered (see {@link Ordering}) channel; always 0 for other channels
+     */
+    public long getSkippedVersions() {
+        long skipped = 0;
+        for (OnPublishNotification subscription : subscriptions) {
+            skipped += subscription.getSkippedVersions();
+        }
+        return skipped;
     }
 
     /**
@@ -320,6 +519,59 @@ public class NdnNotificationChannel extends ChannelBase implements Filterable {
         return getSubscriber().getMessage(id);
     }
 
+    /**
+     * Retrieve all messages published under the specified ID; this returns a single message unless the publisher
+     * batches messages (see {@link Batching}).
+     *
+     * @param id the {@link Message} id
+     * @return the {@link Future} list of {@link Message}s, in publication order
+     */
+    public CompletableFuture<List<Message>> getAll(long id) {
+        SecurityUtils.checkPermission(new ChannelPermission(getName(), PERMISSION_TAG_SUBSCRIBE));
+        logger.debug("Retrieving messages {} on channel: {}", id, this);
+
+        return getSubscriber().getMessages(id);
+    }
+
+    /**
+     * Find the first message published at or after a given time; the publisher looks the time up in its message cache
+     *
+     * @param timestamp the publication time, in ms since the epoch
+     * @return the future ID of the first message published at or after the given time or, if there is none, the ID
+     * following the latest message
+     */
+    public CompletableFuture<Long> findId(long timestamp) {
+        SecurityUtils.checkPermission(new ChannelPermission(getName(), PERMISSION_TAG_SUBSCRIBE));
+        logger.debug("Looking up messages published from {} on channel: {}", timestamp, this);
+
+        return getSubscriber().findId(timestamp);
+    }
+
+    /**
+     * Retrieve the messages published under a range of IDs, with a window of requests in flight; batches are split
+     * into their messages. See {@link PipelinedRetrieval}.
+     *
+     * @param fromId the first {@link Message} ID
+     * @param toId the last {@link Message} ID, inclusive
+     * @return the lazily retrieved messages of the range, in ID order
+     */
+    public Stream<Message> range(long fromId, long toId) {
+        return PipelinedRetrieval.stream(fromId, toId, PipelinedRetrieval.DEFAULT_WINDOW, this::getAll);
+    }
+
+    /**
+     * Retrieve the messages published during a time range; see {@link #range(long, long)}
+     *
+     * @param from the earliest publication time
+     * @param to the latest publication time, inclusive
+     * @return the lazily retrieved messages of the range, in ID order
+     */
+    public Stream<Message> range(Instant from, Instant to) {
+        CompletableFuture<Long> fromId = findId(from.toEpochMilli());
+        CompletableFuture<Long> toId = findId(to.toEpochMilli() + 1).thenApply(id -> id - 1);
+        return PipelinedRetrieval.stream(fromId, toId, PipelinedRetrieval.DEFAULT_WINDOW, this::getAll);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -351,7 +603,7 @@ public class NdnNotificationChannel extends ChannelBase implements Filterable {
     private NdnChannelPublisher getPublisher() {
         if (!isPublishing()) {
             publisher = new NdnChannelPublisher(getNdnName(), pipeline, getEventLoop(),
-                    getNdnMarkerType(), getPersistence(), this, this);
+                    getNdnMarkerType(), getPersistence(), this, this, retention, isDeduplicating, negotiatedFormat);
         }
         return publisher;
     }
@@ -367,6 +619,15 @@ public class NdnNotificationChannel extends ChannelBase implements Filterable {
         return subscriber;
     }
 
+    /**
+     * @param id the publisher ID of an update notification
+     * @return true if the notification comes from a channel of this node whose messages are delivered in-process to
+     * the subscriptions of this channel
+     */
+    public boolean isLoopbackPublisher(long id) {
+        return loopback != null && loopback.isLocalPublisher(id, pipeline);
+    }
+
     /**
      * @return the NDN {@link net.named_data.jndn.Name}
      */
@@ -417,6 +678,14 @@ public class NdnNotificationChannel extends ChannelBase implements Filterable {
         return persistence;
     }
 
+    /**
+     * @return the negotiated format of the formatting pipeline, or null if the channel's format is not negotiated (e.g.
+     * its pipeline also encrypts or signs messages)
+     */
+    public NegotiatedFormat getNegotiatedFormat() {
+        return negotiatedFormat;
+    }
+
     /**
      * @return the formatting pipeline for serializing/deserializing messages
      */
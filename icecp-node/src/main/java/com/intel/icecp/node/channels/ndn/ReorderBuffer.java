@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.channels.ndn;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Buffer releasing items in ID order for ordered subscriptions (see {@link com.intel.icecp.core.metadata.Ordering}):
+ * items added out of order are held until the items before them are added or skipped. If an ID is still missing
+ * after the maximum hold time, or once the maximum number of items is held, the gap is skipped and the held items are
+ * released. The first ID reserved, added (or skipped) starts the sequence; items added after their ID has been released
+ * or skipped are dropped.
+ * <p>
+ * IDs should be reserved as soon as they are known (e.g. when a notification announces them, see
+ * {@link #reserve(long)}) rather than when their item arrives, so that the sequence starts at the first announced ID
+ * and the hold time of a gap runs from its announcement. If an ID goes backwards further than a reordering could
+ * explain (far more than the maximum number of held items, or after the buffer has been idle for the maximum hold time),
+ * the source is assumed to have restarted its numbering: the buffer is reset and the sequence restarts at that ID.
+ * <p>
+ * Items are passed to the consumer through the given executor, in order; use a serial executor (e.g.
+ * {@link com.intel.icecp.node.utils.SerialExecutor}) to keep them in order while the consumer runs.
+ *
+ * @param <T> the type of item
+ */
+public class ReorderBuffer<T> {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final long NO_ID = Long.MIN_VALUE;
+    private static final long NO_GAP = -1;
+    /** IDs further behind than this (or the maximum number of held items, if larger) restart the sequence */
+    private static final long RESTART_DISTANCE = 1024;
+
+    private final long maxHoldMs;
+    private final int maxSize;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final Consumer<T> consumer;
+
+    /** Held items by ID; null values mark skipped IDs. Guarded by this, as is the state below */
+    private final TreeMap<Long, T> held = new TreeMap<>();
+    /** Reserved IDs whose item has not arrived yet */
+    private final TreeSet<Long> reserved = new TreeSet<>();
+    private long nextId = NO_ID;
+    private long lastActivity;
+    private long gapSince = NO_GAP;
+    private boolean isExpiryScheduled = false;
+    private long skipped = 0;
+    private long dropped = 0;
+    private long resets = 0;
+
+    /**
+     * @param maxHoldMs the maximum time (in ms) to wait for a missing ID
+     * @param maxSize the maximum number of items held while waiting for a missing ID
+     * @param scheduler the scheduler for expiring gaps
+     * @param executor the executor passing released items to the consumer
+     * @param consumer the consumer of released items
+     */
+    public ReorderBuffer(long maxHoldMs, int maxSize, ScheduledExecutorService scheduler, Executor executor, Consumer<T> consumer) {
+        this.maxHoldMs = maxHoldMs;
+        this.maxSize = maxSize;
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Reserve an ID whose item will be added (or skipped) later, e.g. once it is retrieved; reserved IDs are waited for
+     * like missing ones
+     *
+     * @param id the announced ID
+     */
+    public synchronized void reserve(long id) {
+        if (accept(id)) {
+            reserved.add(id);
+            update();
+        } else {
+            LOGGER.debug("Ignoring reservation of ID {} that was already reserved, released or skipped", id);
+        }
+    }
+
+    /**
+     * Add an item, releasing it (and any item held after it) if all previous IDs have been released or skipped
+     *
+     * @param id the ID of the item
+     * @param item the item
+     */
+    public synchronized void add(long id, T item) {
+        if (!reserved.remove(id) && !accept(id)) {
+            LOGGER.debug("Dropping item {} received after its ID was released or skipped", id);
+            dropped++;
+            return;
+        }
+        held.put(id, item);
+        update();
+    }
+
+    /**
+     * Skip an ID that will never be added, e.g. because its retrieval failed; items held after it are released
+     * without waiting for the maximum hold time
+     *
+     * @param id the ID to skip
+     */
+    public synchronized void skip(long id) {
+        if (reserved.remove(id) || accept(id)) {
+            held.put(id, null);
+            update();
+        }
+    }
+
+    /**
+     * @return the number of IDs skipped because they were missing for too long or were reported as skipped
+     */
+    public synchronized long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return the number of items dropped because they were added after their ID was released or skipped
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return the number of times the buffer was reset because its IDs went backwards
+     */
+    public synchronized long getResets() {
+        return resets;
+    }
+
+    /**
+     * @return the number of items currently held
+     */
+    public synchronized int size() {
+        return held.size();
+    }
+
+    private boolean accept(long id) {
+        if (nextId == NO_ID) {
+            nextId = id;
+        } else if (id < nextId && isRestart(id)) {
+            LOGGER.debug("IDs went backwards from {} to {}, resetting the buffer", nextId, id);
+            resets++;
+            reset(id);
+        }
+        lastActivity = System.currentTimeMillis();
+        return id >= nextId && !held.containsKey(id) && !reserved.contains(id);
+    }
+
+    /**
+     * Release the held items of the previous sequence in order, give up on its reserved IDs and restart the sequence
+     *
+     * @param id the first ID of the new sequence
+     */
+    private void reset(long id) {
+        skipped += reserved.size();
+        reserved.clear();
+        while (!held.isEmpty()) {
+            skipGap();
+        }
+        gapSince = NO_GAP;
+        nextId = id;
+    }
+
+    /**
+     * @param id an ID before the next expected ID
+     * @return true if the ID is too far behind or arrives too late to be a reordered (or duplicated) one
+     */
+    private boolean isRestart(long id) {
+        boolean isIdle = held.isEmpty() && reserved.isEmpty();
+        return nextId - id > Math.max(maxSize, RESTART_DISTANCE) || (isIdle && System.currentTimeMillis() - lastActivity > maxHoldMs);
+    }
+
+    /**
+     * Release items in order, skip the gap if too many items are held, and track how long the current gap has lasted
+     */
+    private void update() {
+        long previousId = nextId;
+        release();
+        if (held.size() > maxSize) {
+            skipGap();
+        }
+
+        if (held.isEmpty() && reserved.isEmpty()) {
+            gapSince = NO_GAP;
+        } else if (gapSince == NO_GAP || nextId != previousId) {
+            // the hold time runs from the last progress, not from the first reservation in flight
+            gapSince = System.currentTimeMillis();
+            scheduleExpiry(maxHoldMs);
+        }
+    }
+
+    private void release() {
+        Map.Entry<Long, T> entry;
+        while ((entry = held.firstEntry()) != null && entry.getKey() == nextId) {
+            held.pollFirstEntry();
+            nextId++;
+            T item = entry.getValue();
+            if (item == null) {
+                skipped++;
+            } else {
+                executor.execute(() -> consumer.accept(item));
+            }
+        }
+    }
+
+    private void skipGap() {
+        // if only reserved IDs are waited for, give up on the first of them
+        long first = held.isEmpty() ? Math.max(reserved.first(), nextId + 1) : held.firstKey();
+        LOGGER.debug("Skipping missing IDs {} to {}", nextId, first - 1);
+        skipped += first - nextId;
+        reserved.headSet(first).clear();
+        nextId = first;
+        release();
+        gapSince = held.isEmpty() && reserved.isEmpty() ? NO_GAP : System.currentTimeMillis();
+    }
+
+    private void scheduleExpiry(long delay) {
+        if (!isExpiryScheduled) {
+            isExpiryScheduled = true;
+            scheduler.schedule(this::expire, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Skip the current gap if it has lasted for the maximum hold time; otherwise check again once it would have
+     */
+    private synchronized void expire() {
+        isExpiryScheduled = false;
+        if (gapSince == NO_GAP) {
+            return;
+        }
+
+        long remaining = gapSince + maxHoldMs - System.currentTimeMillis();
+        if (remaining <= 0) {
+            skipGap();
+            remaining = maxHoldMs;
+        }
+        if (gapSince != NO_GAP) {
+            scheduleExpiry(remaining);
+        }
+    }
+}
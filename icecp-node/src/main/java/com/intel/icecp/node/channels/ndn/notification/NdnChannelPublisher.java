@@ -19,10 +19,17 @@ import com.intel.icecp.core.Message;
 import com.intel.icecp.core.channels.OnLatest;
 import com.intel.icecp.core.event.EventObservable;
 import com.intel.icecp.core.metadata.Persistence;
+import com.intel.icecp.core.metadata.formats.NegotiatedFormat;
 import com.intel.icecp.core.pipeline.Pipeline;
+import com.intel.icecp.node.channels.ndn.DiskRetention;
+import com.intel.icecp.node.channels.ndn.FormatsRequestHandler;
+import com.intel.icecp.node.channels.ndn.IndexRequestHandler;
 import com.intel.icecp.node.channels.ndn.MessageCache;
 import com.intel.icecp.node.channels.ndn.MessageRequestHandler;
 import com.intel.icecp.node.channels.ndn.NdnNotificationChannel;
+import com.intel.icecp.node.pipeline.PipelineImpl;
+import com.intel.icecp.node.pipeline.operations.DeltaEncodingOperation;
+import com.intel.icecp.node.utils.MemoryGovernor;
 import net.named_data.jndn.Data;
 import net.named_data.jndn.InterestFilter;
 import net.named_data.jndn.Name;
@@ -34,7 +41,7 @@ import java.util.concurrent.ExecutorService;
 /**
  * Manage all publishing of {@link Message}s on an {@link com.intel.icecp.node.channels.ndn.NdnNotificationChannel}; this
  * class is now factored out into {@link MessageCache} and {@link MessageRequestHandler} for use with other channel
- * types.
+ * types. Messages are encoded once, as they are added, and every request is answered with the same bytes.
  *
  */
 public class NdnChannelPublisher {
@@ -42,6 +49,7 @@ public class NdnChannelPublisher {
     private static final int MAX_CACHED_MESSAGES = 65536;
     private final MessageCache cache;
     private final MessageRequestHandler handler;
+    private final DeltaEncodingOperation delta;
 
     /**
      * Creates a new instance of <code>NdnChannelPublisher</code>
@@ -55,11 +63,73 @@ public class NdnChannelPublisher {
      * @param filterable the object on which to add the NDN filters
      */
     public NdnChannelPublisher(Name prefix, Pipeline<Message, InputStream> pipeline, ExecutorService pool, int marker, Persistence persistence, EventObservable observable, Filterable filterable) {
-        this.cache = new MessageCache(persistence.persistFor, MAX_CACHED_MESSAGES);
+        this(prefix, pipeline, pool, marker, persistence, observable, filterable, null);
+    }
+
+    /**
+     * Creates a new instance of <code>NdnChannelPublisher</code> that may retain its messages on disk
+     *
+     * @param prefix the NDN prefix of the channel; for building response packets and filtering
+     * @param pipeline the operations necessary for converting {@link Message}s to bytes for transmission
+     * @param pool the thread pool in which to run the encoding and transmission tasks
+     * @param marker the NDN component tag identifying a message ID
+     * @param persistence the channel persistence
+     * @param observable the observer helper; for alerting watchers to internal events
+     * @param filterable the object on which to add the NDN filters
+     * @param retention the node's disk retention policy, or null to retain messages in memory only
+     */
+    public NdnChannelPublisher(Name prefix, Pipeline<Message, InputStream> pipeline, ExecutorService pool, int marker, Persistence persistence, EventObservable observable, Filterable filterable, DiskRetention retention) {
+        this(prefix, pipeline, pool, marker, persistence, observable, filterable, retention, false);
+    }
+
+    /**
+     * Creates a new instance of <code>NdnChannelPublisher</code> that may retain its messages on disk and share the
+     * payloads of byte-identical messages
+     *
+     * @param prefix the NDN prefix of the channel; for building response packets and filtering
+     * @param pipeline the operations necessary for converting {@link Message}s to bytes for transmission
+     * @param pool the thread pool in which to run the encoding and transmission tasks
+     * @param marker the NDN component tag identifying a message ID
+     * @param persistence the channel persistence
+     * @param observable the observer helper; for alerting watchers to internal events
+     * @param filterable the object on which to add the NDN filters
+     * @param retention the node's disk retention policy, or null to retain messages in memory only
+     * @param deduplicate true to share the payloads of byte-identical messages, see
+     * {@link com.intel.icecp.core.metadata.Deduplication}
+     */
+    public NdnChannelPublisher(Name prefix, Pipeline<Message, InputStream> pipeline, ExecutorService pool, int marker, Persistence persistence, EventObservable observable, Filterable filterable, DiskRetention retention, boolean deduplicate) {
+        this(prefix, pipeline, pool, marker, persistence, observable, filterable, retention, deduplicate, null);
+    }
+
+    /**
+     * Creates a new instance of <code>NdnChannelPublisher</code> that may also advertise the formats of a negotiated
+     * format and encode messages in the format requested by subscribers
+     *
+     * @param prefix the NDN prefix of the channel; for building response packets and filtering
+     * @param pipeline the operations necessary for converting {@link Message}s to bytes for transmission
+     * @param pool the thread pool in which to run the encoding and transmission tasks
+     * @param marker the NDN component tag identifying a message ID
+     * @param persistence the channel persistence
+     * @param observable the observer helper; for alerting watchers to internal events
+     * @param filterable the object on which to add the NDN filters
+     * @param retention the node's disk retention policy, or null to retain messages in memory only
+     * @param deduplicate true to share the payloads of byte-identical messages, see
+     * {@link com.intel.icecp.core.metadata.Deduplication}
+     * @param negotiated the format of the pipeline if it is negotiated with subscribers, or null
+     */
+    public NdnChannelPublisher(Name prefix, Pipeline<Message, InputStream> pipeline, ExecutorService pool, int marker, Persistence persistence, EventObservable observable, Filterable filterable, DiskRetention retention, boolean deduplicate, NegotiatedFormat negotiated) {
+        MemoryGovernor governor = MemoryGovernor.getDefault();
+        this.cache = retention != null ? retention.createCache(prefix, persistence, pipeline, MAX_CACHED_MESSAGES, governor, deduplicate)
+                : new MessageCache(persistence.persistFor, MAX_CACHED_MESSAGES, governor, prefix.toUri(), pipeline, deduplicate);
+        this.delta = pipeline instanceof PipelineImpl ? ((PipelineImpl<?, ?>) pipeline).find(DeltaEncodingOperation.class) : null;
 
         // append filter to avoid metadata and update requests
-        handler = new MessageRequestHandler(buildDataTemplate(prefix, persistence), cache, marker, pipeline, pool, observable);
+        handler = new MessageRequestHandler(buildDataTemplate(prefix, persistence), cache, marker, pipeline, pool, observable, negotiated);
         filterable.addFilter(buildDataFilter(prefix), handler);
+        filterable.addFilter(new InterestFilter(new Name(prefix).append(NdnNotificationChannel.INDEX_SUFFIX)), new IndexRequestHandler(cache));
+        if (negotiated != null) {
+            filterable.addFilter(new InterestFilter(new Name(prefix).append(NdnNotificationChannel.FORMATS_SUFFIX)), new FormatsRequestHandler(negotiated.getMimeTypes()));
+        }
     }
 
     /**
@@ -92,7 +162,10 @@ public class NdnChannelPublisher {
      * @param id the unique identifier for a {@link Message}
      * @param message the {@link Message} to publish
      */
-    public void addMessage(long id, Message message) {
+    public synchronized void addMessage(long id, Message message) {
+        if (delta != null) {
+            delta.setMessageId(id); // keyframes are identified by the ID they are published under
+        }
         cache.add(id, message);
     }
 
@@ -122,7 +195,7 @@ public class NdnChannelPublisher {
     /**
      * @return the latest available {@link Message} ID for this publisher or -1 if there are no messages
      */
-    long getLatestIdAvailable() {
+    public long getLatestIdAvailable() {
         return cache.latest();
     }
 
@@ -142,6 +215,13 @@ public class NdnChannelPublisher {
         return cache.clean();
     }
 
+    /**
+     * Release the message cache; messages retained on disk remain available to the next publisher of the channel
+     */
+    public void close() {
+        cache.close();
+    }
+
     /**
      * Set the OnLatest handler for responding dynamically to requests
      *
@@ -18,9 +18,12 @@ package com.intel.icecp.node.channels.ndn.notification;
 import com.intel.icecp.core.Message;
 import com.intel.icecp.core.event.types.MessageRequestedEvent;
 import com.intel.icecp.core.event.types.ReceivedMessageEvent;
+import com.intel.icecp.core.metadata.formats.NegotiatedFormat;
 import com.intel.icecp.core.misc.ChannelIOException;
+import com.intel.icecp.node.channels.ndn.FormatsRequestHandler;
 import com.intel.icecp.node.channels.ndn.MessageDeserializer;
 import com.intel.icecp.node.channels.ndn.NdnNotificationChannel;
+import com.intel.icecp.node.pipeline.operations.MissingKeyframeException;
 import com.intel.jndn.utils.Client;
 import com.intel.jndn.utils.client.impl.AdvancedClient;
 import net.named_data.jndn.Data;
@@ -30,10 +33,21 @@ import net.named_data.jndn.encoding.EncodingException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
- * Manage {@link Message} retrieval on an {@link NdnNotificationChannel}.
+ * Manage {@link Message} retrieval on an {@link NdnNotificationChannel}. If the channel's format is negotiated (see
+ * {@link NdnNotificationChannel#getNegotiatedFormat()}), the publisher's formats are requested and messages are then
+ * requested in the most preferred of them; until the publisher answers (e.g. it has not started yet, or it does not
+ * advertise its formats), messages are sent plain requests, answered in the publisher's default format, and the
+ * formats are requested again with the next message.
+ * <p>
+ * Messages that cannot be decoded because they are diffs against a keyframe this subscriber has not received (see
+ * {@link com.intel.icecp.node.pipeline.operations.DeltaEncodingOperation}) are decoded again once the keyframe message
+ * is retrieved.
  *
  */
 public class NdnChannelSubscriber {
@@ -41,6 +55,7 @@ public class NdnChannelSubscriber {
     private static final Logger LOGGER = LogManager.getLogger();
     private final NdnNotificationChannel channel;
     private final Client client;
+    private CompletableFuture<Name.Component> requestedFormat;
 
     /**
      * Creates a new instance of <code>NdnChannelPublisher</code>
@@ -48,8 +63,16 @@ public class NdnChannelSubscriber {
      * @param channel the channel this subscriber will request for
      */
     public NdnChannelSubscriber(NdnNotificationChannel channel) {
+        this(channel, AdvancedClient.getDefault());
+    }
+
+    /**
+     * @param channel the channel this subscriber will request for
+     * @param client the client sending the requests
+     */
+    NdnChannelSubscriber(NdnNotificationChannel channel, Client client) {
         this.channel = channel;
-        this.client = AdvancedClient.getDefault();
+        this.client = client;
     }
 
     /**
@@ -57,10 +80,100 @@ public class NdnChannelSubscriber {
      * @return a future {@link Message} from the network
      */
     public CompletableFuture<Message> getMessage(long id) {
+        return decode(requestMessage(id), new MessageDeserializer<Message>(channel.getFormattingPipeline()));
+    }
+
+    /**
+     * @param id the unique identifier for a {@link Message} or {@link com.intel.icecp.node.channels.ndn.MessageBatch}
+     * @return the future list of {@link Message}s published under this ID, in publication order
+     */
+    public CompletableFuture<List<Message>> getMessages(long id) {
+        MessageDeserializer<Message> deserializer = new MessageDeserializer<>(channel.getFormattingPipeline());
+        return decode(requestMessage(id), deserializer::applyAll);
+    }
+
+    /**
+     * @param id the unique identifier for a {@link Message}
+     * @return the future packet holding all of the message content
+     */
+    private CompletableFuture<Data> requestMessage(long id) {
         channel.notifyApplicableObservers(new MessageRequestedEvent(id));
 
-        Name.Component marker = Name.Component.fromNumberWithMarker(id, channel.getNdnMarkerType());
-        Interest interest = new Interest(new Name(channel.getNdnName()).append(NdnNotificationChannel.DATA_SUFFIX).append(marker));
+        return getRequestedFormat().thenCompose(format -> {
+            Name.Component marker = Name.Component.fromNumberWithMarker(id, channel.getNdnMarkerType());
+            Name name = new Name(channel.getNdnName()).append(NdnNotificationChannel.DATA_SUFFIX).append(marker);
+            if (format != null) {
+                name.append(format);
+            }
+            Interest interest = new Interest(name);
+            interest.setMustBeFresh(true);
+
+            // set interest lifetime
+            if (channel.getPersistence().hasRetrievalLifetime()) {
+                interest.setInterestLifetimeMilliseconds(channel.getPersistence().retrieveUnder);
+            }
+
+            // send out interest packets
+            LOGGER.debug(String.format("Requesting message %d: %s", id, interest.toUri()));
+            return client.getAsync(channel.getInterestFace(), interest);
+        });
+    }
+
+    /**
+     * Request the publisher's formats and pick the most preferred of them; only a reply is kept, so that a failed
+     * request (e.g. a timeout, or no publisher yet) is sent again with the next message
+     *
+     * @return the future name component requesting the negotiated format, or null to request the publisher's default
+     * format (the channel's format is not negotiated, the publisher did not answer or prefers the same one)
+     */
+    private synchronized CompletableFuture<Name.Component> getRequestedFormat() {
+        if (requestedFormat != null) {
+            return requestedFormat;
+        }
+
+        NegotiatedFormat negotiated = channel.getNegotiatedFormat();
+        if (negotiated == null) {
+            requestedFormat = CompletableFuture.completedFuture(null);
+            return requestedFormat;
+        }
+
+        Interest interest = new Interest(new Name(channel.getNdnName()).append(NdnNotificationChannel.FORMATS_SUFFIX));
+        interest.setMustBeFresh(true);
+        interest.setInterestLifetimeMilliseconds(NdnNotificationChannel.LATEST_REQUEST_LIFETIME);
+
+        LOGGER.debug("Requesting publisher formats: {}", interest.toUri());
+        CompletableFuture<Name.Component> pending = new CompletableFuture<>();
+        requestedFormat = pending;
+        client.getAsync(channel.getInterestFace(), interest).whenComplete((data, error) -> {
+            if (error != null) {
+                LOGGER.debug("Publisher did not answer with its formats, requesting the default format: {}", interest.toUri());
+                forgetRequestedFormat(pending);
+                pending.complete(null);
+                return;
+            }
+            String format = negotiated.negotiate(FormatsRequestHandler.parse(data.getContent().getImmutableArray()));
+            LOGGER.debug("Negotiated format {} for channel: {}", format, channel);
+            pending.complete(format == null ? null : new Name.Component(format));
+        });
+        return pending;
+    }
+
+    /**
+     * @param failed the format request that failed; it is forgotten unless a newer request replaced it
+     */
+    private synchronized void forgetRequestedFormat(CompletableFuture<Name.Component> failed) {
+        if (requestedFormat == failed) {
+            requestedFormat = null;
+        }
+    }
+
+    /**
+     * @param timestamp the publication time, in ms since the epoch
+     * @return the future ID of the first message published at or after the given time or, if there is none, the ID
+     * following the latest message
+     */
+    public CompletableFuture<Long> findId(long timestamp) {
+        Interest interest = new Interest(new Name(channel.getNdnName()).append(NdnNotificationChannel.INDEX_SUFFIX).append(Name.Component.fromNumber(timestamp)));
         interest.setMustBeFresh(true);
 
         // set interest lifetime
@@ -68,10 +181,8 @@ public class NdnChannelSubscriber {
             interest.setInterestLifetimeMilliseconds(channel.getPersistence().retrieveUnder);
         }
 
-        // send out interest packets
-        LOGGER.debug(String.format("Requesting message %d: %s", id, interest.toUri()));
-        CompletableFuture<Data> futurePacket = client.getAsync(channel.getInterestFace(), interest);
-        return futurePacket.thenApply(new MessageDeserializer(channel.getFormattingPipeline()));
+        LOGGER.debug("Requesting message index: {}", interest.toUri());
+        return client.getAsync(channel.getInterestFace(), interest).thenApply(data -> ByteBuffer.wrap(data.getContent().getImmutableArray()).getLong());
     }
 
     /**
@@ -94,7 +205,7 @@ public class NdnChannelSubscriber {
         // send out interest packets
         LOGGER.debug(String.format("Requesting latest message: %s", interest.toUri()));
         CompletableFuture<Data> futurePacket = client.getAsync(channel.getInterestFace(), interest);
-        return futurePacket.thenApply(new MessageDeserializer(channel.getFormattingPipeline()));
+        return decode(futurePacket, new MessageDeserializer<Message>(channel.getFormattingPipeline()));
     }
 
     /**
@@ -117,7 +228,45 @@ public class NdnChannelSubscriber {
         // send out interest packets
         LOGGER.debug("Requesting earliest message: {}", interest.toUri());
         CompletableFuture<Data> futurePacket = client.getAsync(channel.getInterestFace(), interest);
-        return futurePacket.thenApply(new MessageDeserializer(channel.getFormattingPipeline()));
+        MessageDeserializer<Message> deserializer = new MessageDeserializer<>(channel.getFormattingPipeline());
+        return decode(futurePacket, data -> deserializer.applyAll(data).get(0));
+    }
+
+    /**
+     * Decode a retrieved packet; if the packet is a diff against a keyframe that has not been received, retrieve the
+     * keyframe message (decoding it retains the keyframe in the channel pipeline) and decode the packet again
+     *
+     * @param packet the future packet holding all of the message content
+     * @param deserializer the function decoding the packet
+     * @param <R> the decoded type
+     * @return the future decoded packet
+     */
+    private <R> CompletableFuture<R> decode(CompletableFuture<Data> packet, Function<Data, R> deserializer) {
+        return packet.thenCompose(data -> {
+            try {
+                return CompletableFuture.completedFuture(deserializer.apply(data));
+            } catch (RuntimeException ex) {
+                MissingKeyframeException missing = findMissingKeyframe(ex);
+                if (missing == null) {
+                    throw ex;
+                }
+                LOGGER.debug("Retrieving keyframe {} to decode message: {}", missing.getKeyframeId(), data.getName());
+                MessageDeserializer<Message> keyframeDeserializer = new MessageDeserializer<>(channel.getFormattingPipeline());
+                return requestMessage(missing.getKeyframeId()).thenApply(keyframe -> {
+                    keyframeDeserializer.applyAll(keyframe);
+                    return deserializer.apply(data);
+                });
+            }
+        });
+    }
+
+    private static MissingKeyframeException findMissingKeyframe(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MissingKeyframeException) {
+                return (MissingKeyframeException) cause;
+            }
+        }
+        return null;
     }
 
     /**
@@ -17,8 +17,11 @@
 package com.intel.icecp.node.channels.ndn.notification;
 
 import com.intel.icecp.core.Message;
+import com.intel.icecp.core.metadata.Ordering;
 import com.intel.icecp.core.misc.OnPublish;
 import com.intel.icecp.node.channels.ndn.NdnNotificationChannel;
+import com.intel.icecp.node.channels.ndn.ReorderBuffer;
+import com.intel.icecp.node.utils.CallbackPool;
 import net.named_data.jndn.Face;
 import net.named_data.jndn.Interest;
 import net.named_data.jndn.InterestFilter;
@@ -28,12 +31,30 @@ import net.named_data.jndn.encoding.EncodingException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
- * Upon receiving published messages, run the registered callbacks in the thread pool. This class makes an attempt to
- * setup the thread's context class loader correctly and log any exceptions thrown from the callback. TODO measure the
- * amount of time spent in the callback and flag callbacks that are too long.
+ * Upon receiving published messages, run the registered callbacks on the node's {@link CallbackPool} rather than the
+ * channel's event loop, so that slow callbacks do not delay network IO. Callbacks of a subscription run one at a time,
+ * in the order their messages are retrieved; the pool logs callbacks that take too long and, for conflating
+ * subscriptions only, bounds the callbacks waiting (other subscriptions never drop a message). This class makes an
+ * attempt to setup the thread's context class loader correctly and log any exceptions thrown from the callback.
+ * <p>
+ * In conflating mode (see {@link com.intel.icecp.core.metadata.Conflation}), at most one message is retrieved and
+ * processed at a time; versions announced meanwhile replace each other so that only the newest is retrieved next, and
+ * the replaced versions are counted in {@link #getSkippedVersions()}. In ordered mode (see {@link Ordering}), retrieved
+ * messages pass through a {@link ReorderBuffer} per publisher and callbacks run one at a time, in the version order of
+ * each publisher; versions are reserved in the buffer when announced, not when retrieved. Conflating mode takes
+ * precedence if both are enabled.
+ * <p>
+ * Notifications may identify their publisher (/channel/update/[publisher ID]/[version]); notifications from publishers
+ * of the same node are ignored, since their messages are delivered in-process through {@link #onLocalPublish(long,
+ * long, List)} (see {@link com.intel.icecp.node.channels.ndn.NdnLoopback}).
  *
  */
 public class OnPublishNotification implements OnInterestCallback {
@@ -41,22 +62,81 @@ public class OnPublishNotification implements OnInterestCallback {
     private static final Logger logger = LogManager.getLogger();
     private final OnPublish<Message> onPublish;
     private final OnCallbackFailure onCallbackFailure;
+    private static final long NO_VERSION = -1;
+    /** Buffer key of notifications that do not identify their publisher */
+    private static final long UNKNOWN_PUBLISHER = -1;
     private final NdnNotificationChannel channel;
+    private final boolean isConflating;
+    private final AtomicLong skippedVersions = new AtomicLong();
+    private final Ordering ordering;
+    private final Map<Long, ReorderBuffer<List<Message>>> reorderBuffers = new ConcurrentHashMap<>();
+    private final CallbackPool.Subscription callbacks;
+
+    /** Conflating state, guarded by this */
+    private long newestVersion = NO_VERSION;
+    private long pendingVersion = NO_VERSION;
+    private Supplier<CompletableFuture<List<Message>>> pendingRetrieval;
+    private boolean isDelivering = false;
 
     /**
      * @param channel the current NDN channel context; need at least the thread pool
      * @param onPublish the callback to call once the remote message is retrieved
      * @param onCallbackFailure the callback to call if {@link #onPublish} fails
+     * @param isConflating true to skip intermediate versions announced while a message is retrieved or processed
+     * @param ordering the ordering of delivered messages, or null to deliver messages as they are retrieved
      */
-    public OnPublishNotification(NdnNotificationChannel channel, OnPublish<Message> onPublish, OnCallbackFailure onCallbackFailure) {
+    public OnPublishNotification(NdnNotificationChannel channel, OnPublish<Message> onPublish, OnCallbackFailure onCallbackFailure, boolean isConflating, Ordering ordering) {
         this.onPublish = onPublish;
         this.onCallbackFailure = onCallbackFailure;
         this.channel = channel;
+        this.isConflating = isConflating;
+        this.callbacks = isConflating ? CallbackPool.getDefault().newConflatingExecutor(channel.getName().toString())
+                : CallbackPool.getDefault().newExecutor(channel.getName().toString());
+        this.ordering = isConflating ? null : ordering;
+    }
+
+    /**
+     * @param channel the current NDN channel context; need at least the thread pool
+     * @param onPublish the callback to call once the remote message is retrieved
+     * @param onCallbackFailure the callback to call if {@link #onPublish} fails
+     * @param isConflating true to skip intermediate versions announced while a message is retrieved or processed
+     */
+    public OnPublishNotification(NdnNotificationChannel channel, OnPublish<Message> onPublish, OnCallbackFailure onCallbackFailure, boolean isConflating) {
+        this(channel, onPublish, onCallbackFailure, isConflating, null);
+    }
+
+    /**
+     * @param channel the current NDN channel context; need at least the thread pool
+     * @param onPublish the callback to call once the remote message is retrieved
+     * @param onCallbackFailure the callback to call if {@link #onPublish} fails
+     */
+    public OnPublishNotification(NdnNotificationChannel channel, OnPublish<Message> onPublish, OnCallbackFailure onCallbackFailure) {
+        this(channel, onPublish, onCallbackFailure, false);
+    }
+
+    /**
+     * @return the number of announced versions skipped in conflating mode, or skipped by the reorder buffers in ordered
+     * mode
+     */
+    public long getSkippedVersions() {
+        long skipped = skippedVersions.get();
+        for (ReorderBuffer<List<Message>> buffer : reorderBuffers.values()) {
+            skipped += buffer.getSkipped() + buffer.getDropped();
+        }
+        return skipped;
+    }
+
+    /**
+     * @return the number of retrieved versions whose callbacks were dropped because too many callbacks were waiting;
+     * always 0 unless conflating
+     */
+    public long getDroppedCallbacks() {
+        return callbacks.getDropped();
     }
 
     /**
      * Handle incoming notifications from the publisher by extracting the message version and asking for that complete
-     * message
+     * message; if the publisher batches messages, the callback is called once per message of the batch
      *
      * @param prefix the NDN prefix
      * @param interest the NDN interest
@@ -69,25 +149,154 @@ public class OnPublishNotification implements OnInterestCallback {
         logger.trace("Notification received.");
 
         final long version;
+        final long publisherId;
         try {
             version = interest.getName().get(-1).toVersion();
+            publisherId = getPublisherId(interest.getName());
+            if (publisherId != UNKNOWN_PUBLISHER && channel.isLoopbackPublisher(publisherId)) {
+                logger.trace("Ignoring notification from local publisher: {}", interest.toUri());
+                return;
+            }
         } catch (EncodingException e) {
             logger.error("Failed to parse version from notification on channel: " + prefix.toUri(), e);
             return;
         }
 
         logger.trace("Running OnPublishNotification task: " + interest.toUri());
-        CompletableFuture<Message> future = channel.get(version);
-        future.thenAcceptAsync(message -> {
-            Thread.currentThread().setContextClassLoader(onPublish.getClass().getClassLoader());
-            try {
-                onPublish.onPublish(message);
-            } catch (Throwable t) {
-                if (onCallbackFailure != null) {
-                    onCallbackFailure.onCallbackFailure(t);
+        onVersion(publisherId, version, () -> channel.getAll(version));
+    }
+
+    /**
+     * Deliver messages published on this node without retrieving them from the network
+     *
+     * @param publisherId the ID of the publishing channel
+     * @param version the version of the messages
+     * @param messages the published messages
+     */
+    public void onLocalPublish(long publisherId, long version, List<Message> messages) {
+        onVersion(publisherId, version, () -> CompletableFuture.completedFuture(messages));
+    }
+
+    /**
+     * @param name the notification name
+     * @return the publisher ID of the notification, or {@link #UNKNOWN_PUBLISHER} if it does not name its publisher
+     * @throws EncodingException if the publisher ID cannot be parsed
+     */
+    private long getPublisherId(Name name) throws EncodingException {
+        // /channel/name/update/[publisher ID]/[version]
+        return name.size() == channel.getNdnName().size() + 3 ? name.get(-2).toNumber() : UNKNOWN_PUBLISHER;
+    }
+
+    /**
+     * Retrieve and deliver the messages of a version according to the subscription mode
+     *
+     * @param publisherId the ID of the publisher announcing the version
+     * @param version the announced version
+     * @param retrieval retrieves the messages of the version
+     */
+    private void onVersion(long publisherId, long version, Supplier<CompletableFuture<List<Message>>> retrieval) {
+        if (isConflating) {
+            conflate(version, retrieval);
+            return;
+        }
+
+        if (ordering != null) {
+            ReorderBuffer<List<Message>> reorderBuffer = reorderBuffers.computeIfAbsent(publisherId, id -> new ReorderBuffer<>(
+                    ordering.maxHoldMs, ordering.maxBuffered, channel.getEventLoop(), callbacks, messages -> messages.forEach(this::deliver)));
+            reorderBuffer.reserve(version);
+            retrieval.get().whenComplete((messages, error) -> {
+                if (error != null) {
+                    logger.error("Failed to retrieve version {} on channel: {}", version, channel, error);
+                    reorderBuffer.skip(version);
+                } else {
+                    reorderBuffer.add(version, messages);
                 }
+            });
+            return;
+        }
+
+        CompletableFuture<List<Message>> future = retrieval.get();
+        future.thenAcceptAsync(messages -> {
+            for (Message message : messages) {
+                deliver(message);
             }
-        }, channel.getEventLoop());
+        }, callbacks);
+    }
+
+    /**
+     * Retrieve the announced version now if nothing is being delivered, otherwise make it the next version to retrieve
+     * and skip the version it replaces; versions older than the newest announced are skipped as well
+     *
+     * @param version the announced version
+     * @param retrieval retrieves the messages of the version
+     */
+    private void conflate(long version, Supplier<CompletableFuture<List<Message>>> retrieval) {
+        synchronized (this) {
+            if (version <= newestVersion) {
+                skippedVersions.incrementAndGet();
+                return;
+            }
+            newestVersion = version;
+
+            if (isDelivering) {
+                if (pendingVersion != NO_VERSION) {
+                    logger.trace("Skipping version {} on channel: {}", pendingVersion, channel);
+                    skippedVersions.incrementAndGet();
+                }
+                pendingVersion = version;
+                pendingRetrieval = retrieval;
+                return;
+            }
+            isDelivering = true;
+        }
+
+        deliverConflated(version, retrieval);
+    }
+
+    /**
+     * Retrieve and deliver the newest message of the version (the last message of a batch), then continue with the
+     * pending version, if any
+     *
+     * @param version the version to retrieve
+     * @param retrieval retrieves the messages of the version
+     */
+    private void deliverConflated(long version, Supplier<CompletableFuture<List<Message>>> retrieval) {
+        retrieval.get().whenCompleteAsync((messages, error) -> {
+            if (error != null) {
+                logger.error("Failed to retrieve version {} on channel: {}", version, channel, error);
+            } else {
+                deliver(messages.get(messages.size() - 1));
+            }
+
+            long next;
+            Supplier<CompletableFuture<List<Message>>> nextRetrieval;
+            synchronized (this) {
+                next = pendingVersion;
+                nextRetrieval = pendingRetrieval;
+                pendingVersion = NO_VERSION;
+                pendingRetrieval = null;
+                isDelivering = next != NO_VERSION;
+            }
+            if (next != NO_VERSION) {
+                deliverConflated(next, nextRetrieval);
+            }
+        }, callbacks);
+    }
+
+    /**
+     * Call the {@link OnPublish} callback, reporting its failures
+     *
+     * @param message the retrieved message
+     */
+    private void deliver(Message message) {
+        Thread.currentThread().setContextClassLoader(onPublish.getClass().getClassLoader());
+        try {
+            onPublish.onPublish(message);
+        } catch (Throwable t) {
+            if (onCallbackFailure != null) {
+                onCallbackFailure.onCallbackFailure(t);
+            }
+        }
     }
 
     /**
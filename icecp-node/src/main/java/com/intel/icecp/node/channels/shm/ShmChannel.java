@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.channels.shm;
+
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.channels.ChannelBase;
+import com.intel.icecp.core.metadata.Persistence;
+import com.intel.icecp.core.misc.ChannelIOException;
+import com.intel.icecp.core.misc.ChannelLifetimeException;
+import com.intel.icecp.core.misc.OnPublish;
+import com.intel.icecp.core.permissions.ChannelPermission;
+import com.intel.icecp.core.pipeline.Pipeline;
+import com.intel.icecp.core.pipeline.exception.PipelineException;
+import com.intel.icecp.node.utils.SecurityUtils;
+import com.intel.icecp.node.utils.StreamUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Channel between the node processes of a host: all shm channels with the same name, in any process, share a
+ * memory-mapped {@link ShmRing} file, so messages are exchanged without going through the socket stack. A single
+ * channel on the host may publish at a time, even among the channels of a process (the first to publish holds the
+ * writer lock until it closes; closing another channel does not release it); any number may subscribe. Messages are serialized with the channel pipeline, as for network channels.
+ * <p>
+ * Each subscription reads the ring on its own thread, waiting for new messages with the provider's
+ * {@link WaitStrategy}, and calls its callback on that thread in publication order. A subscriber that falls more than
+ * the ring capacity behind skips the overwritten messages; see {@link #getDroppedMessages()}.
+ *
+ */
+public class ShmChannel extends ChannelBase {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final long LATEST_POLL_INTERVAL_MS = 1;
+    private final ShmRing ring;
+    private final Persistence persistence;
+    private final WaitStrategy waitStrategy;
+    private final ScheduledExecutorService eventLoop;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean opened = false;
+    private volatile boolean publishing = false;
+    /** System time (in ms) until which messages published by this channel are retained */
+    private volatile long retainedUntil = 0;
+    private volatile long closeScheduledUntil = 0;
+
+    /**
+     * @param name the channel name
+     * @param pipeline the pipeline for serializing/deserializing messages
+     * @param ring the ring shared by the shm channels with this name
+     * @param persistence the time to retain messages, within the limits of the ring capacity
+     * @param waitStrategy how subscriptions wait for new messages
+     * @param eventLoop the event loop used to wait for {@link #latest()} messages
+     */
+    protected ShmChannel(URI name, Pipeline pipeline, ShmRing ring, Persistence persistence, WaitStrategy waitStrategy, ScheduledExecutorService eventLoop) {
+        super(name, pipeline);
+        this.ring = ring;
+        this.persistence = persistence;
+        this.waitStrategy = waitStrategy;
+        this.eventLoop = eventLoop;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * As with other channels, a closed channel cannot be re-opened until the messages it published have expired.
+     */
+    @Override
+    public CompletableFuture<Void> open() throws ChannelLifetimeException {
+        SecurityUtils.checkPermission(new ChannelPermission(getName(), "open"));
+        if (System.currentTimeMillis() < closeScheduledUntil) {
+            throw new ChannelLifetimeException("Failed to open channel, channel is scheduled to be closed: " + this);
+        }
+
+        opened = true;
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isOpen() {
+        return opened;
+    }
+
+    /**
+     * Stop the subscriptions of this channel and release the writer lock; messages it published remain in the ring
+     * until they are overwritten
+     */
+    @Override
+    public void close() throws ChannelLifetimeException {
+        SecurityUtils.checkPermission(new ChannelPermission(getName(), "close"));
+        LOGGER.debug("Closing channel: {}", this);
+
+        for (Subscription subscription : subscriptions) {
+            subscription.stop();
+        }
+        subscriptions.clear();
+
+        if (publishing) {
+            try {
+                ring.releaseWriter(this);
+            } catch (IOException e) {
+                throw new ChannelLifetimeException("Failed to release the writer lock of channel: " + this, e);
+            }
+            if (retainedUntil > System.currentTimeMillis()) {
+                closeScheduledUntil = retainedUntil;
+            }
+        }
+        opened = false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void publish(Message message) throws ChannelIOException {
+        SecurityUtils.checkPermission(new ChannelPermission(getName(), "publish"));
+        if (message == null) {
+            throw new ChannelIOException("Cannot publish a null message on channel: " + this);
+        }
+
+        try {
+            if (!ring.tryAcquireWriter(this)) {
+                throw new ChannelIOException("Another channel of this host (or process) is publishing on channel: " + this);
+            }
+            byte[] payload = StreamUtils.readAll((InputStream) pipeline.execute(message));
+            if (payload.length > ring.getMaxPayloadSize()) {
+                throw new ChannelIOException("Message of " + payload.length + " bytes exceeds the maximum of " + ring.getMaxPayloadSize() + " bytes on channel: " + this);
+            }
+            long now = System.currentTimeMillis();
+            long expiresAt = persistence.persistFor > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + persistence.persistFor;
+            ring.append(this, payload, expiresAt);
+            publishing = true;
+            retainedUntil = expiresAt;
+        } catch (PipelineException | IOException e) {
+            throw new ChannelIOException("Failed to publish to channel: " + this, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isPublishing() {
+        return publishing;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void subscribe(OnPublish callback) throws ChannelIOException {
+        SecurityUtils.checkPermission(new ChannelPermission(getName(), "subscribe"));
+        LOGGER.debug("Subscribing to channel: {}", this);
+
+        Subscription subscription = new Subscription(callback);
+        subscriptions.add(subscription);
+        Thread thread = new Thread(subscription);
+        thread.setName(getClass().getSimpleName() + ": " + getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSubscribing() {
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If no unexpired message is in the ring, completes with the next published message or fails with a
+     * {@link TimeoutException} after the retrieval lifetime.
+     */
+    @Override
+    public CompletableFuture<Message> latest() throws ChannelIOException {
+        SecurityUtils.checkPermission(new ChannelPermission(getName(), "subscribe"));
+
+        ShmRing.Record latest = ring.latest();
+        if (latest != null) {
+            try {
+                return CompletableFuture.completedFuture(decode(latest));
+            } catch (PipelineException e) {
+                throw new ChannelIOException("Failed to decode latest message of channel: " + this, e);
+            }
+        }
+
+        CompletableFuture<Message> request = new CompletableFuture<>();
+        ShmRing.Cursor cursor = ring.newCursor();
+        ScheduledFuture<?> poll = eventLoop.scheduleWithFixedDelay(() -> {
+            ShmRing.Record record = cursor.poll();
+            if (record != null) {
+                try {
+                    request.complete(decode(record));
+                } catch (PipelineException e) {
+                    request.completeExceptionally(e);
+                }
+            }
+        }, LATEST_POLL_INTERVAL_MS, LATEST_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        request.whenComplete((message, error) -> poll.cancel(false));
+        if (persistence.hasRetrievalLifetime()) {
+            eventLoop.schedule(() -> request.completeExceptionally(new TimeoutException("No message published on channel " + this + " within " + persistence.retrieveUnder + "ms")),
+                    persistence.retrieveUnder, TimeUnit.MILLISECONDS);
+        }
+        return request;
+    }
+
+    /**
+     * @return the number of messages the subscriptions of this channel skipped because they were overwritten before
+     * being read
+     */
+    public long getDroppedMessages() {
+        long dropped = 0;
+        for (Subscription subscription : subscriptions) {
+            dropped += subscription.cursor.getDropped();
+        }
+        return dropped;
+    }
+
+    /**
+     * @param record a record of the ring
+     * @return the decoded message
+     * @throws PipelineException if the record cannot be decoded
+     */
+    private Message decode(ShmRing.Record record) throws PipelineException {
+        return (Message) pipeline.executeInverse(new ByteArrayInputStream(record.payload));
+    }
+
+    /**
+     * Reads the ring from the time of subscription and calls the callback for each message
+     */
+    private class Subscription implements Runnable {
+
+        private final OnPublish callback;
+        private final ShmRing.Cursor cursor = ring.newCursor();
+        private volatile boolean active = true;
+
+        Subscription(OnPublish callback) {
+            this.callback = callback;
+        }
+
+        void stop() {
+            active = false;
+        }
+
+        @Override
+        public void run() {
+            int idleCount = 0;
+            while (active) {
+                ShmRing.Record record = cursor.poll();
+                if (record == null) {
+                    waitStrategy.idle(idleCount);
+                    idleCount = idleCount == Integer.MAX_VALUE ? idleCount : idleCount + 1;
+                    continue;
+                }
+                idleCount = 0;
+
+                try {
+                    callback.onPublish(decode(record));
+                } catch (PipelineException e) {
+                    LOGGER.error("Failed to decode message {} on channel: {}", record.sequence, ShmChannel.this, e);
+                } catch (RuntimeException e) {
+                    LOGGER.error("Callback failed on channel: {}", ShmChannel.this, e);
+                }
+            }
+        }
+    }
+}
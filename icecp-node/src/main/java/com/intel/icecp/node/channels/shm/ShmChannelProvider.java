@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.channels.shm;
+
+import com.intel.icecp.core.Channel;
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.Metadata;
+import com.intel.icecp.core.channels.ChannelProvider;
+import com.intel.icecp.core.metadata.Persistence;
+import com.intel.icecp.core.misc.ChannelLifetimeException;
+import com.intel.icecp.core.misc.Configuration;
+import com.intel.icecp.core.pipeline.Pipeline;
+import com.intel.icecp.node.utils.ChannelUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Provides {@link ShmChannel}s; the channel named shm:/a/b is backed by the ring file "%2Fa%2Fb.ring" in the shared
+ * directory, so that node processes of the same host configured with the same directory exchange messages through
+ * shared memory. Configuration properties: "directory" (defaults to /dev/shm/icecp if /dev/shm exists, otherwise to
+ * the temporary directory), "capacity" (the size in bytes of newly created rings, i.e. their retention) and
+ * "wait-strategy" (see {@link WaitStrategy#fromName(String)}).
+ *
+ */
+public class ShmChannelProvider implements ChannelProvider {
+
+    public static final String SCHEME = "shm";
+    public static final long DEFAULT_CAPACITY = 4 * 1024 * 1024;
+    public static final WaitStrategy DEFAULT_WAIT_STRATEGY = WaitStrategy.BACKOFF;
+    private static final String RING_FILE_SUFFIX = ".ring";
+    private static final Logger LOGGER = LogManager.getLogger();
+    private final Map<URI, ShmRing> rings = new ConcurrentHashMap<>();
+    private Path directory;
+    private long capacity;
+    private WaitStrategy waitStrategy;
+    private ScheduledExecutorService eventLoop;
+
+    /**
+     * Default constructor used for SPI loading; uses the default directory, capacity and wait strategy until
+     * {@link #start(ScheduledExecutorService, Configuration)} is called
+     */
+    public ShmChannelProvider() {
+        this(defaultDirectory(), DEFAULT_CAPACITY, DEFAULT_WAIT_STRATEGY);
+    }
+
+    /**
+     * @param directory the directory of the ring files
+     * @param capacity the size in bytes of newly created rings
+     * @param waitStrategy how subscriptions wait for new messages
+     */
+    public ShmChannelProvider(Path directory, long capacity, WaitStrategy waitStrategy) {
+        this.directory = directory;
+        this.capacity = capacity;
+        this.waitStrategy = waitStrategy;
+    }
+
+    @Override
+    public String scheme() {
+        return SCHEME;
+    }
+
+    @Override
+    public synchronized void start(ScheduledExecutorService pool, Configuration configuration) {
+        this.eventLoop = pool;
+        this.directory = Paths.get(configuration.getOrDefault(directory.toString(), "directory"));
+        this.capacity = ((Number) configuration.<Object>getOrDefault(capacity, "capacity")).longValue();
+        this.waitStrategy = WaitStrategy.fromName(configuration.getOrDefault(waitStrategy.name(), "wait-strategy"));
+    }
+
+    /**
+     * Unmap the ring files; channels built by this provider can no longer be used
+     */
+    @Override
+    public void stop() {
+        for (ShmRing ring : rings.values()) {
+            try {
+                ring.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close ring file: {}", ring.getPath(), e);
+            }
+        }
+        rings.clear();
+    }
+
+    @Override
+    public <T extends Message> Channel<T> build(URI uri, Pipeline pipeline, Persistence persistence, Metadata... metadata) throws ChannelLifetimeException {
+        if (uri == null || !SCHEME.equals(uri.getScheme())) {
+            throw new ChannelLifetimeException("Shared-memory channels must have non-null URIs with the 'shm:' scheme: " + uri);
+        }
+
+        ShmRing ring;
+        try {
+            ring = rings.computeIfAbsent(uri, this::openRing);
+        } catch (IllegalStateException e) {
+            throw new ChannelLifetimeException("Failed to map the ring file of channel: " + uri, e.getCause());
+        }
+        return new ShmChannel(uri, pipeline, ring, persistence == null ? new Persistence() : persistence, waitStrategy, getEventLoop());
+    }
+
+    /**
+     * @param uri the channel name
+     * @return the mapped ring file of the channel
+     * @throws IllegalStateException wrapping the {@link IOException} if the file cannot be mapped
+     */
+    private ShmRing openRing(URI uri) {
+        Path file = directory.resolve(ChannelUtils.encodeURIcomponent(uri.getSchemeSpecificPart()) + RING_FILE_SUFFIX);
+        try {
+            Files.createDirectories(directory);
+            return new ShmRing(file, capacity);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the event loop passed to {@link #start(ScheduledExecutorService, Configuration)}, or a default one if the
+     * provider was not started
+     */
+    private synchronized ScheduledExecutorService getEventLoop() {
+        if (eventLoop == null) {
+            eventLoop = Executors.newScheduledThreadPool(2);
+        }
+        return eventLoop;
+    }
+
+    /**
+     * @return the RAM-backed /dev/shm/icecp directory if available, a directory in the temporary directory otherwise
+     */
+    private static Path defaultDirectory() {
+        Path shm = Paths.get("/dev/shm");
+        return Files.isDirectory(shm) ? shm.resolve("icecp") : Paths.get(System.getProperty("java.io.tmpdir"), "icecp-shm");
+    }
+}
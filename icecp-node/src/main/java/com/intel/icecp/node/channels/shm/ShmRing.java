@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.channels.shm;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+
+/**
+ * Single-writer, multi-reader ring buffer of byte records in a memory-mapped file, shared by the processes of a host.
+ * Retention is by size: the ring keeps the most recent records that fit in its capacity and the writer overwrites the
+ * oldest ones; readers that fall behind skip the overwritten records (see {@link Cursor#getDropped()}).
+ * <p>
+ * File layout: a {@link #HEADER_SIZE}-byte header (magic, layout version, capacity, tail, head, latest record position
+ * and next sequence number) followed by the data region. Positions are byte offsets that only grow; a record lives at
+ * (position % capacity) and is laid out as [length int][type int][sequence long][expiration time long][payload],
+ * padded to 8 bytes. A record that would not fit before the end of the data region is preceded by a wrap marker and
+ * written at the start of the region.
+ * <p>
+ * The writer moves the tail past the records it is about to overwrite before writing, and moves the head once the
+ * record is complete; readers copy a record and then check that the tail has not passed it, in which case the copy may
+ * be torn and is discarded. Java 8 offers no fences for mapped memory, so these steps are ordered by a volatile write,
+ * which HotSpot compiles as a full fence. Only one process (and one channel within it) may hold the writer lock, see
+ * {@link #tryAcquireWriter(Object)}.
+ *
+ */
+class ShmRing implements AutoCloseable {
+
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_HEADER_SIZE = 24;
+    static final int MIN_CAPACITY = 1024;
+    private static final int MAGIC = 0x49434550; // "ICEP"
+    private static final int LAYOUT_VERSION = 1;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int LAYOUT_VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int WRITER_LOCK_OFFSET = 16;
+    private static final int TAIL_OFFSET = 24;
+    private static final int HEAD_OFFSET = 32;
+    private static final int LATEST_OFFSET = 40;
+    private static final int SEQUENCE_OFFSET = 48;
+    private static final int INIT_LOCK_OFFSET = 56;
+    private static final int TYPE_DATA = 0;
+    private static final int TYPE_WRAP = 1;
+    private static final long NO_RECORD = -1;
+
+    /** Target of the volatile writes ordering accesses to the mapped memory */
+    @SuppressWarnings("unused")
+    private static volatile int fence;
+
+    private final Path path;
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final long capacity;
+    private FileLock writerLock;
+    /** The owner of the writer lock within this process, e.g. the publishing channel */
+    private Object writer;
+
+    /**
+     * Open the ring of a file, creating and formatting the file if needed
+     *
+     * @param path the file to map
+     * @param capacity the size of the data region, in bytes, if the file is created; an existing file keeps its own
+     * capacity
+     * @throws IOException if the file cannot be mapped or is not a ring file
+     */
+    ShmRing(Path path, long capacity) throws IOException {
+        if (capacity < MIN_CAPACITY || capacity % Long.BYTES != 0 || capacity > Integer.MAX_VALUE - HEADER_SIZE) {
+            throw new IllegalArgumentException("Ring capacity must be a multiple of 8 between " + MIN_CAPACITY + " and 2GB: " + capacity);
+        }
+        this.path = path;
+        this.file = new RandomAccessFile(path.toFile(), "rw");
+        try {
+            FileChannel channel = file.getChannel();
+            try (FileLock ignored = channel.lock(INIT_LOCK_OFFSET, Long.BYTES, false)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                channel.read(header, 0);
+                if (header.position() == HEADER_SIZE && header.getInt(MAGIC_OFFSET) == MAGIC) {
+                    if (header.getInt(LAYOUT_VERSION_OFFSET) != LAYOUT_VERSION) {
+                        throw new IOException("Unsupported ring layout version " + header.getInt(LAYOUT_VERSION_OFFSET) + ": " + path);
+                    }
+                    this.capacity = header.getLong(CAPACITY_OFFSET);
+                    this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + this.capacity);
+                } else {
+                    this.capacity = capacity;
+                    this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + capacity);
+                    buffer.putLong(TAIL_OFFSET, 0);
+                    buffer.putLong(HEAD_OFFSET, 0);
+                    buffer.putLong(LATEST_OFFSET, NO_RECORD);
+                    buffer.putLong(SEQUENCE_OFFSET, 0);
+                    buffer.putLong(CAPACITY_OFFSET, capacity);
+                    buffer.putInt(LAYOUT_VERSION_OFFSET, LAYOUT_VERSION);
+                    fence = 0;
+                    buffer.putInt(MAGIC_OFFSET, MAGIC);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the mapped file
+     */
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the size of the data region, in bytes
+     */
+    long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the largest payload that can be appended; larger payloads would evict too much of the ring
+     */
+    int getMaxPayloadSize() {
+        return (int) (capacity / 2) - RECORD_HEADER_SIZE;
+    }
+
+    /**
+     * Try to become the single writer of the ring; the lock is held by the given owner until
+     * {@link #releaseWriter(Object)} or until the process exits. Rings are shared by the channels of a process, so the
+     * lock is owned by one of them: other owners fail to acquire it, as do the rings of other processes.
+     *
+     * @param owner the prospective writer, e.g. the publishing channel
+     * @return true if the owner is now (or already was) the writer
+     * @throws IOException if the lock cannot be requested
+     */
+    synchronized boolean tryAcquireWriter(Object owner) throws IOException {
+        if (writer != null) {
+            return writer == owner;
+        }
+        try {
+            writerLock = file.getChannel().tryLock(WRITER_LOCK_OFFSET, Long.BYTES, false);
+        } catch (OverlappingFileLockException e) {
+            // another ring of this process holds the lock
+            return false;
+        }
+        if (writerLock != null) {
+            writer = owner;
+        }
+        return writerLock != null;
+    }
+
+    /**
+     * Release the writer lock if the given owner holds it; other owners leave it held
+     *
+     * @param owner the writer that acquired the lock
+     * @throws IOException if the lock cannot be released
+     */
+    synchronized void releaseWriter(Object owner) throws IOException {
+        if (writer == owner && writerLock != null) {
+            writerLock.release();
+            writerLock = null;
+            writer = null;
+        }
+    }
+
+    /**
+     * Append a record, overwriting the oldest records if necessary; the given owner must hold the writer lock
+     *
+     * @param owner the writer that acquired the lock
+     * @param payload the record payload
+     * @param expiresAt the system time (in ms) after which the record is no longer returned by {@link #latest()}
+     * @return the sequence number of the record
+     */
+    synchronized long append(Object owner, byte[] payload, long expiresAt) {
+        if (writerLock == null || writer != owner) {
+            throw new IllegalStateException("Not the writer of ring: " + path);
+        }
+        if (payload.length > getMaxPayloadSize()) {
+            throw new IllegalArgumentException("Payload of " + payload.length + " bytes exceeds the maximum of " + getMaxPayloadSize() + " bytes for ring: " + path);
+        }
+
+        long head = buffer.getLong(HEAD_OFFSET);
+        long sequence = buffer.getLong(SEQUENCE_OFFSET);
+        int size = align(RECORD_HEADER_SIZE + payload.length);
+        int offset = offset(head);
+        long start = capacity - offset < size ? head + (capacity - offset) : head;
+        long end = start + size;
+
+        // move readers off the region about to be overwritten
+        long tail = buffer.getLong(TAIL_OFFSET);
+        while (end - tail > capacity) {
+            tail = next(tail);
+        }
+        buffer.putLong(TAIL_OFFSET, tail);
+        fence = 0;
+
+        if (start != head) {
+            buffer.putInt(HEADER_SIZE + offset + Integer.BYTES, TYPE_WRAP);
+        }
+        int recordOffset = HEADER_SIZE + offset(start);
+        buffer.putInt(recordOffset, payload.length);
+        buffer.putInt(recordOffset + Integer.BYTES, TYPE_DATA);
+        buffer.putLong(recordOffset + 2 * Integer.BYTES, sequence);
+        buffer.putLong(recordOffset + 2 * Integer.BYTES + Long.BYTES, expiresAt);
+        ByteBuffer view = buffer.duplicate();
+        view.position(recordOffset + RECORD_HEADER_SIZE);
+        view.put(payload);
+        fence = 0;
+
+        buffer.putLong(LATEST_OFFSET, start);
+        buffer.putLong(SEQUENCE_OFFSET, sequence + 1);
+        fence = 0;
+        buffer.putLong(HEAD_OFFSET, end);
+        return sequence;
+    }
+
+    /**
+     * @return the most recently appended record if it has not expired (or been overwritten), null otherwise
+     */
+    Record latest() {
+        fence = 0;
+        long position = buffer.getLong(LATEST_OFFSET);
+        if (position == NO_RECORD) {
+            return null;
+        }
+        Record record = read(buffer.duplicate(), position);
+        return record == null || record.expiresAt < System.currentTimeMillis() ? null : record;
+    }
+
+    /**
+     * @return a cursor reading the records appended from now on
+     */
+    Cursor newCursor() {
+        fence = 0;
+        return new Cursor(buffer.getLong(HEAD_OFFSET), buffer.getLong(SEQUENCE_OFFSET));
+    }
+
+    /**
+     * Unmap the file (once the mapping is garbage-collected) and release the writer lock
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        writerLock = null;
+        writer = null;
+        file.close();
+    }
+
+    /**
+     * Read a data record; a record overwritten while it is copied is discarded
+     *
+     * @param view a view of the mapped buffer owned by the calling thread
+     * @param position the position of a data record
+     * @return the record, or null if it has been overwritten
+     */
+    private Record read(ByteBuffer view, long position) {
+        int offset = offset(position);
+        int length = view.getInt(HEADER_SIZE + offset);
+        long sequence = view.getLong(HEADER_SIZE + offset + 2 * Integer.BYTES);
+        long expiresAt = view.getLong(HEADER_SIZE + offset + 2 * Integer.BYTES + Long.BYTES);
+        if (length < 0 || offset + RECORD_HEADER_SIZE + length > capacity) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        view.position(HEADER_SIZE + offset + RECORD_HEADER_SIZE);
+        view.get(payload);
+        fence = 0;
+        return view.getLong(TAIL_OFFSET) > position ? null : new Record(position, sequence, expiresAt, payload);
+    }
+
+    /**
+     * @param position a record position, or the position of a wrap marker
+     * @return the position of the following record
+     */
+    private long next(long position) {
+        int offset = offset(position);
+        if (buffer.getInt(HEADER_SIZE + offset + Integer.BYTES) == TYPE_WRAP) {
+            return position + (capacity - offset);
+        }
+        return position + align(RECORD_HEADER_SIZE + buffer.getInt(HEADER_SIZE + offset));
+    }
+
+    /**
+     * @param position a position
+     * @return the offset of the position within the data region
+     */
+    private int offset(long position) {
+        return (int) (position % capacity);
+    }
+
+    /**
+     * @param size a size in bytes
+     * @return the size rounded up to a multiple of 8
+     */
+    private static int align(int size) {
+        return (size + Long.BYTES - 1) & ~(Long.BYTES - 1);
+    }
+
+    /**
+     * A copied record
+     */
+    static class Record {
+
+        final long position;
+        final long sequence;
+        final long expiresAt;
+        final byte[] payload;
+
+        Record(long position, long sequence, long expiresAt, byte[] payload) {
+            this.position = position;
+            this.sequence = sequence;
+            this.expiresAt = expiresAt;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Reading position of a subscriber; a cursor must be used by a single thread at a time
+     */
+    class Cursor {
+
+        private final ByteBuffer view = buffer.duplicate();
+        private long position;
+        private long expectedSequence;
+        private long dropped;
+
+        private Cursor(long position, long expectedSequence) {
+            this.position = position;
+            this.expectedSequence = expectedSequence;
+        }
+
+        /**
+         * @return the next record, or null if all appended records have been read
+         */
+        Record poll() {
+            while (true) {
+                fence = 0;
+                if (position >= view.getLong(HEAD_OFFSET)) {
+                    return null;
+                }
+                long tail = view.getLong(TAIL_OFFSET);
+                if (position < tail) {
+                    // overwritten while we were behind; the sequence numbers tell how many were lost
+                    position = tail;
+                }
+
+                int offset = offset(position);
+                if (view.getInt(HEADER_SIZE + offset + Integer.BYTES) == TYPE_WRAP) {
+                    position += capacity - offset;
+                    continue;
+                }
+
+                Record record = read(view, position);
+                if (record == null) {
+                    continue;
+                }
+                if (record.sequence > expectedSequence) {
+                    dropped += record.sequence - expectedSequence;
+                }
+                expectedSequence = record.sequence + 1;
+                position += align(RECORD_HEADER_SIZE + record.payload.length);
+                return record;
+            }
+        }
+
+        /**
+         * @return the number of records overwritten before this cursor could read them
+         */
+        long getDropped() {
+            return dropped;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.channels.shm;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a shared-memory subscriber waits for the next message once it has read everything published: spinning gives the
+ * lowest latency at the cost of a busy core per subscription, parking frees the core but adds wake-up latency.
+ *
+ */
+public enum WaitStrategy {
+
+    /**
+     * Spin continuously; use only with a core to spare per subscription
+     */
+    BUSY_SPIN {
+        @Override
+        void idle(int idleCount) {
+            // re-poll immediately
+        }
+    },
+
+    /**
+     * Spin briefly, then yield the processor between polls
+     */
+    YIELDING {
+        @Override
+        void idle(int idleCount) {
+            if (idleCount >= SPIN_TRIES) {
+                Thread.yield();
+            }
+        }
+    },
+
+    /**
+     * Spin, then yield, then park for exponentially longer periods (up to {@link #MAX_PARK_NS}); the default
+     */
+    BACKOFF {
+        @Override
+        void idle(int idleCount) {
+            if (idleCount < SPIN_TRIES) {
+                return;
+            }
+            if (idleCount < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+                return;
+            }
+            int shift = Math.min(idleCount - SPIN_TRIES - YIELD_TRIES, MAX_PARK_SHIFT);
+            LockSupport.parkNanos(Math.min(MIN_PARK_NS << shift, MAX_PARK_NS));
+        }
+    };
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long MIN_PARK_NS = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long MAX_PARK_NS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int MAX_PARK_SHIFT = 10;
+
+    /**
+     * Wait before the next poll
+     *
+     * @param idleCount the number of consecutive polls that found no message
+     */
+    abstract void idle(int idleCount);
+
+    /**
+     * @param name a strategy name, e.g. "busy-spin", "yielding" or "backoff"
+     * @return the matching strategy
+     * @throws IllegalArgumentException if the name matches no strategy
+     */
+    public static WaitStrategy fromName(String name) {
+        return valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+}
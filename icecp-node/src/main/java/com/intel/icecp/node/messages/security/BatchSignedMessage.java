@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.messages.security;
+
+import com.intel.icecp.core.Message;
+import com.intel.icecp.node.security.crypto.signature.MerkleTree;
+import com.intel.icecp.node.security.crypto.signature.Signature;
+
+/**
+ * Class representing a {@link Message} signed as part of a batch: the {@link Signature} covers the root of a {@link
+ * MerkleTree} built over all the messages in the batch, and the message carries its inclusion path in the tree.
+ *
+ * @param <M> Signed message type
+ */
+public class BatchSignedMessage<M extends Message> implements Message {
+
+    /** The signed message */
+    public M message;
+
+    /** Signature of the batch root */
+    public Signature signature;
+
+    /** Number of messages in the batch */
+    public int batchSize;
+
+    /** Position of the message in the batch */
+    public int index;
+
+    /** Sibling hashes from the message leaf up to the batch root */
+    public byte[][] path;
+
+    /**
+     * Default constructor, intended for serialization
+     */
+    public BatchSignedMessage() {}
+
+    public BatchSignedMessage(M message, Signature signature, int batchSize, int index, byte[][] path) {
+        this.message = message;
+        this.signature = signature;
+        this.batchSize = batchSize;
+        this.index = index;
+        this.path = path;
+    }
+}
@@ -17,12 +17,15 @@ package com.intel.icecp.node.pipeline;
 
 import com.intel.icecp.core.pipeline.*;
 import com.intel.icecp.core.channels.Token;
+import com.intel.icecp.core.metadata.Format;
 import com.intel.icecp.node.pipeline.exception.EmptyPipelineException;
 import com.intel.icecp.node.pipeline.exception.InvalidPipelineInputTypeException;
 import com.intel.icecp.node.pipeline.exception.InvalidPipelineOutputTypeException;
 import com.intel.icecp.core.pipeline.exception.OperationException;
 import com.intel.icecp.node.pipeline.exception.PipelineExecutionError;
+import com.intel.icecp.node.pipeline.operations.FormattingOperation;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
@@ -200,6 +203,56 @@ public class PipelineImpl<I, O> implements Pipeline<I, O> {
         return append(Arrays.asList(operations));
     }
 
+    /**
+     * Find an operation of the pipeline, e.g. to pass it state known only to
+     * the channel
+     *
+     * @param <T> the operation type
+     * @param type the class of the operation to look for
+     * @return the first operation of the given type, or null if there is none
+     */
+    public synchronized <T extends Operation> T find(Class<T> type) {
+        for (Operation operation : pipeline) {
+            if (type.isInstance(operation)) {
+                return type.cast(operation);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the only operation of the pipeline formats messages
+     * (e.g. a pipeline built by
+     * {@link com.intel.icecp.node.pipeline.implementations.MessageFormattingPipeline})
+     */
+    public synchronized boolean isFormattingOnly() {
+        return pipeline.size() == 1 && pipeline.get(0) instanceof FormattingOperation;
+    }
+
+    /**
+     * Check whether another pipeline formats messages like this one, so that a
+     * message published through one may be handed as is to the subscribers of
+     * the other: either it is this pipeline, or both pipelines take the same
+     * input type and only format messages, with equal formats. Pipelines with
+     * other operations only match themselves, since the settings of these
+     * operations (e.g. keys, trust models) cannot be compared and subscribers
+     * must not skip their decryption or verification
+     *
+     * @param other the pipeline to compare
+     * @return true if the pipelines match
+     */
+    public boolean matches(PipelineImpl<?, ?> other) {
+        if (other == this) {
+            return true;
+        }
+        if (!isFormattingOnly() || !other.isFormattingOnly()
+                || !inputType.type().getTypeName().equals(other.inputType.type().getTypeName())) {
+            return false;
+        }
+        Format format = find(FormattingOperation.class).getFormat();
+        return format != null && format.equals(other.find(FormattingOperation.class).getFormat());
+    }
+
     /**
      * Check whether this pipeline can be executed due to lack of operation or
      * mismatch input/output types
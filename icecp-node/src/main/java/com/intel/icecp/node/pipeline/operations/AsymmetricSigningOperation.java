@@ -22,6 +22,7 @@ import com.intel.icecp.core.metadata.formats.FormatEncodingException;
 import com.intel.icecp.core.pipeline.Operation;
 import com.intel.icecp.core.pipeline.exception.OperationException;
 import com.intel.icecp.core.security.CryptoProvider;
+import com.intel.icecp.core.security.crypto.exception.hash.HashError;
 import com.intel.icecp.core.security.crypto.exception.siganture.SignatureError;
 import com.intel.icecp.core.security.crypto.exception.siganture.UnsupportedSignatureAlgorithmException;
 import com.intel.icecp.core.security.crypto.key.asymmetric.PrivateKey;
@@ -30,6 +31,7 @@ import com.intel.icecp.core.security.crypto.signature.SignatureScheme;
 import com.intel.icecp.core.security.trust.TrustModel;
 import com.intel.icecp.core.security.trust.exception.TrustModelException;
 import com.intel.icecp.node.messages.security.SignedMessage;
+import com.intel.icecp.node.security.crypto.signature.VerificationCache;
 import com.intel.icecp.node.utils.StreamUtils;
 
 import java.io.IOException;
@@ -37,7 +39,8 @@ import java.net.URI;
 
 /**
  * Operation that takes a specific trust model (of type {@link TrustModel}) and signs a message, i.e., constructs a
- * {@link SignedMessage} (execute method) or verifies a message signature (executeInverse method)
+ * {@link SignedMessage} (execute method) or verifies a message signature (executeInverse method). If a {@link
+ * VerificationCache} is given, repeated verifications of the same signed message are skipped.
  *
  */
 public class AsymmetricSigningOperation extends Operation<Message, SignedMessage> {
@@ -53,15 +56,22 @@ public class AsymmetricSigningOperation extends Operation<Message, SignedMessage
     private final URI verifyingKeyId;
     
     private final String algorithmId;
-    
-    public AsymmetricSigningOperation(TrustModel<PrivateKey, PublicKey> trustModel, URI signingKeyId, URI verifyingKeyId, Format format, String algorithmId) {
+
+    /** Cache of successful verifications; null if disabled */
+    private final VerificationCache verificationCache;
+
+    public AsymmetricSigningOperation(TrustModel<PrivateKey, PublicKey> trustModel, URI signingKeyId, URI verifyingKeyId, Format format, String algorithmId, VerificationCache verificationCache) {
         super(Message.class, SignedMessage.class);
         this.trustModel = trustModel;
         this.format = format;
         this.algorithmId = algorithmId;
         this.signingKeyId = signingKeyId;
         this.verifyingKeyId = verifyingKeyId;
-        
+        this.verificationCache = verificationCache;
+    }
+
+    public AsymmetricSigningOperation(TrustModel<PrivateKey, PublicKey> trustModel, URI signingKeyId, URI verifyingKeyId, Format format, String algorithmId) {
+        this(trustModel, signingKeyId, verifyingKeyId, format, algorithmId, null);
     }
 
     /**
@@ -99,18 +109,36 @@ public class AsymmetricSigningOperation extends Operation<Message, SignedMessage
     public Message executeInverse(SignedMessage input) throws OperationException {
         // We verify the signature, and if valid return back the message that was signed
         try {
-            // Retrieve the symmetric key to use; Note that this may be a blocking operation!
-            PublicKey publicKey = trustModel.fetchVerifyingKey(verifyingKeyId);
-            SignatureScheme signScheme = CryptoProvider.getSignatureScheme(algorithmId, false);
             // Get the bytes to use for signature verification
             byte[] messageBytes = StreamUtils.readAll(format.encode(input.message));
-            // Verify the signature (throws an Exception if not verified)
-            signScheme.verify(input.signature.signatureValue, messageBytes, publicKey);
+            if (verificationCache != null) {
+                verificationCache.verify(verifyingKeyId, messageBytes, input.signature.signatureValue, () -> verify(input.signature.signatureValue, messageBytes));
+            } else {
+                verify(input.signature.signatureValue, messageBytes);
+            }
             // All OK, return the inner message
             return input.message;
-        } catch (FormatEncodingException | IOException | UnsupportedSignatureAlgorithmException | SignatureError | TrustModelException ex) {
+        } catch (FormatEncodingException | IOException | HashError | SignatureError ex) {
             throw new OperationException("AsymmetricSigningOperation signature verification failed.", ex);
         }
     }
 
+    /**
+     * Verify the signature of the given bytes; throws an exception if not verified
+     *
+     * @param signature the signature bytes
+     * @param messageBytes the signed bytes
+     * @throws SignatureError if the signature is not valid or the key or scheme cannot be retrieved
+     */
+    private void verify(byte[] signature, byte[] messageBytes) throws SignatureError {
+        try {
+            // Retrieve the public key to use; Note that this may be a blocking operation!
+            PublicKey publicKey = trustModel.fetchVerifyingKey(verifyingKeyId);
+            SignatureScheme signScheme = CryptoProvider.getSignatureScheme(algorithmId, false);
+            signScheme.verify(signature, messageBytes, publicKey);
+        } catch (UnsupportedSignatureAlgorithmException | TrustModelException ex) {
+            throw new SignatureError("Unable to verify the signature of the given message", ex);
+        }
+    }
+
 }
\ No newline at end of file
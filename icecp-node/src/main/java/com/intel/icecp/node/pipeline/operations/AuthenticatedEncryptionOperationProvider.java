@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.pipeline.operations;
+
+import com.intel.icecp.core.Node;
+import com.intel.icecp.core.attributes.AttributeNotFoundException;
+import com.intel.icecp.core.attributes.Attributes;
+import com.intel.icecp.core.attributes.security.AuthenticatedEncryptionAttribute;
+import com.intel.icecp.core.attributes.security.SymmetricEncryptionAttribute.EncryptionSpecs;
+import com.intel.icecp.core.pipeline.Operation;
+import com.intel.icecp.core.pipeline.OperationProvider;
+import com.intel.icecp.core.pipeline.exception.OperationCreationException;
+import com.intel.icecp.node.security.SecurityConstants;
+
+/**
+ * Builds an {@link AuthenticatedEncryptionOperation} from the {@link AuthenticatedEncryptionAttribute} of a channel;
+ * keys are retrieved from the node's key manager. Channels that do not specify an algorithm use the node default, so
+ * that e.g. devices without AES hardware instructions can be configured to use ChaCha20-Poly1305 while the rest of the
+ * nodes use AES-GCM (nodes sharing such a channel must be configured with the same default).
+ *
+ */
+public class AuthenticatedEncryptionOperationProvider implements OperationProvider {
+
+    /** Algorithm used when the channel does not specify one */
+    private final String defaultAlgorithm;
+
+    /**
+     * @param defaultAlgorithm the algorithm to use when the channel does not specify one
+     */
+    public AuthenticatedEncryptionOperationProvider(String defaultAlgorithm) {
+        this.defaultAlgorithm = defaultAlgorithm;
+    }
+
+    /**
+     * Build a provider defaulting to {@link SecurityConstants#AES_GCM_ALGORITHM}
+     */
+    public AuthenticatedEncryptionOperationProvider() {
+        this(SecurityConstants.AES_GCM_ALGORITHM);
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <O extends Operation> O buildOperation(Node node, Attributes attributes) throws OperationCreationException {
+        try {
+            EncryptionSpecs specs = attributes.get(AuthenticatedEncryptionAttribute.class);
+            String algorithm = specs.encryptionAlgorithm != null ? specs.encryptionAlgorithm : defaultAlgorithm;
+            return (O) new AuthenticatedEncryptionOperation(specs.keyId, algorithm, node.getKeyManager());
+        } catch (AttributeNotFoundException | NullPointerException ex) {
+            throw new OperationCreationException("Unable to build authenticated encryption operation", ex);
+        }
+    }
+
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.pipeline.operations;
+
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.metadata.Format;
+import com.intel.icecp.core.metadata.formats.FormatEncodingException;
+import com.intel.icecp.core.pipeline.Operation;
+import com.intel.icecp.core.pipeline.exception.OperationException;
+import com.intel.icecp.core.security.CryptoProvider;
+import com.intel.icecp.core.security.crypto.exception.hash.HashError;
+import com.intel.icecp.core.security.crypto.exception.siganture.SignatureError;
+import com.intel.icecp.core.security.crypto.exception.siganture.UnsupportedSignatureAlgorithmException;
+import com.intel.icecp.core.security.crypto.key.asymmetric.PrivateKey;
+import com.intel.icecp.core.security.crypto.key.asymmetric.PublicKey;
+import com.intel.icecp.core.security.crypto.signature.SignatureScheme;
+import com.intel.icecp.core.security.trust.TrustModel;
+import com.intel.icecp.core.security.trust.exception.TrustModelException;
+import com.intel.icecp.node.messages.security.BatchSignedMessage;
+import com.intel.icecp.node.security.crypto.signature.MerkleTree;
+import com.intel.icecp.node.security.crypto.signature.Signature;
+import com.intel.icecp.node.utils.BoundedLinkedMap;
+import com.intel.icecp.node.utils.StreamUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batched version of {@link AsymmetricSigningOperation}, for high-rate channels: messages signed concurrently within a
+ * short window are hashed into a {@link MerkleTree}, a single private-key operation signs the root of the tree, and
+ * each resulting {@link BatchSignedMessage} carries its inclusion path.
+ * <p>
+ * The first message of a batch signs on behalf of the whole batch; other messages of the batch wait for that signature.
+ * Before signing, it waits for the messages that other threads are hashing at that time to join the batch, for at
+ * most the batch window (or until the batch is full); a publisher signing from a single thread therefore never waits,
+ * and gets batches as soon as it publishes from several threads. On the verifying side, roots that have already been
+ * verified are cached so that the rest of a batch costs one hash path per message instead of a full signature
+ * verification.
+ *
+ */
+public class BatchedAsymmetricSigningOperation extends Operation<Message, BatchSignedMessage> {
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+    public static final long DEFAULT_BATCH_WINDOW_MS = 5;
+    private static final int MAX_VERIFIED_ROOTS = 1024;
+
+    /** Trust model to use to fetch and verify trust in keys */
+    private final TrustModel<PrivateKey, PublicKey> trustModel;
+
+    /** Format to use to encode the message before signing it */
+    private final Format format;
+
+    private final URI signingKeyId;
+
+    private final URI verifyingKeyId;
+
+    private final String algorithmId;
+
+    private final int maxBatchSize;
+
+    private final long batchWindow;
+
+    /** Signed payloads (root and batch size) whose signature has already been verified */
+    private final Map<ByteBuffer, Boolean> verifiedRoots = new BoundedLinkedMap<>(MAX_VERIFIED_ROOTS);
+
+    /** The batch currently accepting messages, if any; guarded by this */
+    private Batch currentBatch;
+
+    /** Number of signers hashing their message, i.e. about to join the current batch; guarded by this */
+    private int pendingSigners = 0;
+
+    /**
+     * @param trustModel the trust model to fetch keys from
+     * @param signingKeyId the ID of the signing key
+     * @param verifyingKeyId the ID of the verifying key
+     * @param format the format to encode messages with before hashing them
+     * @param algorithmId the signature algorithm
+     * @param maxBatchSize the maximum number of messages covered by a single signature
+     * @param batchWindow the maximum time (in ms) the first message of a batch waits for other messages
+     */
+    public BatchedAsymmetricSigningOperation(TrustModel<PrivateKey, PublicKey> trustModel, URI signingKeyId, URI verifyingKeyId, Format format, String algorithmId, int maxBatchSize, long batchWindow) {
+        super(Message.class, BatchSignedMessage.class);
+        if (maxBatchSize < 1 || batchWindow < 0) {
+            throw new IllegalArgumentException("Batch size must be positive and batch window non-negative");
+        }
+        this.trustModel = trustModel;
+        this.format = format;
+        this.algorithmId = algorithmId;
+        this.signingKeyId = signingKeyId;
+        this.verifyingKeyId = verifyingKeyId;
+        this.maxBatchSize = maxBatchSize;
+        this.batchWindow = batchWindow;
+    }
+
+    public BatchedAsymmetricSigningOperation(TrustModel<PrivateKey, PublicKey> trustModel, URI signingKeyId, URI verifyingKeyId, Format format, String algorithmId) {
+        this(trustModel, signingKeyId, verifyingKeyId, format, algorithmId, DEFAULT_MAX_BATCH_SIZE, DEFAULT_BATCH_WINDOW_MS);
+    }
+
+    /**
+     * Add the message to the current batch and wait for the batch to be signed
+     * <p>
+     * {@inheritDoc }
+     */
+    @Override
+    public BatchSignedMessage execute(Message inputMessage) throws OperationException {
+        if (inputMessage == null) {
+            throw new OperationException("BatchedAsymmetricSigningOperation signing operation failed: null input");
+        }
+
+        synchronized (this) {
+            pendingSigners++;
+        }
+        byte[] leafHash;
+        try {
+            leafHash = MerkleTree.hashLeaf(StreamUtils.readAll(format.encode(inputMessage)));
+        } catch (FormatEncodingException | IOException | HashError ex) {
+            synchronized (this) {
+                pendingSigners--;
+                notifyAll();
+            }
+            throw new OperationException("BatchedAsymmetricSigningOperation signing operation failed.", ex);
+        }
+
+        Batch batch;
+        int index;
+        boolean isLeader = false;
+        synchronized (this) {
+            pendingSigners--;
+            notifyAll();
+            if (currentBatch == null) {
+                currentBatch = new Batch();
+                isLeader = true;
+            }
+            batch = currentBatch;
+            index = batch.leaves.size();
+            batch.leaves.add(leafHash);
+            if (batch.leaves.size() >= maxBatchSize) {
+                currentBatch = null;
+            }
+        }
+
+        if (isLeader) {
+            signBatch(batch);
+        }
+
+        try {
+            SignedBatch signed = batch.signed.get();
+            return new BatchSignedMessage<>(inputMessage, signed.signature, signed.tree.size(), index, signed.tree.path(index));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new OperationException("BatchedAsymmetricSigningOperation interrupted while waiting for batch signature.", ex);
+        } catch (ExecutionException ex) {
+            throw new OperationException("BatchedAsymmetricSigningOperation signing operation failed.", ex.getCause());
+        }
+    }
+
+    /**
+     * Wait while other signers are about to join the batch (until the batch is full or the batch window elapses), close
+     * the batch and sign its root
+     *
+     * @param batch the batch to sign
+     */
+    private void signBatch(Batch batch) {
+        List<byte[]> leaves;
+        synchronized (this) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWindow);
+            long remaining;
+            while (currentBatch == batch && pendingSigners > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException ex) {
+                    // sign what we have so far
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (currentBatch == batch) {
+                currentBatch = null;
+            }
+            leaves = new ArrayList<>(batch.leaves);
+        }
+
+        try {
+            MerkleTree tree = new MerkleTree(leaves);
+            PrivateKey privateKey = trustModel.fetchSigningKey(signingKeyId);
+            SignatureScheme signScheme = CryptoProvider.getSignatureScheme(algorithmId, false);
+            byte[] signatureValue = signScheme.sign(signedPayload(tree.root(), tree.size()), privateKey);
+            batch.signed.complete(new SignedBatch(tree, new Signature(signatureValue)));
+        } catch (HashError | UnsupportedSignatureAlgorithmException | SignatureError | TrustModelException | RuntimeException ex) {
+            batch.signed.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Verify that the message belongs to a batch whose root is signed; the root signature is only verified the first
+     * time a message of the batch is seen
+     * <p>
+     * {@inheritDoc }
+     */
+    @Override
+    public Message executeInverse(BatchSignedMessage input) throws OperationException {
+        try {
+            byte[] leafHash = MerkleTree.hashLeaf(StreamUtils.readAll(format.encode(input.message)));
+            byte[] root = MerkleTree.computeRoot(leafHash, input.index, input.batchSize, input.path);
+            byte[] payload = signedPayload(root, input.batchSize);
+            ByteBuffer key = ByteBuffer.wrap(payload);
+
+            if (!verifiedRoots.containsKey(key)) {
+                // Retrieve the key to use; Note that this may be a blocking operation!
+                PublicKey publicKey = trustModel.fetchVerifyingKey(verifyingKeyId);
+                SignatureScheme signScheme = CryptoProvider.getSignatureScheme(algorithmId, false);
+                // Verify the signature (throws an Exception if not verified)
+                signScheme.verify(input.signature.signatureValue, payload, publicKey);
+                verifiedRoots.put(key, Boolean.TRUE);
+            }
+
+            return input.message;
+        } catch (FormatEncodingException | IOException | HashError | IllegalArgumentException | UnsupportedSignatureAlgorithmException | SignatureError | TrustModelException ex) {
+            throw new OperationException("BatchedAsymmetricSigningOperation signature verification failed.", ex);
+        }
+    }
+
+    /**
+     * @param root the root of the batch tree
+     * @param batchSize the number of messages in the batch
+     * @return the bytes covered by the batch signature
+     */
+    private static byte[] signedPayload(byte[] root, int batchSize) {
+        return ByteBuffer.allocate(root.length + Integer.BYTES).put(root).putInt(batchSize).array();
+    }
+
+    /**
+     * Messages collected for a single signature
+     */
+    private static class Batch {
+
+        final List<byte[]> leaves = new ArrayList<>();
+        final CompletableFuture<SignedBatch> signed = new CompletableFuture<>();
+    }
+
+    /**
+     * Result of signing a {@link Batch}
+     */
+    private static class SignedBatch {
+
+        final MerkleTree tree;
+        final Signature signature;
+
+        SignedBatch(MerkleTree tree, Signature signature) {
+            this.tree = tree;
+            this.signature = signature;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.pipeline.operations;
+
+import com.intel.icecp.core.Node;
+import com.intel.icecp.core.attributes.AttributeNotFoundException;
+import com.intel.icecp.core.attributes.Attributes;
+import com.intel.icecp.core.attributes.FormatAttribute;
+import com.intel.icecp.core.attributes.security.BatchedSignAttribute;
+import com.intel.icecp.core.attributes.security.BatchedSignAttribute.BatchedSigningDetails;
+import com.intel.icecp.core.attributes.security.SignAttribute.SigningDetails;
+import com.intel.icecp.core.pipeline.Operation;
+import com.intel.icecp.core.pipeline.OperationProvider;
+import com.intel.icecp.core.pipeline.exception.OperationCreationException;
+import com.intel.icecp.core.security.crypto.key.asymmetric.PrivateKey;
+import com.intel.icecp.core.security.crypto.key.asymmetric.PublicKey;
+import com.intel.icecp.core.security.trust.TrustModel;
+import com.intel.icecp.core.security.trust.exception.TrustModelInstantiationError;
+
+/**
+ * Builds a {@link BatchedAsymmetricSigningOperation} from the {@link BatchedSignAttribute} of a channel; the trust
+ * model is created from the node's trust models and messages are encoded for hashing in the format of the channel's
+ * {@link FormatAttribute}.
+ *
+ */
+public class BatchedSigningOperationProvider implements OperationProvider {
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <O extends Operation> O buildOperation(Node node, Attributes attributes) throws OperationCreationException {
+        try {
+            BatchedSigningDetails details = attributes.get(BatchedSignAttribute.class);
+            SigningDetails signing = details.signingDetails;
+            TrustModel<PrivateKey, PublicKey> trustModel = node.getTrustModels().createTrustModel(signing.trustModelId, attributes);
+            return (O) new BatchedAsymmetricSigningOperation(trustModel, signing.signingKeyId, signing.verificationKey,
+                    SigningOperationProvider.buildFormat(attributes), signing.algorithmId, details.maxBatchSize, details.batchWindowMs);
+        } catch (AttributeNotFoundException | TrustModelInstantiationError | IllegalArgumentException | NullPointerException ex) {
+            throw new OperationCreationException("Unable to build batched signing operation", ex);
+        }
+    }
+
+}
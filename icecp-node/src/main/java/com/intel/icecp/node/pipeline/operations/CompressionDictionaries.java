@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.pipeline.operations;
+
+import com.intel.icecp.node.utils.StreamUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the {@link CompressionDictionary}s known to a node: compressing channels look dictionaries up by the
+ * name in their {@link com.intel.icecp.core.attributes.CompressionAttribute}, decompression looks them up by the ID
+ * found in the payload header. Replacing the dictionary of a name keeps the previous one available by ID, so that
+ * messages compressed with it can still be inflated. Thread-safe.
+ * <p>
+ * The default registry comes with dictionaries trained on the JSON encoding of the node's own channel types, shipped
+ * as resources next to this class: {@link #ATTRIBUTE} (attribute messages), {@link #EVENT} (node, channel and module
+ * events) and {@link #RPC} (command requests and responses).
+ *
+ */
+public class CompressionDictionaries {
+
+    /** Name of the shipped dictionary for attribute channels */
+    public static final String ATTRIBUTE = "attribute";
+    /** Name of the shipped dictionary for event channels */
+    public static final String EVENT = "event";
+    /** Name of the shipped dictionary for RPC command and response channels */
+    public static final String RPC = "rpc";
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final CompressionDictionaries DEFAULT = withShippedDictionaries();
+
+    private final Map<String, CompressionDictionary> byName = new ConcurrentHashMap<>();
+    private final Map<Integer, CompressionDictionary> byId = new ConcurrentHashMap<>();
+
+    /**
+     * @return the registry used by default by {@link CompressionOperationProvider}, with the shipped dictionaries
+     * registered
+     */
+    public static CompressionDictionaries getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return a new registry with the dictionaries shipped with the node registered under their names
+     */
+    public static CompressionDictionaries withShippedDictionaries() {
+        CompressionDictionaries dictionaries = new CompressionDictionaries();
+        for (String name : new String[]{ATTRIBUTE, EVENT, RPC}) {
+            try (InputStream resource = CompressionDictionaries.class.getResourceAsStream(name + ".dict")) {
+                if (resource == null) {
+                    LOGGER.warn("Compression dictionary {} is not available", name);
+                } else {
+                    dictionaries.register(name, new CompressionDictionary(StreamUtils.readAll(resource)));
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                LOGGER.warn("Unable to load compression dictionary {}", name, e);
+            }
+        }
+        return dictionaries;
+    }
+
+    /**
+     * @param name the name of the dictionary, e.g. the channel type it was trained for
+     * @param dictionary the dictionary to use for this name from now on
+     */
+    public void register(String name, CompressionDictionary dictionary) {
+        byId.put(dictionary.id(), dictionary);
+        byName.put(name, dictionary);
+    }
+
+    /**
+     * @param name the name of the dictionary
+     * @return the current dictionary registered under the name, or null
+     */
+    public CompressionDictionary get(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * @param id the ID of the dictionary
+     * @return the dictionary with this ID, or null
+     */
+    public CompressionDictionary get(int id) {
+        return byId.get(id);
+    }
+}
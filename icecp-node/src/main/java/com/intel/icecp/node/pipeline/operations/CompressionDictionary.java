@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.pipeline.operations;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Adler32;
+
+/**
+ * Preset dictionary for {@link CompressionOperation}: a block of bytes likely to appear in the messages of a channel
+ * type (e.g. the keys of JSON attribute messages), which Deflater can reference from the first byte of a message.
+ * Dictionaries are identified by the Adler-32 checksum of their bytes, like in zlib streams, so that the receiving
+ * side can pick the right one.
+ *
+ */
+public class CompressionDictionary {
+
+    /** Maximum useful dictionary size, i.e. the Deflate window */
+    public static final int MAX_SIZE = 32 * 1024;
+
+    /** Length of the byte sequences counted when training */
+    private static final int GRAM_SIZE = 8;
+
+    private final byte[] bytes;
+    private final int id;
+
+    /**
+     * @param bytes the dictionary bytes, most frequent sequences last; at most {@link #MAX_SIZE} bytes are used
+     */
+    public CompressionDictionary(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            throw new IllegalArgumentException("Dictionary must not be empty");
+        }
+        this.bytes = bytes.length > MAX_SIZE ? Arrays.copyOfRange(bytes, bytes.length - MAX_SIZE, bytes.length) : bytes.clone();
+        Adler32 adler = new Adler32();
+        adler.update(this.bytes);
+        this.id = (int) adler.getValue();
+    }
+
+    /**
+     * Train a dictionary from sample messages: the byte sequences found in the most samples are kept, the most
+     * frequent ones at the end of the dictionary, where Deflate references are shortest
+     *
+     * @param samples encoded sample messages of the channel type
+     * @param maxSize the maximum size of the dictionary, in bytes
+     * @return the trained dictionary
+     * @throws IllegalArgumentException if the samples are too short to train a dictionary
+     */
+    public static CompressionDictionary train(Collection<byte[]> samples, int maxSize) {
+        Map<ByteBuffer, Integer> counts = new HashMap<>();
+        for (byte[] sample : samples) {
+            Set<ByteBuffer> seen = new HashSet<>();
+            for (int i = 0; i + GRAM_SIZE <= sample.length; i++) {
+                ByteBuffer gram = ByteBuffer.wrap(sample, i, GRAM_SIZE).slice();
+                if (seen.add(gram)) {
+                    counts.merge(gram, 1, Integer::sum);
+                }
+            }
+        }
+        List<Map.Entry<ByteBuffer, Integer>> candidates = new ArrayList<>(counts.entrySet());
+        candidates.sort(Map.Entry.<ByteBuffer, Integer>comparingByValue().reversed());
+
+        // fill from the end, so that the most frequent sequences end up last
+        byte[] dictionary = new byte[Math.min(maxSize, MAX_SIZE)];
+        int start = dictionary.length;
+        Set<ByteBuffer> covered = new HashSet<>();
+        for (Map.Entry<ByteBuffer, Integer> candidate : candidates) {
+            ByteBuffer gram = candidate.getKey();
+            if (covered.contains(gram)) {
+                continue;
+            }
+            int previousStart = start;
+            if (start + GRAM_SIZE - 1 <= dictionary.length && overlapsHead(gram, dictionary, start)) {
+                if (start < 1) {
+                    break;
+                }
+                dictionary[--start] = gram.get(0);
+            } else {
+                if (start < GRAM_SIZE) {
+                    break;
+                }
+                start -= GRAM_SIZE;
+                gram.duplicate().get(dictionary, start, GRAM_SIZE);
+            }
+            for (int j = start; j < previousStart && j + GRAM_SIZE <= dictionary.length; j++) {
+                covered.add(ByteBuffer.wrap(dictionary, j, GRAM_SIZE).slice());
+            }
+        }
+        return new CompressionDictionary(Arrays.copyOfRange(dictionary, start, dictionary.length));
+    }
+
+    /**
+     * @return true if all but the first byte of the gram are the first bytes of the dictionary
+     */
+    private static boolean overlapsHead(ByteBuffer gram, byte[] dictionary, int start) {
+        for (int i = 1; i < GRAM_SIZE; i++) {
+            if (gram.get(i) != dictionary[start + i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the ID of the dictionary, written in the header of compressed payloads
+     */
+    public int id() {
+        return id;
+    }
+
+    /**
+     * @return the size of the dictionary, in bytes
+     */
+    public int size() {
+        return bytes.length;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.pipeline.operations;
+
+import com.intel.icecp.core.pipeline.Operation;
+import com.intel.icecp.core.pipeline.exception.OperationException;
+import com.intel.icecp.node.utils.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Operation that compresses encoded messages with Deflate, optionally using a preset {@link CompressionDictionary}
+ * trained for the channel type; this is what makes small messages (e.g. JSON messages repeating the same keys)
+ * compressible at all. Messages below a size threshold, and messages that do not shrink, are sent uncompressed.
+ * <p>
+ * Payload format: a mode byte, followed either by the message bytes ({@link #STORED}) or ({@link #DEFLATED}) by the
+ * dictionary ID (0 for none), the uncompressed length, both as 4-byte integers, and raw Deflate data. Integrity is
+ * left to the security operations of the channel.
+ *
+ */
+public class CompressionOperation extends Operation<InputStream, InputStream> {
+
+    public static final int DEFAULT_THRESHOLD = 64;
+    /** Largest accepted uncompressed length, to bound memory allocated for untrusted payloads */
+    public static final int MAX_INFLATED_SIZE = 64 * 1024 * 1024;
+
+    static final byte STORED = 0;
+    static final byte DEFLATED = 1;
+    private static final int DEFLATED_HEADER_SIZE = 1 + Integer.BYTES + Integer.BYTES;
+
+    /** Dictionary to compress with, or null */
+    private final CompressionDictionary dictionary;
+    /** Dictionaries to decompress with, by ID */
+    private final CompressionDictionaries dictionaries;
+    private final int level;
+    private final int threshold;
+
+    /**
+     * @param dictionary the dictionary to compress with, or null to compress without dictionary
+     * @param level the Deflate compression level (0-9, or -1 for the default level)
+     * @param threshold the size below which messages are not compressed, in bytes
+     * @param dictionaries the dictionaries to look up when decompressing
+     */
+    public CompressionOperation(CompressionDictionary dictionary, int level, int threshold, CompressionDictionaries dictionaries) {
+        super(InputStream.class, InputStream.class);
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.dictionary = dictionary;
+        this.dictionaries = dictionaries;
+        this.level = level;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Build an operation with the default level and threshold
+     *
+     * @param dictionary the dictionary to compress with, or null to compress without dictionary
+     * @param dictionaries the dictionaries to look up when decompressing
+     */
+    public CompressionOperation(CompressionDictionary dictionary, CompressionDictionaries dictionaries) {
+        this(dictionary, Deflater.DEFAULT_COMPRESSION, DEFAULT_THRESHOLD, dictionaries);
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public InputStream execute(InputStream input) throws OperationException {
+        byte[] bytes;
+        try {
+            bytes = StreamUtils.readAll(input);
+        } catch (NullPointerException | IOException ex) {
+            throw new OperationException("CompressionOperation compression failed.", ex);
+        }
+
+        if (bytes.length >= threshold) {
+            // compressing is only worth it if the output, header included, is smaller than the stored message
+            byte[] output = new byte[bytes.length];
+            Deflater deflater = new Deflater(level, true);
+            try {
+                if (dictionary != null) {
+                    deflater.setDictionary(dictionary.bytes());
+                }
+                deflater.setInput(bytes);
+                deflater.finish();
+                int length = DEFLATED_HEADER_SIZE;
+                while (!deflater.finished() && length < output.length) {
+                    length += deflater.deflate(output, length, output.length - length);
+                }
+                if (deflater.finished()) {
+                    ByteBuffer.wrap(output).put(DEFLATED).putInt(dictionary == null ? 0 : dictionary.id()).putInt(bytes.length);
+                    return new ByteArrayInputStream(output, 0, length);
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+
+        byte[] stored = new byte[bytes.length + 1];
+        stored[0] = STORED;
+        System.arraycopy(bytes, 0, stored, 1, bytes.length);
+        return new ByteArrayInputStream(stored);
+    }
+
+    /**
+     * Inflates the payload with the dictionary whose ID is in its header
+     * <p>
+     * {@inheritDoc }
+     */
+    @Override
+    public InputStream executeInverse(InputStream input) throws OperationException {
+        try {
+            byte[] payload = StreamUtils.readAll(input);
+            if (payload.length == 0) {
+                throw new OperationException("CompressionOperation decompression failed: empty payload");
+            } else if (payload[0] == STORED) {
+                return new ByteArrayInputStream(payload, 1, payload.length - 1);
+            } else if (payload[0] != DEFLATED || payload.length < DEFLATED_HEADER_SIZE) {
+                throw new OperationException("CompressionOperation decompression failed: invalid header");
+            }
+
+            ByteBuffer header = ByteBuffer.wrap(payload, 1, DEFLATED_HEADER_SIZE - 1);
+            int dictionaryId = header.getInt();
+            int length = header.getInt();
+            if (length < 0 || length > MAX_INFLATED_SIZE) {
+                throw new OperationException("CompressionOperation decompression failed: invalid length " + length);
+            }
+
+            Inflater inflater = new Inflater(true);
+            try {
+                if (dictionaryId != 0) {
+                    CompressionDictionary inflateDictionary = dictionaries.get(dictionaryId);
+                    if (inflateDictionary == null) {
+                        throw new OperationException("CompressionOperation decompression failed: unknown dictionary " + dictionaryId);
+                    }
+                    inflater.setDictionary(inflateDictionary.bytes());
+                }
+                return new ByteArrayInputStream(inflate(inflater, payload, length));
+            } finally {
+                inflater.end();
+            }
+        } catch (NullPointerException | IOException | DataFormatException ex) {
+            throw new OperationException("CompressionOperation decompression failed.", ex);
+        }
+    }
+
+    private static byte[] inflate(Inflater inflater, byte[] payload, int length) throws DataFormatException, OperationException {
+        byte[] output = new byte[length];
+        inflater.setInput(payload, DEFLATED_HEADER_SIZE, payload.length - DEFLATED_HEADER_SIZE);
+        int inflated = 0;
+        boolean padded = false;
+        while (!inflater.finished()) {
+            int count = inflater.inflate(output, inflated, output.length - inflated);
+            inflated += count;
+            if (count == 0 && inflater.needsInput()) {
+                if (padded) {
+                    throw new OperationException("CompressionOperation decompression failed: truncated payload");
+                }
+                // raw inflaters may need an extra dummy input byte to complete
+                inflater.setInput(new byte[1]);
+                padded = true;
+            } else if (count == 0 && inflated == output.length) {
+                throw new OperationException("CompressionOperation decompression failed: payload longer than declared");
+            }
+        }
+        if (inflated != length) {
+            throw new OperationException("CompressionOperation decompression failed: payload shorter than declared");
+        }
+        return output;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.pipeline.operations;
+
+import com.intel.icecp.core.Node;
+import com.intel.icecp.core.attributes.AttributeNotFoundException;
+import com.intel.icecp.core.attributes.Attributes;
+import com.intel.icecp.core.attributes.CompressionAttribute;
+import com.intel.icecp.core.attributes.CompressionAttribute.CompressionSpecs;
+import com.intel.icecp.core.pipeline.Operation;
+import com.intel.icecp.core.pipeline.OperationProvider;
+import com.intel.icecp.core.pipeline.exception.OperationCreationException;
+
+/**
+ * Builds a {@link CompressionOperation} from the {@link CompressionAttribute} of a channel; the named dictionary must
+ * have been registered in the provider's {@link CompressionDictionaries} (on both the publishing and the subscribing
+ * nodes).
+ *
+ */
+public class CompressionOperationProvider implements OperationProvider {
+
+    private final CompressionDictionaries dictionaries;
+
+    /**
+     * @param dictionaries the dictionaries to compress and decompress with
+     */
+    public CompressionOperationProvider(CompressionDictionaries dictionaries) {
+        this.dictionaries = dictionaries;
+    }
+
+    /**
+     * Build a provider using {@link CompressionDictionaries#getDefault()}
+     */
+    public CompressionOperationProvider() {
+        this(CompressionDictionaries.getDefault());
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <O extends Operation> O buildOperation(Node node, Attributes attributes) throws OperationCreationException {
+        CompressionSpecs specs;
+        try {
+            specs = attributes.get(CompressionAttribute.class);
+        } catch (AttributeNotFoundException | NullPointerException ex) {
+            throw new OperationCreationException("Unable to build compression operation", ex);
+        }
+
+        CompressionDictionary dictionary = null;
+        if (specs.dictionary != null) {
+            dictionary = dictionaries.get(specs.dictionary);
+            if (dictionary == null) {
+                throw new OperationCreationException("Unable to build compression operation: unknown dictionary " + specs.dictionary);
+            }
+        }
+        try {
+            return (O) new CompressionOperation(dictionary, specs.level, specs.threshold, dictionaries);
+        } catch (IllegalArgumentException ex) {
+            throw new OperationCreationException("Unable to build compression operation", ex);
+        }
+    }
+
+}
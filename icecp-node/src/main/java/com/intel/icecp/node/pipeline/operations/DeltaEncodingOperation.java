@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.pipeline.operations;
+
+import com.intel.icecp.core.pipeline.Operation;
+import com.intel.icecp.core.pipeline.exception.OperationException;
+import com.intel.icecp.node.utils.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Adler32;
+
+/**
+ * Operation that delta-encodes the messages of slowly-changing channels (e.g. attribute or status channels, which
+ * republish whole objects when a single field changes): every {@link #keyframeInterval} messages a full keyframe is
+ * sent, and the messages in between are sent as binary diffs against that keyframe. Diffs reference the last keyframe
+ * rather than the previous message so that a subscriber missing any number of diffs can still decode the next one.
+ * Keyframes are identified by the channel message ID they were published under (see {@link #setMessageId(long)}): a
+ * subscriber that missed the keyframe of a diff fails with a {@link MissingKeyframeException} naming it, retrieves
+ * that message and decodes the diff again.
+ * <p>
+ * Payload format: a mode byte and the keyframe message ID (8-byte integer), followed either by the message bytes
+ * ({@link #KEYFRAME}) or ({@link #DELTA}) by the message length, its Adler-32 checksum and a list of instructions,
+ * each copying a range of the keyframe or adding literal bytes. Messages are diffed as opaque bytes, so this works
+ * with any format; place it after the formatting operation and before compression or encryption operations.
+ * <p>
+ * Instances are stateful: use one instance per channel, and encode each published message once (publishers cache the
+ * encoded bytes, see {@link com.intel.icecp.node.channels.ndn.MessageCache}) rather than once per request.
+ *
+ */
+public class DeltaEncodingOperation extends Operation<InputStream, InputStream> {
+
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 16;
+
+    static final byte KEYFRAME = 0;
+    static final byte DELTA = 1;
+    private static final byte COPY = 1;
+    private static final byte ADD = 2;
+    /** Size of the blocks of the keyframe that are indexed for matching */
+    private static final int BLOCK_SIZE = Long.BYTES;
+    /** Shortest match worth a copy instruction; shorter matches are sent as literal bytes */
+    private static final int MIN_MATCH = 16;
+
+    private final int keyframeInterval;
+
+    /** Encoding state, guarded by encodeLock */
+    private final Object encodeLock = new Object();
+    private byte[] encodeKeyframe;
+    private long encodeKeyframeId;
+    private long messageId;
+    private int messagesSinceKeyframe;
+
+    /** Decoding state, guarded by decodeLock */
+    private final Object decodeLock = new Object();
+    private byte[] decodeKeyframe;
+    private long decodeKeyframeId;
+
+    /**
+     * @param keyframeInterval the number of messages between two keyframes; 1 disables delta encoding
+     */
+    public DeltaEncodingOperation(int keyframeInterval) {
+        super(InputStream.class, InputStream.class);
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("Invalid keyframe interval: " + keyframeInterval);
+        }
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Build an operation with the {@link #DEFAULT_KEYFRAME_INTERVAL}
+     */
+    public DeltaEncodingOperation() {
+        this(DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Set the channel message ID under which the next encoded messages are published; keyframes are identified by this
+     * ID so that subscribers can retrieve them. Publishers set it before encoding each message.
+     *
+     * @param id the channel message ID
+     */
+    public void setMessageId(long id) {
+        synchronized (encodeLock) {
+            this.messageId = id;
+        }
+    }
+
+    /**
+     * Encodes the message as a keyframe or as a diff against the last keyframe; diffs that are not smaller than the
+     * message are replaced by a new keyframe
+     * <p>
+     * {@inheritDoc }
+     */
+    @Override
+    public InputStream execute(InputStream input) throws OperationException {
+        try {
+            byte[] bytes = StreamUtils.readAll(input);
+            synchronized (encodeLock) {
+                if (encodeKeyframe != null && messagesSinceKeyframe < keyframeInterval) {
+                    byte[] delta = encodeDelta(encodeKeyframeId, encodeKeyframe, bytes);
+                    if (delta.length < bytes.length) {
+                        messagesSinceKeyframe++;
+                        return new ByteArrayInputStream(delta);
+                    }
+                }
+
+                encodeKeyframe = bytes;
+                encodeKeyframeId = messageId;
+                messagesSinceKeyframe = 1;
+                ByteArrayOutputStream out = new ByteArrayOutputStream(1 + Long.BYTES + bytes.length);
+                DataOutputStream data = new DataOutputStream(out);
+                data.writeByte(KEYFRAME);
+                data.writeLong(encodeKeyframeId);
+                data.write(bytes);
+                return new ByteArrayInputStream(out.toByteArray());
+            }
+        } catch (NullPointerException | IOException ex) {
+            throw new OperationException("DeltaEncodingOperation encoding failed.", ex);
+        }
+    }
+
+    /**
+     * Decodes keyframes (retaining them as the base of subsequent diffs) and diffs against the last keyframe received;
+     * diffs against another keyframe fail with a {@link MissingKeyframeException}
+     * <p>
+     * {@inheritDoc }
+     */
+    @Override
+    public InputStream executeInverse(InputStream input) throws OperationException {
+        try {
+            ByteBuffer payload = ByteBuffer.wrap(StreamUtils.readAll(input));
+            byte mode = payload.get();
+            long keyframeId = payload.getLong();
+            if (mode == KEYFRAME) {
+                byte[] bytes = new byte[payload.remaining()];
+                payload.get(bytes);
+                synchronized (decodeLock) {
+                    decodeKeyframe = bytes;
+                    decodeKeyframeId = keyframeId;
+                }
+                return new ByteArrayInputStream(bytes);
+            } else if (mode != DELTA) {
+                throw new OperationException("DeltaEncodingOperation decoding failed: invalid header");
+            }
+
+            byte[] keyframe;
+            synchronized (decodeLock) {
+                if (decodeKeyframe == null || decodeKeyframeId != keyframeId) {
+                    throw new MissingKeyframeException(keyframeId);
+                }
+                keyframe = decodeKeyframe;
+            }
+            return new ByteArrayInputStream(applyDelta(keyframe, payload));
+        } catch (NullPointerException | IOException | BufferUnderflowException ex) {
+            throw new OperationException("DeltaEncodingOperation decoding failed.", ex);
+        }
+    }
+
+    /**
+     * Build a diff of the message against the keyframe: the blocks of the keyframe are indexed by content, the
+     * message is scanned for indexed blocks, and each block found is extended in both directions into a copy
+     * instruction; bytes between copies are sent as literals
+     *
+     * @param keyframeId the message ID of the keyframe
+     * @param keyframe the keyframe bytes
+     * @param target the message bytes
+     * @return the encoded diff, header included
+     * @throws IOException if the diff cannot be written
+     */
+    static byte[] encodeDelta(long keyframeId, byte[] keyframe, byte[] target) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeByte(DELTA);
+        data.writeLong(keyframeId);
+        data.writeInt(target.length);
+        data.writeInt(checksum(target, target.length));
+
+        ByteBuffer base = ByteBuffer.wrap(keyframe);
+        Map<Long, Integer> blocks = new HashMap<>();
+        for (int i = 0; i + BLOCK_SIZE <= keyframe.length; i += BLOCK_SIZE) {
+            blocks.putIfAbsent(base.getLong(i), i);
+        }
+
+        ByteBuffer message = ByteBuffer.wrap(target);
+        int literalStart = 0;
+        int expected = -1; // keyframe position following the last copy; successive copies are the common case
+        int i = 0;
+        while (i + BLOCK_SIZE <= target.length) {
+            long block = message.getLong(i);
+            int match;
+            if (expected >= 0 && expected + BLOCK_SIZE <= keyframe.length && base.getLong(expected) == block) {
+                match = expected;
+            } else {
+                Integer found = blocks.get(block);
+                match = found == null ? -1 : found;
+            }
+            if (match < 0) {
+                i++;
+                continue;
+            }
+
+            int start = i;
+            int baseStart = match;
+            while (start > literalStart && baseStart > 0 && target[start - 1] == keyframe[baseStart - 1]) {
+                start--;
+                baseStart--;
+            }
+            int end = i + BLOCK_SIZE;
+            int baseEnd = match + BLOCK_SIZE;
+            while (end < target.length && baseEnd < keyframe.length && target[end] == keyframe[baseEnd]) {
+                end++;
+                baseEnd++;
+            }
+            if (end - start < MIN_MATCH) {
+                i++;
+                continue;
+            }
+
+            writeLiteral(data, target, literalStart, start);
+            data.writeByte(COPY);
+            data.writeInt(baseStart);
+            data.writeInt(end - start);
+            i = literalStart = end;
+            expected = baseEnd;
+        }
+        writeLiteral(data, target, literalStart, target.length);
+
+        data.flush();
+        return out.toByteArray();
+    }
+
+    private static void writeLiteral(DataOutputStream data, byte[] target, int from, int to) throws IOException {
+        if (to > from) {
+            data.writeByte(ADD);
+            data.writeInt(to - from);
+            data.write(target, from, to - from);
+        }
+    }
+
+    /**
+     * @param keyframe the keyframe bytes
+     * @param payload the diff, positioned after the mode and keyframe ID
+     * @return the message bytes
+     * @throws OperationException if the diff is malformed or does not match the keyframe
+     */
+    static byte[] applyDelta(byte[] keyframe, ByteBuffer payload) throws OperationException {
+        int length = payload.getInt();
+        int checksum = payload.getInt();
+        if (length < 0 || length > CompressionOperation.MAX_INFLATED_SIZE) {
+            throw new OperationException("DeltaEncodingOperation decoding failed: invalid length " + length);
+        }
+
+        byte[] output = new byte[length];
+        int position = 0;
+        while (payload.hasRemaining()) {
+            byte instruction = payload.get();
+            if (instruction == COPY) {
+                int offset = payload.getInt();
+                int count = payload.getInt();
+                if (offset < 0 || count < 0 || offset > keyframe.length - count || count > length - position) {
+                    throw new OperationException("DeltaEncodingOperation decoding failed: invalid copy instruction");
+                }
+                System.arraycopy(keyframe, offset, output, position, count);
+                position += count;
+            } else if (instruction == ADD) {
+                int count = payload.getInt();
+                if (count < 0 || count > length - position) {
+                    throw new OperationException("DeltaEncodingOperation decoding failed: invalid add instruction");
+                }
+                payload.get(output, position, count);
+                position += count;
+            } else {
+                throw new OperationException("DeltaEncodingOperation decoding failed: unknown instruction " + instruction);
+            }
+        }
+
+        if (position != length || checksum(output, length) != checksum) {
+            throw new OperationException("DeltaEncodingOperation decoding failed: diff does not match keyframe");
+        }
+        return output;
+    }
+
+    private static int checksum(byte[] bytes, int length) {
+        Adler32 adler = new Adler32();
+        adler.update(bytes, 0, length);
+        return (int) adler.getValue();
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.pipeline.operations;
+
+import com.intel.icecp.core.Node;
+import com.intel.icecp.core.attributes.AttributeNotFoundException;
+import com.intel.icecp.core.attributes.Attributes;
+import com.intel.icecp.core.attributes.DeltaEncodingAttribute;
+import com.intel.icecp.core.pipeline.Operation;
+import com.intel.icecp.core.pipeline.OperationProvider;
+import com.intel.icecp.core.pipeline.exception.OperationCreationException;
+
+/**
+ * Builds a {@link DeltaEncodingOperation} from the {@link DeltaEncodingAttribute} of a channel; each call builds a new
+ * operation, since the operation retains the keyframe of the channel it is used on.
+ *
+ */
+public class DeltaEncodingOperationProvider implements OperationProvider {
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <O extends Operation> O buildOperation(Node node, Attributes attributes) throws OperationCreationException {
+        try {
+            return (O) new DeltaEncodingOperation(attributes.get(DeltaEncodingAttribute.class));
+        } catch (AttributeNotFoundException | NullPointerException | IllegalArgumentException ex) {
+            throw new OperationCreationException("Unable to build delta encoding operation", ex);
+        }
+    }
+
+}
@@ -46,6 +46,13 @@ public class FormattingOperation extends Operation<Message, InputStream> {
         this.format = format;
     }
 
+    /**
+     * @return the format used to encode/decode messages
+     */
+    public Format getFormat() {
+        return format;
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -22,6 +22,7 @@ import com.intel.icecp.core.metadata.formats.FormatEncodingException;
 import com.intel.icecp.core.pipeline.Operation;
 import com.intel.icecp.core.pipeline.exception.OperationException;
 import com.intel.icecp.core.security.CryptoProvider;
+import com.intel.icecp.core.security.crypto.exception.hash.HashError;
 import com.intel.icecp.core.security.crypto.exception.mac.MacError;
 import com.intel.icecp.core.security.crypto.exception.mac.UnsupportedMacAlgorithmException;
 import com.intel.icecp.core.security.crypto.key.symmetric.SymmetricKey;
@@ -29,6 +30,7 @@ import com.intel.icecp.core.security.crypto.mac.MacScheme;
 import com.intel.icecp.core.security.trust.TrustModel;
 import com.intel.icecp.core.security.trust.exception.TrustModelException;
 import com.intel.icecp.node.messages.security.SignedMessage;
+import com.intel.icecp.node.security.crypto.signature.VerificationCache;
 import com.intel.icecp.node.utils.StreamUtils;
 
 import java.io.IOException;
@@ -37,7 +39,8 @@ import java.net.URI;
 
 /**
  * Operation that takes as input an instance of {@link InputStream} and returns a {@link SignedMessage}; "signature" is
- * performed using a MAC scheme.
+ * performed using a MAC scheme. If a {@link VerificationCache} is given, repeated verifications of the same signed
+ * message are skipped.
  *
  */
 public class MacSigningOperation extends Operation<Message, SignedMessage> {
@@ -62,12 +65,22 @@ public class MacSigningOperation extends Operation<Message, SignedMessage> {
      */
     protected final String macScheme;
 
-    public MacSigningOperation(TrustModel<SymmetricKey, SymmetricKey> trustModel, URI keyId, String macScheme, Format format) {
+    /**
+     * Cache of successful verifications; null if disabled
+     */
+    protected final VerificationCache verificationCache;
+
+    public MacSigningOperation(TrustModel<SymmetricKey, SymmetricKey> trustModel, URI keyId, String macScheme, Format format, VerificationCache verificationCache) {
         super(Message.class, SignedMessage.class);
         this.trustModel = trustModel;
         this.format = format;
         this.macScheme = macScheme;
         this.keyId = keyId;
+        this.verificationCache = verificationCache;
+    }
+
+    public MacSigningOperation(TrustModel<SymmetricKey, SymmetricKey> trustModel, URI keyId, String macScheme, Format format) {
+        this(trustModel, keyId, macScheme, format, null);
     }
 
     /**
@@ -99,16 +112,36 @@ public class MacSigningOperation extends Operation<Message, SignedMessage> {
      */
     @Override
     public Message executeInverse(SignedMessage input) throws OperationException {
+        try {
+            byte[] messageBytes = StreamUtils.readAll(format.encode(input.message));
+            if (verificationCache != null) {
+                verificationCache.verify(keyId, messageBytes, input.signature.signatureValue, () -> verifyMac(input.signature.signatureValue, messageBytes));
+            } else {
+                verifyMac(input.signature.signatureValue, messageBytes);
+            }
+            // All OK, return the inner message
+            return input.message;
+        } catch (FormatEncodingException | IOException | HashError | MacError ex) {
+            throw new OperationException("MAC verification failed.", ex);
+        }
+    }
+
+    /**
+     * Verify the MAC of the given bytes; throws an exception if not verified
+     *
+     * @param mac the MAC bytes
+     * @param messageBytes the authenticated bytes
+     * @throws MacError if the MAC is not valid or the key or scheme cannot be retrieved
+     */
+    private void verifyMac(byte[] mac, byte[] messageBytes) throws MacError {
         try {
             // Retrieve the symmetric key via the trust model
             SymmetricKey macSymmetricKey = trustModel.fetchVerifyingKey(keyId);
             MacScheme signScheme = CryptoProvider.getMacScheme(macScheme, false);
             // Verify the MAC (throws an Exception if not verified)
-            signScheme.verifyMac(input.signature.signatureValue, StreamUtils.readAll(format.encode(input.message)), macSymmetricKey);
-            // All OK, return the inner message
-            return input.message;
-        } catch (FormatEncodingException | IOException | TrustModelException | UnsupportedMacAlgorithmException | MacError ex) {
-            throw new OperationException("MAC verification failed.", ex);
+            signScheme.verifyMac(mac, messageBytes, macSymmetricKey);
+        } catch (TrustModelException | UnsupportedMacAlgorithmException ex) {
+            throw new MacError("Unable to verify the MAC of the given message", ex);
         }
     }
 }
\ No newline at end of file
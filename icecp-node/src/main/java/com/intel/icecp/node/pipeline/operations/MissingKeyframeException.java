@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.pipeline.operations;
+
+import com.intel.icecp.core.pipeline.exception.OperationException;
+
+/**
+ * Signals that a diff cannot be decoded by a {@link DeltaEncodingOperation} because the keyframe it references has not
+ * been received; retrieving the keyframe message (through the same pipeline) and decoding the diff again recovers
+ *
+ */
+public class MissingKeyframeException extends OperationException {
+
+    private final long keyframeId;
+
+    /**
+     * @param keyframeId the message ID of the missing keyframe
+     */
+    public MissingKeyframeException(long keyframeId) {
+        super("DeltaEncodingOperation decoding failed: missing keyframe " + keyframeId);
+        this.keyframeId = keyframeId;
+    }
+
+    /**
+     * @return the message ID of the missing keyframe
+     */
+    public long getKeyframeId() {
+        return keyframeId;
+    }
+}
@@ -17,20 +17,34 @@ package com.intel.icecp.node.pipeline.operations;
 
 import com.intel.icecp.core.Node;
 import com.intel.icecp.core.attributes.Attributes;
+import com.intel.icecp.core.attributes.CompressionAttribute;
+import com.intel.icecp.core.attributes.DeltaEncodingAttribute;
+import com.intel.icecp.core.attributes.security.AuthenticatedEncryptionAttribute;
+import com.intel.icecp.core.attributes.security.BatchedSignAttribute;
+import com.intel.icecp.core.attributes.security.SignAttribute;
+import com.intel.icecp.core.misc.Configuration;
 import com.intel.icecp.core.pipeline.Operation;
 import com.intel.icecp.core.pipeline.OperationProvider;
 import com.intel.icecp.core.pipeline.Operations;
 import com.intel.icecp.core.pipeline.exception.OperationCreationException;
+import com.intel.icecp.node.security.SecurityConstants;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Implementation of {@link Operations} that keeps instances of
- * {@link OperationProvider} in a {@link HashMap}
+ * {@link OperationProvider} in a {@link HashMap}; built-in providers (e.g.
+ * authenticated encryption, signing, batched signing, compression, delta encoding) are registered on construction
  *
  */
 public class OperationsImpl implements Operations {
 
+    /**
+     * Configuration property selecting the node default authenticated encryption algorithm (e.g.
+     * {@link SecurityConstants#CHACHA20_POLY1305_ALGORITHM} on devices without AES hardware instructions)
+     */
+    public static final String AUTHENTICATED_ENCRYPTION_ALGORITHM_PROPERTY = "authenticatedEncryptionAlgorithm";
+
     /**
      * Providers holder
      */
@@ -38,8 +52,30 @@ public class OperationsImpl implements Operations {
     
     private final Node node;
     
-    public OperationsImpl(Node node) {
+    /**
+     * @param node the node operations are built for
+     * @param defaultAuthenticatedEncryptionAlgorithm the algorithm used by channels with authenticated encryption
+     * that do not specify one
+     */
+    public OperationsImpl(Node node, String defaultAuthenticatedEncryptionAlgorithm) {
         this.node = node;
+        register(AuthenticatedEncryptionAttribute.ATTRIBUTE_NAME, new AuthenticatedEncryptionOperationProvider(defaultAuthenticatedEncryptionAlgorithm));
+        register(SignAttribute.ATTRIBUTE_NAME, new SigningOperationProvider());
+        register(BatchedSignAttribute.ATTRIBUTE_NAME, new BatchedSigningOperationProvider());
+        register(CompressionAttribute.ATTRIBUTE_NAME, new CompressionOperationProvider());
+        register(DeltaEncodingAttribute.ATTRIBUTE_NAME, new DeltaEncodingOperationProvider());
+    }
+
+    /**
+     * @param node the node operations are built for
+     * @param configuration the node configuration; see {@link #AUTHENTICATED_ENCRYPTION_ALGORITHM_PROPERTY}
+     */
+    public OperationsImpl(Node node, Configuration configuration) {
+        this(node, configuration.getOrDefault(SecurityConstants.AES_GCM_ALGORITHM, AUTHENTICATED_ENCRYPTION_ALGORITHM_PROPERTY));
+    }
+
+    public OperationsImpl(Node node) {
+        this(node, SecurityConstants.AES_GCM_ALGORITHM);
     }
 
     /**
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.pipeline.operations;
+
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.Node;
+import com.intel.icecp.core.attributes.AttributeNotFoundException;
+import com.intel.icecp.core.attributes.Attributes;
+import com.intel.icecp.core.attributes.FormatAttribute;
+import com.intel.icecp.core.attributes.security.SignAttribute;
+import com.intel.icecp.core.attributes.security.SignAttribute.SigningDetails;
+import com.intel.icecp.core.attributes.security.VerificationCachingAttribute;
+import com.intel.icecp.core.metadata.Format;
+import com.intel.icecp.core.metadata.FormatPreference;
+import com.intel.icecp.core.metadata.formats.NegotiatedFormat;
+import com.intel.icecp.core.pipeline.Operation;
+import com.intel.icecp.core.pipeline.OperationProvider;
+import com.intel.icecp.core.pipeline.exception.OperationCreationException;
+import com.intel.icecp.core.security.crypto.key.asymmetric.PrivateKey;
+import com.intel.icecp.core.security.crypto.key.asymmetric.PublicKey;
+import com.intel.icecp.core.security.crypto.key.symmetric.SymmetricKey;
+import com.intel.icecp.core.security.trust.TrustModel;
+import com.intel.icecp.core.security.trust.exception.TrustModelInstantiationError;
+import com.intel.icecp.node.security.crypto.signature.VerificationCache;
+
+/**
+ * Builds a signing operation from the {@link SignAttribute} of a channel: a {@link MacSigningOperation} for HMAC
+ * algorithms (e.g. "HmacSHA256"), an {@link AsymmetricSigningOperation} otherwise. Verifications are cached in the
+ * node-wide {@link VerificationCache#getDefault()} unless the channel disables caching with a {@link
+ * VerificationCachingAttribute}.
+ *
+ */
+public class SigningOperationProvider implements OperationProvider {
+
+    private static final String MAC_ALGORITHM_PREFIX = "Hmac";
+    private final VerificationCache verificationCache;
+
+    public SigningOperationProvider(VerificationCache verificationCache) {
+        this.verificationCache = verificationCache;
+    }
+
+    public SigningOperationProvider() {
+        this(VerificationCache.getDefault());
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <O extends Operation> O buildOperation(Node node, Attributes attributes) throws OperationCreationException {
+        try {
+            SigningDetails details = attributes.get(SignAttribute.class);
+            VerificationCache cache = isCachingEnabled(attributes) ? verificationCache : null;
+            if (details.algorithmId.startsWith(MAC_ALGORITHM_PREFIX)) {
+                TrustModel<SymmetricKey, SymmetricKey> trustModel = node.getTrustModels().createTrustModel(details.trustModelId, attributes);
+                return (O) new MacSigningOperation(trustModel, details.signingKeyId, details.algorithmId,
+                        buildFormat(attributes), cache);
+            } else {
+                TrustModel<PrivateKey, PublicKey> trustModel = node.getTrustModels().createTrustModel(details.trustModelId, attributes);
+                return (O) new AsymmetricSigningOperation(trustModel, details.signingKeyId, details.verificationKey,
+                        buildFormat(attributes), details.algorithmId, cache);
+            }
+        } catch (AttributeNotFoundException | TrustModelInstantiationError | IllegalArgumentException | NullPointerException ex) {
+            throw new OperationCreationException("Unable to build signing operation", ex);
+        }
+    }
+
+    /**
+     * Build the format in which signing operations encode messages before signing them
+     *
+     * @param attributes the channel attributes, holding a {@link FormatAttribute}
+     * @return the format of the channel
+     * @throws AttributeNotFoundException if the channel has no format attribute
+     * @throws IllegalArgumentException if the format is not supported
+     */
+    @SuppressWarnings("unchecked")
+    static Format<Message> buildFormat(Attributes attributes) throws AttributeNotFoundException {
+        FormatAttribute.FormatInfo info = attributes.get(FormatAttribute.FORMAT_ATTRIBUTE_ID, FormatAttribute.FormatInfo.class);
+        return new NegotiatedFormat<>(info.type, new FormatPreference(info.attributeMimeType));
+    }
+
+    private static boolean isCachingEnabled(Attributes attributes) throws AttributeNotFoundException {
+        return !attributes.has(VerificationCachingAttribute.ATTRIBUTE_NAME)
+                || attributes.get(VerificationCachingAttribute.ATTRIBUTE_NAME, Boolean.class);
+    }
+
+}
@@ -31,16 +31,23 @@ public class SecurityConstants {
 
     // ***** Symmetric key types
     public static final String AES = "AES";
+    public static final String CHACHA20 = "ChaCha20";
     // Default values
     public static final int DEFAULT_SYMM_KEY_SIZE = 128;
+    public static final int CHACHA20_KEY_SIZE = 256;
 
     // ***** Symm Encryption algorithms
     public static final String AES_ECB_ALGORITHM = "AES/ECB/PKCS5Padding";
     public static final String AES_CBC_ALGORITHM = "AES/CBC/PKCS5Padding";
+    public static final String AES_GCM_ALGORITHM = "AES/GCM/NoPadding";
+    public static final String CHACHA20_POLY1305_ALGORITHM = "ChaCha20-Poly1305";
 
     // ***** Asymm Encryption algorithms
     public static final String RSA_ALGORITHM = "RSA";
     public static final String EC_ALGORITHM = "EC";
+    public static final String ED25519_ALGORITHM = "Ed25519";
+    // Curve25519 keys have a fixed size
+    public static final int ED25519_KEY_SIZE = 255;
     public static final String CPABE_ALGORITHM = "CP-ABE";
 
     // ***** Signature algorihms
@@ -48,6 +55,7 @@ public class SecurityConstants {
     public static final String SHA1withRSA = "SHA1withRSA";
     public static final String SHA256withRSA = "SHA256withRSA";
     public static final String SHA1withECDSA = "SHA1withECDSA";
+    public static final String Ed25519 = "Ed25519";
 
     // ***** Message Auth Code (MAC)
     public static final String HmacSHA1 = "HmacSHA1";
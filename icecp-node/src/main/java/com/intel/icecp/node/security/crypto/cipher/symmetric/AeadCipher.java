@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.security.crypto.cipher.symmetric;
+
+import com.intel.icecp.core.security.crypto.cipher.Cipher;
+import com.intel.icecp.core.security.crypto.exception.cipher.CipherDecryptionError;
+import com.intel.icecp.core.security.crypto.exception.cipher.CipherEncryptionError;
+import com.intel.icecp.core.security.crypto.key.symmetric.SymmetricKey;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import javax.crypto.BadPaddingException;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
+
+/**
+ * Generic AEAD (authenticated encryption with associated data) cipher with a 96-bit nonce and a 128-bit
+ * authentication tag (e.g., AES-GCM, ChaCha20-Poly1305); it encrypts and authenticates the data in a single pass. The
+ * first 12 bytes of the produced ciphertext correspond to the IV, and the last 16 bytes to the authentication tag.
+ * <p>
+ * IVs are fully random (NIST SP 800-38D RBG-based construction): keys are shared by every node and process publishing
+ * on a channel, none of which can coordinate a counter with the others, so a counter-based IV would repeat across
+ * processes. With random 96-bit IVs a key may safely encrypt up to 2^32 messages.
+ *
+ */
+public abstract class AeadCipher implements Cipher<SymmetricKey, SymmetricKey> {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /** Number of bytes of the IV */
+    protected static final int IV_SIZE = 96 / 8;
+
+    /** Size in bits of the authentication tag */
+    protected static final int TAG_SIZE_BITS = 128;
+
+    /** Source of IVs; SecureRandom is thread-safe */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * Builds the algorithm specific parameters for the given IV
+     *
+     * @param iv Buffer containing the IV
+     * @param offset Offset of the IV in the buffer
+     * @return The parameters to initialize the underlying {@link javax.crypto.Cipher} with
+     */
+    protected abstract AlgorithmParameterSpec parameterSpec(byte[] iv, int offset);
+
+    /**
+     * Generates a random IV of {@link AeadCipher#IV_SIZE} bytes
+     *
+     * @return IV Bytes to use as Initial Vector.
+     */
+    private static byte[] generateIV() {
+        byte[] iv = new byte[IV_SIZE];
+        RANDOM.nextBytes(iv);
+        return iv;
+    }
+
+    /**
+     * Extracts the (optional) parameter at the given position, if of type byte[]
+     *
+     * @param other Optional parameters
+     * @param index Position of the parameter
+     * @return The parameter, or null if not present or of the wrong type
+     */
+    private static byte[] optionalBytes(Object[] other, int index) {
+        if (other != null && other.length > index) {
+            try {
+                return (byte[]) other[index];
+            } catch (ClassCastException ex) {
+                LOGGER.warn("Incorrect parameter type passed to cipher ", ex);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The first optional parameter is the IV to use, the second optional parameter is additional data to
+     * authenticate (but not encrypt)
+     * <p>
+     * {@inheritDoc }
+     */
+    @Override
+    public byte[] encrypt(byte[] plaintext, SymmetricKey key, Object... other) throws CipherEncryptionError {
+        if (key == null || plaintext == null) {
+            throw new CipherEncryptionError("Error during encryption: null key or data to encrypt");
+        }
+
+        byte[] iv = optionalBytes(other, 0);
+        if (iv == null) {
+            iv = generateIV();
+        } else if (iv.length != IV_SIZE) {
+            throw new CipherEncryptionError("Error during encryption: IV must be " + IV_SIZE + " bytes long");
+        }
+        byte[] aad = optionalBytes(other, 1);
+
+        try {
+            javax.crypto.Cipher cipher = javax.crypto.Cipher.getInstance(id());
+            cipher.init(javax.crypto.Cipher.ENCRYPT_MODE, key.getWrappedKey(), parameterSpec(iv, 0));
+            if (aad != null) {
+                cipher.updateAAD(aad);
+            }
+            // Encode the ciphertext as IV || encryptedData || tag, writing directly into the output buffer
+            byte[] ciphertext = new byte[IV_SIZE + cipher.getOutputSize(plaintext.length)];
+            System.arraycopy(iv, 0, ciphertext, 0, IV_SIZE);
+            cipher.doFinal(plaintext, 0, plaintext.length, ciphertext, IV_SIZE);
+            return ciphertext;
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidAlgorithmParameterException | InvalidKeyException | IllegalBlockSizeException | BadPaddingException | ShortBufferException ex) {
+            throw new CipherEncryptionError("Error during encryption.", ex);
+        }
+    }
+
+    /**
+     * The ciphertext must be in the format produced by {@link #encrypt(byte[], SymmetricKey, Object...)}; the first
+     * optional parameter is ignored, the second one is the additional authenticated data (if any was used)
+     * <p>
+     * {@inheritDoc }
+     */
+    @Override
+    public byte[] decrypt(byte[] ciphertext, SymmetricKey key, Object... other) throws CipherDecryptionError {
+        if (key == null || ciphertext == null) {
+            throw new CipherDecryptionError("Error during decryption: null data to decrypt or key");
+        }
+        if (ciphertext.length < IV_SIZE + TAG_SIZE_BITS / 8) {
+            throw new CipherDecryptionError("Error during decryption: ciphertext too short");
+        }
+        byte[] aad = optionalBytes(other, 1);
+
+        try {
+            javax.crypto.Cipher cipher = javax.crypto.Cipher.getInstance(id());
+            cipher.init(javax.crypto.Cipher.DECRYPT_MODE, key.getWrappedKey(), parameterSpec(ciphertext, 0));
+            if (aad != null) {
+                cipher.updateAAD(aad);
+            }
+            // Throws AEADBadTagException (a BadPaddingException) if the data was tampered with
+            return cipher.doFinal(ciphertext, IV_SIZE, ciphertext.length - IV_SIZE);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidAlgorithmParameterException | InvalidKeyException | IllegalBlockSizeException | BadPaddingException ex) {
+            throw new CipherDecryptionError("Error during decryption", ex);
+        }
+    }
+
+}
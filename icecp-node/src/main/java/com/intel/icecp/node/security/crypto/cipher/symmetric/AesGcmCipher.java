@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.security.crypto.cipher.symmetric;
+
+import com.intel.icecp.node.security.SecurityConstants;
+
+import java.security.spec.AlgorithmParameterSpec;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * AES GCM implementation; encrypts and authenticates the data in a single pass. Fast on CPUs with AES hardware
+ * instructions, see {@link ChaCha20Poly1305Cipher} for devices without them.
+ * <p>
+ * See {@link AeadCipher} for the ciphertext format and the IV construction.
+ *
+ */
+public class AesGcmCipher extends AeadCipher {
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    protected AlgorithmParameterSpec parameterSpec(byte[] iv, int offset) {
+        return new GCMParameterSpec(TAG_SIZE_BITS, iv, offset, IV_SIZE);
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String id() {
+        return SecurityConstants.AES_GCM_ALGORITHM;
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.security.crypto.cipher.symmetric;
+
+import com.intel.icecp.node.security.SecurityConstants;
+
+import java.security.spec.AlgorithmParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+
+/**
+ * ChaCha20-Poly1305 (RFC 7539) implementation; encrypts and authenticates the data in a single pass. Unlike AES, it is
+ * fast in pure software, which makes it the preferred choice on devices without AES hardware instructions. Keys are
+ * 256-bit symmetric keys (see {@link SecurityConstants#CHACHA20}).
+ * <p>
+ * See {@link AeadCipher} for the ciphertext format and the IV construction. Requires a JCA provider supporting
+ * ChaCha20-Poly1305 (e.g., the default provider of Java 11 or later).
+ *
+ */
+public class ChaCha20Poly1305Cipher extends AeadCipher {
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    protected AlgorithmParameterSpec parameterSpec(byte[] iv, int offset) {
+        return new IvParameterSpec(iv, offset, IV_SIZE);
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String id() {
+        return SecurityConstants.CHACHA20_POLY1305_ALGORITHM;
+    }
+
+}
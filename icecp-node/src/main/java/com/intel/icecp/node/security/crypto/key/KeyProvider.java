@@ -58,6 +58,17 @@ public class KeyProvider {
             throw new InvalidKeyTypeException("Unable to create key pair for algorithm " + algorithm + ".", ex);
         }
     }
+
+    /**
+     * Generates and returns an Ed25519 key pair, to be used with the EdDSA signature scheme. Requires a JCA provider
+     * supporting Ed25519 (e.g., the default provider of Java 15 or later)
+     *
+     * @return An instance of KeyPair containing the keys
+     * @throws InvalidKeyTypeException If Ed25519 is not supported
+     */
+    public static KeyPair generateEd25519KeyPair() throws InvalidKeyTypeException {
+        return generateKeyPair(SecurityConstants.ED25519_ALGORITHM, SecurityConstants.ED25519_KEY_SIZE);
+    }
     
     
     /**
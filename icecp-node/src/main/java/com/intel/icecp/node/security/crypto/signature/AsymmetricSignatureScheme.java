@@ -58,7 +58,9 @@ public abstract class AsymmetricSignatureScheme implements SignatureScheme<Priva
             signatureScheme.initVerify(key.getPublicKey());
             // Pass the data and verify the signature
             signatureScheme.update(data);
-            signatureScheme.verify(signature);
+            if (!signatureScheme.verify(signature)) {
+                throw new SignatureError("Signature does not match the given message");
+            }
         } catch (NoSuchAlgorithmException | ClassCastException | InvalidKeyException | java.security.SignatureException ex) {
             throw new SignatureError("Unable to verify the signature of the given message", ex);
         }
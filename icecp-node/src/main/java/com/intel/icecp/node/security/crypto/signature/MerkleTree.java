@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.security.crypto.signature;
+
+import com.intel.icecp.core.security.crypto.exception.hash.HashError;
+import com.intel.icecp.node.security.SecurityConstants;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SHA-256 Merkle tree used to cover a batch of messages with a single signature. Leaves and inner nodes are hashed
+ * with different prefixes (as in RFC 6962) so that an inner node can never be presented as a leaf; when a level has
+ * an odd number of nodes, the last one is promoted unchanged to the next level.
+ * <p>
+ * Instances are immutable once built and can be shared among threads.
+ *
+ */
+public class MerkleTree {
+
+    private static final byte LEAF_PREFIX = 0x00;
+    private static final byte NODE_PREFIX = 0x01;
+
+    /** All the levels of the tree; the first contains the leaf hashes, the last the root */
+    private final List<byte[][]> levels = new ArrayList<>();
+
+    /**
+     * Build the tree from the given leaf hashes
+     *
+     * @param leafHashes the leaf hashes, see {@link #hashLeaf(byte[])}; must not be empty
+     * @throws HashError if the hash algorithm is not available
+     */
+    public MerkleTree(List<byte[]> leafHashes) throws HashError {
+        if (leafHashes == null || leafHashes.isEmpty()) {
+            throw new IllegalArgumentException("A Merkle tree requires at least one leaf");
+        }
+
+        byte[][] level = leafHashes.toArray(new byte[leafHashes.size()][]);
+        levels.add(level);
+        while (level.length > 1) {
+            byte[][] next = new byte[(level.length + 1) / 2][];
+            for (int i = 0; i < next.length; i++) {
+                int left = 2 * i;
+                next[i] = left + 1 < level.length ? hashNode(level[left], level[left + 1]) : level[left];
+            }
+            levels.add(next);
+            level = next;
+        }
+    }
+
+    /**
+     * @return the number of leaves in the tree
+     */
+    public int size() {
+        return levels.get(0).length;
+    }
+
+    /**
+     * @return the root hash of the tree
+     */
+    public byte[] root() {
+        return levels.get(levels.size() - 1)[0];
+    }
+
+    /**
+     * @param index the index of the leaf
+     * @return the sibling hashes from the leaf up to (excluding) the root; levels where the node was promoted have no
+     * entry
+     */
+    public byte[][] path(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Invalid leaf index: " + index);
+        }
+
+        List<byte[]> path = new ArrayList<>(levels.size());
+        for (int l = 0; l < levels.size() - 1; l++) {
+            byte[][] level = levels.get(l);
+            int sibling = (index % 2 == 0) ? index + 1 : index - 1;
+            if (sibling < level.length) {
+                path.add(level[sibling]);
+            }
+            index /= 2;
+        }
+        return path.toArray(new byte[path.size()][]);
+    }
+
+    /**
+     * Recompute the root of a tree from one of its leaves and the inclusion path of the leaf
+     *
+     * @param leafHash the leaf hash
+     * @param index the index of the leaf
+     * @param size the number of leaves of the tree
+     * @param path the inclusion path, see {@link #path(int)}
+     * @return the root hash
+     * @throws HashError if the hash algorithm is not available
+     * @throws IllegalArgumentException if the path does not match the index and size
+     */
+    public static byte[] computeRoot(byte[] leafHash, int index, int size, byte[][] path) throws HashError {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("Invalid leaf index " + index + " for a tree of size " + size);
+        }
+
+        byte[] current = leafHash;
+        int next = 0;
+        while (size > 1) {
+            boolean promoted = index % 2 == 0 && index + 1 >= size;
+            if (!promoted) {
+                if (next >= path.length) {
+                    throw new IllegalArgumentException("Inclusion path is too short");
+                }
+                current = (index % 2 == 0) ? hashNode(current, path[next]) : hashNode(path[next], current);
+                next++;
+            }
+            index /= 2;
+            size = (size + 1) / 2;
+        }
+
+        if (next != path.length) {
+            throw new IllegalArgumentException("Inclusion path is too long");
+        }
+        return current;
+    }
+
+    /**
+     * @param data the leaf data
+     * @return the leaf hash of the data
+     * @throws HashError if the hash algorithm is not available
+     */
+    public static byte[] hashLeaf(byte[] data) throws HashError {
+        MessageDigest digest = newDigest();
+        digest.update(LEAF_PREFIX);
+        digest.update(data);
+        return digest.digest();
+    }
+
+    private static byte[] hashNode(byte[] left, byte[] right) throws HashError {
+        MessageDigest digest = newDigest();
+        digest.update(NODE_PREFIX);
+        digest.update(left);
+        digest.update(right);
+        return digest.digest();
+    }
+
+    private static MessageDigest newDigest() throws HashError {
+        try {
+            return MessageDigest.getInstance(SecurityConstants.SHA256);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new HashError("Unable to compute the hash of the given input.", ex);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.security.crypto.signature;
+
+import com.intel.icecp.core.security.crypto.exception.hash.HashError;
+import com.intel.icecp.node.security.SecurityConstants;
+import com.intel.icecp.node.security.crypto.utils.CryptoUtils;
+import com.intel.icecp.node.utils.BoundedLinkedMap;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of successful signature (or MAC) verifications, keyed by the verification key ID, the SHA-256 digest
+ * of the signed bytes and the signature itself; repeated verifications of the same signed payload (e.g. retries,
+ * several subscribers on the same channel, polling an unchanged message) skip the cryptographic verification.
+ * <p>
+ * Only successful verifications are cached. Channels that must re-verify every message (e.g. for replay-sensitivity
+ * reasons) should not use a cache at all; all the signing operations treat a null cache as disabled, and the signing
+ * operation providers disable it for channels with a false {@link
+ * com.intel.icecp.core.attributes.security.VerificationCachingAttribute}.
+ *
+ */
+public class VerificationCache {
+
+    public static final int DEFAULT_MAX_SIZE = 4096;
+    private static final VerificationCache DEFAULT = new VerificationCache(DEFAULT_MAX_SIZE);
+    private final Map<Entry, Boolean> verified;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxSize the maximum number of verifications to remember
+     */
+    public VerificationCache(int maxSize) {
+        this.verified = new BoundedLinkedMap<>(maxSize);
+    }
+
+    public VerificationCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @return the node-wide cache shared by the signing operations built by the operation providers
+     */
+    public static VerificationCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Run the verification unless an identical verification already succeeded
+     *
+     * @param <E> the type of exception thrown by a failed verification
+     * @param keyId the ID of the verification key
+     * @param signedBytes the signed bytes
+     * @param signature the signature (or MAC) bytes
+     * @param verification the actual verification; must throw if the signature is not valid
+     * @throws E if the verification fails
+     * @throws HashError if the digest of the signed bytes cannot be computed
+     */
+    public <E extends Exception> void verify(URI keyId, byte[] signedBytes, byte[] signature, Verification<E> verification) throws E, HashError {
+        Entry entry = new Entry(keyId, CryptoUtils.hash(signedBytes, SecurityConstants.SHA256), signature.clone());
+        if (verified.containsKey(entry)) {
+            hits.incrementAndGet();
+            return;
+        }
+
+        misses.incrementAndGet();
+        verification.verify();
+        verified.put(entry, Boolean.TRUE);
+    }
+
+    /**
+     * @return the number of verifications skipped thanks to the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of verifications actually performed
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the ratio of skipped verifications over all verification requests, or 0 if none were requested
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return the number of cached verifications
+     */
+    public int size() {
+        return verified.size();
+    }
+
+    /**
+     * Forget all cached verifications, e.g. after a key has been revoked
+     */
+    public void clear() {
+        verified.clear();
+    }
+
+    /**
+     * A signature verification that throws if the signature is not valid
+     *
+     * @param <E> the type of exception thrown
+     */
+    @FunctionalInterface
+    public interface Verification<E extends Exception> {
+
+        void verify() throws E;
+    }
+
+    /**
+     * Cache key
+     */
+    private static class Entry {
+
+        final URI keyId;
+        final byte[] digest;
+        final byte[] signature;
+
+        Entry(URI keyId, byte[] digest, byte[] signature) {
+            this.keyId = keyId;
+            this.digest = digest;
+            this.signature = signature;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+            Entry other = (Entry) obj;
+            return Objects.equals(keyId, other.keyId) && Arrays.equals(digest, other.digest) && Arrays.equals(signature, other.signature);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Objects.hashCode(keyId) + Arrays.hashCode(digest)) + Arrays.hashCode(signature);
+        }
+    }
+}
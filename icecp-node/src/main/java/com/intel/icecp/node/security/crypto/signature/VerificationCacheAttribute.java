@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.security.crypto.signature;
+
+import com.intel.icecp.core.attributes.BaseAttribute;
+
+import java.io.Serializable;
+
+/**
+ * Report the effectiveness of a {@link VerificationCache}, e.g. the node-wide cache used by the signing operations
+ *
+ */
+public class VerificationCacheAttribute extends BaseAttribute<VerificationCacheAttribute.VerificationCacheMetrics> {
+
+    private final VerificationCache cache;
+
+    public VerificationCacheAttribute(VerificationCache cache) {
+        super("verification-cache", VerificationCacheMetrics.class);
+        this.cache = cache;
+    }
+
+    @Override
+    public VerificationCacheMetrics value() {
+        return new VerificationCacheMetrics(cache.getHits(), cache.getMisses(), cache.size());
+    }
+
+    /**
+     * Expose the metrics of the cache; the {@link #hitRate} is added for ease of use
+     */
+    public static class VerificationCacheMetrics implements Serializable {
+        private static final long serialVersionUID = 6318270945123067443L;
+        public final long hits;
+        public final long misses;
+        public final int entries;
+        public final double hitRate;
+
+        /**
+         * Constructor necessary for Jackson serialization
+         */
+        public VerificationCacheMetrics() {
+            this(0, 0, 0);
+        }
+
+        public VerificationCacheMetrics(long hits, long misses, int entries) {
+            this.hits = hits;
+            this.misses = misses;
+            this.entries = entries;
+            this.hitRate = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+
+        @Override
+        public String toString() {
+            return "VerificationCacheMetrics{" + "hits=" + hits + ", misses=" + misses + ", entries=" + entries +
+                    ", hitRate=" + hitRate + '}';
+        }
+    }
+}
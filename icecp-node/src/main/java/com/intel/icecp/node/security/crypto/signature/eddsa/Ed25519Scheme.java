@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.security.crypto.signature.eddsa;
+
+import com.intel.icecp.node.security.SecurityConstants;
+import com.intel.icecp.node.security.crypto.signature.AsymmetricSignatureScheme;
+
+/**
+ * EdDSA signature scheme over Curve25519; signatures are deterministic (no per-signature randomness) and both signing
+ * and verification are considerably faster than RSA at a comparable security level. Keys can be generated with
+ * {@link com.intel.icecp.node.security.crypto.key.KeyProvider#generateEd25519KeyPair()}.
+ * <p>
+ * Requires a JCA provider supporting Ed25519 (e.g., the default provider of Java 15 or later).
+ *
+ */
+public class Ed25519Scheme extends AsymmetricSignatureScheme {
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String id() {
+        return SecurityConstants.Ed25519;
+    }
+
+}
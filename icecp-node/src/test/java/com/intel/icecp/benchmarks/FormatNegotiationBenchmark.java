@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.benchmarks;
+
+import com.intel.icecp.common.TestHelper;
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.Node;
+import com.intel.icecp.core.attributes.AttributeMessage;
+import com.intel.icecp.core.channels.Token;
+import com.intel.icecp.core.event.types.ChannelEvent;
+import com.intel.icecp.core.metadata.Format;
+import com.intel.icecp.core.metadata.FormatPreference;
+import com.intel.icecp.core.metadata.formats.FormatEncodingException;
+import com.intel.icecp.core.metadata.formats.NegotiatedFormat;
+import com.intel.icecp.node.messages.NodeInfoMessage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Measure the packet size and encoding time of the built-in message types of node-internal channels in each of the
+ * negotiable formats (see {@link NegotiatedFormat}).
+ *
+ */
+public class FormatNegotiationBenchmark {
+
+    private static final Logger logger = LogManager.getLogger();
+    private static final int NUM_MESSAGES = 10000;
+    private static final String[] FORMATS = {FormatPreference.JSON, FormatPreference.CBOR, FormatPreference.TLV};
+
+    @Test
+    public void testAttributeMessage() throws IOException {
+        measure(new Token<AttributeMessage<Long>>() {
+        }, new AttributeMessage<>(123456789L));
+    }
+
+    @Test
+    public void testStringAttributeMessage() throws IOException {
+        measure(new Token<AttributeMessage<String>>() {
+        }, new AttributeMessage<>("icecp-node-1"));
+    }
+
+    @Test
+    public void testChannelEvent() throws IOException {
+        measure(Token.of(ChannelEvent.class), new ChannelEvent("node-1", URI.create("ndn:/intel/node/1/attributes"), ChannelEvent.Action.OPENED));
+    }
+
+    @Test
+    public void testNodeStatus() throws IOException {
+        measure(Token.of(Node.State.class), Node.State.ON);
+    }
+
+    @Test
+    public void testNodeInfoMessage() throws IOException {
+        measure(Token.of(NodeInfoMessage.class), new NodeInfoMessage("node-1", new String[]{"ndn", "file", "rpc"},
+                new String[]{"ndn:/intel/node/1/attributes", "ndn:/intel/node/1/status"}, "ndn:/intel/node/1"));
+    }
+
+    private <T extends Message> void measure(Token<T> type, T message) throws IOException {
+        logger.info(String.format("Encoded %d %s messages:", NUM_MESSAGES, type));
+        for (String mimeType : FORMATS) {
+            Format<T> format = new NegotiatedFormat<>(type, new FormatPreference(mimeType));
+            try {
+                int size = TestHelper.readAllBytes(format.encode(message)).length;
+                long start = System.nanoTime();
+                for (int i = 0; i < NUM_MESSAGES; i++) {
+                    TestHelper.readAllBytes(format.encode(message));
+                }
+                long end = System.nanoTime();
+                logger.info(String.format("\t%s: %d bytes, %.2f us/message", mimeType, size, (end - start) / 1000.0 / NUM_MESSAGES));
+            } catch (FormatEncodingException | RuntimeException e) {
+                logger.info(String.format("\t%s: not supported (%s)", mimeType, e.getMessage()));
+            }
+        }
+    }
+}
@@ -24,6 +24,7 @@ import com.intel.icecp.core.metadata.formats.CborFormat;
 import com.intel.icecp.core.metadata.formats.FormatEncodingException;
 import com.intel.icecp.core.metadata.formats.JavaSerializationFormat;
 import com.intel.icecp.core.metadata.formats.JsonFormat;
+import com.intel.icecp.core.metadata.formats.TlvFormat;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.Before;
@@ -74,6 +75,12 @@ public class FormatterSpeedBenchmark {
         timeEncodeDecode(format, messages);
     }
 
+    @Test
+    public void testTlvFormatter() throws FormatEncodingException, IOException {
+        Format<TestMessage> format = new TlvFormat<>(TestMessage.class);
+        timeEncodeDecode(format, messages);
+    }
+
     private <T extends Message> void timeEncodeDecode(Format<T> format, List<T> messages) throws FormatEncodingException, IOException {
         List<byte[]> encodedMessages = new ArrayList<>();
 
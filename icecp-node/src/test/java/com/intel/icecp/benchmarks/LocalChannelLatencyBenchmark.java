@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.benchmarks;
+
+import com.intel.icecp.common.TestHelper;
+import com.intel.icecp.common.TestMessage;
+import com.intel.icecp.core.Channel;
+import com.intel.icecp.core.channels.ChannelProvider;
+import com.intel.icecp.core.metadata.Persistence;
+import com.intel.icecp.core.metadata.formats.JsonFormat;
+import com.intel.icecp.core.pipeline.Pipeline;
+import com.intel.icecp.node.NodeFactory;
+import com.intel.icecp.node.channels.local.LocalChannelProvider;
+import com.intel.icecp.node.channels.ndn.NdnChannelProvider;
+import com.intel.icecp.node.pipeline.implementations.MessageFormattingPipeline;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is a path-finding tool, not a unit/integration test; it measures the publish-to-callback latency between two
+ * modules of the same node using local channels and using NDN channels through the NFD of the host (see
+ * {@link TestHelper#getNfdHostName()}).
+ *
+ */
+public class LocalChannelLatencyBenchmark {
+
+    private static final Logger logger = LogManager.getLogger();
+    private static final int NUM_MESSAGES = 1000;
+    private static final int MESSAGE_SIZE = 100;
+    private static final long PUBLISH_INTERVAL_MS = 5;
+    private final Pipeline pipeline = MessageFormattingPipeline.create(TestMessage.class, new JsonFormat<>(TestMessage.class));
+    private final ScheduledExecutorService eventLoop = NodeFactory.buildEventLoop();
+
+    @Test
+    public void testLocalLatency() throws Exception {
+        LocalChannelProvider provider = new LocalChannelProvider();
+        provider.start(eventLoop, null);
+        measure(provider, URI.create("local:/test/latency/" + TestHelper.generateRandomString(10)));
+    }
+
+    @Ignore
+    @Test
+    public void testNdnLatency() throws Exception {
+        NdnChannelProvider provider = new NdnChannelProvider("/test/identity", TestHelper.getNfdHostName(), eventLoop);
+        measure(provider, URI.create("ndn:/test/latency/" + TestHelper.generateRandomString(10)));
+    }
+
+    private void measure(ChannelProvider provider, URI uri) throws Exception {
+        Channel<TestMessage> publisher = provider.build(uri, pipeline, new Persistence());
+        Channel<TestMessage> subscriber = provider.build(uri, pipeline, new Persistence());
+        publisher.open().get();
+        subscriber.open().get();
+
+        long[] latencies = new long[NUM_MESSAGES];
+        long[] sent = new long[NUM_MESSAGES];
+        CountDownLatch latch = new CountDownLatch(NUM_MESSAGES);
+        subscriber.subscribe(message -> {
+            latencies[message.c] = System.nanoTime() - sent[message.c];
+            latch.countDown();
+        });
+
+        for (int i = 0; i < NUM_MESSAGES; i++) {
+            TestMessage message = TestMessage.build(TestHelper.generateRandomString(MESSAGE_SIZE), 0, i, false);
+            sent[i] = System.nanoTime();
+            publisher.publish(message);
+            Thread.sleep(PUBLISH_INTERVAL_MS);
+        }
+
+        boolean completed = latch.await(10, TimeUnit.SECONDS);
+        long[] received = Arrays.stream(latencies).filter(l -> l > 0).sorted().toArray();
+        logger.info(String.format("%s: %d/%d received%s, latency p50 %.1f us, p99 %.1f us, max %.1f us", uri.getScheme(),
+                received.length, NUM_MESSAGES, completed ? "" : " (timed out)", percentile(received, 0.5) / 1000.0,
+                percentile(received, 0.99) / 1000.0, percentile(received, 1.0) / 1000.0));
+
+        publisher.close();
+        subscriber.close();
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.round(fraction * (sorted.length - 1)))];
+    }
+}
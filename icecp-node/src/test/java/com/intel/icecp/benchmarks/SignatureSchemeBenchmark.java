@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.benchmarks;
+
+import com.intel.icecp.core.security.crypto.key.asymmetric.KeyPair;
+import com.intel.icecp.core.security.crypto.signature.SignatureScheme;
+import com.intel.icecp.node.security.RandomBytesGenerator;
+import com.intel.icecp.node.security.SecurityConstants;
+import com.intel.icecp.node.security.crypto.key.KeyProvider;
+import com.intel.icecp.node.security.crypto.signature.ecdsa.Sha1WithEcdsaScheme;
+import com.intel.icecp.node.security.crypto.signature.eddsa.Ed25519Scheme;
+import com.intel.icecp.node.security.crypto.signature.rsa.Sha256withRsaScheme;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Test;
+
+/**
+ * Benchmark the sign and verify throughput of the asymmetric {@link SignatureScheme} implementations against each
+ * other, using keys of comparable strength where possible.
+ *
+ */
+public class SignatureSchemeBenchmark {
+
+    private static final Logger logger = LogManager.getLogger();
+    private static final int NUM_OPERATIONS = 1000;
+    private static final int WARM_UP_OPERATIONS = 100;
+    private static final int MESSAGE_SIZE = 256;
+    private final byte[] message = RandomBytesGenerator.getRandomBytes(MESSAGE_SIZE);
+
+    @Test
+    public void testRsaScheme() throws Exception {
+        timeSignVerify(new Sha256withRsaScheme(), KeyProvider.generateKeyPair(SecurityConstants.RSA_ALGORITHM, 2048));
+    }
+
+    @Test
+    public void testEcdsaScheme() throws Exception {
+        timeSignVerify(new Sha1WithEcdsaScheme(), KeyProvider.generateKeyPair(SecurityConstants.EC_ALGORITHM, 256));
+    }
+
+    @Test
+    public void testEd25519Scheme() throws Exception {
+        timeSignVerify(new Ed25519Scheme(), KeyProvider.generateEd25519KeyPair());
+    }
+
+    private void timeSignVerify(SignatureScheme scheme, KeyPair keyPair) throws Exception {
+        byte[] signature = null;
+        for (int i = 0; i < WARM_UP_OPERATIONS; i++) {
+            signature = scheme.sign(message, keyPair.getPrivateKey());
+            scheme.verify(signature, message, keyPair.getPublicKey());
+        }
+
+        long startSigning = System.nanoTime();
+        for (int i = 0; i < NUM_OPERATIONS; i++) {
+            signature = scheme.sign(message, keyPair.getPrivateKey());
+        }
+        long endSigning = System.nanoTime();
+
+        long startVerifying = System.nanoTime();
+        for (int i = 0; i < NUM_OPERATIONS; i++) {
+            scheme.verify(signature, message, keyPair.getPublicKey());
+        }
+        long endVerifying = System.nanoTime();
+
+        logger.info(String.format("Signed and verified %d messages with %s: ", NUM_OPERATIONS, scheme.id()));
+        logger.info("\tSignature size (bytes): " + signature.length);
+        logger.info("\tSign throughput (ops/s): " + opsPerSecond(endSigning - startSigning));
+        logger.info("\tVerify throughput (ops/s): " + opsPerSecond(endVerifying - startVerifying));
+    }
+
+    private long opsPerSecond(long elapsedNanos) {
+        return NUM_OPERATIONS * 1000000000L / Math.max(elapsedNanos, 1);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intel.icecp.common.TestMessage;
+import com.intel.icecp.core.Module;
+import com.intel.icecp.core.attributes.AttributeMessage;
+import com.intel.icecp.core.channels.Token;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test {@link JacksonMapperRegistry}
+ *
+ */
+public class JacksonMapperRegistryTest {
+
+    @Test
+    public void readersAreSharedPerType() {
+        JacksonMapperRegistry registry = JacksonMapperRegistry.json();
+        assertSame(registry.reader(Token.of(TestMessage.class)), registry.reader(Token.of(TestMessage.class)));
+        assertSame(registry.reader(new Token<AttributeMessage<Module.State>>() {
+        }), registry.reader(new Token<AttributeMessage<Module.State>>() {
+        }));
+    }
+
+    @Test
+    public void differentTypesHaveDifferentReaders() {
+        JacksonMapperRegistry registry = new JacksonMapperRegistry(new ObjectMapper());
+        assertNotSame(registry.reader(new Token<AttributeMessage<Module.State>>() {
+        }), registry.reader(new Token<AttributeMessage<String>>() {
+        }));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void formatsShareTheRegistryReaders() {
+        new JsonFormat<>(TestMessage.class);
+        int readers = JacksonMapperRegistry.json().size();
+        new JsonFormat<>(TestMessage.class);
+        assertEquals(readers, JacksonMapperRegistry.json().size());
+    }
+
+    @Test
+    public void jsonAndCborAreSeparate() {
+        assertNotSame(JacksonMapperRegistry.json().mapper(), JacksonMapperRegistry.cbor().mapper());
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats;
+
+import com.fasterxml.jackson.databind.jsonFormatVisitors.JsonValueFormat;
+import com.fasterxml.jackson.module.jsonSchema.JsonSchema;
+import com.fasterxml.jackson.module.jsonSchema.types.ArraySchema;
+import com.fasterxml.jackson.module.jsonSchema.types.BooleanSchema;
+import com.fasterxml.jackson.module.jsonSchema.types.IntegerSchema;
+import com.fasterxml.jackson.module.jsonSchema.types.NumberSchema;
+import com.fasterxml.jackson.module.jsonSchema.types.ObjectSchema;
+import com.intel.icecp.common.TestHelper;
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.metadata.formats.jbs.GenericObject;
+import com.intel.icecp.core.metadata.formats.jbs.JbsCodec;
+import com.intel.icecp.core.metadata.formats.jbs.JbsSchemaCompiler;
+import com.intel.icecp.core.metadata.formats.jbs.SchemaErrorException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test {@link JbsFormat} and {@link JbsSchemaCompiler}
+ *
+ */
+public class JbsFormatTest {
+
+    private static final int RECORD_SIZE = 4 + 8 + 8 + 4 + 8 + 1 + 3 * 8 + 2 * 4;
+
+    @Test
+    public void testRecordSize() throws Exception {
+        assertEquals(RECORD_SIZE, JbsSchemaCompiler.compile(readingSchema()).recordSize());
+    }
+
+    @Test
+    public void testEncodeDecode() throws Exception {
+        JbsFormat<Reading> format = new JbsFormat<>(Reading.class, readingSchema());
+        Reading reading = Reading.build();
+
+        byte[] encoded = TestHelper.readAllBytes(format.encode(reading));
+        Reading decoded = format.decode(new ByteArrayInputStream(encoded));
+
+        assertEquals(RECORD_SIZE, encoded.length);
+        assertEquals(reading.id, decoded.id);
+        assertEquals(reading.sequence, decoded.sequence);
+        assertEquals(reading.time, decoded.time);
+        assertEquals(reading.temperature, decoded.temperature, 0.0);
+        assertEquals(reading.pressure, decoded.pressure, 0.0);
+        assertEquals(reading.valid, decoded.valid);
+        assertArrayEquals(reading.samples, decoded.samples, 0.0);
+        assertEquals(reading.position.x, decoded.position.x, 0.0);
+        assertEquals(reading.position.y, decoded.position.y, 0.0);
+    }
+
+    @Test
+    public void testLittleEndianLayout() throws Exception {
+        Reading reading = new Reading();
+        reading.id = 0x01020304;
+        byte[] encoded = TestHelper.readAllBytes(new JbsFormat<>(Reading.class, readingSchema()).encode(reading));
+
+        assertArrayEquals(new byte[]{4, 3, 2, 1}, Arrays.copyOf(encoded, 4));
+    }
+
+    @Test
+    public void testGenericObjects() throws Exception {
+        Reading reading = Reading.build();
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        JbsSchemaCompiler.compile(readingSchema(), Reading.class).write(reading, buffer);
+        buffer.flip();
+
+        GenericObject decoded = JbsSchemaCompiler.compile(readingSchema()).read(buffer);
+
+        assertEquals(reading.id, decoded.get("id"));
+        assertEquals(reading.sequence, decoded.get("sequence"));
+        assertEquals(reading.time, decoded.get("time"));
+        assertEquals(reading.valid, decoded.get("valid"));
+        assertArrayEquals(reading.samples, (double[]) decoded.get("samples"), 0.0);
+        assertEquals(reading.position.y, (Float) ((GenericObject) decoded.get("position")).get("y"), 0.0);
+    }
+
+    @Test
+    public void testMultipleRecords() throws Exception {
+        JbsCodec<Reading> codec = JbsSchemaCompiler.compile(readingSchema(), Reading.class);
+        ByteBuffer buffer = ByteBuffer.allocate(3 * codec.recordSize());
+        for (int i = 0; i < 3; i++) {
+            Reading reading = Reading.build();
+            reading.id = i;
+            codec.write(reading, buffer);
+        }
+        buffer.flip();
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(codec.hasNext(buffer));
+            assertEquals(i, codec.read(buffer).id);
+        }
+        assertFalse(codec.hasNext(buffer));
+    }
+
+    @Test
+    public void testMissingFieldsAreSkipped() throws Exception {
+        byte[] encoded = TestHelper.readAllBytes(new JbsFormat<>(Reading.class, readingSchema()).encode(Reading.build()));
+        JbsFormat<Partial> format = new JbsFormat<>(Partial.class, readingSchema());
+
+        Partial partial = format.decode(new ByteArrayInputStream(encoded));
+        assertEquals(42, partial.id);
+        assertEquals(2.5, partial.temperature, 0.0);
+
+        byte[] reencoded = TestHelper.readAllBytes(format.encode(partial));
+        assertEquals(RECORD_SIZE, reencoded.length);
+        assertEquals(0, ByteBuffer.wrap(reencoded, 4, 8).getLong());
+    }
+
+    @Test(expected = FormatEncodingException.class)
+    public void testTruncatedInput() throws Exception {
+        JbsFormat<Reading> format = new JbsFormat<>(Reading.class, readingSchema());
+        byte[] encoded = TestHelper.readAllBytes(format.encode(Reading.build()));
+        format.decode(new ByteArrayInputStream(Arrays.copyOf(encoded, encoded.length - 1)));
+    }
+
+    @Test(expected = SchemaErrorException.class)
+    public void testVariableSizeArrayFails() throws Exception {
+        ObjectSchema schema = new ObjectSchema();
+        ArraySchema array = new ArraySchema();
+        array.setMinItems(1);
+        array.setMaxItems(2);
+        array.setItemsSchema(new IntegerSchema());
+        schema.putProperty("values", array);
+        JbsSchemaCompiler.compile(schema);
+    }
+
+    @Test(expected = SchemaErrorException.class)
+    public void testMismatchedFieldTypeFails() throws Exception {
+        ObjectSchema schema = new ObjectSchema();
+        schema.putProperty("id", new BooleanSchema());
+        new JbsFormat<>(Partial.class, schema);
+    }
+
+    private static JsonSchema readingSchema() {
+        ObjectSchema position = new ObjectSchema();
+        position.putProperty("x", new NumberSchema());
+        position.putProperty("y", new NumberSchema());
+
+        IntegerSchema sequence = new IntegerSchema();
+        sequence.set$ref("long");
+        IntegerSchema time = new IntegerSchema();
+        time.setFormat(JsonValueFormat.UTC_MILLISEC);
+        NumberSchema pressure = new NumberSchema();
+        pressure.set$ref("double");
+        ArraySchema samples = new ArraySchema();
+        samples.set$ref("double");
+        samples.setMinItems(3);
+        samples.setMaxItems(3);
+        samples.setItemsSchema(new NumberSchema());
+
+        ObjectSchema schema = new ObjectSchema();
+        schema.putProperty("id", new IntegerSchema());
+        schema.putProperty("sequence", sequence);
+        schema.putProperty("time", time);
+        schema.putProperty("temperature", new NumberSchema());
+        schema.putProperty("pressure", pressure);
+        schema.putProperty("valid", new BooleanSchema());
+        schema.putProperty("samples", samples);
+        schema.putProperty("position", position);
+        return schema;
+    }
+
+    public static class Reading implements Message {
+        public int id;
+        public long sequence;
+        public Timestamp time;
+        public float temperature;
+        public double pressure;
+        public boolean valid;
+        public double[] samples;
+        public Position position;
+
+        static Reading build() {
+            Reading reading = new Reading();
+            reading.id = 42;
+            reading.sequence = Long.MAX_VALUE;
+            reading.time = new Timestamp(1500000000000L);
+            reading.temperature = 2.5f;
+            reading.pressure = Math.PI;
+            reading.valid = true;
+            reading.samples = new double[]{1.0, -2.0, 3.5};
+            reading.position = new Position();
+            reading.position.x = 1.5f;
+            reading.position.y = -0.5f;
+            return reading;
+        }
+    }
+
+    public static class Position {
+        public float x;
+        public float y;
+    }
+
+    public static class Partial implements Message {
+        public long id;
+        public Float temperature;
+    }
+}
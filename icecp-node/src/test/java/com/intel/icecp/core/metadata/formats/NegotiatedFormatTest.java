@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats;
+
+import com.intel.icecp.common.TestHelper;
+import com.intel.icecp.common.TestMessage;
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.metadata.Format;
+import com.intel.icecp.core.metadata.FormatPreference;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test {@link NegotiatedFormat}
+ *
+ */
+public class NegotiatedFormatTest extends DefaultFormatTest {
+
+    private static final TestMessage MESSAGE = TestMessage.build("...", 1.5, 42, true);
+
+    @Override
+    public <T extends Message> Format<T> buildFormat(Class<T> type) {
+        return new NegotiatedFormat<>(type, new FormatPreference(FormatPreference.CBOR, FormatPreference.TLV, FormatPreference.JSON));
+    }
+
+    @Test
+    public void testEncodesJsonByDefault() throws Exception {
+        assertEquals(FormatPreference.JSON, ((NegotiatedFormat) buildFormat(TestMessage.class)).mimeType);
+        byte[] encoded = TestHelper.readAllBytes(buildFormat(TestMessage.class).encode(MESSAGE));
+        assertEquals(MESSAGE, new JsonFormat<>(TestMessage.class).decode(new ByteArrayInputStream(encoded)));
+    }
+
+    @Test
+    public void testEncodesInRequestedFormat() throws Exception {
+        NegotiatedFormat<TestMessage> cbor = negotiated().encodingAs(FormatPreference.CBOR);
+        byte[] encoded = TestHelper.readAllBytes(cbor.encode(MESSAGE));
+
+        assertEquals((byte) 0xD9, encoded[0]);
+        assertEquals((byte) 0xF7, encoded[2]);
+        assertEquals(MESSAGE, buildFormat(TestMessage.class).decode(new ByteArrayInputStream(encoded)));
+    }
+
+    @Test
+    public void testNegotiatesMostPreferredOfferedFormat() {
+        assertEquals(Arrays.asList(FormatPreference.CBOR, FormatPreference.TLV, FormatPreference.JSON), negotiated().getMimeTypes());
+        assertEquals(FormatPreference.TLV, negotiated().negotiate(Arrays.asList(FormatPreference.JSON, FormatPreference.TLV)));
+        assertNull(negotiated().negotiate(Collections.singletonList("application/x-unknown")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRequestingUnsupportedFormatFails() {
+        new NegotiatedFormat<>(TestMessage.class, new FormatPreference(FormatPreference.JSON)).encodingAs(FormatPreference.CBOR);
+    }
+
+    @Test
+    public void testDecodesJsonFromExternalTools() throws Exception {
+        byte[] json = TestHelper.readAllBytes(new JsonFormat<>(TestMessage.class).encode(MESSAGE));
+        assertEquals(MESSAGE, buildFormat(TestMessage.class).decode(new ByteArrayInputStream(json)));
+    }
+
+    @Test
+    public void testDecodesUntaggedCbor() throws Exception {
+        byte[] cbor = TestHelper.readAllBytes(new CborFormat<>(TestMessage.class).encode(MESSAGE));
+        assertEquals(MESSAGE, buildFormat(TestMessage.class).decode(new ByteArrayInputStream(cbor)));
+    }
+
+    @Test
+    public void testTlvPreference() throws Exception {
+        NegotiatedFormat<TestMessage> tlv = new NegotiatedFormat<>(TestMessage.class, new FormatPreference(FormatPreference.TLV));
+        byte[] encoded = TestHelper.readAllBytes(tlv.encode(MESSAGE));
+
+        assertEquals((byte) 0xFF, encoded[0]);
+        assertEquals(MESSAGE, buildFormat(TestMessage.class).decode(new ByteArrayInputStream(encoded)));
+    }
+
+    @Test
+    public void testJsonOnlyPreferenceIsPlainJson() throws Exception {
+        NegotiatedFormat<TestMessage> json = new NegotiatedFormat<>(TestMessage.class, new FormatPreference("application/x-unknown", FormatPreference.JSON));
+        byte[] encoded = TestHelper.readAllBytes(json.encode(MESSAGE));
+
+        assertEquals(FormatPreference.JSON, json.mimeType);
+        assertEquals(MESSAGE, new JsonFormat<>(TestMessage.class).decode(new ByteArrayInputStream(encoded)));
+    }
+
+    @Test(expected = FormatEncodingException.class)
+    public void testUnsupportedFormatFails() throws Exception {
+        NegotiatedFormat<TestMessage> json = new NegotiatedFormat<>(TestMessage.class, new FormatPreference(FormatPreference.JSON));
+        json.decode(negotiated().encodingAs(FormatPreference.CBOR).encode(MESSAGE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoKnownFormatFails() {
+        new NegotiatedFormat<>(TestMessage.class, new FormatPreference("application/x-unknown"));
+    }
+
+    private NegotiatedFormat<TestMessage> negotiated() {
+        return (NegotiatedFormat<TestMessage>) buildFormat(TestMessage.class);
+    }
+}
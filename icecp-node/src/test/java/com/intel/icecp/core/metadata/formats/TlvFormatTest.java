@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats;
+
+import com.intel.icecp.common.TestHelper;
+import com.intel.icecp.common.TestMessage;
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.Module;
+import com.intel.icecp.core.attributes.AttributeMessage;
+import com.intel.icecp.core.channels.Token;
+import com.intel.icecp.core.metadata.Format;
+import com.intel.icecp.core.metadata.formats.tlv.TlvField;
+import net.named_data.jndn.Name;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test {@link TlvFormat}
+ *
+ */
+public class TlvFormatTest extends DefaultFormatTest {
+
+    @Override
+    public <T extends Message> Format<T> buildFormat(Class<T> type) {
+        return new TlvFormat<>(type);
+    }
+
+    @Test
+    public void testGenericTlvFormat() throws Exception {
+        TlvFormat<AttributeMessage<Module.State>> formatter = new TlvFormat<>(new Token<AttributeMessage<Module.State>>() {
+        });
+        DefaultFormatTest.genericFormat(new AttributeMessage<>(Module.State.LOADED), formatter);
+    }
+
+    @Test
+    public void testNameTlvFormat() throws Exception {
+        TlvFormat<AttributeMessage<Name>> formatter = new TlvFormat<>(new Token<AttributeMessage<Name>>() {
+        });
+        DefaultFormatTest.genericFormat(new AttributeMessage<>(new Name("/a/b")), formatter);
+    }
+
+    @Test
+    public void testNestedObjectsAndCollections() throws Exception {
+        Tree root = new Tree();
+        root.label = "root";
+        root.weights = new long[]{-1, 0, Long.MAX_VALUE};
+        root.tags.put("a", 1);
+        root.tags.put("b", null);
+        Tree child = new Tree();
+        child.label = new String(new char[1000]).replace('\0', 'x'); // longer than a single length byte
+        root.children.add(child);
+        root.children.add(null);
+
+        Format<Tree> format = buildFormat(Tree.class);
+        Tree decoded = format.decode(format.encode(root));
+
+        assertEquals(root.label, decoded.label);
+        assertArrayEquals(root.weights, decoded.weights);
+        assertEquals(root.tags, decoded.tags);
+        assertEquals(2, decoded.children.size());
+        assertEquals(child.label, decoded.children.get(0).label);
+        assertTrue(decoded.children.get(0).children.isEmpty());
+        assertNull(decoded.children.get(1));
+    }
+
+    @Test
+    public void testSmallerThanCbor() throws Exception {
+        TestMessage message = TestMessage.build("...", 1.0, 1, true);
+        int tlvSize = TestHelper.readAllBytes(new TlvFormat<>(TestMessage.class).encode(message)).length;
+        int cborSize = TestHelper.readAllBytes(new CborFormat<>(TestMessage.class).encode(message)).length;
+        assertTrue(tlvSize < cborSize);
+    }
+
+    @Test
+    public void testUnknownFieldsAreSkipped() throws Exception {
+        Tree tree = new Tree();
+        tree.label = "label";
+        // field 1 (children) is empty, field 2 is the label; field 9 does not exist
+        byte[] encoded = TestHelper.readAllBytes(buildFormat(Tree.class).encode(tree));
+        byte[] withUnknown = Arrays.copyOf(encoded, encoded.length + 3);
+        System.arraycopy(new byte[]{9, 1, 42}, 0, withUnknown, encoded.length, 3);
+
+        assertEquals("label", buildFormat(Tree.class).decode(new ByteArrayInputStream(withUnknown)).label);
+    }
+
+    @Test(expected = FormatEncodingException.class)
+    public void testTruncatedInput() throws Exception {
+        byte[] encoded = TestHelper.readAllBytes(buildFormat(TestMessage.class).encode(TestMessage.build("...", 1.0, 1, true)));
+        buildFormat(TestMessage.class).decode(new ByteArrayInputStream(Arrays.copyOf(encoded, encoded.length - 1)));
+    }
+
+    @Test
+    public void testFieldNumbersAreStableAcrossVersions() throws Exception {
+        Version1 original = new Version1();
+        original.name = "name";
+        original.size = 42;
+
+        Version2 decoded = buildFormat(Version2.class).decode(buildFormat(Version1.class).encode(original));
+        assertEquals("name", decoded.name);
+        assertEquals(42, decoded.size);
+        assertNull(decoded.added);
+    }
+
+    @Test(expected = FormatEncodingException.class)
+    public void testDuplicateFieldNumbersFail() throws Exception {
+        buildFormat(Duplicate.class).encode(new Duplicate());
+    }
+
+    @Test(expected = FormatEncodingException.class)
+    public void testRawGenericTypeFails() throws Exception {
+        new TlvFormat<>(AttributeMessage.class).encode(new AttributeMessage<>("..."));
+    }
+
+    public static class Tree implements Message {
+        @TlvField(1)
+        public List<Tree> children = new ArrayList<>();
+        @TlvField(2)
+        public String label;
+        @TlvField(3)
+        public Map<String, Integer> tags = new HashMap<>();
+        @TlvField(4)
+        public long[] weights;
+    }
+
+    public static class Version1 implements Message {
+        public String name;
+        public int size;
+    }
+
+    public static class Version2 implements Message {
+        public String added;
+        public String name;
+        public int size;
+    }
+
+    public static class Duplicate implements Message {
+        @TlvField(1)
+        public String first;
+        @TlvField(1)
+        public String second;
+    }
+}
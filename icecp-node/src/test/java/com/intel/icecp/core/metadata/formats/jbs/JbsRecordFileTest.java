@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.core.metadata.formats.jbs;
+
+import com.fasterxml.jackson.module.jsonSchema.types.IntegerSchema;
+import com.fasterxml.jackson.module.jsonSchema.types.NumberSchema;
+import com.fasterxml.jackson.module.jsonSchema.types.ObjectSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Test {@link JbsRecordFile}
+ *
+ */
+public class JbsRecordFileTest {
+
+    private static final int RECORDS = 10;
+    private static final int RECORDS_PER_SEGMENT = 3;
+
+    private File file;
+    private ObjectSchema schema;
+    private JbsCodec<Sample> codec;
+
+    @Before
+    public void before() throws Exception {
+        schema = new ObjectSchema();
+        schema.putProperty("index", new IntegerSchema());
+        schema.putProperty("value", new NumberSchema());
+        codec = JbsSchemaCompiler.compile(schema, Sample.class);
+
+        file = File.createTempFile("samples", ".jbs");
+        ByteBuffer buffer = ByteBuffer.allocate(RECORDS * codec.recordSize() + 1); // and a partial record
+        for (int i = 0; i < RECORDS; i++) {
+            codec.write(Sample.build(i), buffer);
+        }
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            stream.write(buffer.array());
+        }
+    }
+
+    @After
+    public void after() {
+        file.delete();
+    }
+
+    @Test
+    public void testSize() throws Exception {
+        try (JbsRecordFile<Sample> records = new JbsRecordFile<>(file, codec)) {
+            assertEquals(RECORDS, records.size());
+            assertEquals(8, records.stride());
+        }
+    }
+
+    @Test
+    public void testRandomAccessAcrossSegments() throws Exception {
+        try (JbsRecordFile<Sample> records = new JbsRecordFile<>(file, codec, RECORDS_PER_SEGMENT)) {
+            for (int i = RECORDS - 1; i >= 0; i--) {
+                Sample sample = records.read(i);
+                assertEquals(i, sample.index);
+                assertEquals(i / 2.0f, sample.value, 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testGenericRecords() throws Exception {
+        try (JbsRecordFile<GenericObject> records = JbsRecordFile.open(file, schema)) {
+            assertEquals(7, records.read(7).get("index"));
+        }
+    }
+
+    @Test
+    public void testRangeIteration() throws Exception {
+        try (JbsRecordFile<Sample> records = new JbsRecordFile<>(file, codec, RECORDS_PER_SEGMENT)) {
+            Iterator<Sample> iterator = records.iterator(2, 6);
+            for (int i = 2; i < 6; i++) {
+                assertEquals(i, iterator.next().index);
+            }
+            assertFalse(iterator.hasNext());
+        }
+    }
+
+    @Test
+    public void testParallelStream() throws Exception {
+        try (JbsRecordFile<Sample> records = new JbsRecordFile<>(file, codec, RECORDS_PER_SEGMENT)) {
+            assertEquals(RECORDS * (RECORDS - 1) / 2, records.stream().parallel().mapToInt(s -> s.index).sum());
+            assertEquals(RECORDS, records.stream().parallel().count());
+            assertEquals(3 + 4, records.stream(3, 5).mapToInt(s -> s.index).sum());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testReadPastEnd() throws Exception {
+        try (JbsRecordFile<Sample> records = new JbsRecordFile<>(file, codec)) {
+            records.read(RECORDS);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReadAfterClose() throws Exception {
+        JbsRecordFile<Sample> records = new JbsRecordFile<>(file, codec);
+        records.close();
+        records.read(0);
+    }
+
+    public static class Sample {
+        public int index;
+        public float value;
+
+        static Sample build(int index) {
+            Sample sample = new Sample();
+            sample.index = index;
+            sample.value = index / 2.0f;
+            return sample;
+        }
+    }
+}
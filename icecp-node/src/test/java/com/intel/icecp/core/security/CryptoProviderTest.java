@@ -22,6 +22,8 @@ import com.intel.icecp.node.security.SecurityConstants;
 import com.intel.icecp.node.security.crypto.cipher.asymmetric.RsaCipher;
 import com.intel.icecp.node.security.crypto.cipher.symmetric.AesCbcCipher;
 import com.intel.icecp.node.security.crypto.cipher.symmetric.AesEcbCipher;
+import com.intel.icecp.node.security.crypto.cipher.symmetric.AesGcmCipher;
+import com.intel.icecp.node.security.crypto.cipher.symmetric.ChaCha20Poly1305Cipher;
 import com.intel.icecp.node.security.crypto.mac.hmac.HmacSha1Scheme;
 import com.intel.icecp.node.security.crypto.mac.hmac.HmacSha224Scheme;
 import com.intel.icecp.node.security.crypto.mac.hmac.HmacSha256Scheme;
@@ -29,6 +31,7 @@ import com.intel.icecp.node.security.crypto.mac.hmac.HmacSha384Scheme;
 import com.intel.icecp.node.security.crypto.mac.hmac.HmacSha512Scheme;
 import com.intel.icecp.node.security.crypto.signature.dsa.Sha1withDsaScheme;
 import com.intel.icecp.node.security.crypto.signature.ecdsa.Sha1WithEcdsaScheme;
+import com.intel.icecp.node.security.crypto.signature.eddsa.Ed25519Scheme;
 import com.intel.icecp.node.security.crypto.signature.rsa.Sha1withRsaScheme;
 import com.intel.icecp.node.security.crypto.signature.rsa.Sha256withRsaScheme;
 import org.junit.Assert;
@@ -42,9 +45,9 @@ import org.junit.Test;
 public class CryptoProviderTest {
 
     /** Available crypto services */
-    private final Class[] signatureTypes = {Sha1withDsaScheme.class, Sha1withRsaScheme.class, Sha256withRsaScheme.class, Sha1WithEcdsaScheme.class};
+    private final Class[] signatureTypes = {Sha1withDsaScheme.class, Sha1withRsaScheme.class, Sha256withRsaScheme.class, Sha1WithEcdsaScheme.class, Ed25519Scheme.class};
     private final Class[] hmacTypes = {HmacSha1Scheme.class, HmacSha224Scheme.class, HmacSha256Scheme.class, HmacSha384Scheme.class, HmacSha512Scheme.class};
-    private final Class[] cipherTypes = {AesCbcCipher.class, AesEcbCipher.class, RsaCipher.class};
+    private final Class[] cipherTypes = {AesCbcCipher.class, AesEcbCipher.class, RsaCipher.class, AesGcmCipher.class, ChaCha20Poly1305Cipher.class};
     
     /**
      * Initializes service files with the supported service instantiations, if needed
@@ -69,6 +72,7 @@ public class CryptoProviderTest {
         Assert.assertNotNull(CryptoProvider.getSignatureScheme(SecurityConstants.SHA1withRSA, false));
         Assert.assertNotNull(CryptoProvider.getSignatureScheme(SecurityConstants.SHA1withECDSA,false));
         Assert.assertNotNull(CryptoProvider.getSignatureScheme(SecurityConstants.SHA256withRSA, false));
+        Assert.assertNotNull(CryptoProvider.getSignatureScheme(SecurityConstants.Ed25519, false));
     }
     
     /**
@@ -94,6 +98,8 @@ public class CryptoProviderTest {
     public void getCipherTest() throws Exception {
         Assert.assertNotNull(CryptoProvider.getCipher(SecurityConstants.AES_ECB_ALGORITHM, false));
         Assert.assertNotNull(CryptoProvider.getCipher(SecurityConstants.AES_CBC_ALGORITHM, false));
+        Assert.assertNotNull(CryptoProvider.getCipher(SecurityConstants.AES_GCM_ALGORITHM, false));
+        Assert.assertNotNull(CryptoProvider.getCipher(SecurityConstants.CHACHA20_POLY1305_ALGORITHM, false));
         Assert.assertNotNull(CryptoProvider.getCipher(SecurityConstants.RSA_ALGORITHM, false));
     }
 
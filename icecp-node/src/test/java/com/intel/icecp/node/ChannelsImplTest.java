@@ -4,10 +4,14 @@ import com.intel.icecp.common.TestMessage;
 import com.intel.icecp.core.Channel;
 import com.intel.icecp.core.Metadata;
 import com.intel.icecp.core.channels.Token;
+import com.intel.icecp.core.event.types.ChannelEvent;
 import com.intel.icecp.core.management.ConfigurationManager;
 import com.intel.icecp.core.messages.BytesMessage;
 import com.intel.icecp.core.metadata.Format;
+import com.intel.icecp.core.metadata.FormatPreference;
 import com.intel.icecp.core.metadata.Persistence;
+import com.intel.icecp.core.metadata.formats.JsonFormat;
+import com.intel.icecp.core.metadata.formats.NegotiatedFormat;
 import com.intel.icecp.core.misc.Configuration;
 import com.intel.icecp.core.mock.MockChannelProvider;
 import org.junit.Before;
@@ -21,6 +25,7 @@ import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNull;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
@@ -71,6 +76,31 @@ public class ChannelsImplTest {
         assertEquals(BytesMessage.class, decoded.getClass());
     }
 
+    @Test
+    public void chooseNegotiatedFormatForInternalTypes() throws Exception {
+        NegotiatedFormat format = (NegotiatedFormat) instance.chooseFormat(Token.of(ChannelEvent.class), new Metadata[]{});
+        assertEquals(FormatPreference.JSON, format.mimeType);
+        assertEquals(FormatPreference.CBOR, format.getMimeTypes().get(0));
+    }
+
+    @Test
+    public void passNegotiatedFormatToProvider() throws Exception {
+        Format format = instance.chooseFormat(Token.of(ChannelEvent.class), new Metadata[]{});
+        assertSame(format, ChannelsImpl.withFormat(new Metadata[]{}, format)[0]);
+        assertEquals(0, ChannelsImpl.withFormat(new Metadata[]{}, new JsonFormat<>(TestMessage.class)).length);
+    }
+
+    @Test
+    public void chooseJsonFormatForExternalTypes() throws Exception {
+        assertTrue(instance.chooseFormat(Token.of(TestMessage.class), new Metadata[]{}) instanceof JsonFormat);
+    }
+
+    @Test
+    public void choosePreferredFormat() throws Exception {
+        Format format = instance.chooseFormat(Token.of(ChannelEvent.class), new Metadata[]{new FormatPreference(FormatPreference.JSON)});
+        assertEquals(FormatPreference.JSON, ((NegotiatedFormat) format).mimeType);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void nullScheme(){
         instance.get(null);
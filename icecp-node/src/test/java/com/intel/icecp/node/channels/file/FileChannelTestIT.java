@@ -20,7 +20,9 @@ import com.intel.icecp.common.TestCounter;
 import com.intel.icecp.core.Channel;
 import com.intel.icecp.core.Message;
 import com.intel.icecp.core.channels.ChannelProvider;
+import com.intel.icecp.core.channels.HistoricalChannel;
 import com.intel.icecp.core.messages.BytesMessage;
+import com.intel.icecp.core.metadata.AppendOnlyLog;
 import com.intel.icecp.core.metadata.Format;
 import com.intel.icecp.core.metadata.Persistence;
 import com.intel.icecp.core.metadata.formats.BytesFormat;
@@ -37,7 +39,11 @@ import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
@@ -104,4 +110,51 @@ public class FileChannelTestIT {
         Thread.sleep(100);
         assertEquals(1, counter.count);
     }
+
+    @Test
+    public void testLogModeRetainsEveryMessage() throws Exception {
+        Path logDirectory = Files.createTempDirectory("file-channel-log");
+        Pipeline pipeline = MessageFormattingPipeline.create(BytesMessage.class, new BytesFormat());
+        HistoricalChannel<BytesMessage> publisher = (HistoricalChannel<BytesMessage>) new FileChannelProvider().<BytesMessage>build(logDirectory.toUri(), pipeline, new Persistence(1000), new AppendOnlyLog(256, 64));
+        HistoricalChannel<BytesMessage> subscriber = (HistoricalChannel<BytesMessage>) new FileChannelProvider().<BytesMessage>build(logDirectory.toUri(), pipeline, new Persistence(1000), new AppendOnlyLog(256, 64));
+        publisher.open().get();
+        subscriber.open().get();
+
+        for (byte i = 0; i < 50; i++) {
+            publisher.publish(new BytesMessage(new byte[]{i, i, i}));
+        }
+
+        assertArrayEquals(new byte[]{49, 49, 49}, publisher.latest().get(1, TimeUnit.SECONDS).getBytes());
+        assertArrayEquals(new byte[]{0, 0, 0}, subscriber.earliest().get(1, TimeUnit.SECONDS).getBytes());
+        assertArrayEquals(new byte[]{17, 17, 17}, subscriber.get(17).get(1, TimeUnit.SECONDS).getBytes());
+        assertArrayEquals(new byte[]{49, 49, 49}, subscriber.latest().get(1, TimeUnit.SECONDS).getBytes());
+    }
+
+    @Test
+    public void testLogModeRangeQueries() throws Exception {
+        Path logDirectory = Files.createTempDirectory("file-channel-range");
+        Pipeline pipeline = MessageFormattingPipeline.create(BytesMessage.class, new BytesFormat());
+        HistoricalChannel<BytesMessage> channel = (HistoricalChannel<BytesMessage>) new FileChannelProvider().<BytesMessage>build(logDirectory.toUri(), pipeline, new Persistence(1000), new AppendOnlyLog(256, 64));
+        channel.open().get();
+
+        for (byte i = 0; i < 10; i++) {
+            channel.publish(new BytesMessage(new byte[]{i}));
+        }
+        Thread.sleep(5);
+        Instant from = Instant.now();
+        for (byte i = 10; i < 20; i++) {
+            channel.publish(new BytesMessage(new byte[]{i}));
+        }
+
+        List<BytesMessage> byId = channel.range(5, 14).collect(Collectors.toList());
+        assertEquals(10, byId.size());
+        assertArrayEquals(new byte[]{5}, byId.get(0).getBytes());
+        assertArrayEquals(new byte[]{14}, byId.get(9).getBytes());
+
+        List<BytesMessage> byTime = channel.range(from, Instant.now()).collect(Collectors.toList());
+        assertEquals(10, byTime.size());
+        assertArrayEquals(new byte[]{10}, byTime.get(0).getBytes());
+
+        assertEquals(3, channel.range(0, Long.MAX_VALUE).limit(3).count());
+    }
 }
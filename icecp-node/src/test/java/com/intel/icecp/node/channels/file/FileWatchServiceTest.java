@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.channels.file;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test FileWatchService
+ *
+ */
+public class FileWatchServiceTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private FileWatchService instance;
+    private Path directory;
+
+    @Before
+    public void before() throws Exception {
+        instance = new FileWatchService();
+        directory = Files.createTempDirectory("file-watch-test");
+    }
+
+    @Test
+    public void directoriesAreWatchedOnce() throws Exception {
+        FileWatchService.Registration a = instance.watchFile(directory.resolve("a"), 0, executor, () -> {
+        });
+        FileWatchService.Registration b = instance.watchFile(directory.resolve("b"), 0, executor, () -> {
+        });
+        FileWatchService.Registration all = instance.watchDirectory(directory, executor, () -> {
+        });
+        assertEquals(1, instance.getWatchedDirectories());
+
+        a.cancel();
+        b.cancel();
+        assertEquals(1, instance.getWatchedDirectories());
+        all.cancel();
+        assertEquals(0, instance.getWatchedDirectories());
+    }
+
+    @Test
+    public void onlyListenersOfTheChangedFileAreCalled() throws Exception {
+        CountDownLatch changed = new CountDownLatch(1);
+        AtomicInteger otherCalls = new AtomicInteger();
+        instance.watchFile(directory.resolve("watched"), 0, executor, changed::countDown);
+        instance.watchFile(directory.resolve("other"), 0, executor, otherCalls::incrementAndGet);
+
+        Files.write(directory.resolve("watched"), new byte[]{1, 2, 3});
+
+        assertTrue(changed.await(10, TimeUnit.SECONDS));
+        assertEquals(0, otherCalls.get());
+    }
+
+    @Test
+    public void cancelledListenersAreNotCalled() throws Exception {
+        CountDownLatch changed = new CountDownLatch(1);
+        AtomicInteger cancelledCalls = new AtomicInteger();
+        instance.watchDirectory(directory, executor, changed::countDown);
+        instance.watchDirectory(directory, executor, cancelledCalls::incrementAndGet).cancel();
+
+        Files.write(directory.resolve("file"), new byte[]{1, 2, 3});
+
+        assertTrue(changed.await(10, TimeUnit.SECONDS));
+        assertEquals(0, cancelledCalls.get());
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.channels.local;
+
+import com.intel.icecp.common.TestMessage;
+import com.intel.icecp.core.Channel;
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.channels.ChannelTest;
+import com.intel.icecp.core.channels.OnLatest;
+import com.intel.icecp.core.metadata.Persistence;
+import com.intel.icecp.core.misc.ChannelLifetimeException;
+import com.intel.icecp.core.pipeline.Pipeline;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test LocalChannel; all channel types should be able to pass the tests defined in {@link ChannelTest}
+ *
+ */
+public class LocalChannelTest extends ChannelTest {
+
+    private LocalChannelProvider provider;
+
+    @Override
+    public Channel newInstance(String channelName, Pipeline pipeline, Persistence persistence) {
+        if (provider == null) {
+            provider = new LocalChannelProvider();
+        }
+        try {
+            return provider.build(URI.create("local:" + channelName), pipeline, persistence);
+        } catch (ChannelLifetimeException ex) {
+            throw new IllegalArgumentException("Unable to create channel instance.", ex);
+        }
+    }
+
+    @Test
+    public void allSubscribersReceiveMessagesInOrder() throws Exception {
+        Channel<TestMessage> publisher = newInstance("/local/fanout", PIPELINE, PERSISTENCE);
+        List<List<Message>> received = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3 * 100);
+        for (int i = 0; i < 3; i++) {
+            List<Message> messages = new CopyOnWriteArrayList<>();
+            received.add(messages);
+            Channel<TestMessage> subscriber = newInstance("/local/fanout", PIPELINE, PERSISTENCE);
+            subscriber.subscribe(message -> {
+                messages.add(message);
+                latch.countDown();
+            });
+        }
+
+        List<TestMessage> published = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            TestMessage message = TestMessage.buildRandom(10);
+            published.add(message);
+            publisher.publish(message);
+        }
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        for (List<Message> messages : received) {
+            assertEquals(published, messages);
+            assertSame(published.get(0), messages.get(0));
+        }
+    }
+
+    @Test
+    public void latestFollowsPersistence() throws Exception {
+        Channel<TestMessage> publisher = newInstance("/local/latest", PIPELINE, new Persistence(50));
+        Channel<TestMessage> subscriber = newInstance("/local/latest", PIPELINE, new Persistence(50));
+        TestMessage message = TestMessage.buildRandom(10);
+
+        publisher.publish(message);
+        assertSame(message, subscriber.latest().get(1, TimeUnit.SECONDS));
+
+        Thread.sleep(100);
+        CompletableFuture<TestMessage> next = subscriber.latest();
+        assertFalse(next.isDone());
+        TestMessage nextMessage = TestMessage.buildRandom(10);
+        publisher.publish(nextMessage);
+        assertSame(nextMessage, next.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void onLatestGeneratesLatest() throws Exception {
+        Channel<TestMessage> publisher = newInstance("/local/on-latest", PIPELINE, PERSISTENCE);
+        Channel<TestMessage> subscriber = newInstance("/local/on-latest", PIPELINE, PERSISTENCE);
+        TestMessage message = TestMessage.buildRandom(10);
+
+        publisher.onLatest(() -> new OnLatest.Response<>(message));
+
+        assertSame(message, subscriber.latest().get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void closedChannelsStopReceiving() throws Exception {
+        Channel<TestMessage> publisher = newInstance("/local/closing", PIPELINE, PERSISTENCE);
+        Channel<TestMessage> subscriber = newInstance("/local/closing", PIPELINE, PERSISTENCE);
+        List<Message> received = new CopyOnWriteArrayList<>();
+        subscriber.subscribe(received::add);
+
+        subscriber.close();
+        publisher.publish(TestMessage.buildRandom(10));
+        Thread.sleep(50);
+
+        assertTrue(received.isEmpty());
+        assertFalse(subscriber.isSubscribing());
+    }
+
+    @Test
+    public void slowSubscribersSkipOverwrittenMessages() throws Exception {
+        LocalTopic topic = new LocalTopic(URI.create("local:/local/slow"), 4);
+        List<Message> received = new ArrayList<>();
+        List<Runnable> tasks = new ArrayList<>();
+        LocalTopic.Subscription subscription = topic.subscribe(received::add, tasks::add);
+
+        for (int i = 0; i < 10; i++) {
+            topic.publish(TestMessage.build("" + i, 0, i, false), 1000);
+        }
+        assertEquals(1, tasks.size());
+        tasks.get(0).run();
+
+        assertEquals(4, received.size());
+        assertEquals(6, ((TestMessage) received.get(0)).c);
+        assertEquals(6, subscription.getDropped());
+    }
+}
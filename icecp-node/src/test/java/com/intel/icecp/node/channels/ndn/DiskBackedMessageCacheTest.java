@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intel.icecp.node.channels.ndn;
+
+import com.intel.icecp.common.TestMessage;
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.metadata.Persistence;
+import com.intel.icecp.core.metadata.formats.JsonFormat;
+import com.intel.icecp.core.pipeline.Pipeline;
+import com.intel.icecp.node.pipeline.implementations.MessageFormattingPipeline;
+import com.intel.icecp.node.utils.SegmentedLog;
+import net.named_data.jndn.Name;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test DiskBackedMessageCache and DiskRetention
+ *
+ */
+public class DiskBackedMessageCacheTest {
+
+    private static final Name NAME = new Name("/test/disk/retention");
+    private static final Pipeline PIPELINE = MessageFormattingPipeline.create(TestMessage.class, new JsonFormat<>(TestMessage.class));
+    private Path directory;
+    private DiskRetention retention;
+    private MessageCache instance;
+
+    @Before
+    public void before() throws IOException {
+        directory = Files.createTempDirectory("disk-retention-test");
+        retention = new DiskRetention(directory, 1000, 1024 * 1024, 2);
+        instance = retention.createCache(NAME, Persistence.FOREVER, PIPELINE, 100, null);
+    }
+
+    @After
+    public void after() {
+        instance.close();
+    }
+
+    @Test
+    public void onlyLongLivedChannelsAreRetainedOnDisk() {
+        assertTrue(instance instanceof DiskBackedMessageCache);
+        assertTrue(retention.appliesTo(new Persistence(1000)));
+        assertFalse(retention.appliesTo(new Persistence(999)));
+        assertFalse(retention.createCache(NAME, new Persistence(999), PIPELINE, 100, null) instanceof DiskBackedMessageCache);
+    }
+
+    @Test
+    public void nodesSharingADirectoryRetainSeparately() {
+        DiskRetention first = DiskRetention.forNode(directory, "/test/node/1", 1000, 1024 * 1024, 2);
+        DiskRetention second = DiskRetention.forNode(directory, "/test/node/2", 1000, 1024 * 1024, 2);
+        assertEquals(directory, first.getDirectory().getParent());
+        assertNotEquals(first.getDirectory(), second.getDirectory());
+
+        MessageCache cache = first.createCache(NAME, Persistence.FOREVER, PIPELINE, 100, null);
+        cache.add(0, TestMessage.buildRandom(10));
+        cache.close();
+        cache = second.createCache(NAME, Persistence.FOREVER, PIPELINE, 100, null);
+        assertFalse(cache.has(0));
+        cache.close();
+    }
+
+    @Test
+    public void olderMessagesAreReadFromDisk() {
+        TestMessage[] messages = add(10);
+
+        assertEquals(0, instance.earliest());
+        assertEquals(9, instance.latest());
+        for (int i = 0; i < messages.length; i++) {
+            assertTrue(instance.has(i));
+            assertEquals(messages[i], instance.get(i));
+        }
+        assertNull(instance.get(10));
+    }
+
+    @Test
+    public void olderMessagesAreServedAsEncoded() throws Exception {
+        TestMessage[] messages = add(10);
+
+        for (int i = 0; i < messages.length; i++) {
+            assertEquals(messages[i], PIPELINE.executeInverse(new ByteArrayInputStream(instance.getEncoded(i))));
+        }
+        assertNull(instance.getEncoded(10));
+    }
+
+    @Test
+    public void messagesSurviveReopening() {
+        TestMessage[] messages = add(10);
+        instance.close();
+
+        instance = retention.createCache(NAME, Persistence.FOREVER, PIPELINE, 100, null);
+        assertEquals(9, instance.latest());
+        assertEquals(messages[3], instance.get(3));
+        instance.add(10, messages[0]);
+        assertEquals(messages[0], instance.get(10));
+    }
+
+    @Test
+    public void batchesAreRetained() {
+        TestMessage first = TestMessage.buildRandom(10);
+        TestMessage second = TestMessage.buildRandom(10);
+        instance.add(0, new MessageBatch(Arrays.asList(first, second)));
+        add(4);
+
+        Message retained = instance.get(0);
+        assertTrue(retained instanceof MessageBatch);
+        assertEquals(Arrays.asList(first, second), ((MessageBatch) retained).getMessages());
+    }
+
+    @Test
+    public void removedMessagesAreNotReadFromDisk() {
+        TestMessage[] messages = add(10);
+
+        assertEquals(messages[1], instance.remove(1));
+        assertFalse(instance.has(1));
+        assertNull(instance.get(1));
+    }
+
+    @Test
+    public void expiredMessagesAreCompacted() throws IOException {
+        instance.close();
+        instance = new DiskBackedMessageCache(new SegmentedLog(directory.resolve("expired"), 1024, 64), PIPELINE, 1, 2, 1024 * 1024);
+        for (int i = 0; i < 200; i++) {
+            ((DiskBackedMessageCache) instance).add(i, TestMessage.buildRandom(10), System.currentTimeMillis() - 1);
+        }
+
+        assertNull(instance.get(0));
+        instance.clean();
+        assertTrue(instance.earliest() > 0);
+        assertEquals(199, instance.latest());
+    }
+
+    @Test
+    public void logIsCompactedToItsByteBudget() throws IOException {
+        instance.close();
+        instance = new DiskBackedMessageCache(new SegmentedLog(directory.resolve("budget"), 1024, 64), PIPELINE, Long.MAX_VALUE, 2, 4096);
+        TestMessage[] messages = add(200);
+
+        instance.clean();
+        assertTrue(instance.earliest() > 0);
+        assertEquals(messages[199], instance.get(199));
+    }
+
+    private TestMessage[] add(int count) {
+        TestMessage[] messages = new TestMessage[count];
+        for (int i = 0; i < count; i++) {
+            messages[i] = TestMessage.buildRandom(10);
+            instance.add(i, messages[i]);
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.channels.ndn;
+
+import com.intel.icecp.common.TestMessage;
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.messages.BytesMessage;
+import com.intel.icecp.core.metadata.formats.BytesFormat;
+import com.intel.icecp.core.metadata.formats.JsonFormat;
+import com.intel.icecp.core.pipeline.Pipeline;
+import com.intel.icecp.core.pipeline.exception.PipelineException;
+import com.intel.icecp.node.pipeline.implementations.MessageFormattingPipeline;
+import com.intel.icecp.node.utils.StreamUtils;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test MessageBatch
+ *
+ */
+public class MessageBatchTest {
+
+    private final Pipeline pipeline = MessageFormattingPipeline.create(TestMessage.class, new JsonFormat<>(TestMessage.class));
+
+    @Test
+    public void encodeAndDecodeBatch() throws Exception {
+        List<Message> messages = Arrays.asList(TestMessage.buildRandom(10), TestMessage.buildRandom(100), TestMessage.buildRandom(1000));
+
+        byte[] bytes = StreamUtils.readAll(new MessageBatch(messages).encode(pipeline));
+
+        assertEquals(messages, MessageBatch.decode(bytes, pipeline));
+    }
+
+    @Test
+    public void encodeAndDecodeBatchOfBytesMessages() throws Exception {
+        Pipeline bytesPipeline = MessageFormattingPipeline.create(BytesMessage.class, new BytesFormat());
+        // contents that previously marked a batch container and a stored (uncompressed) payload
+        List<Message> messages = Arrays.asList(new BytesMessage(new byte[]{0x00, (byte) 0xBA, 0x7C, 0x4E, 0, 0, 0, 1}),
+                new BytesMessage(new byte[]{0x00}));
+
+        byte[] bytes = StreamUtils.readAll(new MessageBatch(messages).encode(bytesPipeline));
+        List<Message> decoded = MessageBatch.decode(bytes, bytesPipeline);
+
+        assertEquals(2, decoded.size());
+        assertArrayEquals(((BytesMessage) messages.get(0)).getBytes(), ((BytesMessage) decoded.get(0)).getBytes());
+        assertArrayEquals(((BytesMessage) messages.get(1)).getBytes(), ((BytesMessage) decoded.get(1)).getBytes());
+    }
+
+    @Test(expected = PipelineException.class)
+    public void decodeSingleMessageAsBatchFails() throws Exception {
+        byte[] bytes = StreamUtils.readAll((InputStream) pipeline.execute(TestMessage.buildRandom(10)));
+
+        MessageBatch.decode(bytes, pipeline);
+    }
+
+    @Test(expected = PipelineException.class)
+    public void decodeTruncatedBatchFails() throws Exception {
+        List<Message> messages = Arrays.asList(TestMessage.buildRandom(10), TestMessage.buildRandom(10));
+        byte[] bytes = StreamUtils.readAll(new MessageBatch(messages).encode(pipeline));
+
+        MessageBatch.decode(Arrays.copyOf(bytes, bytes.length - 5), pipeline);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyBatchFails() {
+        new MessageBatch(new ArrayList<>());
+    }
+}
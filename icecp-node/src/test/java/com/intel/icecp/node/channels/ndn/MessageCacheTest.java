@@ -18,6 +18,10 @@ package com.intel.icecp.node.channels.ndn;
 
 import com.intel.icecp.common.TestMessage;
 import com.intel.icecp.core.Message;
+import com.intel.icecp.core.metadata.formats.JsonFormat;
+import com.intel.icecp.core.pipeline.Pipeline;
+import com.intel.icecp.node.pipeline.implementations.MessageFormattingPipeline;
+import com.intel.icecp.node.utils.MemoryGovernor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.Before;
@@ -30,7 +34,9 @@ import java.util.concurrent.TimeUnit;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -41,6 +47,7 @@ public class MessageCacheTest {
     private static final int RETENTION = 10;
     private static final int MAX_SIZE = 2;
     private static final Logger LOGGER = LogManager.getLogger();
+    private static final Pipeline PIPELINE = MessageFormattingPipeline.create(TestMessage.class, new JsonFormat<>(TestMessage.class));
     private MessageCache instance;
 
     @Before
@@ -115,6 +122,107 @@ public class MessageCacheTest {
         assertEquals(2, instance.latest());
     }
 
+    @Test
+    public void testFindId() throws Exception {
+        assertEquals(0, instance.findId(0));
+
+        long before = System.currentTimeMillis();
+        instance.add(0, new TestMessage());
+        Thread.sleep(5);
+        long between = System.currentTimeMillis();
+        Thread.sleep(5);
+        instance.add(1, new TestMessage());
+
+        assertEquals(0, instance.findId(before));
+        assertEquals(1, instance.findId(between));
+        assertEquals(2, instance.findId(System.currentTimeMillis() + 1));
+    }
+
+    @Test
+    public void testGovernorEvictsAcrossCaches() {
+        MemoryGovernor governor = new MemoryGovernor(100, MemoryGovernor.Order.OLDEST_FIRST);
+        MessageCache first = new MessageCache(RETENTION, 10, governor, "/first");
+        MessageCache second = new MessageCache(RETENTION, 10, governor, "/second");
+
+        first.add(0, new TestMessage());
+        first.reportSize(0, 60);
+        second.add(0, new TestMessage());
+        second.reportSize(0, 60);
+
+        assertFalse(first.has(0));
+        assertTrue(second.has(0));
+        assertEquals(60, governor.getUsage());
+
+        second.close();
+        assertEquals(0, governor.getUsage());
+    }
+
+    @Test
+    public void testDeduplicationSharesPayloads() {
+        MessageCache deduplicating = new MessageCache(RETENTION, 10, null, "/dedup", PIPELINE);
+        TestMessage first = TestMessage.build("status", 1.0, 1, true);
+
+        deduplicating.add(0, first);
+        deduplicating.add(1, TestMessage.build("status", 1.0, 1, true));
+        deduplicating.add(2, TestMessage.build("changed", 1.0, 1, true));
+
+        assertEquals(2, deduplicating.getPayloadCount());
+        assertSame(first, deduplicating.get(1));
+        assertSame(deduplicating.getEncoded(0), deduplicating.getEncoded(1));
+        assertNull(instance.getEncoded(0));
+
+        deduplicating.remove(0);
+        assertEquals(2, deduplicating.getPayloadCount());
+        assertSame(first, deduplicating.get(1));
+        deduplicating.remove(1);
+        assertEquals(1, deduplicating.getPayloadCount());
+    }
+
+    @Test
+    public void testMessagesAreEncodedOnceWhenAdded() {
+        MessageCache encoding = new MessageCache(RETENTION, 10, null, "/encoding", PIPELINE, false);
+
+        encoding.add(0, TestMessage.build("status", 1.0, 1, true));
+        encoding.add(1, TestMessage.build("status", 1.0, 1, true));
+
+        assertNotNull(encoding.getEncoded(0));
+        assertSame(encoding.getEncoded(0), encoding.getEncoded(0));
+        assertNotSame(encoding.getEncoded(0), encoding.getEncoded(1));
+        assertEquals(0, encoding.getPayloadCount());
+
+        encoding.remove(0);
+        assertNull(encoding.getEncoded(0));
+        assertNotNull(encoding.getEncoded(1));
+    }
+
+    @Test
+    public void testDeduplicatedEntriesExpireSeparately() {
+        MessageCache deduplicating = new MessageCache(RETENTION, 10, null, "/dedup", PIPELINE);
+        deduplicating.add(0, TestMessage.build("status", 1.0, 1, true), 0);
+        deduplicating.add(1, TestMessage.build("status", 1.0, 1, true), Long.MAX_VALUE);
+
+        assertEquals(1, deduplicating.clean().size());
+        assertFalse(deduplicating.has(0));
+        assertNotNull(deduplicating.get(1));
+        assertEquals(1, deduplicating.getPayloadCount());
+    }
+
+    @Test
+    public void testDeduplicatedPayloadsAreAccountedOnce() {
+        MemoryGovernor governor = new MemoryGovernor(1024 * 1024, MemoryGovernor.Order.OLDEST_FIRST);
+        MessageCache deduplicating = new MessageCache(RETENTION, 10, governor, "/dedup", PIPELINE);
+
+        deduplicating.add(0, TestMessage.build("status", 1.0, 1, true));
+        long single = governor.getUsage();
+        for (int i = 1; i < 5; i++) {
+            deduplicating.add(i, TestMessage.build("status", 1.0, 1, true));
+            deduplicating.reportSize(i, 1000); // ignored, the size is already known
+        }
+
+        assertEquals(single + 4 * MessageCache.SHARED_ENTRY_SIZE, governor.getUsage());
+        assertEquals(single, MessageCache.SHARED_ENTRY_SIZE + deduplicating.getEncoded(0).length);
+    }
+
     /**
      * Add messages while simultaneously cleaning the cache; this should replicate the ConcurrentModificationExceptions
      * Tim was seeing when he would start two modules at the same time (MessageCache.clean() would throw when looping)
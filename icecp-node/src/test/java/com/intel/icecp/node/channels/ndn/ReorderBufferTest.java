@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.channels.ndn;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test ReorderBuffer
+ *
+ */
+public class ReorderBufferTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<Long> released = new CopyOnWriteArrayList<>();
+
+    @After
+    public void after() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void releasesInOrder() {
+        ReorderBuffer<Long> instance = build(10000, 10);
+
+        instance.add(5, 5L);
+        instance.add(7, 7L);
+        instance.add(8, 8L);
+        assertEquals(Collections.singletonList(5L), released);
+        assertEquals(2, instance.size());
+
+        instance.add(6, 6L);
+        assertEquals(Arrays.asList(5L, 6L, 7L, 8L), released);
+        assertEquals(0, instance.size());
+    }
+
+    @Test
+    public void skippedIdsReleaseFollowingItems() {
+        ReorderBuffer<Long> instance = build(10000, 10);
+
+        instance.add(0, 0L);
+        instance.add(2, 2L);
+        instance.skip(1);
+
+        assertEquals(Arrays.asList(0L, 2L), released);
+        assertEquals(1, instance.getSkipped());
+    }
+
+    @Test
+    public void gapIsSkippedWhenFull() {
+        ReorderBuffer<Long> instance = build(10000, 2);
+
+        instance.add(0, 0L);
+        instance.add(2, 2L);
+        instance.add(3, 3L);
+        assertEquals(Collections.singletonList(0L), released);
+
+        instance.add(4, 4L);
+        assertEquals(Arrays.asList(0L, 2L, 3L, 4L), released);
+        assertEquals(1, instance.getSkipped());
+    }
+
+    @Test
+    public void gapIsSkippedAfterHoldTime() throws Exception {
+        ReorderBuffer<Long> instance = build(50, 10);
+
+        instance.add(0, 0L);
+        instance.add(3, 3L);
+        Thread.sleep(20);
+        instance.add(4, 4L);
+        assertEquals(Collections.singletonList(0L), released);
+
+        long deadline = System.currentTimeMillis() + 1000;
+        while (released.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList(0L, 3L, 4L), released);
+        assertEquals(2, instance.getSkipped());
+    }
+
+    @Test
+    public void lateItemsAreDropped() {
+        ReorderBuffer<Long> instance = build(10000, 1);
+
+        instance.add(0, 0L);
+        instance.add(2, 2L);
+        instance.add(3, 3L);
+        instance.add(1, 1L);
+        instance.add(3, 3L);
+
+        assertEquals(Arrays.asList(0L, 2L, 3L), released);
+        assertEquals(2, instance.getDropped());
+    }
+
+    @Test
+    public void reservedIdsAreWaitedFor() {
+        ReorderBuffer<Long> instance = build(10000, 10);
+
+        instance.reserve(0);
+        instance.reserve(1);
+        instance.add(1, 1L);
+        assertEquals(Collections.emptyList(), released);
+
+        instance.add(0, 0L);
+        assertEquals(Arrays.asList(0L, 1L), released);
+        assertEquals(0, instance.getDropped());
+    }
+
+    @Test
+    public void firstReservationStartsTheSequence() {
+        ReorderBuffer<Long> instance = build(10000, 10);
+
+        instance.reserve(4);
+        instance.reserve(5);
+        instance.add(5, 5L);
+        instance.add(4, 4L);
+
+        assertEquals(Arrays.asList(4L, 5L), released);
+    }
+
+    @Test
+    public void reservedIdsAreSkippedAfterHoldTime() throws Exception {
+        ReorderBuffer<Long> instance = build(50, 10);
+
+        instance.add(0, 0L);
+        instance.reserve(1);
+        instance.add(2, 2L);
+
+        long deadline = System.currentTimeMillis() + 1000;
+        while (released.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList(0L, 2L), released);
+        assertEquals(1, instance.getSkipped());
+    }
+
+    @Test
+    public void idsGoingFarBackwardsResetTheBuffer() {
+        ReorderBuffer<Long> instance = build(10000, 10);
+
+        instance.add(5000, 5000L);
+        instance.add(5002, 5002L);
+        instance.add(0, 0L);
+        instance.add(1, 1L);
+
+        assertEquals(Arrays.asList(5000L, 5002L, 0L, 1L), released);
+        assertEquals(1, instance.getResets());
+        assertEquals(0, instance.getDropped());
+    }
+
+    @Test
+    public void idsGoingBackwardsAfterIdleResetTheBuffer() throws Exception {
+        ReorderBuffer<Long> instance = build(20, 10);
+
+        instance.add(5, 5L);
+        instance.add(6, 6L);
+        Thread.sleep(50);
+        instance.add(0, 0L);
+
+        assertEquals(Arrays.asList(5L, 6L, 0L), released);
+        assertEquals(1, instance.getResets());
+    }
+
+    private ReorderBuffer<Long> build(long maxHoldMs, int maxSize) {
+        return new ReorderBuffer<>(maxHoldMs, maxSize, scheduler, Runnable::run, released::add);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2017 Intel Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.channels.ndn.notification;
+
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.metadata.FormatPreference;
+import com.intel.icecp.core.metadata.Persistence;
+import com.intel.icecp.core.metadata.formats.NegotiatedFormat;
+import com.intel.icecp.node.NodeFactory;
+import com.intel.icecp.node.channels.ndn.NdnNotificationChannel;
+import com.intel.icecp.node.pipeline.implementations.MessageFormattingPipeline;
+import com.intel.jndn.utils.Client;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.util.Blob;
+import org.junit.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test NdnChannelSubscriber
+ *
+ */
+public class NdnChannelSubscriberTest {
+
+    @Test
+    public void testThatFormatsAreRequestedAgainAfterATimeout() throws Exception {
+        List<Interest> interests = new CopyOnWriteArrayList<>();
+        Client client = mock(Client.class);
+        when(client.getAsync(any(), any())).thenAnswer(invocation -> {
+            Interest interest = (Interest) invocation.getArguments()[1];
+            interests.add(interest);
+            CompletableFuture<Data> reply = new CompletableFuture<>();
+            if (isFormatsRequest(interest)) {
+                if (interests.size() == 1) {
+                    reply.completeExceptionally(new TimeoutException("Interest timed out: " + interest.toUri()));
+                } else {
+                    Data data = new Data(interest.getName());
+                    data.setContent(new Blob(FormatPreference.CBOR.getBytes(StandardCharsets.UTF_8)));
+                    reply.complete(data);
+                }
+            }
+            return reply;
+        });
+        NdnChannelSubscriber instance = new NdnChannelSubscriber(new NegotiatingNdnNotificationChannel(), client);
+
+        instance.getMessage(0);
+        instance.getMessage(1);
+
+        assertEquals(4, interests.size());
+        assertTrue(isFormatsRequest(interests.get(0)));
+        assertEquals(4, interests.get(1).getName().size());
+        assertTrue(isFormatsRequest(interests.get(2)));
+        Name negotiated = interests.get(3).getName();
+        assertEquals(5, negotiated.size());
+        assertEquals(new Name.Component(FormatPreference.CBOR), negotiated.get(-1));
+    }
+
+    private static boolean isFormatsRequest(Interest interest) {
+        return interest.getName().get(-1).equals(new Name.Component(NdnNotificationChannel.FORMATS_SUFFIX));
+    }
+
+    /**
+     * Channel negotiating its format, preferring CBOR
+     */
+    private static class NegotiatingNdnNotificationChannel extends NdnNotificationChannel {
+
+        private static final NegotiatedFormat<Message> FORMAT = new NegotiatedFormat<>(Message.class, new FormatPreference(FormatPreference.CBOR, FormatPreference.JSON));
+
+        NegotiatingNdnNotificationChannel() {
+            super(URI.create("ndn:/dummy/channel"), MessageFormattingPipeline.create(Message.class, FORMAT), null, null, NodeFactory.buildEventLoop(), new Persistence(), FORMAT);
+        }
+    }
+}
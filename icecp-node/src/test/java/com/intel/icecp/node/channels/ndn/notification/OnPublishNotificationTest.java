@@ -17,21 +17,38 @@ package com.intel.icecp.node.channels.ndn.notification;
 
 import com.intel.icecp.common.TestMessage;
 import com.intel.icecp.core.Message;
+import com.intel.icecp.core.messages.BytesMessage;
+import com.intel.icecp.core.metadata.Loopback;
+import com.intel.icecp.core.metadata.Ordering;
 import com.intel.icecp.core.metadata.Persistence;
+import com.intel.icecp.core.metadata.formats.JsonFormat;
 import com.intel.icecp.core.misc.OnPublish;
+import com.intel.icecp.core.pipeline.Pipeline;
+import com.intel.icecp.node.channels.ndn.NdnLoopback;
 import com.intel.icecp.node.channels.ndn.NdnNotificationChannel;
 import com.intel.icecp.node.NodeFactory;
+import com.intel.icecp.node.pipeline.PipelineImpl;
+import com.intel.icecp.node.pipeline.operations.FormattingOperation;
+import com.intel.icecp.node.pipeline.operations.SymmetricEncryptionOperation;
 import com.intel.jndn.mock.MockFace;
 import net.named_data.jndn.Interest;
 import net.named_data.jndn.Name;
 import org.junit.Test;
 
+import java.io.InputStream;
 import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test OnPublishNotification
@@ -53,18 +70,230 @@ public class OnPublishNotificationTest {
         assertEquals(0, latch.getCount());
     }
 
+    @Test
+    public void testThatCallbackIsCalledForEachBatchedMessage() throws Exception {
+        List<Message> batch = Arrays.asList(TestMessage.buildRandom(10), TestMessage.buildRandom(10), TestMessage.buildRandom(10));
+        CountDownLatch latch = new CountDownLatch(batch.size());
+
+        OnPublishNotification instance = new OnPublishNotification(new MockNdnNotificationChannel(batch), message -> latch.countDown(), null);
+        final Name name = new Name("/dummy/channel").appendVersion(0);
+        instance.onInterest(name, new Interest(name), new MockFace(), 0, null);
+
+        latch.await(1, TimeUnit.SECONDS);
+        assertEquals(0, latch.getCount());
+    }
+
+    @Test
+    public void testThatConflatingSkipsIntermediateVersions() throws Exception {
+        ControlledNdnNotificationChannel channel = new ControlledNdnNotificationChannel();
+        List<Message> received = new CopyOnWriteArrayList<>();
+        OnPublishNotification instance = new OnPublishNotification(channel, received::add, null, true);
+
+        announce(instance, 0);
+        announce(instance, 1);
+        announce(instance, 2);
+        announce(instance, 3);
+        announce(instance, 2); // stale
+        assertEquals(Collections.singleton(0L), channel.requests.keySet());
+        assertEquals(3, instance.getSkippedVersions());
+
+        TestMessage first = TestMessage.buildRandom(10);
+        channel.requests.get(0L).complete(Collections.singletonList(first));
+        TestMessage newest = TestMessage.buildRandom(10);
+        channel.awaitRequest(3).complete(Arrays.asList(TestMessage.buildRandom(10), newest));
+
+        long deadline = System.currentTimeMillis() + 1000;
+        while (received.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList(first, newest), received);
+        assertEquals(2, channel.requests.size());
+    }
+
+    @Test
+    public void testThatLocalPublishersAreOnlyDeliveredInProcess() throws Exception {
+        NdnLoopback loopback = new NdnLoopback();
+        loopback.addPublisher(42, null);
+        ControlledNdnNotificationChannel channel = new ControlledNdnNotificationChannel(loopback);
+        List<Message> received = new CopyOnWriteArrayList<>();
+        OnPublishNotification instance = new OnPublishNotification(channel, received::add, null);
+
+        Name local = new Name("/dummy/channel/update").append(Name.Component.fromNumber(42)).appendVersion(0);
+        instance.onInterest(local, new Interest(local), new MockFace(), 0, null);
+        assertTrue(channel.requests.isEmpty());
+
+        TestMessage message = TestMessage.buildRandom(10);
+        instance.onLocalPublish(42, 0, Collections.singletonList(message));
+        long deadline = System.currentTimeMillis() + 1000;
+        while (received.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Collections.singletonList(message), received);
+
+        Name remote = new Name("/dummy/channel/update").append(Name.Component.fromNumber(7)).appendVersion(1);
+        instance.onInterest(remote, new Interest(remote), new MockFace(), 0, null);
+        assertEquals(Collections.singleton(1L), channel.requests.keySet());
+    }
+
+    @Test
+    public void testThatLocalPublishersWithAnotherPipelineGoThroughTheNetwork() throws Exception {
+        NdnLoopback loopback = new NdnLoopback();
+        loopback.addPublisher(42, new PipelineImpl<>(Message.class, InputStream.class));
+        ControlledNdnNotificationChannel channel = new ControlledNdnNotificationChannel(loopback);
+        List<Message> received = new CopyOnWriteArrayList<>();
+        OnPublishNotification instance = new OnPublishNotification(channel, received::add, null);
+        loopback.addSubscription(channel.getName(), null, instance);
+
+        loopback.deliver(channel.getName(), 42, 0, Collections.singletonList(TestMessage.buildRandom(10)));
+        Name local = new Name("/dummy/channel/update").append(Name.Component.fromNumber(42)).appendVersion(0);
+        instance.onInterest(local, new Interest(local), new MockFace(), 0, null);
+
+        assertEquals(Collections.singleton(0L), channel.requests.keySet());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void testThatLocalPublishersWithAnotherEncryptionKeyGoThroughTheNetwork() throws Exception {
+        NdnLoopback loopback = new NdnLoopback();
+        loopback.addPublisher(42, encrypting(URI.create("/keys/publisher")));
+        ControlledNdnNotificationChannel channel = new ControlledNdnNotificationChannel(loopback, encrypting(URI.create("/keys/subscriber")));
+        List<Message> received = new CopyOnWriteArrayList<>();
+        OnPublishNotification instance = new OnPublishNotification(channel, received::add, null);
+        loopback.addSubscription(channel.getName(), channel.getFormattingPipeline(), instance);
+
+        loopback.deliver(channel.getName(), 42, 0, Collections.singletonList(TestMessage.buildRandom(10)));
+        Name local = new Name("/dummy/channel/update").append(Name.Component.fromNumber(42)).appendVersion(0);
+        instance.onInterest(local, new Interest(local), new MockFace(), 0, null);
+
+        assertEquals(Collections.singleton(0L), channel.requests.keySet());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void testThatCallbacksRunInOrderOffTheEventLoop() throws Exception {
+        ControlledNdnNotificationChannel channel = new ControlledNdnNotificationChannel();
+        List<Message> received = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        OnPublishNotification instance = new OnPublishNotification(channel, message -> {
+            threads.add(Thread.currentThread().getName());
+            received.add(message);
+        }, null);
+
+        announce(instance, 0);
+        announce(instance, 1);
+        TestMessage second = TestMessage.buildRandom(10);
+        channel.awaitRequest(1).complete(Collections.singletonList(second));
+        TestMessage first = TestMessage.buildRandom(10);
+        channel.awaitRequest(0).complete(Collections.singletonList(first));
+
+        long deadline = System.currentTimeMillis() + 1000;
+        while (received.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList(second, first), received);
+        assertTrue(threads.stream().allMatch(thread -> thread.startsWith("icecp-callback-")));
+        assertEquals(0, instance.getDroppedCallbacks());
+    }
+
+    @Test
+    public void testThatOrderingIsPerPublisherFromAnnouncement() throws Exception {
+        ControlledNdnNotificationChannel channel = new ControlledNdnNotificationChannel();
+        List<Message> received = new CopyOnWriteArrayList<>();
+        OnPublishNotification instance = new OnPublishNotification(channel, received::add, null, false, new Ordering(10000, 10));
+
+        announce(instance, 1, 10);
+        announce(instance, 2, 0);
+        announce(instance, 1, 11);
+        announce(instance, 2, 1);
+        TestMessage[] messages = {TestMessage.buildRandom(10), TestMessage.buildRandom(10), TestMessage.buildRandom(10), TestMessage.buildRandom(10)};
+        channel.awaitRequest(11).complete(Collections.singletonList(messages[3]));
+        channel.awaitRequest(1).complete(Collections.singletonList(messages[1]));
+        assertTrue(received.isEmpty());
+
+        channel.awaitRequest(0).complete(Collections.singletonList(messages[0]));
+        channel.awaitRequest(10).complete(Collections.singletonList(messages[2]));
+        long deadline = System.currentTimeMillis() + 1000;
+        while (received.size() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList(messages), received);
+        assertEquals(0, instance.getSkippedVersions());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Pipeline<Message, InputStream> encrypting(URI keyId) {
+        PipelineImpl pipeline = new PipelineImpl<>(Message.class, BytesMessage.class);
+        pipeline.append(new FormattingOperation(new JsonFormat<>(TestMessage.class)), new SymmetricEncryptionOperation(keyId, "AES", null));
+        return pipeline;
+    }
+
+    private void announce(OnPublishNotification instance, long publisherId, long version) {
+        final Name name = new Name("/dummy/channel/update").append(Name.Component.fromNumber(publisherId)).appendVersion(version);
+        instance.onInterest(name, new Interest(name), new MockFace(), 0, null);
+    }
+
+    private void announce(OnPublishNotification instance, long version) {
+        final Name name = new Name("/dummy/channel").appendVersion(version);
+        instance.onInterest(name, new Interest(name), new MockFace(), 0, null);
+    }
+
+    /**
+     * Mock the NdnNotificationChannel interaction, recording requests that the test completes
+     */
+    private class ControlledNdnNotificationChannel extends NdnNotificationChannel {
+
+        private final Map<Long, CompletableFuture<List<Message>>> requests = new ConcurrentHashMap<>();
+
+        public ControlledNdnNotificationChannel() {
+            this(null);
+        }
+
+        public ControlledNdnNotificationChannel(NdnLoopback loopback) {
+            this(loopback, null);
+        }
+
+        public ControlledNdnNotificationChannel(NdnLoopback loopback, Pipeline<Message, InputStream> pipeline) {
+            super(URI.create("ndn:/dummy/channel"), pipeline, null, null, NodeFactory.buildEventLoop(), loopback, null, new Persistence(), Loopback.IN_PROCESS);
+        }
+
+        @Override
+        public CompletableFuture<List<Message>> getAll(long version) {
+            return requests.computeIfAbsent(version, v -> new CompletableFuture<>());
+        }
+
+        CompletableFuture<List<Message>> awaitRequest(long version) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 1000;
+            while (!requests.containsKey(version) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            return getAll(version);
+        }
+    }
+
     /**
-     * Mock the NdnNotificationChannel interaction, returning a test message immediately
+     * Mock the NdnNotificationChannel interaction, returning test messages immediately
      */
     private class MockNdnNotificationChannel extends NdnNotificationChannel {
 
+        private final List<Message> messages;
+
         public MockNdnNotificationChannel() {
+            this(Collections.singletonList(TestMessage.buildRandom(10)));
+        }
+
+        public MockNdnNotificationChannel(List<Message> messages) {
             super(URI.create("ndn:/dummy/channel"), null, null, null, NodeFactory.buildEventLoop(), new Persistence());
+            this.messages = messages;
         }
 
         @Override
         public CompletableFuture get(long version) {
-            return CompletableFuture.completedFuture(TestMessage.buildRandom(10));
+            return CompletableFuture.completedFuture(messages.get(messages.size() - 1));
+        }
+
+        @Override
+        public CompletableFuture<List<Message>> getAll(long version) {
+            return CompletableFuture.completedFuture(messages);
         }
     }
 
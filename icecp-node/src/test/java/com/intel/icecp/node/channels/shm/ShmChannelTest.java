@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.channels.shm;
+
+import com.intel.icecp.common.TestMessage;
+import com.intel.icecp.core.Channel;
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.channels.ChannelTest;
+import com.intel.icecp.core.metadata.Persistence;
+import com.intel.icecp.core.misc.ChannelIOException;
+import com.intel.icecp.core.misc.ChannelLifetimeException;
+import com.intel.icecp.core.pipeline.Pipeline;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test ShmChannel; all channel types should be able to pass the tests defined in {@link ChannelTest}. Providers built
+ * on the same directory stand in for node processes of the same host.
+ *
+ */
+public class ShmChannelTest extends ChannelTest {
+
+    private Path directory;
+    private ShmChannelProvider provider;
+
+    @Override
+    public Channel newInstance(String channelName, Pipeline pipeline, Persistence persistence) {
+        if (provider == null) {
+            provider = newProvider();
+        }
+        return build(provider, channelName, pipeline, persistence);
+    }
+
+    private ShmChannelProvider newProvider() {
+        try {
+            if (directory == null) {
+                directory = Files.createTempDirectory("icecp-shm-test");
+                directory.toFile().deleteOnExit();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return new ShmChannelProvider(directory, 1024 * 1024, WaitStrategy.BACKOFF);
+    }
+
+    private Channel build(ShmChannelProvider provider, String channelName, Pipeline pipeline, Persistence persistence) {
+        try {
+            return provider.build(URI.create("shm:" + channelName), pipeline, persistence);
+        } catch (ChannelLifetimeException ex) {
+            throw new IllegalArgumentException("Unable to create channel instance.", ex);
+        }
+    }
+
+    @Test
+    public void subscribersOfOtherProcessesReceiveMessagesInOrder() throws Exception {
+        Channel<TestMessage> publisher = newInstance("/shm/fanout", PIPELINE, PERSISTENCE);
+        List<List<Message>> received = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3 * 100);
+        for (int i = 0; i < 3; i++) {
+            List<Message> messages = new CopyOnWriteArrayList<>();
+            received.add(messages);
+            Channel<TestMessage> subscriber = build(newProvider(), "/shm/fanout", PIPELINE, PERSISTENCE);
+            subscriber.subscribe(message -> {
+                messages.add(message);
+                latch.countDown();
+            });
+        }
+
+        List<TestMessage> published = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            TestMessage message = TestMessage.buildRandom(10);
+            published.add(message);
+            publisher.publish(message);
+        }
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        for (List<Message> messages : received) {
+            assertEquals(published, messages);
+        }
+    }
+
+    @Test
+    public void latestIsReadFromTheRing() throws Exception {
+        Channel<TestMessage> publisher = newInstance("/shm/latest", PIPELINE, new Persistence(50));
+        Channel<TestMessage> subscriber = build(newProvider(), "/shm/latest", PIPELINE, new Persistence(50));
+        TestMessage message = TestMessage.buildRandom(10);
+
+        publisher.publish(message);
+        assertEquals(message, subscriber.latest().get(1, TimeUnit.SECONDS));
+
+        Thread.sleep(100);
+        CompletableFuture<TestMessage> next = subscriber.latest();
+        assertFalse(next.isDone());
+        TestMessage nextMessage = TestMessage.buildRandom(10);
+        publisher.publish(nextMessage);
+        assertEquals(nextMessage, next.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = ChannelIOException.class)
+    public void onlyOnePublisherPerHost() throws Exception {
+        newInstance("/shm/single-writer", PIPELINE, PERSISTENCE).publish(TestMessage.buildRandom(10));
+        build(newProvider(), "/shm/single-writer", PIPELINE, PERSISTENCE).publish(TestMessage.buildRandom(10));
+    }
+
+    @Test(expected = ChannelIOException.class)
+    public void onlyOnePublisherPerProcess() throws Exception {
+        newInstance("/shm/single-local-writer", PIPELINE, PERSISTENCE).publish(TestMessage.buildRandom(10));
+        newInstance("/shm/single-local-writer", PIPELINE, PERSISTENCE).publish(TestMessage.buildRandom(10));
+    }
+
+    @Test
+    public void closingAnotherChannelKeepsTheWriterLock() throws Exception {
+        Channel<TestMessage> publisher = newInstance("/shm/writer-owner", PIPELINE, PERSISTENCE);
+        Channel<TestMessage> other = newInstance("/shm/writer-owner", PIPELINE, PERSISTENCE);
+        publisher.publish(TestMessage.buildRandom(10));
+        try {
+            other.publish(TestMessage.buildRandom(10));
+            fail("Only the publisher should hold the writer lock");
+        } catch (ChannelIOException e) {
+            // expected
+        }
+        other.close();
+
+        publisher.publish(TestMessage.buildRandom(10));
+        try {
+            build(newProvider(), "/shm/writer-owner", PIPELINE, PERSISTENCE).publish(TestMessage.buildRandom(10));
+            fail("The writer lock should still be held by the publisher");
+        } catch (ChannelIOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void closingThePublisherReleasesTheWriterLock() throws Exception {
+        Channel<TestMessage> first = newInstance("/shm/writer-handoff", PIPELINE, PERSISTENCE);
+        first.publish(TestMessage.buildRandom(10));
+        first.close();
+
+        build(newProvider(), "/shm/writer-handoff", PIPELINE, PERSISTENCE).publish(TestMessage.buildRandom(10));
+    }
+
+    @Test
+    public void onlyTheOwnerReleasesTheWriterLock() throws Exception {
+        ShmRing ring = new ShmRing(Files.createTempFile(directory, "owner", ".ring"), ShmRing.MIN_CAPACITY);
+        Object owner = new Object();
+        Object other = new Object();
+        assertTrue(ring.tryAcquireWriter(owner));
+        assertFalse(ring.tryAcquireWriter(other));
+
+        ring.releaseWriter(other);
+        assertFalse(ring.tryAcquireWriter(other));
+        ring.releaseWriter(owner);
+        assertTrue(ring.tryAcquireWriter(other));
+        ring.close();
+    }
+
+    @Test
+    public void slowReadersSkipOverwrittenRecords() throws Exception {
+        ShmRing ring = new ShmRing(Files.createTempFile(directory, "slow", ".ring"), ShmRing.MIN_CAPACITY);
+        assertTrue(ring.tryAcquireWriter(this));
+        ShmRing.Cursor cursor = ring.newCursor();
+
+        // 100-byte records take 128 bytes of the ring, so only the last 8 fit
+        for (int i = 0; i < 20; i++) {
+            byte[] payload = new byte[100];
+            payload[0] = (byte) i;
+            assertEquals(i, ring.append(this, payload, Long.MAX_VALUE));
+        }
+
+        List<ShmRing.Record> records = new ArrayList<>();
+        for (ShmRing.Record record = cursor.poll(); record != null; record = cursor.poll()) {
+            records.add(record);
+        }
+        assertEquals(20 - records.size(), cursor.getDropped());
+        assertEquals(19, records.get(records.size() - 1).sequence);
+        for (int i = 1; i < records.size(); i++) {
+            assertEquals(records.get(i - 1).sequence + 1, records.get(i).sequence);
+        }
+        assertEquals(19, ring.latest().payload[0]);
+        ring.close();
+    }
+
+    @Test
+    public void recordsWrapAroundTheRing() throws Exception {
+        ShmRing ring = new ShmRing(Files.createTempFile(directory, "wrap", ".ring"), ShmRing.MIN_CAPACITY);
+        assertTrue(ring.tryAcquireWriter(this));
+        assertNull(ring.latest());
+
+        for (int i = 0; i < 50; i++) {
+            ShmRing.Cursor cursor = ring.newCursor();
+            byte[] payload = new byte[1 + i * 7 % ring.getMaxPayloadSize()];
+            payload[payload.length - 1] = (byte) i;
+            ring.append(this, payload, Long.MAX_VALUE);
+
+            assertArrayEquals(payload, cursor.poll().payload);
+            assertNull(cursor.poll());
+            assertEquals(0, cursor.getDropped());
+        }
+        ring.close();
+    }
+}
@@ -15,9 +15,19 @@
  */
 package com.intel.icecp.node.pipeline;
 
+import com.intel.icecp.common.TestMessage;
+import com.intel.icecp.core.Message;
+import com.intel.icecp.core.messages.BytesMessage;
+import com.intel.icecp.core.metadata.Format;
+import com.intel.icecp.core.metadata.formats.CborFormat;
+import com.intel.icecp.core.metadata.formats.JsonFormat;
 import com.intel.icecp.core.pipeline.Operation;
 import com.intel.icecp.core.pipeline.Pipeline;
 import com.intel.icecp.core.pipeline.exception.PipelineException;
+import com.intel.icecp.node.pipeline.operations.FormattingOperation;
+import com.intel.icecp.node.pipeline.operations.SymmetricEncryptionOperation;
+import java.io.InputStream;
+import java.net.URI;
 import java.util.Objects;
 import org.junit.Assert;
 import org.junit.Test;
@@ -206,4 +216,41 @@ public class PipelineImplTest {
         pipeline.execute("execute");
 
     }
+
+    @Test
+    public void formattingPipelinesMatchByInputTypeAndFormat() {
+        PipelineImpl<TestMessage, InputStream> pipeline = formatting(TestMessage.class, new JsonFormat<>(TestMessage.class));
+        Assert.assertTrue(pipeline.matches(pipeline));
+        Assert.assertTrue(pipeline.matches(formatting(TestMessage.class, new JsonFormat<>(TestMessage.class))));
+        Assert.assertFalse(pipeline.matches(formatting(TestMessage.class, new CborFormat<>(TestMessage.class))));
+        Assert.assertFalse(pipeline.matches(formatting(Message.class, new JsonFormat<>(Message.class))));
+    }
+
+    @Test
+    public void pipelinesWithOtherOperationsOnlyMatchThemselves() {
+        PipelineImpl<TestMessage, BytesMessage> pipeline = encrypting(URI.create("/keys/a"));
+        Assert.assertFalse(pipeline.isFormattingOnly());
+        Assert.assertTrue(pipeline.matches(pipeline));
+        Assert.assertFalse(pipeline.matches(encrypting(URI.create("/keys/b"))));
+        Assert.assertFalse(pipeline.matches(encrypting(URI.create("/keys/a"))));
+        Assert.assertFalse(pipeline.matches(formatting(TestMessage.class, new JsonFormat<>(TestMessage.class))));
+
+        PipelineImpl<String, String> unknown = new PipelineImpl<>(String.class, String.class);
+        unknown.append(new OpStringToB(), new OpBToString());
+        PipelineImpl<String, String> same = new PipelineImpl<>(String.class, String.class);
+        same.append(new OpStringToB(), new OpBToString());
+        Assert.assertFalse(unknown.matches(same));
+    }
+
+    private static <T extends Message> PipelineImpl<T, InputStream> formatting(Class<T> type, Format<T> format) {
+        PipelineImpl<T, InputStream> pipeline = new PipelineImpl<>(type, InputStream.class);
+        pipeline.append(new FormattingOperation(format));
+        return pipeline;
+    }
+
+    private static PipelineImpl<TestMessage, BytesMessage> encrypting(URI keyId) {
+        PipelineImpl<TestMessage, BytesMessage> pipeline = new PipelineImpl<>(TestMessage.class, BytesMessage.class);
+        pipeline.append(new FormattingOperation(new JsonFormat<>(TestMessage.class)), new SymmetricEncryptionOperation(keyId, "AES", null));
+        return pipeline;
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.pipeline.operations;
+
+import com.intel.icecp.core.messages.BytesMessage;
+import com.intel.icecp.core.mock.MockKeyManager;
+import com.intel.icecp.core.pipeline.exception.OperationException;
+import com.intel.icecp.core.security.SecurityServicesTestUtils;
+import com.intel.icecp.core.security.crypto.cipher.Cipher;
+import com.intel.icecp.node.security.RandomBytesGenerator;
+import com.intel.icecp.node.security.SecurityConstants;
+import com.intel.icecp.node.security.crypto.cipher.asymmetric.RsaCipher;
+import com.intel.icecp.node.security.crypto.cipher.symmetric.AesCbcCipher;
+import com.intel.icecp.node.security.crypto.cipher.symmetric.AesEcbCipher;
+import com.intel.icecp.node.security.crypto.cipher.symmetric.AesGcmCipher;
+import com.intel.icecp.node.security.crypto.cipher.symmetric.ChaCha20Poly1305Cipher;
+import com.intel.icecp.node.security.crypto.key.KeyProvider;
+import com.intel.icecp.node.utils.StreamUtils;
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for the {@link AuthenticatedEncryptionOperation} class
+ *
+ */
+public class AuthenticatedEncryptionOperationTest {
+
+    private final Class[] cipherTypes = {AesCbcCipher.class, AesEcbCipher.class, RsaCipher.class, AesGcmCipher.class, ChaCha20Poly1305Cipher.class};
+
+    private AuthenticatedEncryptionOperation operation;
+
+    @Before
+    public void init() throws Exception {
+        SecurityServicesTestUtils.createConfigurationFile(cipherTypes, Cipher.class);
+        operation = new AuthenticatedEncryptionOperation(MockKeyManager.DEFAULT_SYMM_KEY, new MockKeyManager().init());
+    }
+
+    @Test
+    public void executeAndInverse() throws Exception {
+        byte[] bytes = RandomBytesGenerator.getRandomBytes(500);
+        BytesMessage encrypted = operation.execute(new ByteArrayInputStream(bytes));
+        Assert.assertArrayEquals(bytes, StreamUtils.readAll(operation.executeInverse(encrypted)));
+    }
+
+    @Test(expected = OperationException.class)
+    public void inverseFailsOnTamperedMessage() throws Exception {
+        BytesMessage encrypted = operation.execute(new ByteArrayInputStream(RandomBytesGenerator.getRandomBytes(500)));
+        byte[] tampered = encrypted.getBytes();
+        tampered[tampered.length - 1] ^= 0x01;
+        operation.executeInverse(new BytesMessage(tampered));
+    }
+
+    @Test
+    public void executeAndInverseWithChaCha20Poly1305() throws Exception {
+        URI keyId = URI.create("ndn://com/intel/channel/channel_id/chacha_key");
+        MockKeyManager keyManager = new MockKeyManager().init();
+        keyManager.addSymmetricKey(keyId, KeyProvider.generateSymmetricKey(SecurityConstants.CHACHA20, SecurityConstants.CHACHA20_KEY_SIZE));
+        AuthenticatedEncryptionOperation chaChaOperation = new AuthenticatedEncryptionOperation(keyId, SecurityConstants.CHACHA20_POLY1305_ALGORITHM, keyManager);
+
+        byte[] bytes = RandomBytesGenerator.getRandomBytes(500);
+        BytesMessage encrypted = chaChaOperation.execute(new ByteArrayInputStream(bytes));
+        Assert.assertArrayEquals(bytes, StreamUtils.readAll(chaChaOperation.executeInverse(encrypted)));
+    }
+
+    @Test(expected = OperationException.class)
+    public void executeNullInput() throws Exception {
+        operation.execute(null);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.pipeline.operations;
+
+import com.intel.icecp.core.messages.BytesMessage;
+import com.intel.icecp.core.metadata.formats.FormatEncodingException;
+import com.intel.icecp.core.metadata.formats.JsonFormat;
+import com.intel.icecp.core.pipeline.exception.OperationException;
+import com.intel.icecp.core.security.SecurityServicesTestUtils;
+import com.intel.icecp.core.security.crypto.signature.SignatureScheme;
+import com.intel.icecp.node.messages.security.BatchSignedMessage;
+import com.intel.icecp.node.security.SecurityConstants;
+import com.intel.icecp.node.security.crypto.signature.rsa.Sha1withRsaScheme;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for {@link BatchedAsymmetricSigningOperation}
+ *
+ */
+public class BatchedAsymmetricSigningOperationTest {
+
+    private static final int BATCH_SIZE = 8;
+    private final Class[] signatureAlgorithms = {Sha1withRsaScheme.class};
+    private final CountDownLatch allSigning = new CountDownLatch(BATCH_SIZE);
+    private AsymmetricSignOperationTest.MockTrustModel trustModel;
+    private BatchedAsymmetricSigningOperation operation;
+
+    @Before
+    public void init() throws Exception {
+        SecurityServicesTestUtils.createConfigurationFile(signatureAlgorithms, SignatureScheme.class);
+        trustModel = new AsymmetricSignOperationTest().new MockTrustModel();
+        operation = new BatchedAsymmetricSigningOperation(trustModel, URI.create("ndn://com/intel/test/signKey"),
+                URI.create("ndn://com/intel/test/cert"), new JsonFormat<>(BytesMessage.class), SecurityConstants.SHA1withRSA, BATCH_SIZE, 1000);
+    }
+
+    @Test
+    public void concurrentMessagesShareOneSignature() throws Exception {
+        // hold every signer in its encoding step until all of them are signing, so that they join a single batch
+        JsonFormat<BytesMessage> slowFormat = new JsonFormat<BytesMessage>(BytesMessage.class) {
+            @Override
+            public InputStream encode(BytesMessage message) throws FormatEncodingException {
+                allSigning.countDown();
+                try {
+                    allSigning.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.encode(message);
+            }
+        };
+        operation = new BatchedAsymmetricSigningOperation(trustModel, URI.create("ndn://com/intel/test/signKey"),
+                URI.create("ndn://com/intel/test/cert"), slowFormat, SecurityConstants.SHA1withRSA, BATCH_SIZE, 1000);
+        ExecutorService pool = Executors.newFixedThreadPool(BATCH_SIZE);
+        List<Future<BatchSignedMessage>> futures = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            BytesMessage message = new BytesMessage(new byte[]{(byte) i});
+            futures.add(pool.submit(() -> operation.execute(message)));
+        }
+
+        BatchSignedMessage first = futures.get(0).get();
+        for (Future<BatchSignedMessage> future : futures) {
+            BatchSignedMessage signed = future.get();
+            Assert.assertEquals(BATCH_SIZE, signed.batchSize);
+            Assert.assertArrayEquals(first.signature.signatureValue, signed.signature.signatureValue);
+            Assert.assertNotNull(operation.executeInverse(signed));
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void singleSignerDoesNotWaitForBatchWindow() throws Exception {
+        BytesMessage message = new BytesMessage(new byte[]{1, 2, 3});
+        long start = System.currentTimeMillis();
+        BatchSignedMessage signed = operation.execute(message);
+        Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+        Assert.assertEquals(1, signed.batchSize);
+        Assert.assertArrayEquals(message.getBytes(), ((BytesMessage) operation.executeInverse(signed)).getBytes());
+    }
+
+    @Test(expected = OperationException.class)
+    public void modifiedMessageIsRejected() throws Exception {
+        BatchSignedMessage signed = operation.execute(new BytesMessage(new byte[]{1, 2, 3}));
+        signed.message = new BytesMessage(new byte[]{1, 2, 4});
+        operation.executeInverse(signed);
+    }
+
+    @Test(expected = OperationException.class)
+    public void nullInputIsRejected() throws Exception {
+        operation.execute(null);
+    }
+}
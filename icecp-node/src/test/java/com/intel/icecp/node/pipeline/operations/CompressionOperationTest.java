@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.pipeline.operations;
+
+import com.intel.icecp.core.attributes.Attributes;
+import com.intel.icecp.core.attributes.CompressionAttribute;
+import com.intel.icecp.core.mock.MockChannels;
+import com.intel.icecp.core.pipeline.exception.OperationCreationException;
+import com.intel.icecp.core.pipeline.exception.OperationException;
+import com.intel.icecp.node.AttributesFactory;
+import com.intel.icecp.node.security.RandomBytesGenerator;
+import com.intel.icecp.node.utils.StreamUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for the {@link CompressionOperation} class
+ *
+ */
+public class CompressionOperationTest {
+
+    private CompressionDictionaries dictionaries;
+    private CompressionDictionary dictionary;
+
+    @Before
+    public void init() {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            samples.add(message(i));
+        }
+        dictionary = CompressionDictionary.train(samples, 1024);
+        dictionaries = new CompressionDictionaries();
+        dictionaries.register("events", dictionary);
+    }
+
+    @Test
+    public void executeAndInverse() throws Exception {
+        CompressionOperation operation = new CompressionOperation(dictionary, dictionaries);
+        byte[] bytes = message(1000);
+        byte[] compressed = StreamUtils.readAll(operation.execute(new ByteArrayInputStream(bytes)));
+
+        assertEquals(CompressionOperation.DEFLATED, compressed[0]);
+        assertArrayEquals(bytes, StreamUtils.readAll(operation.executeInverse(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void dictionaryImprovesSmallMessages() throws Exception {
+        byte[] bytes = message(1000);
+        int withDictionary = StreamUtils.readAll(new CompressionOperation(dictionary, dictionaries).execute(new ByteArrayInputStream(bytes))).length;
+        int withoutDictionary = StreamUtils.readAll(new CompressionOperation(null, dictionaries).execute(new ByteArrayInputStream(bytes))).length;
+
+        assertTrue(withDictionary < withoutDictionary);
+        assertTrue(withDictionary < bytes.length / 2);
+    }
+
+    @Test
+    public void smallMessagesAreStored() throws Exception {
+        CompressionOperation operation = new CompressionOperation(dictionary, Deflater.DEFAULT_COMPRESSION, 1000, dictionaries);
+        byte[] bytes = message(1);
+        byte[] stored = StreamUtils.readAll(operation.execute(new ByteArrayInputStream(bytes)));
+
+        assertEquals(CompressionOperation.STORED, stored[0]);
+        assertEquals(bytes.length + 1, stored.length);
+        assertArrayEquals(bytes, StreamUtils.readAll(operation.executeInverse(new ByteArrayInputStream(stored))));
+    }
+
+    @Test
+    public void incompressibleMessagesAreStored() throws Exception {
+        CompressionOperation operation = new CompressionOperation(null, dictionaries);
+        byte[] bytes = RandomBytesGenerator.getRandomBytes(500);
+        byte[] stored = StreamUtils.readAll(operation.execute(new ByteArrayInputStream(bytes)));
+
+        assertEquals(CompressionOperation.STORED, stored[0]);
+        assertArrayEquals(bytes, StreamUtils.readAll(operation.executeInverse(new ByteArrayInputStream(stored))));
+    }
+
+    @Test(expected = OperationException.class)
+    public void inverseFailsOnUnknownDictionary() throws Exception {
+        byte[] compressed = StreamUtils.readAll(new CompressionOperation(dictionary, dictionaries).execute(new ByteArrayInputStream(message(1))));
+        new CompressionOperation(null, new CompressionDictionaries()).executeInverse(new ByteArrayInputStream(compressed));
+    }
+
+    @Test(expected = OperationException.class)
+    public void inverseFailsOnTruncatedPayload() throws Exception {
+        byte[] compressed = StreamUtils.readAll(new CompressionOperation(dictionary, dictionaries).execute(new ByteArrayInputStream(message(1))));
+        new CompressionOperation(dictionary, dictionaries).executeInverse(new ByteArrayInputStream(compressed, 0, compressed.length - 2));
+    }
+
+    @Test
+    public void trainedDictionaryIsBounded() {
+        assertTrue(dictionary.size() <= 1024);
+        assertTrue(dictionary.size() > 0);
+    }
+
+    @Test
+    public void providerBuildsOperationFromAttribute() throws Exception {
+        Attributes attributes = AttributesFactory.buildEmptyAttributes(new MockChannels(), URI.create("icecp:/channel"));
+        attributes.add(new CompressionAttribute("events", Deflater.BEST_COMPRESSION, 32));
+        CompressionOperation operation = new CompressionOperationProvider(dictionaries).buildOperation(null, attributes);
+
+        byte[] bytes = message(7);
+        assertArrayEquals(bytes, StreamUtils.readAll(operation.executeInverse(operation.execute(new ByteArrayInputStream(bytes)))));
+    }
+
+    @Test(expected = OperationCreationException.class)
+    public void providerFailsOnUnknownDictionary() throws Exception {
+        Attributes attributes = AttributesFactory.buildEmptyAttributes(new MockChannels(), URI.create("icecp:/channel"));
+        attributes.add(new CompressionAttribute("unknown", Deflater.DEFAULT_COMPRESSION, 32));
+        new CompressionOperationProvider(dictionaries).buildOperation(null, attributes);
+    }
+
+    @Test
+    public void shippedDictionariesAreRegisteredByDefault() throws Exception {
+        CompressionDictionaries shipped = CompressionDictionaries.getDefault();
+        assertNotNull(shipped.get(CompressionDictionaries.ATTRIBUTE));
+        assertNotNull(shipped.get(CompressionDictionaries.EVENT));
+        assertNotNull(shipped.get(CompressionDictionaries.RPC));
+
+        byte[] bytes = "{\"timestamp\":1500000000000,\"node\":\"/intel/node/test\",\"channel\":\"ndn:/intel/node/test/$attributes/name\",\"action\":\"OPENED\"}".getBytes(StandardCharsets.UTF_8);
+        int withDictionary = StreamUtils.readAll(new CompressionOperation(shipped.get(CompressionDictionaries.EVENT), shipped).execute(new ByteArrayInputStream(bytes))).length;
+        int withoutDictionary = StreamUtils.readAll(new CompressionOperation(null, shipped).execute(new ByteArrayInputStream(bytes))).length;
+        assertTrue(withDictionary < withoutDictionary);
+    }
+
+    private static byte[] message(int i) {
+        return String.format("{\"timestamp\":%d,\"source\":\"/intel/sensors/temperature/%d\",\"type\":\"reading\",\"value\":%d.5,\"unit\":\"celsius\"}",
+                1500000000000L + i, i % 7, 20 + i % 10).getBytes(StandardCharsets.UTF_8);
+    }
+}
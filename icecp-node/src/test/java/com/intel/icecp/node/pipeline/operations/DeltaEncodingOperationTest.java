@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.pipeline.operations;
+
+import com.intel.icecp.core.attributes.Attributes;
+import com.intel.icecp.core.attributes.DeltaEncodingAttribute;
+import com.intel.icecp.core.mock.MockChannels;
+import com.intel.icecp.core.pipeline.exception.OperationCreationException;
+import com.intel.icecp.core.pipeline.exception.OperationException;
+import com.intel.icecp.node.AttributesFactory;
+import com.intel.icecp.node.security.RandomBytesGenerator;
+import com.intel.icecp.node.utils.StreamUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test for the {@link DeltaEncodingOperation} class
+ *
+ */
+public class DeltaEncodingOperationTest {
+
+    private final DeltaEncodingOperation publisher = new DeltaEncodingOperation(4);
+    private final DeltaEncodingOperation subscriber = new DeltaEncodingOperation(4);
+    private long nextId;
+
+    @Test
+    public void deltasFollowKeyframe() throws Exception {
+        byte[] keyframe = encode(status(0));
+        assertEquals(DeltaEncodingOperation.KEYFRAME, keyframe[0]);
+        assertArrayEquals(status(0), decode(keyframe));
+
+        for (int i = 1; i < 4; i++) {
+            byte[] delta = encode(status(i));
+            assertEquals(DeltaEncodingOperation.DELTA, delta[0]);
+            assertTrue(delta.length * 5 < status(i).length);
+            assertArrayEquals(status(i), decode(delta));
+        }
+    }
+
+    @Test
+    public void keyframeIsSentEveryInterval() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            encode(status(i));
+        }
+        assertEquals(DeltaEncodingOperation.KEYFRAME, encode(status(4))[0]);
+        assertEquals(DeltaEncodingOperation.DELTA, encode(status(5))[0]);
+    }
+
+    @Test
+    public void missedDeltasAreTolerated() throws Exception {
+        decode(encode(status(0)));
+        encode(status(1));
+        encode(status(2));
+
+        assertArrayEquals(status(3), decode(encode(status(3))));
+    }
+
+    @Test(expected = MissingKeyframeException.class)
+    public void missedKeyframeFails() throws Exception {
+        encode(status(0));
+        decode(encode(status(1)));
+    }
+
+    @Test
+    public void missedKeyframeIsRecoveredByMessageId() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            encode(status(i));
+        }
+        byte[] keyframe = encode(status(4)); // published as message 4
+        encode(status(5));
+        byte[] delta = encode(status(6));
+
+        try {
+            decode(delta);
+            fail("The keyframe has not been received");
+        } catch (MissingKeyframeException ex) {
+            assertEquals(4, ex.getKeyframeId());
+            decode(keyframe);
+        }
+        assertArrayEquals(status(6), decode(delta));
+    }
+
+    @Test(expected = OperationException.class)
+    public void deltaAgainstOtherKeyframeFails() throws Exception {
+        decode(encode(status(0)));
+        encode(status(1));
+        encode(status(2));
+        encode(status(3));
+        encode(status(4)); // new keyframe, missed
+        decode(encode(status(5)));
+    }
+
+    @Test
+    public void unrelatedMessagesAreSentAsKeyframes() throws Exception {
+        decode(encode(status(0)));
+        byte[] bytes = RandomBytesGenerator.getRandomBytes(500);
+        byte[] encoded = encode(bytes);
+
+        assertEquals(DeltaEncodingOperation.KEYFRAME, encoded[0]);
+        assertArrayEquals(bytes, decode(encoded));
+    }
+
+    @Test(expected = OperationException.class)
+    public void inverseFailsOnTruncatedPayload() throws Exception {
+        decode(encode(status(0)));
+        byte[] delta = encode(status(1));
+        subscriber.executeInverse(new ByteArrayInputStream(delta, 0, delta.length - 2));
+    }
+
+    @Test
+    public void providerBuildsOperationFromAttribute() throws Exception {
+        Attributes attributes = AttributesFactory.buildEmptyAttributes(new MockChannels(), URI.create("icecp:/channel"));
+        attributes.add(new DeltaEncodingAttribute(8));
+        DeltaEncodingOperation operation = new DeltaEncodingOperationProvider().buildOperation(null, attributes);
+
+        byte[] bytes = status(7);
+        assertArrayEquals(bytes, StreamUtils.readAll(operation.executeInverse(operation.execute(new ByteArrayInputStream(bytes)))));
+    }
+
+    @Test(expected = OperationCreationException.class)
+    public void providerFailsOnInvalidInterval() throws Exception {
+        Attributes attributes = AttributesFactory.buildEmptyAttributes(new MockChannels(), URI.create("icecp:/channel"));
+        attributes.add(new DeltaEncodingAttribute(0));
+        new DeltaEncodingOperationProvider().buildOperation(null, attributes);
+    }
+
+    private byte[] encode(byte[] bytes) throws Exception {
+        publisher.setMessageId(nextId++);
+        return StreamUtils.readAll(publisher.execute(new ByteArrayInputStream(bytes)));
+    }
+
+    private byte[] decode(byte[] bytes) throws Exception {
+        return StreamUtils.readAll(subscriber.executeInverse(new ByteArrayInputStream(bytes)));
+    }
+
+    private static byte[] status(int i) {
+        StringBuilder status = new StringBuilder("{\"uptime\":").append(1000 + i);
+        for (int field = 0; field < 20; field++) {
+            status.append(",\"module").append(field).append("\":{\"state\":\"RUNNING\",\"channel\":\"/intel/modules/").append(field).append("\"}");
+        }
+        return status.append(",\"load\":").append(i % 3).append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.security.crypto.cipher.symmetric;
+
+import com.intel.icecp.core.security.crypto.cipher.Cipher;
+import com.intel.icecp.core.security.crypto.exception.cipher.CipherDecryptionError;
+import com.intel.icecp.core.security.crypto.key.symmetric.SymmetricKey;
+import com.intel.icecp.node.security.SecurityConstants;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link AesGcmCipher}.
+ *
+ */
+public class AesGcmSchemeTest extends AesSymmetricCipherTest {
+
+    /** AES-GCM scheme to use */
+    protected final Cipher aesGcm = new AesGcmCipher();
+
+    /**
+     * Test for {@link AesGcmCipher#encrypt(byte[], com.intel.icecp.core.security.crypto.key.symmetric.SymmetricKey, java.lang.Object...) }
+     *
+     * @throws Exception
+     */
+    @Test
+    public void aesGcmEncTest() throws Exception {
+        for (int size : KEY_SIZES) {
+            Assert.assertNotNull(aesGcm.encrypt(textToEncrypt, symmetricKeyGen(size, SecurityConstants.AES)));
+        }
+    }
+
+    /**
+     * Test for {@link AesGcmCipher#decrypt(byte[], com.intel.icecp.core.security.crypto.key.symmetric.SymmetricKey, java.lang.Object...) }
+     *
+     * @throws Exception
+     */
+    @Test
+    public void aesGcmDecTest() throws Exception {
+        for (int size : KEY_SIZES) {
+            SymmetricKey sk = symmetricKeyGen(size, SecurityConstants.AES);
+            Assert.assertArrayEquals(textToEncrypt, aesGcm.decrypt(aesGcm.encrypt(textToEncrypt, sk), sk));
+        }
+    }
+
+    /**
+     * Two encryptions of the same plaintext must use different IVs
+     *
+     * @throws Exception
+     */
+    @Test
+    public void aesGcmUniqueIvTest() throws Exception {
+        SymmetricKey sk = symmetricKeyGen(KEY_SIZES[0], SecurityConstants.AES);
+        Assert.assertFalse(java.util.Arrays.equals(aesGcm.encrypt(textToEncrypt, sk), aesGcm.encrypt(textToEncrypt, sk)));
+    }
+
+    /**
+     * Decryption of a modified ciphertext must fail
+     *
+     * @throws Exception
+     */
+    @Test(expected = CipherDecryptionError.class)
+    public void aesGcmTamperedTest() throws Exception {
+        SymmetricKey sk = symmetricKeyGen(KEY_SIZES[0], SecurityConstants.AES);
+        byte[] ciphertext = aesGcm.encrypt(textToEncrypt, sk);
+        ciphertext[ciphertext.length / 2] ^= 0x01;
+        aesGcm.decrypt(ciphertext, sk);
+    }
+
+    /**
+     * Decryption with different additional authenticated data must fail
+     *
+     * @throws Exception
+     */
+    @Test(expected = CipherDecryptionError.class)
+    public void aesGcmWrongAadTest() throws Exception {
+        SymmetricKey sk = symmetricKeyGen(KEY_SIZES[0], SecurityConstants.AES);
+        byte[] ciphertext = aesGcm.encrypt(textToEncrypt, sk, null, new byte[]{1, 2, 3});
+        aesGcm.decrypt(ciphertext, sk, null, new byte[]{1, 2, 4});
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.security.crypto.cipher.symmetric;
+
+import com.intel.icecp.core.security.crypto.cipher.Cipher;
+import com.intel.icecp.core.security.crypto.exception.cipher.CipherDecryptionError;
+import com.intel.icecp.core.security.crypto.key.symmetric.SymmetricKey;
+import com.intel.icecp.node.security.SecurityConstants;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link ChaCha20Poly1305Cipher}.
+ *
+ */
+public class ChaCha20Poly1305CipherTest extends AesSymmetricCipherTest {
+
+    /** ChaCha20-Poly1305 scheme to use */
+    protected final Cipher chaCha = new ChaCha20Poly1305Cipher();
+
+    /**
+     * Test for {@link ChaCha20Poly1305Cipher#decrypt(byte[], com.intel.icecp.core.security.crypto.key.symmetric.SymmetricKey, java.lang.Object...) }
+     *
+     * @throws Exception
+     */
+    @Test
+    public void chaChaEncDecTest() throws Exception {
+        SymmetricKey sk = symmetricKeyGen(SecurityConstants.CHACHA20_KEY_SIZE, SecurityConstants.CHACHA20);
+        byte[] ciphertext = chaCha.encrypt(textToEncrypt, sk);
+        Assert.assertEquals(textToEncrypt.length + 12 + 16, ciphertext.length);
+        Assert.assertArrayEquals(textToEncrypt, chaCha.decrypt(ciphertext, sk));
+    }
+
+    /**
+     * Two encryptions of the same plaintext must use different nonces
+     *
+     * @throws Exception
+     */
+    @Test
+    public void chaChaUniqueIvTest() throws Exception {
+        SymmetricKey sk = symmetricKeyGen(SecurityConstants.CHACHA20_KEY_SIZE, SecurityConstants.CHACHA20);
+        Assert.assertFalse(java.util.Arrays.equals(chaCha.encrypt(textToEncrypt, sk), chaCha.encrypt(textToEncrypt, sk)));
+    }
+
+    /**
+     * Decryption of a modified ciphertext must fail
+     *
+     * @throws Exception
+     */
+    @Test(expected = CipherDecryptionError.class)
+    public void chaChaTamperedTest() throws Exception {
+        SymmetricKey sk = symmetricKeyGen(SecurityConstants.CHACHA20_KEY_SIZE, SecurityConstants.CHACHA20);
+        byte[] ciphertext = chaCha.encrypt(textToEncrypt, sk);
+        ciphertext[ciphertext.length / 2] ^= 0x01;
+        chaCha.decrypt(ciphertext, sk);
+    }
+
+    /**
+     * Decryption with different additional authenticated data must fail
+     *
+     * @throws Exception
+     */
+    @Test(expected = CipherDecryptionError.class)
+    public void chaChaWrongAadTest() throws Exception {
+        SymmetricKey sk = symmetricKeyGen(SecurityConstants.CHACHA20_KEY_SIZE, SecurityConstants.CHACHA20);
+        byte[] ciphertext = chaCha.encrypt(textToEncrypt, sk, null, new byte[]{1, 2, 3});
+        chaCha.decrypt(ciphertext, sk, null, new byte[]{1, 2, 4});
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.security.crypto.signature;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link MerkleTree}
+ *
+ */
+public class MerkleTreeTest {
+
+    private List<byte[]> leaves(int size) throws Exception {
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            leaves.add(MerkleTree.hashLeaf(new byte[]{(byte) i}));
+        }
+        return leaves;
+    }
+
+    @Test
+    public void everyLeafProvesTheRoot() throws Exception {
+        for (int size = 1; size <= 17; size++) {
+            List<byte[]> leaves = leaves(size);
+            MerkleTree tree = new MerkleTree(leaves);
+            for (int i = 0; i < size; i++) {
+                Assert.assertArrayEquals(tree.root(), MerkleTree.computeRoot(leaves.get(i), i, size, tree.path(i)));
+            }
+        }
+    }
+
+    @Test
+    public void wrongLeafDoesNotProveTheRoot() throws Exception {
+        List<byte[]> leaves = leaves(5);
+        MerkleTree tree = new MerkleTree(leaves);
+        byte[] root = MerkleTree.computeRoot(MerkleTree.hashLeaf(new byte[]{42}), 2, 5, tree.path(2));
+        Assert.assertFalse(java.util.Arrays.equals(tree.root(), root));
+    }
+
+    @Test
+    public void wrongIndexDoesNotProveTheRoot() throws Exception {
+        List<byte[]> leaves = leaves(8);
+        MerkleTree tree = new MerkleTree(leaves);
+        byte[] root = MerkleTree.computeRoot(leaves.get(3), 2, 8, tree.path(3));
+        Assert.assertFalse(java.util.Arrays.equals(tree.root(), root));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedPathIsRejected() throws Exception {
+        List<byte[]> leaves = leaves(8);
+        MerkleTree tree = new MerkleTree(leaves);
+        byte[][] path = tree.path(0);
+        MerkleTree.computeRoot(leaves.get(0), 0, 8, java.util.Arrays.copyOf(path, path.length - 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyTreeIsRejected() throws Exception {
+        new MerkleTree(new ArrayList<>());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.security.crypto.signature;
+
+import com.intel.icecp.core.security.crypto.exception.siganture.SignatureError;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for {@link VerificationCache}
+ *
+ */
+public class VerificationCacheTest {
+
+    private static final URI KEY_ID = URI.create("ndn://com/intel/test/key");
+    private final byte[] data = {1, 2, 3};
+    private final byte[] signature = {4, 5, 6};
+    private VerificationCache cache;
+    private AtomicInteger verifications;
+
+    @Before
+    public void before() {
+        cache = new VerificationCache(2);
+        verifications = new AtomicInteger();
+    }
+
+    @Test
+    public void repeatedVerificationIsSkipped() throws Exception {
+        cache.verify(KEY_ID, data, signature, verifications::incrementAndGet);
+        cache.verify(KEY_ID, data, signature, verifications::incrementAndGet);
+        cache.verify(KEY_ID, data.clone(), signature.clone(), verifications::incrementAndGet);
+
+        Assert.assertEquals(1, verifications.get());
+        Assert.assertEquals(2, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(2.0 / 3, cache.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void differentKeyDataOrSignatureIsVerified() throws Exception {
+        cache.verify(KEY_ID, data, signature, verifications::incrementAndGet);
+        cache.verify(URI.create("ndn://com/intel/test/other"), data, signature, verifications::incrementAndGet);
+        cache.verify(KEY_ID, new byte[]{1, 2, 4}, signature, verifications::incrementAndGet);
+        cache.verify(KEY_ID, data, new byte[]{4, 5, 7}, verifications::incrementAndGet);
+
+        Assert.assertEquals(4, verifications.get());
+        Assert.assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void failedVerificationIsNotCached() throws Exception {
+        try {
+            cache.verify(KEY_ID, data, signature, () -> {
+                throw new SignatureError("invalid");
+            });
+            Assert.fail();
+        } catch (SignatureError e) {
+            // expected
+        }
+
+        Assert.assertEquals(0, cache.size());
+        cache.verify(KEY_ID, data, signature, verifications::incrementAndGet);
+        Assert.assertEquals(1, verifications.get());
+    }
+
+    @Test
+    public void cacheIsBounded() throws Exception {
+        for (byte i = 0; i < 5; i++) {
+            cache.verify(KEY_ID, new byte[]{i}, signature, verifications::incrementAndGet);
+        }
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void attributeReportsMetrics() throws Exception {
+        cache.verify(KEY_ID, data, signature, verifications::incrementAndGet);
+        cache.verify(KEY_ID, data, signature, verifications::incrementAndGet);
+
+        VerificationCacheAttribute.VerificationCacheMetrics metrics = new VerificationCacheAttribute(cache).value();
+        Assert.assertEquals(1, metrics.hits);
+        Assert.assertEquals(1, metrics.misses);
+        Assert.assertEquals(1, metrics.entries);
+        Assert.assertEquals(0.5, metrics.hitRate, 0.0001);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.security.crypto.signature.eddsa;
+
+import com.intel.icecp.core.security.crypto.exception.siganture.SignatureError;
+import com.intel.icecp.core.security.crypto.key.asymmetric.KeyPair;
+import com.intel.icecp.core.security.crypto.signature.SignatureScheme;
+import com.intel.icecp.node.security.SecurityConstants;
+import com.intel.icecp.node.security.crypto.key.KeyProvider;
+import com.intel.icecp.node.security.crypto.signature.AsymmetricSignatureSchemeTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link Ed25519Scheme}
+ *
+ */
+public class Ed25519SchemeTest extends AsymmetricSignatureSchemeTest {
+
+    private static final SignatureScheme[] SCHEMES = {new Ed25519Scheme()};
+    // Ed25519 keys have a single, fixed size
+    private static final int[] KEY_SIZES = {SecurityConstants.ED25519_KEY_SIZE};
+
+    @Test
+    public void ed25519SignTest() throws Exception {
+        signTest(SecurityConstants.ED25519_ALGORITHM, SCHEMES, KEY_SIZES);
+    }
+
+    @Test
+    public void ed25519VerifyTest() throws Exception {
+        verifyTest(SecurityConstants.ED25519_ALGORITHM, SCHEMES, KEY_SIZES);
+    }
+
+    @Test
+    public void signatureIsDeterministic() throws Exception {
+        Ed25519Scheme scheme = new Ed25519Scheme();
+        KeyPair kp = KeyProvider.generateEd25519KeyPair();
+        byte[] data = {1, 2, 3, 4};
+        Assert.assertArrayEquals(scheme.sign(data, kp.getPrivateKey()), scheme.sign(data, kp.getPrivateKey()));
+    }
+
+    @Test(expected = SignatureError.class)
+    public void tamperedDataFailsVerification() throws Exception {
+        Ed25519Scheme scheme = new Ed25519Scheme();
+        KeyPair kp = KeyProvider.generateEd25519KeyPair();
+        byte[] signature = scheme.sign(new byte[]{1, 2, 3, 4}, kp.getPrivateKey());
+        scheme.verify(signature, new byte[]{1, 2, 3, 5}, kp.getPublicKey());
+    }
+
+}
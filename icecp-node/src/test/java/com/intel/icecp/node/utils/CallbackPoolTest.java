@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.utils;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test CallbackPool
+ *
+ */
+public class CallbackPoolTest {
+
+    @Test
+    public void slowSubscriptionDoesNotDelayOthers() throws Exception {
+        CallbackPool instance = new CallbackPool(2, 16, 1000);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(10);
+        Executor slow = instance.newExecutor("/slow");
+        Executor fast = instance.newExecutor("/fast");
+
+        slow.execute(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            fast.execute(done::countDown);
+        }
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        blocked.countDown();
+    }
+
+    @Test
+    public void callbacksRunInOrderOnCallbackThreads() throws Exception {
+        CallbackPool instance = new CallbackPool(4, 1024, 1000);
+        Executor executor = instance.newExecutor("/ordered");
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(100);
+
+        for (int i = 0; i < 100; i++) {
+            int callback = i;
+            executor.execute(() -> {
+                order.add(callback);
+                threads.add(Thread.currentThread().getName());
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) order.get(i));
+            assertTrue(threads.get(i).startsWith("icecp-callback-"));
+        }
+    }
+
+    @Test
+    public void slowCallbacksAreCounted() throws Exception {
+        CallbackPool instance = new CallbackPool(1, 16, 10);
+        CountDownLatch done = new CountDownLatch(1);
+        Executor executor = instance.newExecutor("/slow");
+
+        executor.execute(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(done::countDown);
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(1, instance.getSlowCallbacks());
+    }
+
+    @Test
+    public void subscriptionsAreLossless() throws Exception {
+        CallbackPool instance = new CallbackPool(1, 2, 1000);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(10);
+        CallbackPool.Subscription executor = instance.newExecutor("/lossless");
+
+        executor.execute(() -> await(blocked));
+        for (int i = 0; i < 10; i++) {
+            executor.execute(done::countDown);
+        }
+        blocked.countDown();
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(0, executor.getDropped());
+        assertEquals(0, instance.getDropped("/lossless"));
+    }
+
+    @Test
+    public void conflatingSubscriptionsDropOldestAndCountPerChannel() throws Exception {
+        CallbackPool instance = new CallbackPool(1, 2, 1000);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        CallbackPool.Subscription first = instance.newConflatingExecutor("/conflating");
+        CallbackPool.Subscription second = instance.newConflatingExecutor("/conflating");
+
+        CountDownLatch started = new CountDownLatch(1);
+        first.execute(() -> {
+            started.countDown();
+            await(blocked);
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            first.execute(done::countDown);
+        }
+        blocked.countDown();
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(3, first.getDropped());
+        assertEquals(0, second.getDropped());
+        assertEquals(3, instance.getDropped("/conflating"));
+        assertEquals(0, instance.getDropped("/other"));
+    }
+
+    @Test
+    public void defaultPoolIsSizedForBlockingCallbacks() {
+        assertEquals(Runtime.getRuntime().availableProcessors() * CallbackPool.THREADS_PER_CPU, CallbackPool.DEFAULT_THREADS);
+    }
+
+    @Test
+    public void configureResizesPool() {
+        CallbackPool instance = new CallbackPool(2, 16, 1000);
+
+        instance.configure(8, 32, 500);
+        assertEquals(8, instance.getThreads());
+        instance.configure(1, 32, 500);
+        assertEquals(1, instance.getThreads());
+        assertEquals(32, instance.getMaxQueued());
+        assertEquals(500, instance.getSlowCallbackMs());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void queueBoundMustBePositive() {
+        new CallbackPool(1, 0, 1000);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
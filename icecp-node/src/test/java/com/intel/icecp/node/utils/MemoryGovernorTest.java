@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test MemoryGovernor
+ *
+ */
+public class MemoryGovernorTest {
+
+    private final List<String> evicted = new ArrayList<>();
+
+    @Test
+    public void oldestEntriesAreEvictedAcrossCaches() {
+        MemoryGovernor instance = new MemoryGovernor(100, MemoryGovernor.Order.OLDEST_FIRST);
+        MemoryGovernor.Registration a = register(instance, "a");
+        MemoryGovernor.Registration b = register(instance, "b");
+
+        a.add(0, 40);
+        b.add(0, 40);
+        a.add(1, 40);
+
+        assertEquals(Collections.singletonList("a0"), evicted);
+        assertEquals(80, instance.getUsage());
+        assertEquals(40, a.getUsage());
+        assertEquals(40, b.getUsage());
+        assertEquals(1, instance.getEvictions());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvictedFirst() {
+        MemoryGovernor instance = new MemoryGovernor(100, MemoryGovernor.Order.LEAST_RECENTLY_USED);
+        MemoryGovernor.Registration a = register(instance, "a");
+        MemoryGovernor.Registration b = register(instance, "b");
+
+        a.add(0, 40);
+        b.add(0, 40);
+        a.touch(0);
+        b.add(1, 40);
+
+        assertEquals(Collections.singletonList("b0"), evicted);
+    }
+
+    @Test
+    public void resizingRefinesEstimatesAndEnforcesTheBudget() {
+        MemoryGovernor instance = new MemoryGovernor(100, MemoryGovernor.Order.OLDEST_FIRST);
+        MemoryGovernor.Registration a = register(instance, "a");
+        assertEquals(MemoryGovernor.DEFAULT_ESTIMATE, a.estimate());
+
+        a.add(0, 10);
+        a.add(1, 10);
+        a.resize(0, 30);
+        a.resize(1, 90);
+
+        assertEquals(60, a.estimate());
+        assertEquals(Collections.singletonList("a0"), evicted);
+        assertEquals(90, instance.getUsage());
+    }
+
+    @Test
+    public void entriesOverTheBudgetAreKeptUntilTheNextAddition() {
+        MemoryGovernor instance = new MemoryGovernor(100, MemoryGovernor.Order.OLDEST_FIRST);
+        MemoryGovernor.Registration a = register(instance, "a");
+
+        a.add(0, 10);
+        a.add(1, 500);
+        assertEquals(Collections.singletonList("a0"), evicted);
+        assertEquals(500, instance.getUsage());
+
+        a.add(2, 10);
+        assertEquals(Arrays.asList("a0", "a1"), evicted);
+    }
+
+    @Test
+    public void removedAndClosedEntriesAreNoLongerAccounted() {
+        MemoryGovernor instance = new MemoryGovernor(100, MemoryGovernor.Order.OLDEST_FIRST);
+        MemoryGovernor.Registration a = register(instance, "a");
+        MemoryGovernor.Registration b = register(instance, "b");
+
+        a.add(0, 10);
+        a.add(1, 10);
+        b.add(0, 10);
+        a.remove(0);
+        assertEquals(20, instance.getUsage());
+
+        a.close();
+        assertEquals(10, instance.getUsage());
+        assertEquals(1, instance.getEntryCount());
+        assertTrue(evicted.isEmpty());
+    }
+
+    @Test
+    public void loweringTheBudgetEvictsImmediately() {
+        MemoryGovernor instance = new MemoryGovernor(100, MemoryGovernor.Order.OLDEST_FIRST);
+        MemoryGovernor.Registration a = register(instance, "a");
+        a.add(0, 40);
+        a.add(1, 40);
+
+        instance.configure(50, MemoryGovernor.Order.fromName("least-recently-used"));
+
+        assertEquals(Collections.singletonList("a0"), evicted);
+        assertEquals(MemoryGovernor.Order.LEAST_RECENTLY_USED, instance.getOrder());
+    }
+
+    private MemoryGovernor.Registration register(MemoryGovernor governor, String name) {
+        return governor.register(name, id -> evicted.add(name + id));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test PipelinedRetrieval
+ *
+ */
+public class PipelinedRetrievalTest {
+
+    private final List<CompletableFuture<List<Long>>> requests = new ArrayList<>();
+
+    @Test
+    public void requestsAreIssuedAheadOfConsumptionUpToTheWindow() {
+        Stream<Long> stream = PipelinedRetrieval.stream(10, 99, 4, this::request);
+        assertTrue(requests.isEmpty());
+
+        List<Long> first = new ArrayList<>();
+        stream.iterator().forEachRemaining(id -> {
+            if (first.isEmpty()) {
+                first.add(id);
+                assertEquals(4, requests.size());
+            }
+        });
+
+        assertEquals(Long.valueOf(10), first.get(0));
+        assertEquals(90, requests.size());
+    }
+
+    @Test
+    public void messagesAreInIdOrderAndUnavailableIdsAreSkipped() {
+        List<Long> retrieved = PipelinedRetrieval.stream(0, 9, 3, id -> {
+            CompletableFuture<List<Long>> future = new CompletableFuture<>();
+            if (id % 3 == 0) {
+                future.completeExceptionally(new IllegalStateException("missing " + id));
+            } else if (id == 5) {
+                future.complete(Arrays.asList(50L, 51L));
+            } else {
+                future.complete(Collections.singletonList(id * 10));
+            }
+            return future;
+        }).collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(10L, 20L, 40L, 50L, 51L, 70L, 80L), retrieved);
+    }
+
+    @Test
+    public void shortCircuitedStreamsStopRequesting() {
+        assertEquals(2, PipelinedRetrieval.stream(0, Long.MAX_VALUE, 8, this::request).limit(2).count());
+        assertEquals(9, requests.size()); // the window is refilled once, before the second message is taken
+    }
+
+    @Test
+    public void closingCancelsRequestsInFlight() {
+        Stream<Long> stream = PipelinedRetrieval.stream(0, 100, 8, id -> {
+            CompletableFuture<List<Long>> future = id == 0 ? CompletableFuture.completedFuture(Collections.singletonList(id)) : new CompletableFuture<>();
+            requests.add(future);
+            return future;
+        });
+        assertEquals(Long.valueOf(0), stream.findFirst().get());
+        stream.close();
+
+        assertEquals(8, requests.size());
+        assertTrue(requests.get(7).isCancelled());
+    }
+
+    @Test
+    public void rangesResolveWhenConsumed() {
+        CompletableFuture<Long> from = new CompletableFuture<>();
+        Stream<Long> stream = PipelinedRetrieval.stream(from, CompletableFuture.completedFuture(4L), 8, this::request);
+        from.complete(2L);
+
+        assertEquals(Arrays.asList(2L, 3L, 4L), stream.collect(Collectors.toList()));
+        assertEquals(0, PipelinedRetrieval.stream(5, 4, 8, this::request).count());
+    }
+
+    private CompletableFuture<List<Long>> request(long id) {
+        CompletableFuture<List<Long>> future = CompletableFuture.completedFuture(Collections.singletonList(id));
+        requests.add(future);
+        return future;
+    }
+}
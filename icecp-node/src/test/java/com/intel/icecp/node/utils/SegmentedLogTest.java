@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2017 Intel Corporation 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intel.icecp.node.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test SegmentedLog
+ *
+ */
+public class SegmentedLogTest {
+
+    private Path directory;
+    private SegmentedLog instance;
+
+    @Before
+    public void before() throws IOException {
+        directory = Files.createTempDirectory("segmented-log-test");
+        instance = new SegmentedLog(directory, 256, 64);
+    }
+
+    @After
+    public void after() throws IOException {
+        instance.close();
+    }
+
+    @Test
+    public void emptyLog() {
+        assertEquals(-1, instance.getEarliestId());
+        assertEquals(-1, instance.getLatestId());
+        assertNull(instance.latest());
+        assertNull(instance.earliest());
+        assertNull(instance.read(0));
+    }
+
+    @Test
+    public void readRecordsAcrossSegments() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, instance.append(payload(i), 1000 + i));
+        }
+
+        assertEquals(0, instance.getEarliestId());
+        assertEquals(99, instance.getLatestId());
+        for (int i = 0; i < 100; i++) {
+            SegmentedLog.Record record = instance.read(i);
+            assertEquals(i, record.id);
+            assertEquals(1000 + i, record.timestamp);
+            assertArrayEquals(payload(i), record.payload);
+        }
+        assertArrayEquals(payload(99), instance.latest().payload);
+        assertArrayEquals(payload(0), instance.earliest().payload);
+        assertNull(instance.read(100));
+        assertTrue(Files.list(directory).count() > 1);
+    }
+
+    @Test
+    public void recordsLargerThanSegmentsGetTheirOwnSegment() throws IOException {
+        instance.append(payload(1), 0);
+        instance.append(new byte[1000], 0);
+        instance.append(payload(2), 0);
+
+        assertEquals(1000, instance.read(1).payload.length);
+        assertArrayEquals(payload(2), instance.read(2).payload);
+    }
+
+    @Test
+    public void reopenedLogContinuesIds() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            instance.append(payload(i), i);
+        }
+        instance.close();
+
+        instance = new SegmentedLog(directory, 256, 64);
+        assertEquals(19, instance.getLatestId());
+        assertArrayEquals(payload(7), instance.read(7).payload);
+        assertEquals(20, instance.append(payload(20), 20));
+        assertArrayEquals(payload(20), instance.latest().payload);
+    }
+
+    @Test
+    public void refreshPicksUpRecordsOfAnotherWriter() throws IOException {
+        SegmentedLog reader = new SegmentedLog(directory, 256, 64);
+        for (int i = 0; i < 20; i++) {
+            instance.append(payload(i), i);
+        }
+        assertEquals(-1, reader.getLatestId());
+
+        reader.refresh();
+        assertEquals(19, reader.getLatestId());
+        for (int i = 0; i < 20; i++) {
+            assertArrayEquals(payload(i), reader.read(i).payload);
+        }
+        reader.close();
+    }
+
+    @Test
+    public void explicitIdsMayHaveGaps() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            instance.append(i * 3, payload(i), i);
+        }
+
+        assertEquals(147, instance.getLatestId());
+        assertArrayEquals(payload(20), instance.read(60).payload);
+        assertTrue(instance.contains(60));
+        assertFalse(instance.contains(61));
+        assertNull(instance.read(61));
+        assertEquals(148, instance.append(payload(50), 50));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void explicitIdsMustIncrease() throws IOException {
+        instance.append(5, payload(1), 0);
+        instance.append(5, payload(2), 0);
+    }
+
+    @Test
+    public void deleteBeforeRemovesWholeSegments() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            instance.append(payload(i), i);
+        }
+        int segments = instance.getSegmentCount();
+        long end = instance.getOldestSegmentEnd();
+
+        assertEquals(0, instance.deleteBefore(end - 1));
+        assertEquals(1, instance.deleteBefore(end));
+        assertEquals(segments - 1, instance.getSegmentCount());
+        assertEquals(end, instance.getEarliestId());
+        assertNull(instance.read(end - 1));
+
+        instance.deleteBefore(Long.MAX_VALUE);
+        assertEquals(1, instance.getSegmentCount());
+        assertArrayEquals(payload(99), instance.latest().payload);
+    }
+
+    @Test
+    public void findIdByTimestamp() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            instance.append(i * 2, payload(i), 1000 + i * 10);
+        }
+
+        assertEquals(0, instance.findId(0));
+        assertEquals(0, instance.findId(1000));
+        assertEquals(2, instance.findId(1001));
+        assertEquals(100, instance.findId(1500));
+        assertEquals(198, instance.findId(1990));
+        assertEquals(199, instance.findId(1991));
+    }
+
+    private static byte[] payload(int i) {
+        byte[] payload = new byte[i % 30];
+        for (int j = 0; j < payload.length; j++) {
+            payload[j] = (byte) (i + j);
+        }
+        return payload;
+    }
+}
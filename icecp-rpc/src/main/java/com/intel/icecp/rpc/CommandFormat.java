@@ -15,6 +15,9 @@
  */
 package com.intel.icecp.rpc;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intel.icecp.core.channels.Token;
+import com.intel.icecp.core.metadata.formats.JacksonMapperRegistry;
 import com.intel.icecp.core.metadata.formats.JsonFormat;
 
 /**
@@ -26,11 +29,13 @@ import com.intel.icecp.core.metadata.formats.JsonFormat;
  */
 class CommandFormat extends JsonFormat<CommandRequest> {
 
+    /** Mapper configuration shared by all command formats */
+    private static final JacksonMapperRegistry REGISTRY = new JacksonMapperRegistry(new ObjectMapper().enableDefaultTyping());
+
     /**
-     * Constructor; modifies mapper configuration
+     * Constructor; uses a mapper with default typing enabled
      */
     public CommandFormat() {
-        super(CommandRequest.class);
-        mapper.enableDefaultTyping();
+        super(Token.of(CommandRequest.class), REGISTRY);
     }
 }